@@ -0,0 +1,52 @@
+package com.hjc.component.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步缓存接口（与ICache对应），调用线程不等待redis连接和网络读写
+ * 
+ * @author hjc
+ *
+ */
+public interface AsyncCache {
+	/**
+	 * 获取缓存
+	 * 
+	 * @param key
+	 *            缓存KEY
+	 * @return 缓存对象，未命中时结果为null
+	 */
+	CompletableFuture<CacheWrapper> getAsync(CacheKey key);
+
+	/**
+	 * 批量获取缓存
+	 * 
+	 * @param keys
+	 *            缓存KEY
+	 * @return 命中的缓存对象，未命中的KEY不在返回结果中
+	 */
+	CompletableFuture<Map<CacheKey, CacheWrapper>> getAllAsync(Collection<CacheKey> keys);
+
+	/**
+	 * 储存缓存，key存在直接覆盖
+	 * 
+	 * @param key
+	 *            缓存KEY
+	 * @param wrapper
+	 *            缓存对象
+	 * @return 储存完成
+	 */
+	CompletableFuture<Void> putAsync(CacheKey key, CacheWrapper wrapper);
+
+	/**
+	 * 删除缓存
+	 * 
+	 * @param key
+	 *            缓存KEY
+	 * @return 删除完成
+	 */
+	CompletableFuture<Void> delAsync(CacheKey key);
+
+}
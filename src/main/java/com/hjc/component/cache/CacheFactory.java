@@ -3,8 +3,11 @@ package com.hjc.component.cache;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.hjc.component.cache.jcs.JcsAsyncCache;
 import com.hjc.component.cache.jcs.JcsCache;
 import com.hjc.component.cache.redis.BinaryJedisFactory;
+import com.hjc.component.cache.redis.NearRedisCache;
+import com.hjc.component.cache.redis.RedisAsyncCache;
 import com.hjc.component.cache.redis.RedisCache;
 import com.hjc.component.cache.util.StringHelper;
 import org.apache.jcs.access.exception.CacheException;
@@ -17,10 +20,12 @@ import org.apache.jcs.access.exception.CacheException;
  *
  */
 public class CacheFactory {
-    private static Map<String, ICache> jcsCache             = new ConcurrentHashMap<String, ICache>();
-    private static Map<String, ICache> redisCache           = new ConcurrentHashMap<String, ICache>();
-    private static String              DEFAULT_CACHE_REGION = "hjcpub";
-    private static String              REDIS_DNY_PROPS      = "redis_dny.props";
+    private static Map<String, ICache>     jcsCache             = new ConcurrentHashMap<String, ICache>();
+    private static Map<String, ICache>     redisCache           = new ConcurrentHashMap<String, ICache>();
+    private static Map<String, ICache>     nearCache            = new ConcurrentHashMap<String, ICache>();
+    private static Map<ICache, AsyncCache> asyncCache           = new ConcurrentHashMap<ICache, AsyncCache>();
+    private static String                  DEFAULT_CACHE_REGION = "hjcpub";
+    private static String                  REDIS_DNY_PROPS      = "redis_dny.props";
     
     public static ICache getRedisCache(String redisCfg) {
         ICache cache = redisCache.get(redisCfg);
@@ -31,6 +36,15 @@ public class CacheFactory {
         return cache;
     }
     
+    public static ICache getNearCache(String redisCfg) {
+        ICache cache = nearCache.get(redisCfg);
+        if (cache == null) {
+            cache = new NearRedisCache(redisCfg);
+            nearCache.put(redisCfg, cache);
+        }
+        return cache;
+    }
+    
     private static ICache getRedisCache() {
         String appId = BinaryJedisFactory.getAppId();
         if (StringHelper.isNotEmpty(appId)) {
@@ -50,6 +64,9 @@ public class CacheFactory {
         } else if (type == CacheType.REDIS_DNY) {
             //前台配置
             return getRedisCache(REDIS_DNY_PROPS);
+        } else if (type == CacheType.REDIS_NEAR) {
+            //后台配置 + 进程内一级缓存
+            return getNearCache(RedisCache.DEFAULT_REDIS);
         }
         
         if (type == CacheType.JCS) {
@@ -70,4 +87,36 @@ public class CacheFactory {
         }
         throw new RuntimeException("不支持的缓存类型：" + type);
     }
+    
+    /**
+     * 获取异步缓存接口
+     * 
+     * @param type
+     *            缓存类型
+     * @param region
+     *            KEY所属区域(JCS必填)
+     * @return AsyncCache
+     */
+    public static AsyncCache getAsyncCache(CacheType type, String region) {
+        ICache cache = getCache(type, region);
+        AsyncCache async = asyncCache.get(cache);
+        if (async == null) {
+            synchronized (asyncCache) {
+                async = asyncCache.get(cache);
+                if (async == null) {
+                    if (cache instanceof RedisCache) {
+                        async = new RedisAsyncCache(getRedisCfg(type), (RedisCache) cache);
+                    } else {
+                        async = new JcsAsyncCache((JcsCache) cache);
+                    }
+                    asyncCache.put(cache, async);
+                }
+            }
+        }
+        return async;
+    }
+    
+    private static String getRedisCfg(CacheType type) {
+        return type == CacheType.REDIS_DNY ? REDIS_DNY_PROPS : RedisCache.DEFAULT_REDIS;
+    }
 }
@@ -4,77 +4,260 @@ import com.hjc.component.cache.util.Serialize;
 import com.hjc.component.cache.util.StringHelper;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 
+import redis.clients.util.JedisClusterCRC16;
 
+/**
+ * 缓存KEY（不可变）<br/>
+ * 字符串、编码后的字节和集群slot在第一次使用时计算并缓存
+ * 
+ * @author hjc
+ *
+ */
 public class CacheKey implements Serializable {
-	private static final long serialVersionUID = -7299223069008165363L;
+	private static final long         serialVersionUID = -7299223069008165363L;
+	/**
+	 * 区域成员编码的标记（旧的FST格式第一个字节为0xFB）
+	 */
+	private static final byte         KEY_MAGIC        = (byte) 0xCB;
 	/**
 	 * 为了防止不同应用Key冲突
 	 */
-	private String namespace;
+	private final String              namespace;
 	/**
 	 * 缓存Key
 	 */
-	private String key;
+	private final String              key;
 	/**
 	 * 哈希的field(如何设置此项，则使用hash存储)
 	 */
-	private String hfield;
+	private final String              hfield;
+	/**
+	 * 以下为延迟计算的缓存（不序列化）
+	 */
+	private transient String          cacheKey;
+	private transient String          fullKey;
+	private transient volatile byte[] cacheKeyBytes;
+	private transient volatile byte[] hfieldBytes;
+	private transient volatile byte[] fullKeyBytes;
+	private transient int             slot; // slot + 1，0表示未计算
+
+	/**
+	 * 序列化框架使用
+	 */
+	private CacheKey() {
+		this(null, null, null);
+	}
+
+	public CacheKey(String namespace, String key, String hfield) {
+		this.namespace = namespace;
+		this.key = key;
+		this.hfield = hfield;
+	}
 
+	/**
+	 * 从区域成员解析缓存KEY（兼容旧的FST格式）
+	 * 
+	 * @param fullKeyBytes
+	 *            getFullKeyBytes()或getLegacyFullKeyBytes()的结果
+	 * @return 缓存KEY
+	 */
 	public static CacheKey from(byte[] fullKeyBytes) {
+		if (fullKeyBytes != null && fullKeyBytes.length > 0 && fullKeyBytes[0] == KEY_MAGIC) {
+			int[] pos = new int[] { 1 };
+			String namespace = readString(fullKeyBytes, pos);
+			String key = readString(fullKeyBytes, pos);
+			return new CacheKey(namespace, key, readString(fullKeyBytes, pos));
+		}
+
 		String[] args = Serialize.fstdeserialize(fullKeyBytes);
-		CacheKey key = new CacheKey();
-		key.setNamespace(args[0]);
-		key.setKey(args[1]);
-		key.setHfield(args[2]);
-		return key;
+		return new CacheKey(args[0], args[1], args[2]);
 	}
 
 	public String getNamespace() {
 		return namespace;
 	}
 
-	public void setNamespace(String namespace) {
-		this.namespace = namespace;
-	}
-
 	public String getKey() {
 		return key;
 	}
 
-	public void setKey(String key) {
-		this.key = key;
-	}
-
 	public String getHfield() {
 		return hfield;
 	}
 
-	public void setHfield(String hfield) {
-		this.hfield = hfield;
-	}
-
 	public String getCacheKey() {
-		if (StringHelper.isNotEmpty(this.namespace)) {
-			return this.namespace + ":" + this.key;
+		String str = cacheKey;
+		if (str == null) {
+			if (StringHelper.isNotEmpty(this.namespace)) {
+				str = this.namespace + ":" + this.key;
+			} else {
+				str = this.key;
+			}
+			cacheKey = str;
 		}
-		return this.key;
+		return str;
 	}
 
 	public String getFullKey() {
-		StringBuilder b = new StringBuilder();
-		if (StringHelper.isNotEmpty(this.namespace)) {
-			b.append(this.namespace).append(":");
+		String str = fullKey;
+		if (str == null) {
+			if (StringHelper.isNotEmpty(this.hfield)) {
+				str = getCacheKey() + ":" + this.hfield;
+			} else {
+				str = getCacheKey();
+			}
+			fullKey = str;
 		}
-		b.append(this.key);
-		if (StringHelper.isNotEmpty(this.hfield)) {
-			b.append(":").append(this.hfield);
+		return str;
+	}
+
+	/**
+	 * redis的KEY（UTF-8）
+	 * 
+	 * @return byte[]，调用方不能修改
+	 */
+	public byte[] getCacheKeyBytes() {
+		byte[] bytes = cacheKeyBytes;
+		if (bytes == null) {
+			bytes = toBytes(getCacheKey());
+			cacheKeyBytes = bytes;
 		}
-		return b.toString();
+		return bytes;
 	}
 
+	/**
+	 * hash的field（UTF-8）
+	 * 
+	 * @return 没有hfield返回null，调用方不能修改
+	 */
+	public byte[] getHfieldBytes() {
+		if (StringHelper.isEmpty(hfield)) {
+			return null;
+		}
+		byte[] bytes = hfieldBytes;
+		if (bytes == null) {
+			bytes = toBytes(hfield);
+			hfieldBytes = bytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * redis集群的slot（支持{hashtag}）
+	 * 
+	 * @return slot
+	 */
+	public int getSlot() {
+		int s = slot;
+		if (s == 0) {
+			s = JedisClusterCRC16.getSlot(getCacheKeyBytes()) + 1;
+			slot = s;
+		}
+		return s - 1;
+	}
+
+	/**
+	 * 区域成员（zset）使用的编码：1个字节的标记 + namespace、key、hfield<br/>
+	 * 每个字符串为变长整数（UTF-8长度 + 1，0表示null） + UTF-8字节
+	 * 
+	 * @return byte[]，调用方不能修改
+	 */
 	public byte[] getFullKeyBytes() {
+		byte[] bytes = fullKeyBytes;
+		if (bytes != null) {
+			return bytes;
+		}
+		byte[] ns = toBytes(namespace);
+		byte[] k = toBytes(key);
+		byte[] hf = toBytes(hfield);
+		bytes = new byte[1 + sizeOf(ns) + sizeOf(k) + sizeOf(hf)];
+		bytes[0] = KEY_MAGIC;
+		int pos = writeString(bytes, 1, ns);
+		pos = writeString(bytes, pos, k);
+		writeString(bytes, pos, hf);
+		fullKeyBytes = bytes;
+		return bytes;
+	}
+
+	/**
+	 * 旧的区域成员编码（FST序列化的String[]），用于删除迁移前保存的成员
+	 * 
+	 * @return byte[]
+	 */
+	public byte[] getLegacyFullKeyBytes() {
 		return Serialize.fstserialize(new String[] { namespace, key, hfield });
 	}
 
+	private static byte[] toBytes(String str) {
+		return str == null ? null : str.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int sizeOf(byte[] str) {
+		int value = str == null ? 0 : str.length + 1;
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size + (str == null ? 0 : str.length);
+	}
+
+	private static int writeString(byte[] bytes, int pos, byte[] str) {
+		int value = str == null ? 0 : str.length + 1;
+		while ((value & ~0x7F) != 0) {
+			bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[pos++] = (byte) value;
+		if (str != null) {
+			System.arraycopy(str, 0, bytes, pos, str.length);
+			pos += str.length;
+		}
+		return pos;
+	}
+
+	private static String readString(byte[] bytes, int[] pos) {
+		int p = pos[0];
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[p++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		String str = null;
+		if (value > 0) {
+			str = new String(bytes, p, value - 1, StandardCharsets.UTF_8);
+			p += value - 1;
+		}
+		pos[0] = p;
+		return str;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = namespace == null ? 0 : namespace.hashCode();
+		h = 31 * h + (key == null ? 0 : key.hashCode());
+		h = 31 * h + (hfield == null ? 0 : hfield.hashCode());
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CacheKey)) {
+			return false;
+		}
+		CacheKey other = (CacheKey) obj;
+		return eq(namespace, other.namespace) && eq(key, other.key) && eq(hfield, other.hfield);
+	}
+
+	private static boolean eq(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
 }
@@ -19,4 +19,8 @@ public enum CacheType {
      * 实例数据缓存（配置文件redis_dny.props）
      */
     , REDIS_DNY
+    /**
+     * 静态配置缓存，带进程内一级缓存（配置文件redis.props）
+     */
+    , REDIS_NEAR
 }
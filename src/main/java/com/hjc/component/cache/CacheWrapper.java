@@ -1,6 +1,7 @@
 package com.hjc.component.cache;
 
 import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 对缓存数据进行封装
@@ -18,10 +19,22 @@ public class CacheWrapper implements Serializable {
 	 * 加载时间
 	 */
 	private long lastLoadTime;
+	/**
+	 * 加载耗时，单位：毫秒
+	 */
+	private long loadTime;
 	/**
 	 * 缓存时长
 	 */
 	private int expire;
+	/**
+	 * 过期后仍可返回旧值的时长（软过期），实际存储时长为expire + staleTime
+	 */
+	private int staleTime;
+	/**
+	 * 保存时使用的编解码名称，为空时使用缓存配置的编解码（不序列化）
+	 */
+	private transient String codec;
 
 	public CacheWrapper() {
 	}
@@ -32,6 +45,11 @@ public class CacheWrapper implements Serializable {
 		this.expire = expire;
 	}
 
+	public CacheWrapper(Object cacheObject, int expire, int staleTime) {
+		this(cacheObject, expire);
+		this.staleTime = staleTime;
+	}
+
 	public long getLastLoadTime() {
 		return lastLoadTime;
 	}
@@ -40,6 +58,14 @@ public class CacheWrapper implements Serializable {
 		this.lastLoadTime = lastLoadTime;
 	}
 
+	public long getLoadTime() {
+		return loadTime;
+	}
+
+	public void setLoadTime(long loadTime) {
+		this.loadTime = loadTime;
+	}
+
 	public Object getCacheObject() {
 		return cacheObject;
 	}
@@ -56,18 +82,77 @@ public class CacheWrapper implements Serializable {
 		this.expire = expire;
 	}
 
+	public int getStaleTime() {
+		return staleTime;
+	}
+
+	public void setStaleTime(int staleTime) {
+		this.staleTime = staleTime;
+	}
+
+	public String getCodec() {
+		return codec;
+	}
+
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
 	/**
-	 * 判断缓存是否已经过期
+	 * 实际存储的时长（expire + staleTime），单位：秒
+	 * 
+	 * @return 时长，0表示永久
+	 */
+	public int getStoreExpire() {
+		if (expire > 0) {
+			return expire + Math.max(staleTime, 0);
+		}
+		return expire;
+	}
+
+	/**
+	 * 判断缓存是否已经过期（超过expire + staleTime，旧值不可再用）
 	 * 
 	 * @return boolean
 	 */
 	public boolean isExpired() {
 		if (expire > 0) {
-			long t = System.currentTimeMillis() - lastLoadTime - expire * 1000;
+			long t = System.currentTimeMillis() - lastLoadTime - getStoreExpire() * 1000L;
 			if (t > 0) {
 				return true;
 			}
 		}
 		return false;
 	}
+
+	/**
+	 * 判断缓存是否已经软过期（超过expire，需要刷新）
+	 * 
+	 * @return boolean
+	 */
+	public boolean isStale() {
+		if (expire > 0) {
+			long t = System.currentTimeMillis() - lastLoadTime - expire * 1000L;
+			if (t > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 概率提前过期（XFetch）：越接近过期、加载耗时越长，提前刷新的概率越大<br/>
+	 * 判断条件：now - loadTime * beta * ln(random) >= lastLoadTime + expire
+	 * 
+	 * @param beta
+	 *            提前系数，大于1倾向提前刷新，小于1倾向推迟刷新
+	 * @return boolean
+	 */
+	public boolean isEarlyExpired(double beta) {
+		if (expire <= 0 || beta <= 0 || loadTime <= 0) {
+			return false;
+		}
+		double gap = -loadTime * beta * Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+		return System.currentTimeMillis() + gap >= lastLoadTime + expire * 1000L;
+	}
 }
@@ -1,5 +1,8 @@
 package com.hjc.component.cache;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * 缓存接口
  * 
@@ -26,6 +29,23 @@ public interface ICache {
 	 */
 	void put(CacheKey key, CacheWrapper wrapper);
 
+	/**
+	 * 批量获取缓存
+	 * 
+	 * @param keys
+	 *            缓存KEY
+	 * @return 命中的缓存对象，未命中的KEY不在返回结果中
+	 */
+	Map<CacheKey, CacheWrapper> getAll(Collection<CacheKey> keys);
+
+	/**
+	 * 批量储存缓存，key存在直接覆盖
+	 * 
+	 * @param wrappers
+	 *            缓存KEY -> 缓存对象
+	 */
+	void putAll(Map<CacheKey, CacheWrapper> wrappers);
+
 	/**
 	 * 删除缓存
 	 * 
@@ -59,6 +59,29 @@ public @interface Cache {
 	 */
 	int expire() default CacheKeyDefine.DAY;
 
+	/**
+	 * 软过期时长，单位：秒，0表示不启用<br/>
+	 * 缓存超过expire后的staleTime内，直接返回旧值并在后台刷新一次（实际存储时长为expire + staleTime）
+	 * 
+	 * @return 时间
+	 */
+	int staleTime() default 0;
+
+	/**
+	 * 概率提前刷新（XFetch）的系数，0表示不启用，一般取1.0<br/>
+	 * 接近过期时按加载耗时和剩余时长计算的概率在后台提前刷新，避免热点KEY同时过期
+	 * 
+	 * @return 系数
+	 */
+	double earlyRefreshBeta() default 0;
+
+	/**
+	 * 缓存值的编解码：fst、kryo、json，为空时使用redis配置文件的codec（默认fst）
+	 * 
+	 * @return String
+	 */
+	String codec() default StringHelper.EMPTY;
+
 	/**
 	 * 是否进行缓存<br/>
 	 * true 如果缓存没有，调用方法获取并保存缓存后返回<br/>
@@ -82,4 +105,49 @@ public @interface Cache {
 	 */
 	String refreshBeanName() default StringHelper.EMPTY;
 
+	/**
+	 * 是否合并同一KEY的并发加载（进程内）<br/>
+	 * true 缓存未命中时只有一个线程调用方法加载，其它线程等待并共享其结果
+	 * 
+	 * @return boolean
+	 */
+	boolean singleFlight() default false;
+
+	/**
+	 * 合并加载时等待的最长时间，单位：毫秒，超时后直接调用方法加载
+	 * 
+	 * @return 时间
+	 */
+	int singleFlightWait() default 3000;
+
+	/**
+	 * 是否启用跨节点的加载租约（仅REDIS类型）<br/>
+	 * true 缓存未命中时先获取租约，取得租约的节点调用方法加载，其它节点等待并轮询缓存
+	 * 
+	 * @return boolean
+	 */
+	boolean lease() default false;
+
+	/**
+	 * 加载租约的时长，单位：秒（应大于方法加载耗时）
+	 * 
+	 * @return 时间
+	 */
+	int leaseTtl() default 10;
+
+	/**
+	 * 未取得租约时等待其它节点加载的最长时间，单位：毫秒，超时后直接调用方法加载
+	 * 
+	 * @return 时间
+	 */
+	int leaseWait() default 500;
+
+	/**
+	 * 是否启用对冲读（仅REDIS类型的集群客户端）<br/>
+	 * true 读节点超过延迟预算（集群配置hedge-percentile）未返回时，向同slot的另一个读节点再发一次，先返回的结果生效
+	 * 
+	 * @return boolean
+	 */
+	boolean hedge() default false;
+
 }
@@ -0,0 +1,90 @@
+package com.hjc.component.cache.annotation;
+
+import com.hjc.component.cache.CacheKeyDefine;
+import com.hjc.component.cache.CacheType;
+import com.hjc.component.cache.util.StringHelper;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 批量缓存，用于参数为集合、返回值为集合的方法，如：List&lt;Dict&gt; findByIds(List&lt;Long&gt; ids)<br/>
+ * 按集合的每个元素生成缓存KEY，一次批量获取，只用未命中的元素调用方法，结果逐个保存后按参数顺序返回
+ * 
+ * @author hjc
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Inherited
+@Documented
+public @interface CacheBatch {
+	/**
+	 * 缓存类型
+	 * 
+	 * @return CacheType
+	 */
+	CacheType type() default CacheType.REDIS;
+
+	/**
+	 * KEY所属区域(JCS必填)
+	 * 
+	 * @return String
+	 */
+	String region() default StringHelper.EMPTY;
+
+	/**
+	 * 缓存的条件，可以为空，使用 SpEL 编写，返回 true 或者 false，只有为 true 才进行缓存
+	 * 
+	 * @return String
+	 */
+	String condition() default StringHelper.EMPTY;
+
+	/**
+	 * 集合参数的位置
+	 * 
+	 * @return 参数下标
+	 */
+	int argIndex() default 0;
+
+	/**
+	 * 每个元素的缓存Key，支持Spring EL表达式，#item为集合中的元素，如："'dict:'+#item"
+	 * 
+	 * @return String 自定义缓存Key
+	 */
+	String key();
+
+	/**
+	 * 每个元素的Hash缓存的field，支持Spring EL表达式，#item为集合中的元素
+	 * 
+	 * @return String 自定义Hash缓存的field
+	 */
+	String hfield() default StringHelper.EMPTY;
+
+	/**
+	 * 从返回结果的元素得到参数元素的Spring EL表达式，#item为返回结果中的元素，如："#item.id"<br/>
+	 * 为空时要求返回结果与参数一一对应（顺序相同、数量相等）
+	 * 
+	 * @return String
+	 */
+	String resultItem() default StringHelper.EMPTY;
+
+	/**
+	 * 缓存的过期时间，单位：秒，如果为0则表示永久缓存
+	 * 
+	 * @return 时间
+	 */
+	int expire() default CacheKeyDefine.DAY;
+
+	/**
+	 * 缓存值的编解码：fst、kryo、json，为空时使用redis配置文件的codec（默认fst）
+	 * 
+	 * @return String
+	 */
+	String codec() default StringHelper.EMPTY;
+
+}
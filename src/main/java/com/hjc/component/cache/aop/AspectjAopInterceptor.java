@@ -1,12 +1,34 @@
 package com.hjc.component.cache.aop;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
+import com.hjc.component.cache.AsyncCache;
 import com.hjc.component.cache.CacheFactory;
 import com.hjc.component.cache.CacheKey;
 import com.hjc.component.cache.CacheWrapper;
 import com.hjc.component.cache.ICache;
 import com.hjc.component.cache.annotation.Cache;
+import com.hjc.component.cache.annotation.CacheBatch;
 import com.hjc.component.cache.annotation.CacheDelete;
 import com.hjc.component.cache.redis.RedisCache;
 import com.hjc.component.cache.util.CacheUtil;
@@ -26,11 +48,24 @@ import org.slf4j.LoggerFactory;
  *
  */
 public class AspectjAopInterceptor {
-    private static final Logger logger       = LoggerFactory
+    private static final Logger                               logger       = LoggerFactory
         .getLogger(AspectjAopInterceptor.class);
-    private int                  timeout      = 10;                 // 加载超时阀值,单位：秒
-    private String               namespace    = ""; // 命名空间
-    private int                  cacheTimeout = 50;                 // 缓存超时阀值,单位：毫秒
+    private static final ClassValue<String>                   classNames   = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getName();
+        }
+    };
+    private int                                               timeout      = 10;                        // 加载超时阀值,单位：秒
+    private String                                            namespace    = "";                        // 命名空间
+    private int                                               cacheTimeout = 50;                        // 缓存超时阀值,单位：毫秒
+    private final SingleFlight                                singleFlight = new SingleFlight();        // 进程内的加载合并
+    private final LeaseLoader                                 leaseLoader  = new LeaseLoader();         // 跨节点的加载互斥
+    private final BackgroundRefresher                         refresher    = new BackgroundRefresher(); // 软过期的后台刷新
+    private final ConcurrentHashMap<Method, MethodDescriptor> descriptors  = new ConcurrentHashMap<Method, MethodDescriptor>(
+        256);                                                                                           // 方法的元数据（每个Method解析一次）
+    private volatile Executor                                 loadExecutor;                             // 异步方法未命中时调用原方法的线程池
+    private int                                               loadThreads  = 8;                         // 默认加载线程池的线程数
     
     public void setTimeout(int timeout) {
         this.timeout = timeout * 1000;
@@ -44,6 +79,132 @@ public class AspectjAopInterceptor {
         this.cacheTimeout = cacheTimeout;
     }
     
+    /**
+     * 获取进程内的加载合并（可查询leader加载、合并等待等计数）
+     * 
+     * @return SingleFlight
+     */
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+    
+    /**
+     * 设置加载租约等待时轮询缓存的间隔
+     * 
+     * @param leasePollInterval
+     *            轮询间隔，单位：毫秒
+     */
+    public void setLeasePollInterval(int leasePollInterval) {
+        this.leaseLoader.setPollInterval(leasePollInterval);
+    }
+    
+    /**
+     * 获取跨节点的加载互斥（可查询租约加载、等待命中等计数）
+     * 
+     * @return LeaseLoader
+     */
+    public LeaseLoader getLeaseLoader() {
+        return leaseLoader;
+    }
+    
+    /**
+     * 设置后台刷新的线程数
+     * 
+     * @param refreshThreads
+     *            线程数
+     */
+    public void setRefreshThreads(int refreshThreads) {
+        this.refresher.setThreads(refreshThreads);
+    }
+    
+    /**
+     * 设置后台刷新的队列长度（队列满时丢弃刷新，继续返回旧值）
+     * 
+     * @param refreshQueueSize
+     *            队列长度
+     */
+    public void setRefreshQueueSize(int refreshQueueSize) {
+        this.refresher.setQueueSize(refreshQueueSize);
+    }
+    
+    /**
+     * 获取后台刷新（可查询提交、丢弃、失败等计数）
+     * 
+     * @return BackgroundRefresher
+     */
+    public BackgroundRefresher getRefresher() {
+        return refresher;
+    }
+    
+    /**
+     * 设置异步方法未命中时调用原方法的线程池（如需传递调用方的上下文，可传入包装了上下文的Executor）<br/>
+     * 缓存读取在调用线程上同步完成时，直接在调用线程上加载
+     * 
+     * @param loadExecutor
+     *            线程池
+     */
+    public void setAsyncLoadExecutor(Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+    
+    /**
+     * 设置默认加载线程池的线程数（未设置asyncLoadExecutor时使用）
+     * 
+     * @param loadThreads
+     *            线程数
+     */
+    public void setAsyncLoadThreads(int loadThreads) {
+        this.loadThreads = Math.max(1, loadThreads);
+    }
+    
+    private Executor getLoadExecutor() {
+        Executor executor = loadExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = loadExecutor;
+                if (executor == null) {
+                    final AtomicInteger seq = new AtomicInteger();
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(loadThreads, loadThreads, 60,
+                        TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1000),
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread t = new Thread(r, "cache-async-load-" + seq.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        }, new ThreadPoolExecutor.AbortPolicy());
+                    pool.allowCoreThreadTimeOut(true);
+                    executor = pool;
+                    loadExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+    
+    /**
+     * 获取方法的元数据（每个Method解析一次）
+     * 
+     * @param method
+     *            方法
+     * @return MethodDescriptor
+     */
+    private MethodDescriptor getDescriptor(Method method) {
+        MethodDescriptor descriptor = descriptors.get(method);
+        if (descriptor == null) {
+            descriptor = new MethodDescriptor(method);
+            MethodDescriptor old = descriptors.putIfAbsent(method, descriptor);
+            if (old != null) {
+                descriptor = old;
+            } else if (descriptor.isAsync() && descriptor.getCache() != null
+                && descriptor.getCache().lease()) {
+                logger.warn("异步方法未命中时不使用加载租约（lease），只用于后台刷新 method" + method.toString());
+            }
+        }
+        return descriptor;
+    }
+    
     /**
      * 检查切面含有Cache注解则进行缓存
      * 
@@ -53,38 +214,45 @@ public class AspectjAopInterceptor {
      * @throws Throwable
      *             异常
      */
-    public Object checkAndCache(ProceedingJoinPoint pjp) throws Throwable {
+    public Object checkAndCache(final ProceedingJoinPoint pjp) throws Throwable {
         Signature signature = pjp.getSignature();
         MethodSignature methodSignature = (MethodSignature) signature;
-        Method method = methodSignature.getMethod();
+        final Method method = methodSignature.getMethod();
+        final MethodDescriptor descriptor = getDescriptor(method);
         
-        if (!method.isAnnotationPresent(Cache.class)) {
+        final Cache cacheable = descriptor.getCache();
+        if (cacheable == null) {
             return loadData(pjp, method);// 没有注解
         }
         
-        Cache cacheable = method.getAnnotation(Cache.class);
-        if (!CacheUtil.isCacheable(cacheable, pjp.getArgs())) {
+        final Object[] arguments = pjp.getArgs();
+        if (!descriptor.isCacheable(arguments)) {
             return loadData(pjp, method);// 不启用缓存
         }
         
         // 从缓存中读取
-        String className = pjp.getTarget().getClass().getName();
+        final String className = getClassName(pjp);
         String methodName = method.getName();
-        Object[] arguments = pjp.getArgs();
-        String _key = cacheable.key();
-        String _hfield = cacheable.hfield();
-        CacheKey cacheKey = getCacheKey(className, methodName, arguments, _key, _hfield, null,
-            false);
+        final CacheKey cacheKey = getCacheKey(descriptor, className, arguments);
         if (cacheKey == null) {
             return loadData(pjp, method);// 没办法获得key
         }
         
+        if (descriptor.isAsync()) {
+            // 异步方法，缓存完成后的结果
+            return checkAndCacheAsync(pjp, descriptor, className, arguments, cacheKey);
+        }
+        
         boolean loadCacheFail = false;
         CacheWrapper cacheWrapper = null;
-        ICache cache = CacheFactory.getCache(cacheable.type(), cacheable.region());
+        final ICache cache = descriptor.getICache();
         long st = System.currentTimeMillis();
         try {
-            cacheWrapper = cache.get(cacheKey);
+            if (cacheable.hedge() && cache instanceof RedisCache) {
+                cacheWrapper = ((RedisCache) cache).getHedged(cacheKey);
+            } else {
+                cacheWrapper = cache.get(cacheKey);
+            }
         } catch (Throwable t) {
             logger.error(
                 "读缓存异常，" + className + "." + methodName + ", cacheKey:" + cacheKey.getFullKey(), t);
@@ -100,22 +268,328 @@ public class AspectjAopInterceptor {
             }
         }
         
+        final boolean _loadCacheFail = loadCacheFail;
+        SingleFlight.Loader loader = new SingleFlight.Loader() {
+            @Override
+            public Object load() throws Throwable {
+                return loadAndCache(pjp, descriptor, className, arguments, cache, cacheKey,
+                    _loadCacheFail);
+            }
+        };
+        
         if (null != cacheWrapper) {
+            if (cacheable.staleTime() > 0 && cacheWrapper.isStale()) {
+                // 软过期：返回旧值，后台刷新
+                refreshInBackground(cacheable, cache, cacheKey, loader);
+            } else if (cacheable.earlyRefreshBeta() > 0
+                && cacheWrapper.isEarlyExpired(cacheable.earlyRefreshBeta())) {
+                // 概率提前刷新
+                refreshInBackground(cacheable, cache, cacheKey, loader);
+            }
             return cacheWrapper.getCacheObject();// 从缓存获得
         }
         
+
+        if (cacheable.lease() && !loadCacheFail && cache instanceof RedisCache) {
+            // 跨节点的加载租约
+            final SingleFlight.Loader directLoader = loader;
+            loader = new SingleFlight.Loader() {
+                @Override
+                public Object load() throws Throwable {
+                    return leaseLoader.execute((RedisCache) cache, cacheKey, cacheable.leaseTtl(),
+                        cacheable.leaseWait(), directLoader);
+                }
+            };
+        }
+        
+        if (cacheable.singleFlight()) {
+            // 合并同一KEY的并发加载
+            return singleFlight.execute(cacheKey.getFullKey(), cacheable.singleFlightWait(),
+                loader);
+        }
+        return loader.load();
+    }
+    
+    /**
+     * 异步方法的缓存：异步读取缓存，未命中时调用原方法，方法返回的结果完成后异步保存到缓存<br/>
+     * 缓存读取在调用线程上同步完成时在调用线程上调用原方法，否则在加载线程池中调用（不占用缓存的IO/回调线程）；
+     * 软过期或概率提前刷新时返回旧值并提交后台刷新；singleFlight时同一KEY的并发加载共用一个结果（不阻塞，忽略singleFlightWait）；
+     * 未命中时不使用加载租约（需要阻塞等待）
+     * 
+     * @param pjp
+     *            切面处理
+     * @param descriptor
+     *            方法的元数据
+     * @param className
+     *            目标类名
+     * @param arguments
+     *            参数
+     * @param cacheKey
+     *            缓存KEY
+     * @return CompletableFuture
+     */
+    private Object checkAndCacheAsync(final ProceedingJoinPoint pjp,
+        final MethodDescriptor descriptor, final String className, final Object[] arguments,
+        final CacheKey cacheKey) {
+        final Method method = descriptor.getMethod();
+        final Cache cacheable = descriptor.getCache();
+        final CompletableFuture<Object> result = new CompletableFuture<Object>();
+        final AsyncCache cache = descriptor.getAsyncCache();
+        final long st = System.currentTimeMillis();
+        final Thread caller = Thread.currentThread();
+        cache.getAsync(cacheKey).whenComplete(new BiConsumer<CacheWrapper, Throwable>() {
+            @Override
+            public void accept(CacheWrapper cacheWrapper, final Throwable t) {
+                long cst = System.currentTimeMillis() - st;
+                if (cst > cacheTimeout) {
+                    logger.warn(
+                        "读缓存耗时 get cache cst = " + cst + " ms  , cacheKey:" + cacheKey.getFullKey());
+                    logger.warn("读缓存耗时 method" + method.toString());
+                }
+                if (t != null) {
+                    logger.error("读缓存异常，" + method.toString() + ", cacheKey:"
+                        + cacheKey.getFullKey(), t);
+                } else if (cacheWrapper != null) {
+                    if (cacheable.staleTime() > 0 && cacheWrapper.isStale()) {
+                        // 软过期：返回旧值，后台刷新
+                        refreshAsyncInBackground(pjp, descriptor, className, arguments, cacheKey);
+                    } else if (cacheable.earlyRefreshBeta() > 0
+                        && cacheWrapper.isEarlyExpired(cacheable.earlyRefreshBeta())) {
+                        // 概率提前刷新
+                        refreshAsyncInBackground(pjp, descriptor, className, arguments, cacheKey);
+                    }
+                    result.complete(cacheWrapper.getCacheObject());// 从缓存获得
+                    return;
+                }
+                
+                final boolean loadCacheFail = t != null;
+                if (cacheable.singleFlight()
+                    && singleFlight.shareAsync(cacheKey.getFullKey(), result)) {
+                    return;// 同一KEY正在加载，使用其结果
+                }
+                
+                if (Thread.currentThread() == caller) {
+                    // 缓存读取已同步完成，在调用线程上加载（保留调用方的ThreadLocal和事务上下文）
+                    loadAndCacheAsync(pjp, descriptor, className, arguments, cache, cacheKey,
+                        loadCacheFail, result);
+                    return;
+                }
+                
+                // 不在缓存的IO/回调线程上调用原方法，避免慢加载阻塞其它缓存请求的完成
+                try {
+                    getLoadExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            loadAndCacheAsync(pjp, descriptor, className, arguments, cache,
+                                cacheKey, loadCacheFail, result);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    logger.error("异步加载线程池已满，" + method.toString() + ", cacheKey:"
+                        + cacheKey.getFullKey());
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * 提交异步方法的后台刷新：在刷新线程上调用原方法并等待结果保存到缓存
+     * 
+     * @param pjp
+     *            切面处理
+     * @param descriptor
+     *            方法的元数据
+     * @param className
+     *            目标类名
+     * @param arguments
+     *            参数
+     * @param cacheKey
+     *            缓存KEY
+     */
+    private void refreshAsyncInBackground(final ProceedingJoinPoint pjp,
+        final MethodDescriptor descriptor, final String className, final Object[] arguments,
+        final CacheKey cacheKey) {
+        final AsyncCache cache = descriptor.getAsyncCache();
+        refreshInBackground(descriptor.getCache(), descriptor.getICache(), cacheKey,
+            new SingleFlight.Loader() {
+                @Override
+                public Object load() throws Throwable {
+                    CompletableFuture<Object> refreshed = new CompletableFuture<Object>();
+                    loadAndCacheAsync(pjp, descriptor, className, arguments, cache, cacheKey,
+                        false, refreshed);
+                    try {
+                        return refreshed.get();
+                    } catch (ExecutionException e) {
+                        throw e.getCause();
+                    }
+                }
+            });
+    }
+    
+    /**
+     * 调用异步的原方法加载，完成后保存到缓存
+     * 
+     * @param pjp
+     *            切面处理
+     * @param descriptor
+     *            方法的元数据
+     * @param className
+     *            目标类名
+     * @param arguments
+     *            参数
+     * @param cache
+     *            缓存
+     * @param cacheKey
+     *            缓存KEY
+     * @param loadCacheFail
+     *            从缓存读取是否出错（出错时不保存到缓存）
+     * @param result
+     *            返回给调用方的结果
+     */
+    @SuppressWarnings("unchecked")
+    private void loadAndCacheAsync(ProceedingJoinPoint pjp, final MethodDescriptor descriptor,
+        final String className, final Object[] arguments, final AsyncCache cache,
+        final CacheKey cacheKey, final boolean loadCacheFail,
+        final CompletableFuture<Object> result) {
+        final Method method = descriptor.getMethod();
+        final Cache cacheable = descriptor.getCache();
+        CompletionStage<Object> stage = null;
+        final long loadStart = System.currentTimeMillis();
+        try {
+            stage = (CompletionStage<Object>) loadData(pjp, method);
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+            return;
+        }
+        if (stage == null) {
+            result.complete(null);
+            return;
+        }
+        
+        stage.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object cacheObject, Throwable t) {
+                if (t != null) {
+                    result.completeExceptionally(t);
+                    return;
+                }
+                result.complete(cacheObject);
+                if (cacheable.isCache() == false || loadCacheFail) {
+                    return;
+                }
+                
+                // 保存到缓存
+                final CacheWrapper cacheWrapper = new CacheWrapper(cacheObject, cacheable.expire(),
+                    cacheable.staleTime());
+                cacheWrapper.setLoadTime(System.currentTimeMillis() - loadStart);
+                cacheWrapper.setCodec(cacheable.codec());
+                cache.putAsync(cacheKey, cacheWrapper).whenComplete(new BiConsumer<Void, Throwable>() {
+                    @Override
+                    public void accept(Void v, Throwable t) {
+                        if (t != null) {
+                            logger.error("写缓存异常，" + method.toString() + ", cacheKey:"
+                                + cacheKey.getFullKey(), t);
+                            return;
+                        }
+                        if (cacheable.expire() <= 0 || !(descriptor.getICache() instanceof RedisCache)) {
+                            return;
+                        }
+                        
+                        // 保存扩展缓存redis管理信息（同步命令，不在缓存的IO/回调线程上执行）
+                        try {
+                            getLoadExecutor().execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    addToRegion(descriptor, className, arguments,
+                                        (RedisCache) descriptor.getICache(), cacheKey,
+                                        cacheWrapper.getLastLoadTime());
+                                }
+                            });
+                        } catch (RejectedExecutionException e) {
+                            logger.error("异步加载线程池已满，未保存区域 method" + method.toString()
+                                + ", cacheKey:" + cacheKey.getFullKey());
+                        }
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * 提交后台刷新（启用加载租约时，只有取得租约的节点刷新）
+     * 
+     * @param cacheable
+     *            Cache注解
+     * @param cache
+     *            缓存
+     * @param cacheKey
+     *            缓存KEY
+     * @param loader
+     *            数据加载（含保存缓存）
+     */
+    private void refreshInBackground(final Cache cacheable, final ICache cache,
+        final CacheKey cacheKey, final SingleFlight.Loader loader) {
+        SingleFlight.Loader refreshLoader = loader;
+        if (cacheable.lease() && cache instanceof RedisCache) {
+            refreshLoader = new SingleFlight.Loader() {
+                @Override
+                public Object load() throws Throwable {
+                    return leaseLoader.tryExecute((RedisCache) cache, cacheKey,
+                        cacheable.leaseTtl(), loader);
+                }
+            };
+        }
+        refresher.submit(cacheKey.getFullKey(), refreshLoader);
+    }
+    
+    /**
+     * 调用原方法加载，并保存到缓存
+     * 
+     * @param pjp
+     *            切面处理
+     * @param descriptor
+     *            方法的元数据
+     * @param className
+     *            目标类名
+     * @param arguments
+     *            参数
+     * @param cache
+     *            缓存
+     * @param cacheKey
+     *            缓存KEY
+     * @param loadCacheFail
+     *            从缓存读取是否出错（出错时不保存到缓存）
+     * @return 缓存对象
+     * @throws Throwable
+     *             异常
+     */
+    private Object loadAndCache(ProceedingJoinPoint pjp, MethodDescriptor descriptor,
+        String className, Object[] arguments, ICache cache, CacheKey cacheKey,
+        boolean loadCacheFail) throws Throwable {
+        Method method = descriptor.getMethod();
+        Cache cacheable = descriptor.getCache();
+        String methodName = method.getName();
+        
         // 调用原方法加载
+        long loadStart = System.currentTimeMillis();
         Object cacheObject = loadData(pjp, method);
+        long loadTime = System.currentTimeMillis() - loadStart;
         if (cacheable.isCache() == false) {
             // 不保存缓存直接返回（由method内缓存）
             return cacheObject;
         }
         
         if (loadCacheFail == false) {//从缓存加载没出错才进行存储到缓存
-            st = System.currentTimeMillis();
+            CacheWrapper cacheWrapper = null;
+            long st = System.currentTimeMillis();
             try {
                 // 保存到缓存
-                cacheWrapper = new CacheWrapper(cacheObject, cacheable.expire());
+                cacheWrapper = new CacheWrapper(cacheObject, cacheable.expire(),
+                    cacheable.staleTime());
+                cacheWrapper.setLoadTime(loadTime);
+                cacheWrapper.setCodec(cacheable.codec());
                 cache.put(cacheKey, cacheWrapper);
             } catch (Throwable t) {
                 // 写缓存异常处理
@@ -132,32 +606,303 @@ public class AspectjAopInterceptor {
                 }
             }
             
-            st = System.currentTimeMillis();
-            try {
-                if (cacheable.expire() > 0 && cache instanceof RedisCache) {
-                    // 保存扩展缓存redis管理信息
-                    RedisCache redisCache = (RedisCache) cache;
-                    // 获取实际存储的region
-                    redisCache.addToRegion(className, method, arguments, cacheable.expire(),
-                        cacheable.refresh(), cacheable.refreshBeanName(), cacheKey,
-                        cacheWrapper.getLastLoadTime());
+            if (cacheable.expire() > 0 && cache instanceof RedisCache) {
+                addToRegion(descriptor, className, arguments, (RedisCache) cache, cacheKey,
+                    cacheWrapper.getLastLoadTime());
+            }
+        }
+        return cacheObject;
+    }
+    
+    /**
+     * 保存扩展缓存redis管理信息（KEY所属的区域、类方法和请求参数）
+     * 
+     * @param descriptor
+     *            方法的元数据
+     * @param className
+     *            目标类名
+     * @param arguments
+     *            参数
+     * @param redisCache
+     *            redis缓存
+     * @param cacheKey
+     *            缓存KEY
+     * @param lastLoadTime
+     *            加载时间
+     */
+    private void addToRegion(MethodDescriptor descriptor, String className, Object[] arguments,
+        RedisCache redisCache, CacheKey cacheKey, long lastLoadTime) {
+        Method method = descriptor.getMethod();
+        Cache cacheable = descriptor.getCache();
+        long st = System.currentTimeMillis();
+        try {
+            // 获取实际存储的region
+            byte[] regionKeyBytes = descriptor.getRegionKeyBytes(redisCache,
+                cacheKey.getNamespace(), className);
+            redisCache.addToRegion(className, descriptor.getMethodDesc(), regionKeyBytes,
+                arguments, cacheable.expire(), cacheable.refresh(), cacheable.refreshBeanName(),
+                cacheKey, lastLoadTime);
+        } catch (Throwable t) {
+            // 写缓存异常处理
+            logger.error("写缓存异常，" + className + "." + method.getName() + ", cacheKey:"
+                + cacheKey.getFullKey(), t);
+            logger.error("写缓存耗时 method" + method.toString());
+        } finally {
+            long cst = System.currentTimeMillis() - st;
+            if (cst > cacheTimeout) {
+                logger.warn("写缓存耗时 addToRegion cst = " + cst + " ms  , cacheKey:"
+                    + cacheKey.getFullKey());
+                logger.warn("写缓存耗时 method" + method.toString());
+            }
+        }
+    }
+    
+    /**
+     * 检查切面含有CacheBatch注解则进行批量缓存<br/>
+     * 集合参数的每个元素一个缓存KEY，一次批量获取，只用未命中的元素调用方法，结果逐个保存，按参数顺序返回
+     * 
+     * @param pjp
+     *            切面处理
+     * @return 缓存对象
+     * @throws Throwable
+     *             异常
+     */
+    public Object checkAndCacheBatch(ProceedingJoinPoint pjp) throws Throwable {
+        Signature signature = pjp.getSignature();
+        MethodSignature methodSignature = (MethodSignature) signature;
+        Method method = methodSignature.getMethod();
+        
+        MethodDescriptor descriptor = getDescriptor(method);
+        CacheBatch cacheBatch = descriptor.getCacheBatch();
+        if (cacheBatch == null) {
+            return loadData(pjp, method);// 没有注解
+        }
+        
+        Object[] arguments = pjp.getArgs();
+        int argIndex = cacheBatch.argIndex();
+        if (arguments == null || argIndex < 0 || argIndex >= arguments.length
+            || !(arguments[argIndex] instanceof Collection)
+            || !Collection.class.isAssignableFrom(method.getReturnType())) {
+            logger.warn("批量缓存的参数或返回值不是集合 method" + method.toString());
+            return loadData(pjp, method);
+        }
+        Collection<?> items = (Collection<?>) arguments[argIndex];
+        if (items.isEmpty() || !CacheUtil.isCacheable(cacheBatch, arguments)) {
+            return loadData(pjp, method);// 不启用缓存
+        }
+        
+        // 每个元素的缓存KEY
+        String className = getClassName(pjp);
+        String methodName = method.getName();
+        Map<Object, CacheKey> itemKeys = new LinkedHashMap<Object, CacheKey>();
+        for (Object item : items) {
+            if (itemKeys.containsKey(item)) {
+                continue;
+            }
+            CacheKey cacheKey = getItemCacheKey(cacheBatch, arguments, item);
+            if (cacheKey == null) {
+                return loadData(pjp, method);// 没办法获得key
+            }
+            itemKeys.put(item, cacheKey);
+        }
+        
+        // 批量从缓存中读取
+        boolean loadCacheFail = false;
+        Map<CacheKey, CacheWrapper> hits = null;
+        ICache cache = descriptor.getBatchCache();
+        long st = System.currentTimeMillis();
+        try {
+            hits = cache.getAll(itemKeys.values());
+        } catch (Throwable t) {
+            logger.error("批量读缓存异常，" + className + "." + methodName + ", size:" + itemKeys.size(),
+                t);
+            logger.warn("批量读缓存异常 method" + method.toString());
+            loadCacheFail = true;
+        } finally {
+            long cst = System.currentTimeMillis() - st;
+            if (cst > cacheTimeout) {
+                logger.warn("批量读缓存耗时 getAll cache cst = " + cst + " ms  , size:" + itemKeys.size());
+                logger.warn("批量读缓存耗时 method" + method.toString());
+            }
+        }
+        if (hits == null) {
+            hits = new HashMap<CacheKey, CacheWrapper>();
+        }
+        
+        List<Object> missing = new ArrayList<Object>();
+        for (Map.Entry<Object, CacheKey> e : itemKeys.entrySet()) {
+            if (!hits.containsKey(e.getValue())) {
+                missing.add(e.getKey());
+            }
+        }
+        
+        Map<CacheKey, Object> loaded = new HashMap<CacheKey, Object>();
+        Map<CacheKey, Object> loadedItems = new HashMap<CacheKey, Object>();// 已加载KEY对应的元素
+        if (!missing.isEmpty()) {
+            // 只用未命中的元素调用原方法
+            Object[] loadArgs = arguments.clone();
+            loadArgs[argIndex] = copyCollection(items.getClass(), missing);
+            Collection<?> result = (Collection<?>) loadData(pjp, method, loadArgs);
+            if (result == null) {
+                result = new ArrayList<Object>(0);
+            }
+            
+            String resultItem = cacheBatch.resultItem();
+            if (StringHelper.isEmpty(resultItem) && result.size() != missing.size()) {
+                // 结果与参数无法对应（顺序不可靠），本次不写缓存，只返回命中的值
+                logger.error("批量缓存的返回结果与参数数量不一致，丢弃加载结果, missing:" + missing.size()
+                    + ", result:" + result.size() + ", method" + method.toString());
+                result = new ArrayList<Object>(0);
+            }
+            
+            int i = 0;
+            for (Object value : result) {
+                Object item = StringHelper.isEmpty(resultItem) ? missing.get(i++)
+                    : CacheUtil.getItemElValue(resultItem, arguments, value, Object.class);
+                CacheKey cacheKey = itemKeys.get(item);
+                if (cacheKey != null && value != null) {
+                    loaded.put(cacheKey, value);
+                    loadedItems.put(cacheKey, item);
                 }
-            } catch (Throwable t) {
-                // 写缓存异常处理
-                logger.error(
-                    "写缓存异常，" + className + "." + methodName + ", cacheKey:" + cacheKey.getFullKey(),
-                    t);
-                logger.error("写缓存耗时 method" + method.toString());
-            } finally {
-                long cst = System.currentTimeMillis() - st;
-                if (cst > cacheTimeout) {
-                    logger.warn("写缓存耗时 addToRegion cst = " + cst + " ms  , cacheKey:"
-                        + cacheKey.getFullKey());
-                    logger.warn("写缓存耗时 method" + method.toString());
+            }
+            
+            if (!loadCacheFail && !loaded.isEmpty()) {//从缓存加载没出错才进行存储到缓存
+                Map<CacheKey, CacheWrapper> wrappers = new HashMap<CacheKey, CacheWrapper>();
+                long lastLoadTime = 0;
+                for (Map.Entry<CacheKey, Object> e : loaded.entrySet()) {
+                    CacheWrapper cacheWrapper = new CacheWrapper(e.getValue(), cacheBatch.expire(), 0);
+                    cacheWrapper.setCodec(cacheBatch.codec());
+                    wrappers.put(e.getKey(), cacheWrapper);
+                    lastLoadTime = cacheWrapper.getLastLoadTime();
+                }
+                boolean saved = false;
+                st = System.currentTimeMillis();
+                try {
+                    cache.putAll(wrappers);
+                    saved = true;
+                } catch (Throwable t) {
+                    // 写缓存异常处理
+                    logger.error("批量写缓存异常，" + className + "." + methodName + ", size:"
+                        + wrappers.size(), t);
+                    logger.error("批量写缓存异常 method" + method.toString());
+                } finally {
+                    long cst = System.currentTimeMillis() - st;
+                    if (cst > cacheTimeout) {
+                        logger.warn("批量写缓存耗时 putAll cache cst = " + cst + " ms  , size:"
+                            + wrappers.size());
+                        logger.warn("批量写缓存耗时 method" + method.toString());
+                    }
+                }
+                
+                if (saved && cacheBatch.expire() > 0 && cache instanceof RedisCache) {
+                    addAllToRegion(descriptor, className, arguments, items, (RedisCache) cache,
+                        loadedItems, lastLoadTime);
                 }
             }
         }
-        return cacheObject;
+        
+        // 按参数顺序组装结果（没有数据的元素不返回）
+        List<Object> ret = new ArrayList<Object>(items.size());
+        for (Object item : items) {
+            CacheKey cacheKey = itemKeys.get(item);
+            CacheWrapper cacheWrapper = hits.get(cacheKey);
+            Object value = cacheWrapper != null ? cacheWrapper.getCacheObject()
+                : loaded.get(cacheKey);
+            if (value != null) {
+                ret.add(value);
+            }
+        }
+        return copyCollection(method.getReturnType(), ret);
+    }
+    
+    /**
+     * 批量保存扩展缓存redis管理信息，每个KEY的请求参数为只含该元素的集合参数
+     * 
+     * @param descriptor
+     *            方法的元数据
+     * @param className
+     *            目标类名
+     * @param arguments
+     *            参数
+     * @param items
+     *            集合参数
+     * @param redisCache
+     *            redis缓存
+     * @param loadedItems
+     *            已保存的KEY和对应的元素
+     * @param lastLoadTime
+     *            加载时间
+     */
+    private void addAllToRegion(MethodDescriptor descriptor, String className,
+        Object[] arguments, Collection<?> items, RedisCache redisCache,
+        Map<CacheKey, Object> loadedItems, long lastLoadTime) {
+        Method method = descriptor.getMethod();
+        CacheBatch cacheBatch = descriptor.getCacheBatch();
+        int argIndex = cacheBatch.argIndex();
+        long st = System.currentTimeMillis();
+        try {
+            Map<CacheKey, Object[]> keyArguments = new LinkedHashMap<CacheKey, Object[]>();
+            for (Map.Entry<CacheKey, Object> e : loadedItems.entrySet()) {
+                Object[] itemArgs = arguments.clone();
+                List<Object> item = new ArrayList<Object>(1);
+                item.add(e.getValue());
+                itemArgs[argIndex] = copyCollection(items.getClass(), item);
+                keyArguments.put(e.getKey(), itemArgs);
+            }
+            byte[] regionKeyBytes = descriptor.getRegionKeyBytes(redisCache, namespace, className);
+            redisCache.addAllToRegion(className, descriptor.getMethodDesc(), regionKeyBytes,
+                keyArguments, cacheBatch.expire(), false, StringHelper.EMPTY, lastLoadTime);
+        } catch (Throwable t) {
+            logger.error("批量写缓存异常，" + className + "." + method.getName() + ", size:"
+                + loadedItems.size(), t);
+            logger.error("批量写缓存异常 method" + method.toString());
+        } finally {
+            long cst = System.currentTimeMillis() - st;
+            if (cst > cacheTimeout) {
+                logger.warn("批量写缓存耗时 addToRegion cst = " + cst + " ms  , size:"
+                    + loadedItems.size());
+                logger.warn("批量写缓存耗时 method" + method.toString());
+            }
+        }
+    }
+    
+    private CacheKey getItemCacheKey(CacheBatch cacheBatch, Object[] arguments, Object item) {
+        String key = CacheUtil.getItemCacheKey(cacheBatch.key(), arguments, item);
+        if (StringHelper.isEmpty(key)) {
+            return null;
+        }
+        
+        String hfield = StringHelper.EMPTY;
+        if (StringHelper.isNotEmpty(cacheBatch.hfield())) {
+            hfield = CacheUtil.getItemCacheKey(cacheBatch.hfield(), arguments, item);
+        }
+        
+        return new CacheKey(namespace, key, hfield);
+    }
+    
+    /**
+     * 复制到指定类型的集合（接口或无法创建时使用ArrayList或LinkedHashSet）
+     * 
+     * @param type
+     *            集合类型
+     * @param items
+     *            元素
+     * @return 集合
+     */
+    @SuppressWarnings("unchecked")
+    private Collection<Object> copyCollection(Class<?> type, List<Object> items) {
+        if (!type.isInterface()) {
+            try {
+                Collection<Object> c = (Collection<Object>) type.newInstance();
+                c.addAll(items);
+                return c;
+            } catch (Throwable ignore) {
+            }
+        }
+        if (Set.class.isAssignableFrom(type)) {
+            return new LinkedHashSet<Object>(items);
+        }
+        return items;
     }
     
     /**
@@ -174,10 +919,11 @@ public class AspectjAopInterceptor {
         MethodSignature methodSignature = (MethodSignature) signature;
         Method method = methodSignature.getMethod();
         // 删除单个主键KEY
-        if (method.isAnnotationPresent(CacheDelete.class)) {
+        MethodDescriptor descriptor = getDescriptor(method);
+        CacheDelete cacheDelete = descriptor.getCacheDelete();
+        if (cacheDelete != null) {
             Object[] arguments = jp.getArgs();
-            CacheDelete cacheDelete = method.getAnnotation(CacheDelete.class);
-            deleteCache(jp, method, cacheDelete, arguments, retVal);
+            deleteCache(jp, descriptor, cacheDelete, arguments, retVal);
         }
     }
     
@@ -186,13 +932,14 @@ public class AspectjAopInterceptor {
         MethodSignature methodSignature = (MethodSignature) signature;
         Method method = methodSignature.getMethod();
         Object[] arguments = jp.getArgs();
-        deleteCache(jp, method, cacheDelete, arguments, retVal);
+        deleteCache(jp, getDescriptor(method), cacheDelete, arguments, retVal);
     }
     
-    private void deleteCache(JoinPoint jp, Method method, CacheDelete cacheDelete,
+    private void deleteCache(JoinPoint jp, MethodDescriptor descriptor, CacheDelete cacheDelete,
         Object[] arguments, Object retVal) {
         if (CacheUtil.isCanDelete(cacheDelete, arguments, retVal)) {
-            String className = jp.getTarget().getClass().getName();
+            Method method = descriptor.getMethod();
+            String className = getClassName(jp);
             String methodName = method.getName();
             String _key = cacheDelete.key();
             String _hfield = cacheDelete.hfield();
@@ -201,7 +948,10 @@ public class AspectjAopInterceptor {
             if (null != cacheKey) {
                 long st = System.currentTimeMillis();
                 try {
-                    ICache cache = CacheFactory.getCache(cacheDelete.type(), cacheDelete.region());
+                    // 方法自身的注解使用元数据中的缓存实例
+                    ICache cache = cacheDelete == descriptor.getCacheDelete()
+                        ? descriptor.getDeleteCache()
+                        : CacheFactory.getCache(cacheDelete.type(), cacheDelete.region());
                     cache.del(cacheKey);
                 } catch (Throwable t) {
                     // 删除缓存异常处理
@@ -220,6 +970,17 @@ public class AspectjAopInterceptor {
         }
     }
     
+    /**
+     * 目标类的类名（按Class缓存）
+     * 
+     * @param jp
+     *            切面处理
+     * @return 类名
+     */
+    private static String getClassName(JoinPoint jp) {
+        return classNames.get(jp.getTarget().getClass());
+    }
+    
     /**
      * 直接加载数据（加载后的数据不往缓存放）
      * 
@@ -230,18 +991,62 @@ public class AspectjAopInterceptor {
      *             异常
      */
     private Object loadData(ProceedingJoinPoint pjp, Method method) throws Throwable {
+        return loadData(pjp, method, null);
+    }
+    
+    /**
+     * 使用指定参数直接加载数据（加载后的数据不往缓存放）
+     * 
+     * @param pjp
+     *            切面处理
+     * @param arguments
+     *            参数，为null时使用原参数
+     * @return 缓存数据
+     * @throws Throwable
+     *             异常
+     */
+    private Object loadData(ProceedingJoinPoint pjp, Method method, Object[] arguments)
+        throws Throwable {
         long startTime = System.currentTimeMillis();
         try {
-            return pjp.proceed();
+            return arguments == null ? pjp.proceed() : pjp.proceed(arguments);
         } finally {
             long useTime = System.currentTimeMillis() - startTime;
             if (useTime > timeout) {
-                String className = pjp.getTarget().getClass().getName();
+                String className = getClassName(pjp);
                 logger.error(className + "." + method.getName() + ", use time:" + useTime + "ms");
             }
         }
     }
     
+    /**
+     * 生成Cache注解的缓存Key
+     * 
+     * @param descriptor
+     *            方法的元数据
+     * @param className
+     *            类名
+     * @param arguments
+     *            参数
+     * @return CacheKey
+     */
+    private CacheKey getCacheKey(MethodDescriptor descriptor, String className,
+        Object[] arguments) {
+        String key = null;
+        if (StringHelper.isNotEmpty(descriptor.getCache().key())) {
+            key = descriptor.getKey(arguments);
+        } else {
+            key = CacheUtil.getDefaultCacheKey(className, descriptor.getMethod().getName(),
+                arguments);
+        }
+        if (StringHelper.isEmpty(key)) {
+            return null;
+        }
+        
+        String hfield = descriptor.getHfield(arguments);
+        return new CacheKey(namespace, key, hfield == null ? StringHelper.EMPTY : hfield);
+    }
+    
     /**
      * 生成缓存Key
      * 
@@ -276,11 +1081,7 @@ public class AspectjAopInterceptor {
             hfield = CacheUtil.getDefinedCacheKey(_hfield, arguments, result, hasRetVal);
         }
         
-        CacheKey cacheKey = new CacheKey();
-        cacheKey.setNamespace(namespace);
-        cacheKey.setKey(key);
-        cacheKey.setHfield(hfield);
-        return cacheKey;
+        return new CacheKey(namespace, key, hfield);
     }
     
 }
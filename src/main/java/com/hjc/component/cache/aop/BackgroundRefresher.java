@@ -0,0 +1,135 @@
+package com.hjc.component.cache.aop;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存的后台刷新<br/>
+ * 使用有界线程池执行，同一个KEY同时只刷新一次，队列满时丢弃
+ *
+ * @author hjc
+ *
+ */
+public class BackgroundRefresher {
+    private static final Logger                      logger     = LoggerFactory
+        .getLogger(BackgroundRefresher.class);
+    private final ConcurrentHashMap<String, Boolean> refreshing = new ConcurrentHashMap<String, Boolean>();
+    private volatile ThreadPoolExecutor              executor;
+    /**
+     * 刷新线程数
+     */
+    private int                                      threads    = 4;
+    /**
+     * 等待队列长度
+     */
+    private int                                      queueSize  = 1000;
+    /**
+     * 提交的刷新次数
+     */
+    private final AtomicLong                         submitted  = new AtomicLong();
+    /**
+     * 队列满被丢弃的刷新次数
+     */
+    private final AtomicLong                         rejected   = new AtomicLong();
+    /**
+     * 刷新失败的次数
+     */
+    private final AtomicLong                         failed     = new AtomicLong();
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            synchronized (this) {
+                pool = executor;
+                if (pool == null) {
+                    final AtomicInteger seq = new AtomicInteger();
+                    pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread t = new Thread(r, "cache-refresh-" + seq.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        }, new ThreadPoolExecutor.AbortPolicy());
+                    pool.allowCoreThreadTimeOut(true);
+                    executor = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 提交后台刷新
+     *
+     * @param key
+     *            缓存KEY（同一KEY正在刷新时忽略）
+     * @param loader
+     *            刷新（含保存缓存）
+     * @return 是否提交成功
+     */
+    public boolean submit(final String key, final SingleFlight.Loader loader) {
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+            return false;// 正在刷新
+        }
+
+        try {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        loader.load();
+                    } catch (Throwable t) {
+                        failed.incrementAndGet();
+                        logger.error("后台刷新缓存异常, cacheKey:" + key, t);
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                }
+            });
+            submitted.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        ThreadPoolExecutor pool = executor;
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+}
@@ -0,0 +1,178 @@
+package com.hjc.component.cache.aop;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.RedisCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 跨节点的加载互斥（基于redis租约KEY）<br/>
+ * 第一个未命中的节点获取租约后再读一次缓存，仍未命中才加载；其它节点在等待时间内轮询缓存，超时则直接加载
+ *
+ * @author hjc
+ *
+ */
+public class LeaseLoader {
+    private static final Logger logger        = LoggerFactory.getLogger(LeaseLoader.class);
+    /**
+     * 轮询缓存的间隔，单位：毫秒
+     */
+    private int                 pollInterval  = 20;
+    /**
+     * 获取租约后加载的次数
+     */
+    private final AtomicLong    leaseLoads    = new AtomicLong();
+    /**
+     * 获取租约后再次读缓存命中的次数（其它节点刚加载完成）
+     */
+    private final AtomicLong    leaseHits     = new AtomicLong();
+    /**
+     * 等待其它节点加载后命中缓存的次数
+     */
+    private final AtomicLong    waitHits      = new AtomicLong();
+    /**
+     * 等待超时（或租约异常）后直接加载的次数
+     */
+    private final AtomicLong    fallbackLoads = new AtomicLong();
+
+    public void setPollInterval(int pollInterval) {
+        this.pollInterval = Math.max(1, pollInterval);
+    }
+
+    /**
+     * 在租约保护下加载
+     *
+     * @param cache
+     *            redis缓存
+     * @param cacheKey
+     *            缓存KEY
+     * @param leaseTtl
+     *            租约时长，单位：秒
+     * @param waitMillis
+     *            未取得租约时的等待时间，单位：毫秒
+     * @param loader
+     *            数据加载（含保存缓存）
+     * @return 缓存对象
+     * @throws Throwable
+     *             异常
+     */
+    public Object execute(RedisCache cache, CacheKey cacheKey, int leaseTtl, long waitMillis,
+        SingleFlight.Loader loader) throws Throwable {
+        byte[] token = null;
+        try {
+            token = cache.tryLease(cacheKey, leaseTtl);
+        } catch (Throwable t) {
+            logger.error("获取加载租约异常, cacheKey:" + cacheKey.getFullKey(), t);
+            fallbackLoads.incrementAndGet();
+            return loader.load();
+        }
+
+        if (token != null) {
+            try {
+                // 上一个持有者可能在本节点未命中之后、获取租约之前写入缓存并释放了租约
+                CacheWrapper cacheWrapper = getQuietly(cache, cacheKey);
+                if (cacheWrapper != null) {
+                    leaseHits.incrementAndGet();
+                    return cacheWrapper.getCacheObject();
+                }
+                leaseLoads.incrementAndGet();
+                return loader.load();
+            } finally {
+                try {
+                    cache.releaseLease(cacheKey, token);
+                } catch (Throwable t) {
+                    logger.error("释放加载租约异常, cacheKey:" + cacheKey.getFullKey(), t);
+                }
+            }
+        }
+
+        // 其它节点正在加载，轮询等待
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            CacheWrapper cacheWrapper = null;
+            try {
+                cacheWrapper = cache.get(cacheKey);
+            } catch (Throwable t) {
+                logger.error("读缓存异常, cacheKey:" + cacheKey.getFullKey(), t);
+                break;
+            }
+            if (cacheWrapper != null) {
+                waitHits.incrementAndGet();
+                return cacheWrapper.getCacheObject();
+            }
+        }
+
+        fallbackLoads.incrementAndGet();
+        return loader.load();
+    }
+
+    private static CacheWrapper getQuietly(RedisCache cache, CacheKey cacheKey) {
+        try {
+            return cache.get(cacheKey);
+        } catch (Throwable t) {
+            logger.error("读缓存异常, cacheKey:" + cacheKey.getFullKey(), t);
+            return null;
+        }
+    }
+
+    /**
+     * 取得租约才加载，未取得（其它节点正在加载）直接放弃，用于后台刷新
+     *
+     * @param cache
+     *            redis缓存
+     * @param cacheKey
+     *            缓存KEY
+     * @param leaseTtl
+     *            租约时长，单位：秒
+     * @param loader
+     *            数据加载（含保存缓存）
+     * @return 是否执行了加载
+     * @throws Throwable
+     *             异常
+     */
+    public boolean tryExecute(RedisCache cache, CacheKey cacheKey, int leaseTtl,
+        SingleFlight.Loader loader) throws Throwable {
+        byte[] token = cache.tryLease(cacheKey, leaseTtl);
+        if (token == null) {
+            return false;
+        }
+
+        leaseLoads.incrementAndGet();
+        try {
+            loader.load();
+            return true;
+        } finally {
+            try {
+                cache.releaseLease(cacheKey, token);
+            } catch (Throwable t) {
+                logger.error("释放加载租约异常, cacheKey:" + cacheKey.getFullKey(), t);
+            }
+        }
+    }
+
+    public long getLeaseLoads() {
+        return leaseLoads.get();
+    }
+
+    public long getLeaseHits() {
+        return leaseHits.get();
+    }
+
+    public long getWaitHits() {
+        return waitHits.get();
+    }
+
+    public long getFallbackLoads() {
+        return fallbackLoads.get();
+    }
+}
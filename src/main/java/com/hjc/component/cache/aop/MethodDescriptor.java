@@ -0,0 +1,233 @@
+package com.hjc.component.cache.aop;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import com.hjc.component.cache.AsyncCache;
+import com.hjc.component.cache.CacheFactory;
+import com.hjc.component.cache.ICache;
+import com.hjc.component.cache.annotation.Cache;
+import com.hjc.component.cache.annotation.CacheBatch;
+import com.hjc.component.cache.annotation.CacheDelete;
+import com.hjc.component.cache.redis.RedisCache;
+import com.hjc.component.cache.util.KeyGenerator;
+import com.hjc.component.cache.util.KeyGeneratorCompiler;
+import com.hjc.component.cache.util.ReflectUtils;
+import com.hjc.component.cache.util.StringHelper;
+
+/**
+ * 拦截方法的元数据，每个Method解析一次<br/>
+ * 包括注解、缓存实例、编译后的KEY生成器、方法描述和区域KEY
+ *
+ * @author hjc
+ *
+ */
+public class MethodDescriptor {
+    private final Method          method;
+    private final Cache           cache;
+    private final CacheBatch      cacheBatch;
+    private final CacheDelete     cacheDelete;
+    private final boolean         async;
+    private final String          methodDesc;
+    private final KeyGenerator    condition;       // Cache注解的条件，没有时为null
+    private final KeyGenerator    keyGenerator;    // Cache注解的key，不是表达式时为null
+    private final KeyGenerator    hfieldGenerator; // Cache注解的hfield，不是表达式时为null
+    private volatile ICache       icache;
+    private volatile ICache       batchCache;
+    private volatile ICache       deleteCache;
+    private volatile AsyncCache   asyncCache;
+    private volatile RegionHolder region;
+
+    public MethodDescriptor(Method method) {
+        this.method = method;
+        this.cache = method.getAnnotation(Cache.class);
+        this.cacheBatch = method.getAnnotation(CacheBatch.class);
+        this.cacheDelete = method.getAnnotation(CacheDelete.class);
+        Class<?> returnType = method.getReturnType();
+        this.async = CompletionStage.class.isAssignableFrom(returnType)
+            && returnType.isAssignableFrom(CompletableFuture.class);
+        this.methodDesc = ReflectUtils.getDesc(method);
+        if (cache != null) {
+            this.condition = StringHelper.isNotEmpty(cache.condition())
+                ? KeyGeneratorCompiler.getGenerator(cache.condition()) : null;
+            this.keyGenerator = toGenerator(cache.key());
+            this.hfieldGenerator = toGenerator(cache.hfield());
+        } else {
+            this.condition = null;
+            this.keyGenerator = null;
+            this.hfieldGenerator = null;
+        }
+    }
+
+    private static KeyGenerator toGenerator(String spel) {
+        if (StringHelper.isEmpty(spel) || spel.indexOf("#") == -1 && spel.indexOf("'") == -1) {
+            return null;// 常量
+        }
+        return KeyGeneratorCompiler.getGenerator(spel);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public CacheBatch getCacheBatch() {
+        return cacheBatch;
+    }
+
+    public CacheDelete getCacheDelete() {
+        return cacheDelete;
+    }
+
+    /**
+     * 方法是否返回CompletableFuture（或CompletionStage）
+     *
+     * @return boolean
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    public String getMethodDesc() {
+        return methodDesc;
+    }
+
+    /**
+     * 是否可以缓存（Cache注解的condition）
+     *
+     * @param arguments
+     *            参数
+     * @return boolean
+     */
+    public boolean isCacheable(Object[] arguments) {
+        if (condition == null) {
+            return true;
+        }
+        return condition.getValue(arguments, null, null, Boolean.class);
+    }
+
+    /**
+     * 生成Cache注解的key（需配置了key）
+     *
+     * @param arguments
+     *            参数
+     * @return key
+     */
+    public String getKey(Object[] arguments) {
+        if (keyGenerator == null) {
+            return cache.key();
+        }
+        return keyGenerator.getValue(arguments, null, null, String.class);
+    }
+
+    /**
+     * 生成Cache注解的hfield
+     *
+     * @param arguments
+     *            参数
+     * @return hfield，没有配置时返回空字符串
+     */
+    public String getHfield(Object[] arguments) {
+        if (hfieldGenerator == null) {
+            return cache.hfield();
+        }
+        return hfieldGenerator.getValue(arguments, null, null, String.class);
+    }
+
+    /**
+     * Cache注解对应的缓存实例
+     *
+     * @return ICache
+     */
+    public ICache getICache() {
+        ICache c = icache;
+        if (c == null) {
+            c = CacheFactory.getCache(cache.type(), cache.region());
+            icache = c;
+        }
+        return c;
+    }
+
+    /**
+     * CacheBatch注解对应的缓存实例
+     *
+     * @return ICache
+     */
+    public ICache getBatchCache() {
+        ICache c = batchCache;
+        if (c == null) {
+            c = CacheFactory.getCache(cacheBatch.type(), cacheBatch.region());
+            batchCache = c;
+        }
+        return c;
+    }
+
+    /**
+     * CacheDelete注解对应的缓存实例
+     *
+     * @return ICache
+     */
+    public ICache getDeleteCache() {
+        ICache c = deleteCache;
+        if (c == null) {
+            c = CacheFactory.getCache(cacheDelete.type(), cacheDelete.region());
+            deleteCache = c;
+        }
+        return c;
+    }
+
+    /**
+     * Cache注解对应的异步缓存实例
+     *
+     * @return AsyncCache
+     */
+    public AsyncCache getAsyncCache() {
+        AsyncCache c = asyncCache;
+        if (c == null) {
+            c = CacheFactory.getAsyncCache(cache.type(), cache.region());
+            asyncCache = c;
+        }
+        return c;
+    }
+
+    /**
+     * 区域KEY（与命名空间、目标类相关，变化时重新生成）
+     *
+     * @param redisCache
+     *            redis缓存
+     * @param namespace
+     *            命名空间
+     * @param className
+     *            目标类名
+     * @return 区域KEY
+     */
+    public byte[] getRegionKeyBytes(RedisCache redisCache, String namespace, String className) {
+        RegionHolder r = region;
+        if (r == null || r.redisCache != redisCache || !r.className.equals(className)
+            || (namespace == null ? r.namespace != null : !namespace.equals(r.namespace))) {
+            r = new RegionHolder(redisCache, namespace, className,
+                redisCache.getRegionKeyBytes(namespace, className, methodDesc));
+            region = r;
+        }
+        return r.regionKeyBytes;
+    }
+
+    private static class RegionHolder {
+        private final RedisCache redisCache;
+        private final String     namespace;
+        private final String     className;
+        private final byte[]     regionKeyBytes;
+
+        private RegionHolder(RedisCache redisCache, String namespace, String className,
+                             byte[] regionKeyBytes) {
+            this.redisCache = redisCache;
+            this.namespace = namespace;
+            this.className = className;
+            this.regionKeyBytes = regionKeyBytes;
+        }
+    }
+}
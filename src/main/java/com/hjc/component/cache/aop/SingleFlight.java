@@ -0,0 +1,152 @@
+package com.hjc.component.cache.aop;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 进程内的加载合并（single-flight）<br/>
+ * 同一个KEY并发未命中时，只有一个线程（leader）执行加载，其它线程等待并共享其结果；
+ * 等待超时则直接加载；异步加载（shareAsync）不等待，结果完成时通知其它调用
+ *
+ * @author hjc
+ *
+ */
+public class SingleFlight {
+    private final ConcurrentHashMap<String, Call>                      calls          = new ConcurrentHashMap<String, Call>();
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> asyncCalls     = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+    /**
+     * 实际执行加载的次数
+     */
+    private final AtomicLong                                           leaderLoads    = new AtomicLong();
+    /**
+     * 共享leader结果的次数
+     */
+    private final AtomicLong                                           coalescedLoads = new AtomicLong();
+    /**
+     * 等待超时后直接加载的次数
+     */
+    private final AtomicLong                                           fallbackLoads  = new AtomicLong();
+
+    /**
+     * 数据加载
+     */
+    public interface Loader {
+        Object load() throws Throwable;
+    }
+
+    private static class Call {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private Object               value;
+        private Throwable            error;
+    }
+
+    /**
+     * 执行加载，相同KEY的并发调用只加载一次
+     *
+     * @param key
+     *            KEY
+     * @param waitMillis
+     *            等待leader的最长时间，单位：毫秒
+     * @param loader
+     *            数据加载
+     * @return 加载结果
+     * @throws Throwable
+     *             异常
+     */
+    public Object execute(String key, long waitMillis, Loader loader) throws Throwable {
+        Call call = new Call();
+        Call inflight = calls.putIfAbsent(key, call);
+        if (inflight == null) {
+            leaderLoads.incrementAndGet();
+            try {
+                call.value = loader.load();
+                return call.value;
+            } catch (Throwable t) {
+                call.error = t;
+                throw t;
+            } finally {
+                calls.remove(key, call);
+                call.latch.countDown();
+            }
+        }
+
+        boolean done = false;
+        try {
+            done = inflight.latch.await(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!done) {
+            // 等待超时,直接加载
+            fallbackLoads.incrementAndGet();
+            return loader.load();
+        }
+
+        coalescedLoads.incrementAndGet();
+        if (inflight.error != null) {
+            throw inflight.error;
+        }
+        return inflight.value;
+    }
+
+    /**
+     * 异步加载的合并，相同KEY的并发调用共用第一个调用（leader）的结果，不阻塞等待
+     *
+     * @param key
+     *            KEY
+     * @param result
+     *            本次调用的结果
+     * @return true：已有leader，result在leader完成时完成；false：本次调用为leader，由调用方加载并完成result
+     */
+    public boolean shareAsync(final String key, final CompletableFuture<Object> result) {
+        CompletableFuture<Object> inflight = asyncCalls.putIfAbsent(key, result);
+        if (inflight == null) {
+            leaderLoads.incrementAndGet();
+            result.whenComplete(new BiConsumer<Object, Throwable>() {
+                @Override
+                public void accept(Object value, Throwable t) {
+                    asyncCalls.remove(key, result);
+                }
+            });
+            return false;
+        }
+
+        coalescedLoads.incrementAndGet();
+        inflight.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object value, Throwable t) {
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(value);
+                }
+            }
+        });
+        return true;
+    }
+
+    public long getLeaderLoads() {
+        return leaderLoads.get();
+    }
+
+    public long getCoalescedLoads() {
+        return coalescedLoads.get();
+    }
+
+    public long getFallbackLoads() {
+        return fallbackLoads.get();
+    }
+
+    /**
+     * 当前正在加载的KEY数
+     *
+     * @return KEY数
+     */
+    public int getInflight() {
+        return calls.size() + asyncCalls.size();
+    }
+}
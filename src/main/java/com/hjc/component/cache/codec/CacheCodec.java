@@ -0,0 +1,49 @@
+package com.hjc.component.cache.codec;
+
+/**
+ * 缓存值的编解码接口<br/>
+ * 编解码ID保存在缓存数据信封头部的偏移2（见CacheEnvelope），读取时按ID选择编解码，
+ * 因此ID一旦使用就不能改变；旧格式数据（RedisCache.decodeLegacy）中为标记字节的高4位
+ * 
+ * @author hjc
+ *
+ */
+public interface CacheCodec {
+	/**
+	 * 编解码ID（0-15，0为FST，旧格式的标记字节只有4位）
+	 * 
+	 * @return ID
+	 */
+	byte getId();
+
+	/**
+	 * 编解码名称（用于配置）
+	 * 
+	 * @return 名称
+	 */
+	String getName();
+
+	/**
+	 * 编码
+	 * 
+	 * @param obj
+	 *            对象
+	 * @param headLength
+	 *            结果前预留的头部长度
+	 * @return 编码结果（前headLength个字节为0）
+	 */
+	byte[] encode(Object obj, int headLength);
+
+	/**
+	 * 解码（直接读取data，不复制）
+	 * 
+	 * @param data
+	 *            数据
+	 * @param offset
+	 *            起始位置，与编码时的headLength相同
+	 * @param length
+	 *            长度
+	 * @return 对象
+	 */
+	Object decode(byte[] data, int offset, int length);
+}
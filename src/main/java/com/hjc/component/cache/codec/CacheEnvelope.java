@@ -0,0 +1,133 @@
+package com.hjc.component.cache.codec;
+
+import com.hjc.component.cache.CacheWrapper;
+
+/**
+ * 缓存数据的二进制信封（固定长度的头部 + 缓存对象编码后的数据）<br/>
+ * 头部（大端）：魔数0xCA(1) 版本(1) 编解码ID(1) 压缩ID(1) lastLoadTime(8) expire(4) staleTime(4) loadTime(4) 数据长度(4)<br/>
+ * 过期判断只需要读取头部，不用反序列化缓存对象；第一个字节不是魔数的为旧格式（标记字节 + 整个CacheWrapper）<br/>
+ * 数据从头部之后直接解码（FST的流位置包含头部）
+ * 
+ * @author hjc
+ *
+ */
+public class CacheEnvelope {
+    public static final byte MAGIC         = (byte) 0xCA;
+    public static final byte VERSION       = 1;
+    public static final int  HEADER_LENGTH = 28;
+    private static final int CODEC         = 2;
+    private static final int COMPRESS      = 3;
+    private static final int LAST_LOAD     = 4;
+    private static final int EXPIRE        = 12;
+    private static final int STALE         = 16;
+    private static final int LOAD_TIME     = 20;
+    private static final int LENGTH        = 24;
+
+    /**
+     * 是否为信封格式
+     * 
+     * @param data
+     *            缓存数据
+     * @return boolean
+     */
+    public static boolean isEnvelope(byte[] data) {
+        return data != null && data.length >= HEADER_LENGTH && data[0] == MAGIC
+               && data[1] == VERSION;
+    }
+
+    /**
+     * 写头部
+     * 
+     * @param data
+     *            缓存数据（预留了头部）
+     * @param wrapper
+     *            缓存
+     * @param codecId
+     *            编解码ID
+     * @param compressId
+     *            压缩ID，0为没有压缩
+     */
+    public static void writeHeader(byte[] data, CacheWrapper wrapper, int codecId, int compressId) {
+        data[0] = MAGIC;
+        data[1] = VERSION;
+        data[CODEC] = (byte) codecId;
+        data[COMPRESS] = (byte) compressId;
+        writeLong(data, LAST_LOAD, wrapper.getLastLoadTime());
+        writeInt(data, EXPIRE, wrapper.getExpire());
+        writeInt(data, STALE, wrapper.getStaleTime());
+        writeInt(data, LOAD_TIME, (int) Math.min(Integer.MAX_VALUE, Math.max(0, wrapper.getLoadTime())));
+        writeInt(data, LENGTH, data.length - HEADER_LENGTH);
+    }
+
+    /**
+     * 从头部读取缓存信息（不包含缓存对象）
+     * 
+     * @param data
+     *            缓存数据
+     * @return 缓存
+     */
+    public static CacheWrapper readHeader(byte[] data) {
+        CacheWrapper wrapper = new CacheWrapper();
+        wrapper.setLastLoadTime(readLong(data, LAST_LOAD));
+        wrapper.setExpire(readInt(data, EXPIRE));
+        wrapper.setStaleTime(readInt(data, STALE));
+        wrapper.setLoadTime(readInt(data, LOAD_TIME));
+        return wrapper;
+    }
+
+    /**
+     * 只读取头部判断是否已经过期（超过expire + staleTime）
+     * 
+     * @param data
+     *            缓存数据
+     * @return boolean
+     */
+    public static boolean isExpired(byte[] data) {
+        int expire = readInt(data, EXPIRE);
+        if (expire <= 0) {
+            return false;
+        }
+        long storeExpire = expire + Math.max(readInt(data, STALE), 0);
+        return System.currentTimeMillis() - readLong(data, LAST_LOAD) > storeExpire * 1000L;
+    }
+
+    public static int getCodecId(byte[] data) {
+        return data[CODEC] & 0xFF;
+    }
+
+    public static int getCompressId(byte[] data) {
+        return data[COMPRESS] & 0xFF;
+    }
+
+    /**
+     * 数据长度（压缩后的长度）
+     * 
+     * @param data
+     *            缓存数据
+     * @return 长度
+     */
+    public static int getPayloadLength(byte[] data) {
+        return readInt(data, LENGTH);
+    }
+
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private static void writeLong(byte[] data, int offset, long value) {
+        writeInt(data, offset, (int) (value >>> 32));
+        writeInt(data, offset + 4, (int) value);
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+               | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        return ((long) readInt(data, offset) << 32) | (readInt(data, offset + 4) & 0xFFFFFFFFL);
+    }
+}
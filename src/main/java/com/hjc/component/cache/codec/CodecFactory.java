@@ -0,0 +1,77 @@
+package com.hjc.component.cache.codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hjc.component.cache.util.StringHelper;
+
+/**
+ * 缓存值编解码的注册和查找
+ * 
+ * @author hjc
+ *
+ */
+public class CodecFactory {
+    private static final CacheCodec[]            codecs = new CacheCodec[16];
+    private static final Map<String, CacheCodec> byName = new ConcurrentHashMap<String, CacheCodec>();
+    
+    static {
+        register(new FstCodec());
+        register(new KryoCodec());
+        register(new JsonCodec());
+    }
+    
+    /**
+     * 注册编解码（自定义编解码的ID使用8-15）
+     * 
+     * @param codec
+     *            编解码
+     */
+    public static void register(CacheCodec codec) {
+        int id = codec.getId();
+        if (id < 0 || id >= codecs.length) {
+            throw new RuntimeException("编解码ID超出范围(0-15)：" + id);
+        }
+        CacheCodec exists = codecs[id];
+        if (exists != null && !exists.getName().equals(codec.getName())) {
+            throw new RuntimeException("编解码ID已被使用：" + id + ", " + exists.getName());
+        }
+        codecs[id] = codec;
+        byName.put(codec.getName(), codec);
+    }
+    
+    /**
+     * 按ID获取编解码
+     * 
+     * @param id
+     *            ID
+     * @return 编解码
+     */
+    public static CacheCodec getCodec(int id) {
+        CacheCodec codec = id >= 0 && id < codecs.length ? codecs[id] : null;
+        if (codec == null) {
+            throw new RuntimeException("未知的编解码ID：" + id);
+        }
+        return codec;
+    }
+    
+    /**
+     * 按名称获取编解码
+     * 
+     * @param name
+     *            名称
+     * @param defaultCodec
+     *            名称为空时返回的默认编解码
+     * @return 编解码
+     */
+    public static CacheCodec getCodec(String name, CacheCodec defaultCodec) {
+        if (StringHelper.isEmpty(name)) {
+            return defaultCodec;
+        }
+        CacheCodec codec = byName.get(name.trim());
+        if (codec == null) {
+            throw new RuntimeException("不支持的编解码：" + name);
+        }
+        return codec;
+    }
+}
@@ -0,0 +1,35 @@
+package com.hjc.component.cache.codec;
+
+import com.hjc.component.cache.util.Serialize;
+
+/**
+ * FST编解码（默认，使用Serialize的共享配置）<br/>
+ * FST的对象引用按流位置记录，预留的头部计入流位置，解码的offset必须等于编码时的headLength
+ * 
+ * @author hjc
+ *
+ */
+public class FstCodec implements CacheCodec {
+    public static final byte   ID   = 0;
+    public static final String NAME = "fst";
+    
+    @Override
+    public byte getId() {
+        return ID;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] encode(Object obj, int headLength) {
+        return Serialize.fstserialize(obj, headLength);
+    }
+    
+    @Override
+    public Object decode(byte[] data, int offset, int length) {
+        return Serialize.fstdeserializeAt(data, offset, length);
+    }
+}
@@ -0,0 +1,200 @@
+package com.hjc.component.cache.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
+import com.fasterxml.jackson.databind.jsontype.impl.ClassNameIdResolver;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.hjc.component.cache.util.StringHelper;
+
+/**
+ * JSON编解码（Jackson，文本格式便于排查）<br/>
+ * 按字段序列化，写入类型信息以还原原始类型；
+ * 解码时只接受允许的包下的类型：JDK的java.lang、java.util、java.util.concurrent、java.math、java.time（不含子包），
+ * 以及com.hjc和用allowPackages（或配置项json-packages）添加的包（含子包），缓存自定义类型时需添加所在的包
+ * 
+ * @author hjc
+ *
+ */
+public class JsonCodec implements CacheCodec {
+    public static final byte          ID       = 2;
+    public static final String        NAME     = "json";
+    private static final Set<String>  JDK      = new HashSet<String>(Arrays.asList("java.lang",
+        "java.util", "java.util.concurrent", "java.math", "java.time"));
+    private static final Set<String>  packages = new CopyOnWriteArraySet<String>();
+    private static final ObjectMapper mapper   = createMapper();
+    
+    static {
+        allowPackages("com.hjc");
+    }
+    
+    /**
+     * 类型ID（类名）不在允许的包下时解码失败，避免反序列化任意类
+     */
+    static class AllowedClassNameIdResolver extends ClassNameIdResolver {
+        AllowedClassNameIdResolver(JavaType baseType, TypeFactory typeFactory) {
+            super(baseType, typeFactory);
+        }
+        
+        @Override
+        public JavaType typeFromId(DatabindContext context, String id) throws IOException {
+            if (!isAllowed(id)) {
+                String msg = "类型不在允许的包下(json-packages)";
+                if (context instanceof DeserializationContext) {
+                    throw ((DeserializationContext) context).invalidTypeIdException(_baseType, id,
+                        msg);
+                }
+                throw new IllegalArgumentException(msg + ": " + id);
+            }
+            return super.typeFromId(context, id);
+        }
+    }
+    
+    /**
+     * 添加允许解码的包（包括子包）
+     * 
+     * @param names
+     *            包名
+     */
+    public static void allowPackages(String... names) {
+        for (String name : names) {
+            if (StringHelper.isNotBlank(name)) {
+                name = name.trim();
+                packages.add(name.endsWith(".") ? name : name + ".");
+            }
+        }
+    }
+    
+    /**
+     * 类型ID中的类（包括数组元素、泛型参数）是否都在允许的包下
+     * 
+     * @param id
+     *            类型ID，如java.util.ArrayList、[Lcom.hjc.Foo;、java.util.EnumMap<...>
+     * @return 允许返回true
+     */
+    static boolean isAllowed(String id) {
+        String[] names = StringHelper.splitTokens(id, "<>, ");
+        if (names == null) {
+            return false;
+        }
+        for (String name : names) {
+            int dims = 0;
+            while (dims < name.length() && name.charAt(dims) == '[') {
+                ++dims;
+            }
+            if (dims > 0) {
+                name = name.substring(dims);
+                if (name.length() == 1) {
+                    continue;// 基本类型数组，如[B
+                }
+                if (name.startsWith("L") && name.endsWith(";")) {
+                    name = name.substring(1, name.length() - 1);// 对象数组，如[Ljava.lang.String;
+                }
+            }
+            if (!isAllowedClass(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isAllowedClass(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot > 0 && JDK.contains(name.substring(0, dot))) {
+            return true;
+        }
+        for (String p : packages) {
+            if (name.startsWith(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static ObjectMapper createMapper() {
+        ObjectMapper m = new ObjectMapper();
+        m.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
+        m.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        m.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        m.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        // 所有非基本类型都写类型信息（Long等数值类型也能还原）
+        TypeResolverBuilder<?> typer = new ObjectMapper.DefaultTypeResolverBuilder(
+            ObjectMapper.DefaultTyping.NON_FINAL) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            public boolean useForType(JavaType t) {
+                return !t.isPrimitive();
+            }
+            
+            @Override
+            protected TypeIdResolver idResolver(MapperConfig<?> config, JavaType baseType,
+                Collection<NamedType> subtypes, boolean forSer, boolean forDeser) {
+                return new AllowedClassNameIdResolver(baseType, config.getTypeFactory());
+            }
+        };
+        typer = typer.init(JsonTypeInfo.Id.CLASS, null).inclusion(JsonTypeInfo.As.PROPERTY);
+        m.setDefaultTyping(typer);
+        return m;
+    }
+    
+    /**
+     * 获取使用的ObjectMapper（可注册模块等）
+     * 
+     * @return ObjectMapper
+     */
+    public static ObjectMapper getMapper() {
+        return mapper;
+    }
+    
+    @Override
+    public byte getId() {
+        return ID;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] encode(Object obj, int headLength) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(obj);
+            if (headLength == 0) {
+                return json;
+            }
+            byte[] bytes = new byte[headLength + json.length];
+            System.arraycopy(json, 0, bytes, headLength, json.length);
+            return bytes;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    @Override
+    public Object decode(byte[] data, int offset, int length) {
+        try {
+            return mapper.readValue(data, offset, length, Object.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.hjc.component.cache.codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheResult;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.RegionInfo;
+import com.hjc.component.cache.compress.DecompressBuffer;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+/**
+ * Kryo编解码<br/>
+ * Kryo实例和输入输出缓冲区按线程复用（超过DecompressBuffer.MAX_RETAIN的输出缓冲区不保留）；
+ * 注册的类用ID代替类名，未注册的类写类名
+ * 
+ * @author hjc
+ *
+ */
+public class KryoCodec implements CacheCodec {
+    public static final byte                    ID           = 1;
+    public static final String                  NAME         = "kryo";
+    private static final byte[]                 EMPTY        = new byte[0];
+    private static final int                    INIT_BUFFER  = 4096;
+    private static final Map<Class<?>, Integer> REGISTRATION = new ConcurrentHashMap<Class<?>, Integer>();
+    private static final ThreadLocal<Kryo>      kryos        = new ThreadLocal<Kryo>() {
+        @Override
+        protected Kryo initialValue() {
+            return createKryo();
+        }
+    };
+    private static final ThreadLocal<Output>    outputs      = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output(INIT_BUFFER, -1);
+        }
+    };
+    private static final ThreadLocal<Input>     inputs       = new ThreadLocal<Input>() {
+        @Override
+        protected Input initialValue() {
+            return new Input();
+        }
+    };
+    
+    static {
+        register(CacheWrapper.class, 100);
+        register(CacheKey.class, 101);
+        register(RegionInfo.class, 102);
+        register(CacheResult.class, 103);
+    }
+    
+    /**
+     * 注册类（如常用的DTO）<br/>
+     * 必须在应用启动时、编码之前调用，所有节点的类和ID必须一致；ID从100开始由缓存组件使用，应用使用200以上
+     * 
+     * @param type
+     *            类
+     * @param id
+     *            ID
+     */
+    public static void register(Class<?> type, int id) {
+        REGISTRATION.put(type, id);
+    }
+    
+    private static Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(false);
+        kryo.setReferences(true);
+        // 没有无参构造函数的类也可以创建
+        kryo.setInstantiatorStrategy(
+            new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        for (Map.Entry<Class<?>, Integer> e : REGISTRATION.entrySet()) {
+            kryo.register(e.getKey(), e.getValue());
+        }
+        return kryo;
+    }
+    
+    @Override
+    public byte getId() {
+        return ID;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] encode(Object obj, int headLength) {
+        Output output = outputs.get();
+        output.clear();
+        output.setPosition(headLength);
+        kryos.get().writeClassAndObject(output, obj);
+        int len = output.position();
+        byte[] bytes = new byte[len];
+        System.arraycopy(output.getBuffer(), headLength, bytes, headLength, len - headLength);
+        if (output.getBuffer().length > DecompressBuffer.MAX_RETAIN) {
+            output.setBuffer(new byte[INIT_BUFFER], -1);
+        }
+        return bytes;
+    }
+    
+    @Override
+    public Object decode(byte[] data, int offset, int length) {
+        Input input = inputs.get();
+        input.setBuffer(data, offset, length);
+        try {
+            return kryos.get().readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY);// 不持有数据
+        }
+    }
+}
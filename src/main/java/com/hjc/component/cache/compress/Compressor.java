@@ -0,0 +1,68 @@
+package com.hjc.component.cache.compress;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 缓存值的压缩接口<br/>
+ * 压缩ID保存在缓存数据信封头部的偏移3（见CacheEnvelope），读取时按ID选择解压方式，
+ * 因此ID一旦使用就不能改变；旧格式数据（RedisCache.decodeLegacy）中为标记字节的低4位
+ * 
+ * @author hjc
+ *
+ */
+public interface Compressor {
+	/**
+	 * 压缩ID（1-15，0表示没有压缩，旧格式的标记字节只有4位）
+	 * 
+	 * @return ID
+	 */
+	byte getId();
+
+	/**
+	 * 压缩名称（用于配置）
+	 * 
+	 * @return 名称
+	 */
+	String getName();
+
+	/**
+	 * 压缩
+	 * 
+	 * @param data
+	 *            数据
+	 * @param offset
+	 *            开始位置
+	 * @param length
+	 *            长度
+	 * @return 压缩后的数据
+	 */
+	byte[] compress(byte[] data, int offset, int length);
+
+	/**
+	 * 解压
+	 * 
+	 * @param data
+	 *            数据
+	 * @param offset
+	 *            开始位置
+	 * @param length
+	 *            长度
+	 * @return 解压后的数据
+	 */
+	byte[] uncompress(byte[] data, int offset, int length);
+
+	/**
+	 * 解压到当前线程复用的缓冲区（DecompressBuffer），不分配新数组
+	 * 
+	 * @param data
+	 *            数据
+	 * @param offset
+	 *            开始位置
+	 * @param length
+	 *            长度
+	 * @param reserve
+	 *            缓冲区前面预留的长度，解压后的数据从reserve开始
+	 * @return 缓冲区（position为reserve，limit为数据结束位置），在当前线程下一次解压前有效
+	 */
+	ByteBuffer uncompress(byte[] data, int offset, int length, int reserve);
+}
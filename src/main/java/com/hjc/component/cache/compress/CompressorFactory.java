@@ -0,0 +1,86 @@
+package com.hjc.component.cache.compress;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hjc.component.cache.util.StringHelper;
+
+/**
+ * 缓存值压缩的注册和查找<br/>
+ * 字典压缩（ID为4）依赖各redis配置的字典，由RedisCache创建，不在这里注册
+ * 
+ * @author hjc
+ *
+ */
+public class CompressorFactory {
+    public static final String                   NONE        = "none";
+    private static final Compressor[]            compressors = new Compressor[16];
+    private static final Map<String, Compressor> byName      = new ConcurrentHashMap<String, Compressor>();
+    
+    static {
+        register(new DeflateCompressor());
+        register(new Lz4Compressor());
+        register(new ZstdCompressor());
+    }
+    
+    /**
+     * 注册压缩（自定义压缩的ID使用8-15）
+     * 
+     * @param compressor
+     *            压缩
+     */
+    public static void register(Compressor compressor) {
+        int id = compressor.getId();
+        if (id <= 0 || id >= compressors.length) {
+            throw new RuntimeException("压缩ID超出范围(1-15)：" + id);
+        }
+        if (id == ZstdDictCompressor.ID) {
+            throw new RuntimeException("压缩ID为字典压缩保留：" + id);
+        }
+        Compressor exists = compressors[id];
+        if (exists != null && !exists.getName().equals(compressor.getName())) {
+            throw new RuntimeException("压缩ID已被使用：" + id + ", " + exists.getName());
+        }
+        compressors[id] = compressor;
+        byName.put(compressor.getName(), compressor);
+    }
+    
+    /**
+     * 按ID获取压缩
+     * 
+     * @param id
+     *            ID
+     * @return 压缩
+     */
+    public static Compressor getCompressor(int id) {
+        Compressor compressor = id > 0 && id < compressors.length ? compressors[id] : null;
+        if (compressor == null) {
+            throw new RuntimeException("未知的压缩ID：" + id);
+        }
+        return compressor;
+    }
+    
+    /**
+     * 按名称获取压缩
+     * 
+     * @param name
+     *            名称，none表示不压缩
+     * @param defaultCompressor
+     *            名称为空时返回的默认压缩
+     * @return 压缩，不压缩时返回null
+     */
+    public static Compressor getCompressor(String name, Compressor defaultCompressor) {
+        if (StringHelper.isEmpty(name)) {
+            return defaultCompressor;
+        }
+        name = name.trim();
+        if (NONE.equals(name)) {
+            return null;
+        }
+        Compressor compressor = byName.get(name);
+        if (compressor == null) {
+            throw new RuntimeException("不支持的压缩：" + name);
+        }
+        return compressor;
+    }
+}
@@ -0,0 +1,92 @@
+package com.hjc.component.cache.compress;
+
+import java.util.Arrays;
+
+/**
+ * 解压使用的缓冲区（按线程复用）<br/>
+ * 缓冲区的内容只在当前线程下一次解压前有效；超过4M的缓冲区不保留，避免长期占用内存
+ * 
+ * @author hjc
+ *
+ */
+public class DecompressBuffer {
+    /**
+     * 解压后的最大长度（与redis字符串的上限相同），数据中声明的长度超过时视为损坏
+     */
+    public static final int                  MAX_LENGTH = 512 * 1024 * 1024;
+    /**
+     * 按线程保留的缓冲区的最大长度（序列化的缓冲区也使用此上限）
+     */
+    public static final int                  MAX_RETAIN = 4 * 1024 * 1024;
+    private static final ThreadLocal<byte[]> buffers    = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[64 * 1024];
+        }
+    };
+
+    /**
+     * 检查数据中声明的原始长度，避免损坏的数据导致分配过大的数组
+     * 
+     * @param name
+     *            压缩方式
+     * @param size
+     *            声明的原始长度
+     * @return 原始长度
+     */
+    public static int checkLength(String name, long size) {
+        if (size < 0 || size > MAX_LENGTH) {
+            throw new RuntimeException(name + "数据的原始长度错误：" + size);
+        }
+        return (int) size;
+    }
+
+    /**
+     * 获取当前线程的缓冲区
+     * 
+     * @param capacity
+     *            需要的容量
+     * @return 缓冲区（长度不小于capacity）
+     */
+    public static byte[] get(int capacity) {
+        byte[] buf = buffers.get();
+        if (buf.length >= capacity) {
+            return buf;
+        }
+        byte[] newBuf = new byte[Math.max(capacity, Math.min(buf.length << 1, MAX_RETAIN))];
+        if (newBuf.length <= MAX_RETAIN) {
+            buffers.set(newBuf);
+        }
+        return newBuf;
+    }
+
+    /**
+     * 缓冲区扩容（保留已使用的数据）
+     * 
+     * @param buf
+     *            缓冲区
+     * @param used
+     *            已使用的长度
+     * @return 新的缓冲区
+     */
+    public static byte[] grow(byte[] buf, int used) {
+        byte[] newBuf = get(buf.length << 1);
+        System.arraycopy(buf, 0, newBuf, 0, used);
+        return newBuf;
+    }
+
+    /**
+     * 复制缓冲区的数据
+     * 
+     * @param buf
+     *            缓冲区
+     * @param offset
+     *            开始位置
+     * @param length
+     *            长度
+     * @return 新数组
+     */
+    public static byte[] copy(byte[] buf, int offset, int length) {
+        return Arrays.copyOfRange(buf, offset, offset + length);
+    }
+}
@@ -0,0 +1,101 @@
+package com.hjc.component.cache.compress;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate压缩（原有格式，ID为1）<br/>
+ * Deflater、Inflater和压缩的输出缓冲区按线程复用，解压使用DecompressBuffer
+ * 
+ * @author hjc
+ *
+ */
+public class DeflateCompressor implements Compressor {
+    public static final byte                   ID        = 1;
+    public static final String                 NAME      = "deflate";
+    private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater();
+        }
+    };
+    private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+    private static final ThreadLocal<byte[]>   buffers   = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[8192];
+        }
+    };
+    
+    @Override
+    public byte getId() {
+        return ID;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+        Deflater defl = deflaters.get();
+        defl.reset();
+        defl.setInput(data, offset, length);
+        defl.finish();
+        byte[] buf = buffers.get();
+        int size = 0;
+        while (!defl.finished()) {
+            if (size == buf.length) {
+                buf = grow(buf);
+            }
+            size += defl.deflate(buf, size, buf.length - size);
+        }
+        return Arrays.copyOf(buf, size);
+    }
+    
+    @Override
+    public byte[] uncompress(byte[] data, int offset, int length) {
+        ByteBuffer buf = uncompress(data, offset, length, 0);
+        return DecompressBuffer.copy(buf.array(), 0, buf.limit());
+    }
+    
+    @Override
+    public ByteBuffer uncompress(byte[] data, int offset, int length, int reserve) {
+        Inflater infl = inflaters.get();
+        infl.reset();
+        infl.setInput(data, offset, length);
+        byte[] buf = DecompressBuffer.get(reserve + length * 4);
+        int size = reserve;
+        try {
+            while (!infl.finished()) {
+                if (size == buf.length) {
+                    DecompressBuffer.checkLength(NAME, size - reserve + 1L);
+                    buf = DecompressBuffer.grow(buf, size);
+                }
+                int len = infl.inflate(buf, size, buf.length - size);
+                if (len == 0 && (infl.needsInput() || infl.needsDictionary())) {
+                    break;// 数据不完整
+                }
+                size += len;
+            }
+        } catch (DataFormatException e) {
+            throw new RuntimeException("Deflate解压失败", e);
+        }
+        return ByteBuffer.wrap(buf, reserve, size - reserve);
+    }
+    
+    private static byte[] grow(byte[] buf) {
+        byte[] newBuf = Arrays.copyOf(buf, buf.length << 1);
+        buffers.set(newBuf);
+        return newBuf;
+    }
+}
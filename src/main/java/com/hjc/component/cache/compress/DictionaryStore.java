@@ -0,0 +1,47 @@
+package com.hjc.component.cache.compress;
+
+/**
+ * 压缩字典的存储（所有节点共享）<br/>
+ * 字典ID从1开始递增，已保存的字典不能修改或删除（旧数据需要用它解压）；
+ * 字典被存储淘汰后不能再用于压缩（ZstdDictCompressor定期用exists检查）
+ * 
+ * @author hjc
+ *
+ */
+public interface DictionaryStore {
+	/**
+	 * 保存字典，当前字典仍为expectedId时设为当前字典（比较并设置，多个节点同时发布时只有一个生效）
+	 * 
+	 * @param dict
+	 *            字典
+	 * @param expectedId
+	 *            训练（发布）前的当前字典ID，没有字典为0
+	 * @return 发布后的当前字典ID：发布成功为新字典的ID，否则为其它节点发布的字典ID
+	 */
+	int save(byte[] dict, int expectedId);
+
+	/**
+	 * 读取字典
+	 * 
+	 * @param id
+	 *            字典ID
+	 * @return 不存在返回null
+	 */
+	byte[] load(int id);
+
+	/**
+	 * 字典是否还在存储中（存储有淘汰策略时字典可能被删除）
+	 * 
+	 * @param id
+	 *            字典ID
+	 * @return 存在返回true
+	 */
+	boolean exists(int id);
+
+	/**
+	 * 当前字典ID
+	 * 
+	 * @return 没有字典返回0
+	 */
+	int getCurrentId();
+}
@@ -0,0 +1,78 @@
+package com.hjc.component.cache.compress;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * LZ4压缩（ID为2）<br/>
+ * 格式：4个字节的原始长度（大端） + LZ4块数据；压缩、解压实例无状态，所有线程共用<br/>
+ * 解压使用safe解压器，损坏的数据不会越界读取
+ * 
+ * @author hjc
+ *
+ */
+public class Lz4Compressor implements Compressor {
+    public static final byte                 ID           = 2;
+    public static final String               NAME         = "lz4";
+    private static final LZ4Compressor       compressor   = LZ4Factory.fastestInstance()
+        .fastCompressor();
+    private static final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance()
+        .safeDecompressor();
+    
+    @Override
+    public byte getId() {
+        return ID;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+        byte[] out = new byte[4 + compressor.maxCompressedLength(length)];
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+        int size = compressor.compress(data, offset, length, out, 4, out.length - 4);
+        return Arrays.copyOf(out, 4 + size);
+    }
+    
+    @Override
+    public byte[] uncompress(byte[] data, int offset, int length) {
+        int size = readLength(data, offset, length);
+        byte[] out = new byte[size];
+        checkSize(size, decompressor.decompress(data, offset + 4, length - 4, out, 0, size));
+        return out;
+    }
+    
+    @Override
+    public ByteBuffer uncompress(byte[] data, int offset, int length, int reserve) {
+        int size = readLength(data, offset, length);
+        byte[] buf = DecompressBuffer.get(reserve + size);
+        checkSize(size,
+            decompressor.decompress(data, offset + 4, length - 4, buf, reserve, size));
+        return ByteBuffer.wrap(buf, reserve, size);
+    }
+    
+    private static int readLength(byte[] data, int offset, int length) {
+        if (length < 4) {
+            throw new RuntimeException("LZ4数据长度错误：" + length);
+        }
+        long size = ((data[offset] & 0xFFL) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                    | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+        return DecompressBuffer.checkLength(NAME, size);
+    }
+    
+    private static void checkSize(int size, int len) {
+        if (len != size) {
+            throw new RuntimeException("LZ4解压后的长度错误：" + len + "，应为：" + size);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.hjc.component.cache.compress;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+
+/**
+ * Zstd压缩（ID为3）<br/>
+ * 帧头中保存原始长度；压缩、解压上下文（native）按线程复用，不同的压缩级别使用不同的实例
+ * 
+ * @author hjc
+ *
+ */
+public class ZstdCompressor implements Compressor {
+    public static final byte                            ID            = 3;
+    public static final String                          NAME          = "zstd";
+    public static final int                             DEFAULT_LEVEL = 3;
+    private static final ThreadLocal<ZstdDecompressCtx> dctxs         = new ThreadLocal<ZstdDecompressCtx>() {
+        @Override
+        protected ZstdDecompressCtx initialValue() {
+            return new ZstdDecompressCtx();
+        }
+    };
+    private final ThreadLocal<ZstdCompressCtx>          cctxs;
+    
+    public ZstdCompressor() {
+        this(DEFAULT_LEVEL);
+    }
+    
+    /**
+     * @param level
+     *            压缩级别（1-22，越大压缩率越高、越慢）
+     */
+    public ZstdCompressor(final int level) {
+        this.cctxs = new ThreadLocal<ZstdCompressCtx>() {
+            @Override
+            protected ZstdCompressCtx initialValue() {
+                return new ZstdCompressCtx().setLevel(level).setContentSize(true);
+            }
+        };
+    }
+    
+    @Override
+    public byte getId() {
+        return ID;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+        byte[] out = new byte[(int) Zstd.compressBound(length)];
+        int size = cctxs.get().compressByteArray(out, 0, out.length, data, offset, length);
+        return Arrays.copyOf(out, size);
+    }
+    
+    @Override
+    public byte[] uncompress(byte[] data, int offset, int length) {
+        byte[] out = new byte[contentSize(data, offset, length)];
+        int len = dctxs.get().decompressByteArray(out, 0, out.length, data, offset, length);
+        return len == out.length ? out : Arrays.copyOf(out, len);
+    }
+    
+    @Override
+    public ByteBuffer uncompress(byte[] data, int offset, int length, int reserve) {
+        int size = contentSize(data, offset, length);
+        byte[] buf = DecompressBuffer.get(reserve + size);
+        int len = dctxs.get().decompressByteArray(buf, reserve, size, data, offset, length);
+        return ByteBuffer.wrap(buf, reserve, len);
+    }
+    
+    /**
+     * 帧头中的原始长度
+     */
+    static int contentSize(byte[] data, int offset, int length) {
+        return DecompressBuffer.checkLength(NAME, Zstd.getFrameContentSize(data, offset, length));
+    }
+}
@@ -0,0 +1,335 @@
+package com.hjc.component.cache.compress;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 使用训练字典的Zstd压缩（ID为4），用于小数据（几百字节）的压缩<br/>
+ * 格式：4个字节的字典ID（大端） + Zstd帧；字典保存在DictionaryStore中，解压时按ID延迟加载<br/>
+ * 没有字典时收集样本，样本数量足够后在后台线程训练并发布为当前字典（多个节点同时训练时使用先发布的字典）；
+ * 也可以离线训练（train）后调用DictionaryStore.save发布<br/>
+ * 每verifyInterval毫秒检查一次当前字典是否还在存储中，已被淘汰时停止用它压缩（重新训练），避免写入无法解压的数据
+ * 
+ * @author hjc
+ *
+ */
+public class ZstdDictCompressor implements Compressor {
+    public static final byte                             ID              = 4;
+    public static final String                           NAME            = "zstd-dict";
+    public static final int                              VERIFY_INTERVAL = 60000;                  // 默认的字典检查间隔,单位：毫秒
+    private static final Logger                          logger          = LoggerFactory
+        .getLogger(ZstdDictCompressor.class);
+    private static final ThreadLocal<ZstdCompressCtx>    cctxs           = new ThreadLocal<ZstdCompressCtx>() {
+        @Override
+        protected ZstdCompressCtx initialValue() {
+            return new ZstdCompressCtx().setContentSize(true).setDictID(false);
+        }
+    };
+    private static final ThreadLocal<ZstdDecompressCtx>  dctxs           = new ThreadLocal<ZstdDecompressCtx>() {
+        @Override
+        protected ZstdDecompressCtx initialValue() {
+            return new ZstdDecompressCtx();
+        }
+    };
+    private final DictionaryStore                        store;
+    private final int                                    level;
+    private final int                                    dictSize;
+    private final int                                    sampleCount;
+    private final boolean                                train;
+    private final long                                   verifyInterval;
+    private final Map<Integer, ZstdDictDecompress>       decompressDicts = new ConcurrentHashMap<Integer, ZstdDictDecompress>();
+    private final List<byte[]>                           samples         = new ArrayList<byte[]>();
+    private final AtomicBoolean                          training        = new AtomicBoolean();
+    private final AtomicBoolean                          verifying       = new AtomicBoolean();
+    private volatile boolean                             initialized;
+    private volatile Dict                                current;
+    
+    private static class Dict {
+        private final int              id;
+        private final ZstdDictCompress dict;
+        private volatile long          verifiedAt;  //上次确认字典还在存储中的时间
+        
+        private Dict(int id, ZstdDictCompress dict) {
+            this.id = id;
+            this.dict = dict;
+            this.verifiedAt = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * @param store
+     *            字典存储
+     * @param level
+     *            压缩级别
+     * @param dictSize
+     *            训练的字典大小，单位：字节
+     * @param sampleCount
+     *            训练需要的样本数
+     * @param train
+     *            没有字典时是否自动训练
+     */
+    public ZstdDictCompressor(DictionaryStore store, int level, int dictSize, int sampleCount,
+        boolean train) {
+        this(store, level, dictSize, sampleCount, train, VERIFY_INTERVAL);
+    }
+    
+    /**
+     * @param store
+     *            字典存储
+     * @param level
+     *            压缩级别
+     * @param dictSize
+     *            训练的字典大小，单位：字节
+     * @param sampleCount
+     *            训练需要的样本数
+     * @param train
+     *            没有字典时是否自动训练
+     * @param verifyInterval
+     *            检查当前字典是否还在存储中的间隔，单位：毫秒
+     */
+    public ZstdDictCompressor(DictionaryStore store, int level, int dictSize, int sampleCount,
+        boolean train, long verifyInterval) {
+        this.store = store;
+        this.level = level;
+        this.dictSize = dictSize;
+        this.sampleCount = sampleCount;
+        this.train = train;
+        this.verifyInterval = Math.max(0, verifyInterval);
+    }
+    
+    @Override
+    public byte getId() {
+        return ID;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    /**
+     * 是否有可用的字典（第一次调用时读取当前字典，之后定期检查字典是否还在存储中）
+     * 
+     * @return 是否可以压缩
+     */
+    public boolean isReady() {
+        if (!initialized) {
+            synchronized (this) {
+                if (!initialized) {
+                    initialized = true;
+                    try {
+                        int id = store.getCurrentId();
+                        if (id > 0) {
+                            use(id);
+                        }
+                    } catch (Throwable t) {
+                        logger.error("读取当前压缩字典异常", t);
+                    }
+                }
+            }
+        }
+        Dict dict = current;
+        if (dict != null) {
+            verify(dict);
+        }
+        return current != null;
+    }
+    
+    /**
+     * 检查字典是否还在存储中（只有一个线程检查），已被淘汰时停止用它压缩：
+     * 其它节点无法加载该字典，继续使用会写入无法解压的数据
+     */
+    private void verify(Dict dict) {
+        long now = System.currentTimeMillis();
+        if (now - dict.verifiedAt < verifyInterval || !verifying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (store.exists(dict.id)) {
+                dict.verifiedAt = now;
+                return;
+            }
+            synchronized (this) {
+                if (current == dict) {
+                    current = null;// 重新收集样本训练
+                }
+            }
+            logger.error("压缩字典已不在存储中（可能被淘汰），停止使用, id:" + dict.id);
+        } catch (Throwable t) {
+            dict.verifiedAt = now;// 存储不可用时不能确认，继续使用
+            logger.error("检查压缩字典异常, id:" + dict.id, t);
+        } finally {
+            verifying.set(false);
+        }
+    }
+    
+    /**
+     * 收集训练样本（有字典、未开启训练或样本已足够时忽略）
+     * 
+     * @param data
+     *            数据
+     * @param offset
+     *            开始位置
+     * @param length
+     *            长度
+     */
+    public void sample(byte[] data, int offset, int length) {
+        if (!train || current != null || training.get()) {
+            return;
+        }
+        List<byte[]> trainSamples = null;
+        synchronized (samples) {
+            if (samples.size() < sampleCount) {
+                samples.add(Arrays.copyOfRange(data, offset, offset + length));
+            }
+            if (samples.size() >= sampleCount && training.compareAndSet(false, true)) {
+                trainSamples = new ArrayList<byte[]>(samples);
+                samples.clear();
+            }
+        }
+        if (trainSamples != null) {
+            startTrain(trainSamples);
+        }
+    }
+    
+    private void startTrain(final List<byte[]> trainSamples) {
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int startId = store.getCurrentId();
+                    byte[] dict = train(trainSamples, dictSize);
+                    // 训练期间其它节点已发布字典时使用其它节点的字典
+                    int id = store.save(dict, startId);
+                    logger.info("压缩字典训练完成, 当前字典id:" + id + ", size:" + dict.length);
+                    use(id);
+                } catch (Throwable t) {
+                    logger.error("压缩字典训练异常", t);
+                } finally {
+                    training.set(false);
+                }
+            }
+        }, "zstd-dict-train");
+        t.setDaemon(true);
+        t.start();
+    }
+    
+    /**
+     * 训练字典（离线训练时使用）
+     * 
+     * @param samples
+     *            样本
+     * @param dictSize
+     *            字典大小，单位：字节
+     * @return 字典
+     */
+    public static byte[] train(List<byte[]> samples, int dictSize) {
+        int total = 0;
+        for (byte[] sample : samples) {
+            total += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer(total, dictSize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+    
+    /**
+     * 使用指定的字典压缩（字典ID比当前字典新时调用）
+     * 
+     * @param id
+     *            字典ID
+     */
+    public synchronized void use(int id) {
+        Dict dict = current;
+        if (dict != null && dict.id >= id) {
+            return;
+        }
+        byte[] data = store.load(id);
+        if (data == null) {
+            throw new RuntimeException("压缩字典不存在：" + id);
+        }
+        current = new Dict(id, new ZstdDictCompress(data, level));
+        decompressDicts.put(id, new ZstdDictDecompress(data));
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+        Dict dict = current;
+        if (dict == null) {
+            throw new RuntimeException("没有可用的压缩字典");
+        }
+        byte[] out = new byte[4 + (int) Zstd.compressBound(length)];
+        out[0] = (byte) (dict.id >>> 24);
+        out[1] = (byte) (dict.id >>> 16);
+        out[2] = (byte) (dict.id >>> 8);
+        out[3] = (byte) dict.id;
+        ZstdCompressCtx ctx = cctxs.get();
+        ctx.setLevel(level);
+        ctx.loadDict(dict.dict);
+        int size = ctx.compressByteArray(out, 4, out.length - 4, data, offset, length);
+        return Arrays.copyOf(out, 4 + size);
+    }
+    
+    @Override
+    public byte[] uncompress(byte[] data, int offset, int length) {
+        ByteBuffer buf = uncompress(data, offset, length, 0);
+        return DecompressBuffer.copy(buf.array(), 0, buf.limit());
+    }
+    
+    @Override
+    public ByteBuffer uncompress(byte[] data, int offset, int length, int reserve) {
+        if (length < 4) {
+            throw new RuntimeException("字典压缩数据长度错误：" + length);
+        }
+        int id = ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                 | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+        ZstdDictDecompress dict = getDecompressDict(id);
+        int size = ZstdCompressor.contentSize(data, offset + 4, length - 4);
+        byte[] buf = DecompressBuffer.get(reserve + size);
+        ZstdDecompressCtx ctx = dctxs.get();
+        ctx.loadDict(dict);
+        int len = ctx.decompressByteArray(buf, reserve, size, data, offset + 4, length - 4);
+        return ByteBuffer.wrap(buf, reserve, len);
+    }
+    
+    private ZstdDictDecompress getDecompressDict(int id) {
+        ZstdDictDecompress dict = decompressDicts.get(id);
+        if (dict != null) {
+            return dict;
+        }
+        // 其它节点训练的新字典，同时用于压缩
+        Dict cur = current;
+        if (cur == null || id > cur.id) {
+            use(id);
+            return decompressDicts.get(id);
+        }
+        synchronized (this) {
+            dict = decompressDicts.get(id);
+            if (dict == null) {
+                byte[] data = store.load(id);
+                if (data == null) {
+                    throw new RuntimeException("压缩字典不存在：" + id);
+                }
+                dict = new ZstdDictDecompress(data);
+                decompressDicts.put(id, dict);
+            }
+        }
+        return dict;
+    }
+}
@@ -0,0 +1,70 @@
+package com.hjc.component.cache.jcs;
+
+import com.hjc.component.cache.AsyncCache;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JCS的异步缓存接口（进程内缓存，直接在调用线程执行）
+ * 
+ * @author hjc
+ *
+ */
+public class JcsAsyncCache implements AsyncCache {
+	private final JcsCache cache;
+
+	public JcsAsyncCache(JcsCache cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public CompletableFuture<CacheWrapper> getAsync(CacheKey key) {
+		CompletableFuture<CacheWrapper> future = new CompletableFuture<CacheWrapper>();
+		try {
+			future.complete(cache.get(key));
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+		}
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<Map<CacheKey, CacheWrapper>> getAllAsync(Collection<CacheKey> keys) {
+		CompletableFuture<Map<CacheKey, CacheWrapper>> future = new CompletableFuture<Map<CacheKey, CacheWrapper>>();
+		try {
+			future.complete(cache.getAll(keys));
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+		}
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<Void> putAsync(CacheKey key, CacheWrapper wrapper) {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		try {
+			cache.put(key, wrapper);
+			future.complete(null);
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+		}
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<Void> delAsync(CacheKey key) {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		try {
+			cache.del(key);
+			future.complete(null);
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+		}
+		return future;
+	}
+
+}
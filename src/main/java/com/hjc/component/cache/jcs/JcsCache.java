@@ -7,6 +7,10 @@ import org.apache.jcs.JCS;
 import org.apache.jcs.access.exception.CacheException;
 import org.apache.jcs.engine.ElementAttributes;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 
 public class JcsCache implements ICache {
 	private JCS cache;
@@ -36,9 +40,9 @@ public class JcsCache implements ICache {
 		try {
 			if (wrapper.getExpire() > 0) {
 				ElementAttributes eleAttr = new ElementAttributes();
-				eleAttr.setMaxLifeSeconds(wrapper.getExpire());
+				eleAttr.setMaxLifeSeconds(wrapper.getStoreExpire());
 				eleAttr.setIsEternal(false);
-				eleAttr.setIdleTime(wrapper.getExpire());
+				eleAttr.setIdleTime(wrapper.getStoreExpire());
 				cache.put(cacheObjKey, wrapper, eleAttr);
 			} else {
 				cache.put(cacheObjKey, wrapper);
@@ -48,6 +52,26 @@ public class JcsCache implements ICache {
 		}
 	}
 
+	@Override
+	public Map<CacheKey, CacheWrapper> getAll(Collection<CacheKey> keys) {
+		// 进程内缓存，逐个获取
+		Map<CacheKey, CacheWrapper> ret = new HashMap<CacheKey, CacheWrapper>();
+		for (CacheKey key : keys) {
+			CacheWrapper wrapper = get(key);
+			if (wrapper != null) {
+				ret.put(key, wrapper);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void putAll(Map<CacheKey, CacheWrapper> wrappers) {
+		for (Map.Entry<CacheKey, CacheWrapper> e : wrappers.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+
 	@Override
 	public void del(CacheKey key) {
 		String cacheObjKey = key.getFullKey();
@@ -1,17 +1,29 @@
 package com.hjc.component.cache.redis;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import redis.clients.jedis.BinaryClient.LIST_POSITION;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.SafeEncoder;
 
 /**
  * 基于Redis Cluster集群的实现
@@ -20,7 +32,10 @@ import redis.clients.jedis.Protocol;
  *
  */
 public class BinaryJedisCluster extends BaseBinaryJedis {
+    private static final Logger                    logger = LoggerFactory
+        .getLogger(BinaryJedisCluster.class);
     private redis.clients.jedis.BinaryJedisCluster jedisCluster;
+    private volatile String[]                      slotNodes;    // slot -> 主节点，批量命令按节点分组时使用
     
     public BinaryJedisCluster(Properties props) {
         JedisPoolConfig jpc = getConfig(props);
@@ -125,6 +140,11 @@ public class BinaryJedisCluster extends BaseBinaryJedis {
         return jedisCluster.setex(key, seconds, value);
     }
     
+    @Override
+    public String set(byte[] key, byte[] value, byte[] nxxx, byte[] expx, long time) {
+        return jedisCluster.set(key, value, nxxx, expx, time);
+    }
+    
     @Override
     public Long setnx(byte[] key, byte[] value) {
         return jedisCluster.setnx(key, value);
@@ -438,6 +458,208 @@ public class BinaryJedisCluster extends BaseBinaryJedis {
         return jedisCluster.zscore(key, member);
     }
     
+    @Override
+    public List<byte[]> mget(final byte[]... keys) {
+        // 按节点分组，每个节点一个连接，用管道执行各slot的MGET；出错（如MOVED/ASK）的slot再单独执行
+        byte[][] values = new byte[keys.length][];
+        for (Map.Entry<JedisPool, Map<Integer, List<Integer>>> node : groupByNode(keys)
+            .entrySet()) {
+            final Map<Integer, List<Integer>> slots = node.getValue();
+            List<Object> replies = pipelined(node.getKey(), new PipelineCallback() {
+                @Override
+                public void execute(Pipeline pipeline) {
+                    for (List<Integer> indexes : slots.values()) {
+                        pipeline.mget(SlotUtil.select(keys, indexes));
+                    }
+                }
+            });
+            
+            int pos = 0;
+            for (List<Integer> indexes : slots.values()) {
+                Object reply = replies != null ? replies.get(pos++) : null;
+                List<byte[]> list;
+                if (reply instanceof List) {
+                    list = castList(reply);
+                } else {
+                    invalidateIfRedirected(reply);
+                    list = jedisCluster.mget(SlotUtil.select(keys, indexes));
+                }
+                for (int i = 0; i < indexes.size(); ++i) {
+                    values[indexes.get(i)] = list.get(i);
+                }
+            }
+        }
+        return Arrays.asList(values);
+    }
+    
+    @Override
+    public void msetex(final byte[][] keys, final byte[][] values, final int[] seconds) {
+        // 按节点分组，每个节点一个连接，用管道执行；出错（如MOVED/ASK）的KEY再单独执行
+        for (Map.Entry<JedisPool, Map<Integer, List<Integer>>> node : groupByNode(keys)
+            .entrySet()) {
+            final Map<Integer, List<Integer>> slots = node.getValue();
+            List<Object> replies = pipelined(node.getKey(), new PipelineCallback() {
+                @Override
+                public void execute(Pipeline pipeline) {
+                    for (List<Integer> indexes : slots.values()) {
+                        for (int i : indexes) {
+                            if (seconds[i] > 0) {
+                                pipeline.setex(keys[i], seconds[i], values[i]);
+                            } else {
+                                pipeline.set(keys[i], values[i]);
+                            }
+                        }
+                    }
+                }
+            });
+            
+            int pos = 0;
+            for (List<Integer> indexes : slots.values()) {
+                for (int i : indexes) {
+                    Object reply = replies != null ? replies.get(pos++) : null;
+                    if (replies != null && !(reply instanceof Exception)) {
+                        continue;
+                    }
+                    invalidateIfRedirected(reply);
+                    if (seconds[i] > 0) {
+                        jedisCluster.setex(keys[i], seconds[i], values[i]);
+                    } else {
+                        jedisCluster.set(keys[i], values[i]);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * 管道命令
+     */
+    private interface PipelineCallback {
+        void execute(Pipeline pipeline);
+    }
+    
+    /**
+     * 在节点的一个连接上执行管道
+     * 
+     * @return 每个命令的结果（出错的命令为异常对象），节点为null或连接失败时返回null
+     */
+    private List<Object> pipelined(JedisPool pool, PipelineCallback callback) {
+        if (pool == null) {
+            return null;
+        }
+        Jedis jedis = null;
+        try {
+            jedis = pool.getResource();
+            Pipeline pipeline = jedis.pipelined();
+            callback.execute(pipeline);
+            return pipeline.syncAndReturnAll();
+        } catch (JedisException e) {
+            slotNodes = null;// 节点可能已下线
+            logger.warn("pipeline failed, retry by slot:" + e.getMessage());
+            return null;
+        } finally {
+            if (jedis != null) {
+                jedis.close();
+            }
+        }
+    }
+    
+    private void invalidateIfRedirected(Object reply) {
+        if (reply instanceof JedisRedirectionException) {
+            slotNodes = null;// 下次批量命令时重新获取slot路由
+        }
+    }
+    
+    /**
+     * 按节点（slot的主节点）对KEY分组，路由未知的slot归入null
+     * 
+     * @return 节点 -> (slot -> KEY在keys中的下标)
+     */
+    private Map<JedisPool, Map<Integer, List<Integer>>> groupByNode(byte[][] keys) {
+        String[] table = getSlotNodes();
+        Map<String, JedisPool> pools = jedisCluster.getClusterNodes();
+        Map<JedisPool, Map<Integer, List<Integer>>> nodes = new LinkedHashMap<JedisPool, Map<Integer, List<Integer>>>();
+        for (Map.Entry<Integer, List<Integer>> e : SlotUtil.groupBySlot(keys).entrySet()) {
+            String nodeKey = table != null ? table[e.getKey()] : null;
+            JedisPool pool = nodeKey != null ? pools.get(nodeKey) : null;
+            Map<Integer, List<Integer>> slots = nodes.get(pool);
+            if (slots == null) {
+                slots = new LinkedHashMap<Integer, List<Integer>>();
+                nodes.put(pool, slots);
+            }
+            slots.put(e.getKey(), e.getValue());
+        }
+        return nodes;
+    }
+    
+    /**
+     * slot的主节点（host:port），jedis的集群客户端未公开slot路由，通过CLUSTER SLOTS获取
+     * 
+     * @return 获取失败时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private String[] getSlotNodes() {
+        String[] table = slotNodes;
+        if (table != null) {
+            return table;
+        }
+        for (JedisPool pool : jedisCluster.getClusterNodes().values()) {
+            Jedis jedis = null;
+            try {
+                jedis = pool.getResource();
+                table = new String[redis.clients.jedis.BinaryJedisCluster.HASHSLOTS];
+                for (Object slotInfoObj : jedis.clusterSlots()) {
+                    List<Object> slotInfo = (List<Object>) slotInfoObj;
+                    if (slotInfo.size() <= 2) {
+                        continue;
+                    }
+                    List<Object> master = (List<Object>) slotInfo.get(2);
+                    String nodeKey = SafeEncoder.encode((byte[]) master.get(0)) + ":"
+                                     + master.get(1);
+                    int start = ((Long) slotInfo.get(0)).intValue();
+                    int end = ((Long) slotInfo.get(1)).intValue();
+                    Arrays.fill(table, start, end + 1, nodeKey);
+                }
+                slotNodes = table;
+                return table;
+            } catch (JedisException e) {
+                // try next nodes
+            } finally {
+                if (jedis != null) {
+                    jedis.close();
+                }
+            }
+        }
+        return null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<byte[]> castList(Object reply) {
+        return (List<byte[]>) reply;
+    }
+    
+    @Override
+    public Object eval(byte[] script, List<byte[]> keys, List<byte[]> args) {
+        byte[][] params = new byte[keys.size() + args.size()][];
+        for (int i = 0; i < keys.size(); ++i) {
+            params[i] = keys.get(i);
+        }
+        for (int i = 0; i < args.size(); ++i) {
+            params[keys.size() + i] = args.get(i);
+        }
+        return jedisCluster.eval(script, keys.size(), params);
+    }
+    
+    @Override
+    public Long publish(byte[] channel, byte[] message) {
+        return jedisCluster.publish(channel, message);
+    }
+    
+    @Override
+    public void subscribe(BinaryJedisPubSub jedisPubSub, byte[]... channels) {
+        jedisCluster.subscribe(jedisPubSub, channels);
+    }
+    
     @Override
     public void close() throws IOException {
         jedisCluster.close();
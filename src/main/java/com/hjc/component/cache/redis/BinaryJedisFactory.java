@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.hjc.component.cache.redis.bus.InvalidationBusFactory;
 import com.hjc.component.cache.util.StringHelper;
 import com.hjc.component.cache.util.config.SysConfig;
 import org.apache.commons.io.IOUtils;
@@ -67,10 +68,12 @@ public class BinaryJedisFactory implements InitializingBean, DisposableBean {
             }
 
             if ("hjc-cluster".equals(jedisClass)) {//改造后的客户端
-                jedis = new BinaryJedisCluster(
+                jedis = new com.hjc.component.cache.redis.clients.BinaryJedisCluster(
                         getProperties(props, "jedis-cluster."));
             } else if ("cluster".equals(jedisClass)) {
                 jedis = new BinaryJedisCluster(getProperties(props, "jedis-cluster."));
+            } else if ("nio".equals(jedisClass)) {//多路复用的非阻塞连接
+                jedis = new BinaryJedisNio(getProperties(props, "jedis-nio."));
             } else if ("sentinel".equals(jedisClass)) {
                 jedis = new BinaryJedisSentinel(getProperties(props, "jedis-sentinel"));
             } else {// pool
@@ -121,6 +124,8 @@ public class BinaryJedisFactory implements InitializingBean, DisposableBean {
     
     @Override
     public void destroy() throws Exception {
+        InvalidationBusFactory.closeAll();
+        
         Map<String, IBinaryJedis> map = new ConcurrentHashMap<String, IBinaryJedis>();
         
         synchronized (jedisCache) {
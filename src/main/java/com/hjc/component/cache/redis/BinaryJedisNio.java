@@ -0,0 +1,682 @@
+package com.hjc.component.cache.redis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.hjc.component.cache.redis.nio.NioRespClient;
+
+import redis.clients.jedis.BinaryClient.LIST_POSITION;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.Protocol.Keyword;
+import redis.clients.util.JedisByteHashMap;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 单点部署的非阻塞实现<br/>
+ * 少量NIO连接多路复用，多个线程的命令在同一连接上管道发送，按顺序匹配应答；
+ * 不需要连接池，并发不受连接数限制，也没有借出连接时的PING检查<br/>
+ * 配置项（前缀jedis-nio.）：host、port、password、database、timeout（应答超时，毫秒）、
+ * connect-timeout（连接超时，毫秒）、connections（连接数，默认2）<br/>
+ * 注意：subscribe会独占连接，使用单独的阻塞连接
+ * 
+ * @author hjc
+ *
+ */
+public class BinaryJedisNio extends BaseBinaryJedis implements IAsyncCommand {
+    private final NioRespClient client;
+    private final String        password;
+    private final int           timeout;
+    
+    public BinaryJedisNio(Properties props) {
+        String host = getProperty(props, "host", Protocol.DEFAULT_HOST);
+        int port = getProperty(props, "port", Protocol.DEFAULT_PORT);
+        this.timeout = getProperty(props, "timeout", Protocol.DEFAULT_TIMEOUT);
+        this.password = getProperty(props, "password", null);
+        int database = getProperty(props, "database", Protocol.DEFAULT_DATABASE);
+        int connections = getProperty(props, "connections", 2);
+        int connectTimeout = getProperty(props, "connect-timeout", timeout);
+        this.client = new NioRespClient(host, port, password, database, connections,
+            connectTimeout, timeout);
+    }
+    
+    public NioRespClient getClient() {
+        return client;
+    }
+    
+    private Object execute(Command command, byte[]... args) {
+        return client.execute(join(command, args));
+    }
+    
+    private CompletableFuture<Object> send(Command command, byte[]... args) {
+        return client.send(join(command, args));
+    }
+    
+    private static byte[][] join(Command command, byte[]... args) {
+        byte[][] all = new byte[args.length + 1][];
+        all[0] = command.raw;
+        System.arraycopy(args, 0, all, 1, args.length);
+        return all;
+    }
+    
+    private static byte[][] join(byte[] first, byte[]... args) {
+        byte[][] all = new byte[args.length + 1][];
+        all[0] = first;
+        System.arraycopy(args, 0, all, 1, args.length);
+        return all;
+    }
+    
+    private static byte[] toBytes(long value) {
+        return Protocol.toByteArray(value);
+    }
+    
+    private static byte[] toBytes(double value) {
+        return Protocol.toByteArray(value);
+    }
+    
+    // ------------------------------- 应答转换 -------------------------------
+    
+    private static final Function<Object, Long>         TO_LONG   = new Function<Object, Long>() {
+        @Override
+        public Long apply(Object reply) {
+            return (Long) reply;
+        }
+    };
+    private static final Function<Object, byte[]>       TO_BYTES  = new Function<Object, byte[]>() {
+        @Override
+        public byte[] apply(Object reply) {
+            return (byte[]) reply;
+        }
+    };
+    private static final Function<Object, String>       TO_STATUS = new Function<Object, String>() {
+        @Override
+        public String apply(Object reply) {
+            return toStatus(reply);
+        }
+    };
+    private static final Function<Object, List<byte[]>> TO_LIST   = new Function<Object, List<byte[]>>() {
+        @Override
+        public List<byte[]> apply(Object reply) {
+            return toList(reply);
+        }
+    };
+    
+    private static String toStatus(Object reply) {
+        if (reply instanceof byte[]) {
+            return SafeEncoder.encode((byte[]) reply);
+        }
+        return (String) reply;
+    }
+    
+    private static Boolean toBoolean(Object reply) {
+        return reply == null ? null : ((Long) reply).longValue() == 1;
+    }
+    
+    private static Double toDouble(Object reply) {
+        return reply == null ? null : Double.valueOf(SafeEncoder.encode((byte[]) reply));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<byte[]> toList(Object reply) {
+        if (reply == null) {
+            return null;
+        }
+        List<Object> list = (List<Object>) reply;
+        List<byte[]> ret = new ArrayList<byte[]>(list.size());
+        for (Object item : list) {
+            ret.add((byte[]) item);
+        }
+        return ret;
+    }
+    
+    private static Set<byte[]> toSet(Object reply) {
+        List<byte[]> list = toList(reply);
+        return list == null ? null : new LinkedHashSet<byte[]>(list);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<byte[], byte[]> toMap(Object reply) {
+        List<Object> list = (List<Object>) reply;
+        Map<byte[], byte[]> hash = new JedisByteHashMap();
+        for (int i = 0; i + 1 < list.size(); i += 2) {
+            hash.put((byte[]) list.get(i), (byte[]) list.get(i + 1));
+        }
+        return hash;
+    }
+    
+    // ------------------------------- KEY -------------------------------
+    
+    @Override
+    public Long del(byte[] key) {
+        return (Long) execute(Command.DEL, key);
+    }
+    
+    @Override
+    public Boolean exists(byte[] key) {
+        return toBoolean(execute(Command.EXISTS, key));
+    }
+    
+    @Override
+    public Long expire(byte[] key, int seconds) {
+        return (Long) execute(Command.EXPIRE, key, toBytes(seconds));
+    }
+    
+    @Override
+    public Long expireAt(byte[] key, long unixTime) {
+        return (Long) execute(Command.EXPIREAT, key, toBytes(unixTime));
+    }
+    
+    @Override
+    public Long pexpire(byte[] key, long milliseconds) {
+        return (Long) execute(Command.PEXPIRE, key, toBytes(milliseconds));
+    }
+    
+    @Override
+    public Long pexpireAt(byte[] key, long millisecondsTimestamp) {
+        return (Long) execute(Command.PEXPIREAT, key, toBytes(millisecondsTimestamp));
+    }
+    
+    @Override
+    public Long persist(byte[] key) {
+        return (Long) execute(Command.PERSIST, key);
+    }
+    
+    @Override
+    public Long ttl(byte[] key) {
+        return (Long) execute(Command.TTL, key);
+    }
+    
+    @Override
+    public String type(byte[] key) {
+        return toStatus(execute(Command.TYPE, key));
+    }
+    
+    // ------------------------------- STRING -------------------------------
+    
+    @Override
+    public String set(byte[] key, byte[] value) {
+        return toStatus(execute(Command.SET, key, value));
+    }
+    
+    @Override
+    public byte[] get(byte[] key) {
+        return (byte[]) execute(Command.GET, key);
+    }
+    
+    @Override
+    public byte[] getrange(byte[] key, long startOffset, long endOffset) {
+        return (byte[]) execute(Command.GETRANGE, key, toBytes(startOffset), toBytes(endOffset));
+    }
+    
+    @Override
+    public byte[] getSet(byte[] key, byte[] value) {
+        return (byte[]) execute(Command.GETSET, key, value);
+    }
+    
+    @Override
+    public Boolean getbit(byte[] key, long offset) {
+        return toBoolean(execute(Command.GETBIT, key, toBytes(offset)));
+    }
+    
+    @Override
+    public Boolean setbit(byte[] key, long offset, boolean value) {
+        return toBoolean(execute(Command.SETBIT, key, toBytes(offset), Protocol.toByteArray(value)));
+    }
+    
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        return toStatus(execute(Command.SETEX, key, toBytes(seconds), value));
+    }
+    
+    @Override
+    public String set(byte[] key, byte[] value, byte[] nxxx, byte[] expx, long time) {
+        return toStatus(execute(Command.SET, key, value, nxxx, expx, toBytes(time)));
+    }
+    
+    @Override
+    public Long setnx(byte[] key, byte[] value) {
+        return (Long) execute(Command.SETNX, key, value);
+    }
+    
+    @Override
+    public Long setrange(byte[] key, long offset, byte[] value) {
+        return (Long) execute(Command.SETRANGE, key, toBytes(offset), value);
+    }
+    
+    @Override
+    public Long strlen(byte[] key) {
+        return (Long) execute(Command.STRLEN, key);
+    }
+    
+    @Override
+    public Long incr(byte[] key) {
+        return (Long) execute(Command.INCR, key);
+    }
+    
+    @Override
+    public Long incrBy(byte[] key, long integer) {
+        return (Long) execute(Command.INCRBY, key, toBytes(integer));
+    }
+    
+    @Override
+    public Double incrByFloat(byte[] key, double value) {
+        return toDouble(execute(Command.INCRBYFLOAT, key, toBytes(value)));
+    }
+    
+    @Override
+    public Long decr(byte[] key) {
+        return (Long) execute(Command.DECR, key);
+    }
+    
+    @Override
+    public Long decrBy(byte[] key, long integer) {
+        return (Long) execute(Command.DECRBY, key, toBytes(integer));
+    }
+    
+    @Override
+    public Long append(byte[] key, byte[] value) {
+        return (Long) execute(Command.APPEND, key, value);
+    }
+    
+    @Override
+    public List<byte[]> mget(byte[]... keys) {
+        return toList(execute(Command.MGET, keys));
+    }
+    
+    @Override
+    public void msetex(byte[][] keys, byte[][] values, int[] seconds) {
+        // 全部发送后再等待应答（管道）
+        List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>(
+            keys.length);
+        for (int i = 0; i < keys.length; ++i) {
+            if (seconds[i] > 0) {
+                futures.add(send(Command.SETEX, keys[i], toBytes(seconds[i]), values[i]));
+            } else {
+                futures.add(send(Command.SET, keys[i], values[i]));
+            }
+        }
+        for (CompletableFuture<Object> future : futures) {
+            client.await(future);
+        }
+    }
+    
+    // ------------------------------- HASH -------------------------------
+    
+    @Override
+    public Long hdel(byte[] key, byte[]... field) {
+        return (Long) execute(Command.HDEL, join(key, field));
+    }
+    
+    @Override
+    public Boolean hexists(byte[] key, byte[] field) {
+        return toBoolean(execute(Command.HEXISTS, key, field));
+    }
+    
+    @Override
+    public byte[] hget(byte[] key, byte[] field) {
+        return (byte[]) execute(Command.HGET, key, field);
+    }
+    
+    @Override
+    public Map<byte[], byte[]> hgetAll(byte[] key) {
+        return toMap(execute(Command.HGETALL, key));
+    }
+    
+    @Override
+    public Long hincrBy(byte[] key, byte[] field, long value) {
+        return (Long) execute(Command.HINCRBY, key, field, toBytes(value));
+    }
+    
+    @Override
+    public Double hincrByFloat(byte[] key, byte[] field, double value) {
+        return toDouble(execute(Command.HINCRBYFLOAT, key, field, toBytes(value)));
+    }
+    
+    @Override
+    public Set<byte[]> hkeys(byte[] key) {
+        return toSet(execute(Command.HKEYS, key));
+    }
+    
+    @Override
+    public Long hlen(byte[] key) {
+        return (Long) execute(Command.HLEN, key);
+    }
+    
+    @Override
+    public List<byte[]> hmget(byte[] key, byte[]... fields) {
+        return toList(execute(Command.HMGET, join(key, fields)));
+    }
+    
+    @Override
+    public String hmset(byte[] key, Map<byte[], byte[]> hash) {
+        List<byte[]> args = new ArrayList<byte[]>(hash.size() * 2 + 1);
+        args.add(key);
+        for (Map.Entry<byte[], byte[]> e : hash.entrySet()) {
+            args.add(e.getKey());
+            args.add(e.getValue());
+        }
+        return toStatus(execute(Command.HMSET, args.toArray(new byte[args.size()][])));
+    }
+    
+    @Override
+    public Long hset(byte[] key, byte[] field, byte[] value) {
+        return (Long) execute(Command.HSET, key, field, value);
+    }
+    
+    @Override
+    public Long hsetnx(byte[] key, byte[] field, byte[] value) {
+        return (Long) execute(Command.HSETNX, key, field, value);
+    }
+    
+    @Override
+    public Collection<byte[]> hvals(byte[] key) {
+        return toList(execute(Command.HVALS, key));
+    }
+    
+    // ------------------------------- LIST -------------------------------
+    
+    @Override
+    public byte[] lindex(byte[] key, long index) {
+        return (byte[]) execute(Command.LINDEX, key, toBytes(index));
+    }
+    
+    @Override
+    public Long linsert(byte[] key, LIST_POSITION where, byte[] pivot, byte[] value) {
+        return (Long) execute(Command.LINSERT, key, where.raw, pivot, value);
+    }
+    
+    @Override
+    public Long llen(byte[] key) {
+        return (Long) execute(Command.LLEN, key);
+    }
+    
+    @Override
+    public byte[] lpop(byte[] key) {
+        return (byte[]) execute(Command.LPOP, key);
+    }
+    
+    @Override
+    public Long lpush(byte[] key, byte[]... args) {
+        return (Long) execute(Command.LPUSH, join(key, args));
+    }
+    
+    @Override
+    public Long lpushx(byte[] key, byte[]... args) {
+        return (Long) execute(Command.LPUSHX, join(key, args));
+    }
+    
+    @Override
+    public List<byte[]> lrange(byte[] key, long start, long end) {
+        return toList(execute(Command.LRANGE, key, toBytes(start), toBytes(end)));
+    }
+    
+    @Override
+    public Long lrem(byte[] key, long count, byte[] value) {
+        return (Long) execute(Command.LREM, key, toBytes(count), value);
+    }
+    
+    @Override
+    public String lset(byte[] key, long index, byte[] value) {
+        return toStatus(execute(Command.LSET, key, toBytes(index), value));
+    }
+    
+    @Override
+    public String ltrim(byte[] key, long start, long end) {
+        return toStatus(execute(Command.LTRIM, key, toBytes(start), toBytes(end)));
+    }
+    
+    @Override
+    public byte[] rpop(byte[] key) {
+        return (byte[]) execute(Command.RPOP, key);
+    }
+    
+    @Override
+    public Long rpush(byte[] key, byte[]... args) {
+        return (Long) execute(Command.RPUSH, join(key, args));
+    }
+    
+    @Override
+    public Long rpushx(byte[] key, byte[]... args) {
+        return (Long) execute(Command.RPUSHX, join(key, args));
+    }
+    
+    // ------------------------------- SET -------------------------------
+    
+    @Override
+    public Long sadd(byte[] key, byte[]... member) {
+        return (Long) execute(Command.SADD, join(key, member));
+    }
+    
+    @Override
+    public Long scard(byte[] key) {
+        return (Long) execute(Command.SCARD, key);
+    }
+    
+    @Override
+    public Boolean sismember(byte[] key, byte[] member) {
+        return toBoolean(execute(Command.SISMEMBER, key, member));
+    }
+    
+    @Override
+    public Set<byte[]> smembers(byte[] key) {
+        return toSet(execute(Command.SMEMBERS, key));
+    }
+    
+    @Override
+    public byte[] spop(byte[] key) {
+        return (byte[]) execute(Command.SPOP, key);
+    }
+    
+    @Override
+    public byte[] srandmember(byte[] key) {
+        return (byte[]) execute(Command.SRANDMEMBER, key);
+    }
+    
+    @Override
+    public Long srem(byte[] key, byte[]... member) {
+        return (Long) execute(Command.SREM, join(key, member));
+    }
+    
+    // ------------------------------- SORTED SET -------------------------------
+    
+    @Override
+    public Long zadd(byte[] key, double score, byte[] member) {
+        return (Long) execute(Command.ZADD, key, toBytes(score), member);
+    }
+    
+    @Override
+    public Long zadd(byte[] key, Map<byte[], Double> scoreMembers) {
+        List<byte[]> args = new ArrayList<byte[]>(scoreMembers.size() * 2 + 1);
+        args.add(key);
+        for (Map.Entry<byte[], Double> e : scoreMembers.entrySet()) {
+            args.add(toBytes(e.getValue()));
+            args.add(e.getKey());
+        }
+        return (Long) execute(Command.ZADD, args.toArray(new byte[args.size()][]));
+    }
+    
+    @Override
+    public Long zcard(byte[] key) {
+        return (Long) execute(Command.ZCARD, key);
+    }
+    
+    @Override
+    public Long zcount(byte[] key, double min, double max) {
+        return (Long) execute(Command.ZCOUNT, key, toBytes(min), toBytes(max));
+    }
+    
+    @Override
+    public Double zincrby(byte[] key, double score, byte[] member) {
+        return toDouble(execute(Command.ZINCRBY, key, toBytes(score), member));
+    }
+    
+    @Override
+    public Long zlexcount(byte[] key, byte[] min, byte[] max) {
+        return (Long) execute(Command.ZLEXCOUNT, key, min, max);
+    }
+    
+    @Override
+    public Set<byte[]> zrange(byte[] key, long start, long end) {
+        return toSet(execute(Command.ZRANGE, key, toBytes(start), toBytes(end)));
+    }
+    
+    @Override
+    public Set<byte[]> zrangeByLex(byte[] key, byte[] min, byte[] max) {
+        return toSet(execute(Command.ZRANGEBYLEX, key, min, max));
+    }
+    
+    @Override
+    public Set<byte[]> zrangeByLex(byte[] key, byte[] min, byte[] max, int offset, int count) {
+        return toSet(execute(Command.ZRANGEBYLEX, key, min, max, Keyword.LIMIT.raw,
+            toBytes(offset), toBytes(count)));
+    }
+    
+    @Override
+    public Set<byte[]> zrangeByScore(byte[] key, double min, double max) {
+        return toSet(execute(Command.ZRANGEBYSCORE, key, toBytes(min), toBytes(max)));
+    }
+    
+    @Override
+    public Long zrank(byte[] key, byte[] member) {
+        return (Long) execute(Command.ZRANK, key, member);
+    }
+    
+    @Override
+    public Long zrem(byte[] key, byte[]... member) {
+        return (Long) execute(Command.ZREM, join(key, member));
+    }
+    
+    @Override
+    public Long zremrangeByLex(byte[] key, byte[] min, byte[] max) {
+        return (Long) execute(Command.ZREMRANGEBYLEX, key, min, max);
+    }
+    
+    @Override
+    public Long zremrangeByRank(byte[] key, long start, long end) {
+        return (Long) execute(Command.ZREMRANGEBYRANK, key, toBytes(start), toBytes(end));
+    }
+    
+    @Override
+    public Long zremrangeByScore(byte[] key, double min, double max) {
+        return (Long) execute(Command.ZREMRANGEBYSCORE, key, toBytes(min), toBytes(max));
+    }
+    
+    @Override
+    public Set<byte[]> zrevrange(byte[] key, long start, long end) {
+        return toSet(execute(Command.ZREVRANGE, key, toBytes(start), toBytes(end)));
+    }
+    
+    @Override
+    public Set<byte[]> zrevrangeByScore(byte[] key, double max, double min) {
+        return toSet(execute(Command.ZREVRANGEBYSCORE, key, toBytes(max), toBytes(min)));
+    }
+    
+    @Override
+    public Long zrevrank(byte[] key, byte[] member) {
+        return (Long) execute(Command.ZREVRANK, key, member);
+    }
+    
+    @Override
+    public Double zscore(byte[] key, byte[] member) {
+        return toDouble(execute(Command.ZSCORE, key, member));
+    }
+    
+    // ------------------------------- SCRIPT -------------------------------
+    
+    @Override
+    public Object eval(byte[] script, List<byte[]> keys, List<byte[]> args) {
+        byte[][] params = new byte[2 + keys.size() + args.size()][];
+        params[0] = script;
+        params[1] = toBytes(keys.size());
+        for (int i = 0; i < keys.size(); ++i) {
+            params[2 + i] = keys.get(i);
+        }
+        for (int i = 0; i < args.size(); ++i) {
+            params[2 + keys.size() + i] = args.get(i);
+        }
+        return execute(Command.EVAL, params);
+    }
+    
+    // ------------------------------- PUB/SUB -------------------------------
+    
+    @Override
+    public Long publish(byte[] channel, byte[] message) {
+        return (Long) execute(Command.PUBLISH, channel, message);
+    }
+    
+    @Override
+    public void subscribe(BinaryJedisPubSub jedisPubSub, byte[]... channels) {
+        // 订阅独占连接，不能与其它命令复用
+        Jedis jedis = new Jedis(client.getHost(), client.getPort(), timeout);
+        try {
+            if (password != null && password.length() > 0) {
+                jedis.auth(password);
+            }
+            jedis.subscribe(jedisPubSub, channels);
+        } finally {
+            jedis.close();
+        }
+    }
+    
+    // ------------------------------- ASYNC -------------------------------
+    
+    @Override
+    public CompletableFuture<byte[]> getAsync(byte[] key) {
+        return send(Command.GET, key).thenApply(TO_BYTES);
+    }
+    
+    @Override
+    public CompletableFuture<List<byte[]>> mgetAsync(byte[]... keys) {
+        return send(Command.MGET, keys).thenApply(TO_LIST);
+    }
+    
+    @Override
+    public CompletableFuture<String> setAsync(byte[] key, byte[] value) {
+        return send(Command.SET, key, value).thenApply(TO_STATUS);
+    }
+    
+    @Override
+    public CompletableFuture<String> setexAsync(byte[] key, int seconds, byte[] value) {
+        return send(Command.SETEX, key, toBytes(seconds), value).thenApply(TO_STATUS);
+    }
+    
+    @Override
+    public CompletableFuture<Long> delAsync(byte[] key) {
+        return send(Command.DEL, key).thenApply(TO_LONG);
+    }
+    
+    @Override
+    public CompletableFuture<byte[]> hgetAsync(byte[] key, byte[] field) {
+        return send(Command.HGET, key, field).thenApply(TO_BYTES);
+    }
+    
+    @Override
+    public CompletableFuture<List<byte[]>> hmgetAsync(byte[] key, byte[]... fields) {
+        return send(Command.HMGET, join(key, fields)).thenApply(TO_LIST);
+    }
+    
+    @Override
+    public CompletableFuture<Long> hsetAsync(byte[] key, byte[] field, byte[] value) {
+        return send(Command.HSET, key, field, value).thenApply(TO_LONG);
+    }
+    
+    @Override
+    public CompletableFuture<Long> hdelAsync(byte[] key, byte[]... fields) {
+        return send(Command.HDEL, join(key, fields)).thenApply(TO_LONG);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+}
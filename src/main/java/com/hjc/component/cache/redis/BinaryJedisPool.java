@@ -8,9 +8,11 @@ import java.util.Properties;
 import java.util.Set;
 
 import redis.clients.jedis.BinaryClient.LIST_POSITION;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
 import redis.clients.util.Pool;
 
@@ -210,6 +212,16 @@ public class BinaryJedisPool extends BaseBinaryJedis {
         }
     }
     
+    @Override
+    public String set(byte[] key, byte[] value, byte[] nxxx, byte[] expx, long time) {
+        Jedis jedis = getJedis();
+        try {
+            return jedis.set(key, value, nxxx, expx, time);
+        } finally {
+            close(jedis);
+        }
+    }
+    
     @Override
     public Long setnx(byte[] key, byte[] value) {
         Jedis jedis = getJedis();
@@ -828,6 +840,64 @@ public class BinaryJedisPool extends BaseBinaryJedis {
         }
     }
     
+    @Override
+    public List<byte[]> mget(byte[]... keys) {
+        Jedis jedis = getJedis();
+        try {
+            return jedis.mget(keys);
+        } finally {
+            close(jedis);
+        }
+    }
+    
+    @Override
+    public void msetex(byte[][] keys, byte[][] values, int[] seconds) {
+        Jedis jedis = getJedis();
+        try {
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < keys.length; ++i) {
+                if (seconds[i] > 0) {
+                    pipeline.setex(keys[i], seconds[i], values[i]);
+                } else {
+                    pipeline.set(keys[i], values[i]);
+                }
+            }
+            pipeline.sync();
+        } finally {
+            close(jedis);
+        }
+    }
+    
+    @Override
+    public Object eval(byte[] script, List<byte[]> keys, List<byte[]> args) {
+        Jedis jedis = getJedis();
+        try {
+            return jedis.eval(script, keys, args);
+        } finally {
+            close(jedis);
+        }
+    }
+    
+    @Override
+    public Long publish(byte[] channel, byte[] message) {
+        Jedis jedis = getJedis();
+        try {
+            return jedis.publish(channel, message);
+        } finally {
+            close(jedis);
+        }
+    }
+    
+    @Override
+    public void subscribe(BinaryJedisPubSub jedisPubSub, byte[]... channels) {
+        Jedis jedis = getJedis();
+        try {
+            jedis.subscribe(jedisPubSub, channels);
+        } finally {
+            close(jedis);
+        }
+    }
+    
     @Override
     public void close() throws IOException {
         jedisPool.close();
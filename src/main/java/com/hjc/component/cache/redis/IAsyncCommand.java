@@ -0,0 +1,110 @@
+package com.hjc.component.cache.redis;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Redis 异步命令（非阻塞传输实现，调用线程不等待应答）<br/>
+ * 结果在传输的IO线程中完成，后续处理不能阻塞
+ * 
+ * @author hjc
+ *
+ */
+public interface IAsyncCommand {
+	/**
+	 * 异步 GET
+	 * 
+	 * @param key
+	 *            KEY
+	 * @return key 的值，不存在时为null
+	 */
+	CompletableFuture<byte[]> getAsync(byte[] key);
+
+	/**
+	 * 异步 MGET（集群模式下KEY需在同一slot）
+	 * 
+	 * @param keys
+	 *            KEY
+	 * @return 与KEY对应的值，不存在时为null
+	 */
+	CompletableFuture<List<byte[]>> mgetAsync(byte[]... keys);
+
+	/**
+	 * 异步 SET
+	 * 
+	 * @param key
+	 *            KEY
+	 * @param value
+	 *            VALUE
+	 * @return OK
+	 */
+	CompletableFuture<String> setAsync(byte[] key, byte[] value);
+
+	/**
+	 * 异步 SETEX
+	 * 
+	 * @param key
+	 *            KEY
+	 * @param seconds
+	 *            过期时间，单位：秒
+	 * @param value
+	 *            VALUE
+	 * @return OK
+	 */
+	CompletableFuture<String> setexAsync(byte[] key, int seconds, byte[] value);
+
+	/**
+	 * 异步 DEL
+	 * 
+	 * @param key
+	 *            KEY
+	 * @return 被删除 key 的数量
+	 */
+	CompletableFuture<Long> delAsync(byte[] key);
+
+	/**
+	 * 异步 HGET
+	 * 
+	 * @param key
+	 *            KEY
+	 * @param field
+	 *            字段
+	 * @return 字段的值，不存在时为null
+	 */
+	CompletableFuture<byte[]> hgetAsync(byte[] key, byte[] field);
+
+	/**
+	 * 异步 HMGET
+	 * 
+	 * @param key
+	 *            KEY
+	 * @param fields
+	 *            字段
+	 * @return 与字段对应的值，不存在时为null
+	 */
+	CompletableFuture<List<byte[]>> hmgetAsync(byte[] key, byte[]... fields);
+
+	/**
+	 * 异步 HSET
+	 * 
+	 * @param key
+	 *            KEY
+	 * @param field
+	 *            字段
+	 * @param value
+	 *            VALUE
+	 * @return 新建字段返回1，覆盖返回0
+	 */
+	CompletableFuture<Long> hsetAsync(byte[] key, byte[] field, byte[] value);
+
+	/**
+	 * 异步 HDEL
+	 * 
+	 * @param key
+	 *            KEY
+	 * @param fields
+	 *            字段
+	 * @return 被删除字段的数量
+	 */
+	CompletableFuture<Long> hdelAsync(byte[] key, byte[]... fields);
+}
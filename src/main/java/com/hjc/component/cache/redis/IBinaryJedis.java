@@ -10,6 +10,6 @@ import java.io.IOException;
  */
 public interface IBinaryJedis
     extends IKeyCommand, IStringCommand, IHashCommand, IListCommand, ISetCommand,
-    ISortedSetCommand {
+    ISortedSetCommand, IPubSubCommand, IScriptCommand {
     void close() throws IOException;
 }
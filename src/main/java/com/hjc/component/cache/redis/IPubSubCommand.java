@@ -0,0 +1,38 @@
+package com.hjc.component.cache.redis;
+
+import redis.clients.jedis.BinaryJedisPubSub;
+
+/**
+ * Redis 发布订阅(Pub/Sub)命令
+ * 
+ * @author hjc
+ *
+ */
+public interface IPubSubCommand {
+	/**
+	 * Redis Publish 命令用于将信息发送到指定的频道。
+	 * 
+	 * @param channel
+	 *            频道
+	 * @param message
+	 *            信息
+	 * @return 接收到信息的订阅者数量。
+	 */
+	Long publish(byte[] channel, byte[] message);
+
+	/**
+	 * Redis Subscribe 命令用于订阅给定的一个或多个频道的信息。<br/>
+	 * 注意：本方法会阻塞当前线程，直到取消订阅或连接异常。
+	 * 
+	 * @param jedisPubSub
+	 *            信息处理
+	 * @param channels
+	 *            频道
+	 */
+	void subscribe(BinaryJedisPubSub jedisPubSub, byte[]... channels);
+
+	// 不支持的命令：
+	// Redis Psubscribe 命令 订阅一个或多个符合给定模式的频道。
+	// Redis Pubsub 命令 查看订阅与发布系统状态。
+	// Redis Punsubscribe 命令 退订所有给定模式的频道。
+}
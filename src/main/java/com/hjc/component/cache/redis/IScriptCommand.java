@@ -0,0 +1,24 @@
+package com.hjc.component.cache.redis;
+
+import java.util.List;
+
+/**
+ * Redis 脚本命令
+ * 
+ * @author hjc
+ *
+ */
+public interface IScriptCommand {
+	/**
+	 * Redis Eval 命令使用 Lua 解释器执行脚本（集群部署时所有KEY必须在同一个slot）。
+	 * 
+	 * @param script
+	 *            Lua 脚本
+	 * @param keys
+	 *            脚本中通过 KEYS[N] 访问的KEY
+	 * @param args
+	 *            脚本中通过 ARGV[N] 访问的参数
+	 * @return 脚本的返回值（整数为Long，字符串为byte[]，nil为null，表为List）
+	 */
+	Object eval(byte[] script, List<byte[]> keys, List<byte[]> args);
+}
@@ -0,0 +1,125 @@
+package com.hjc.component.cache.redis;
+
+/**
+ * 指定slot的命令（redis集群客户端实现）<br/>
+ * slot由调用方预先计算并缓存（如CacheKey.getSlot()），客户端不再对KEY计算CRC16
+ * 
+ * @author hjc
+ *
+ */
+public interface ISlotCommand {
+	/**
+	 * GET
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @return 不存在返回null
+	 */
+	byte[] get(int slot, byte[] key);
+
+	/**
+	 * 对冲读的GET：超过延迟预算未返回时在另一个读节点上再执行一次，先返回的结果生效
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @return 不存在返回null
+	 */
+	byte[] getHedged(int slot, byte[] key);
+
+	/**
+	 * SET
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @param value
+	 *            值
+	 * @return OK
+	 */
+	String set(int slot, byte[] key, byte[] value);
+
+	/**
+	 * SETEX
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @param seconds
+	 *            过期时间，单位：秒
+	 * @param value
+	 *            值
+	 * @return OK
+	 */
+	String setex(int slot, byte[] key, int seconds, byte[] value);
+
+	/**
+	 * DEL
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @return 被删除 key 的数量
+	 */
+	Long del(int slot, byte[] key);
+
+	/**
+	 * HGET
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @param field
+	 *            字段
+	 * @return 不存在返回null
+	 */
+	byte[] hget(int slot, byte[] key, byte[] field);
+
+	/**
+	 * 对冲读的HGET：超过延迟预算未返回时在另一个读节点上再执行一次，先返回的结果生效
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @param field
+	 *            字段
+	 * @return 不存在返回null
+	 */
+	byte[] hgetHedged(int slot, byte[] key, byte[] field);
+
+	/**
+	 * HSET
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @param field
+	 *            字段
+	 * @param value
+	 *            值
+	 * @return 新建字段返回1，覆盖返回0
+	 */
+	Long hset(int slot, byte[] key, byte[] field, byte[] value);
+
+	/**
+	 * HDEL
+	 * 
+	 * @param slot
+	 *            KEY的slot
+	 * @param key
+	 *            KEY
+	 * @param field
+	 *            字段
+	 * @return 被删除字段的数量
+	 */
+	Long hdel(int slot, byte[] key, byte[]... field);
+}
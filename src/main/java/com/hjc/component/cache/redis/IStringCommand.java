@@ -1,5 +1,7 @@
 package com.hjc.component.cache.redis;
 
+import java.util.List;
+
 /**
  * Redis 字符串(String)命令
  * 
@@ -19,6 +21,23 @@ public interface IStringCommand {
 	 */
 	String set(byte[] key, byte[] value);
 
+	/**
+	 * Redis SET 命令的扩展参数形式，如 SET key value NX EX seconds（KEY不存在时设置，并指定过期时间，原子操作）。
+	 * 
+	 * @param key
+	 *            KEY
+	 * @param value
+	 *            VALUE
+	 * @param nxxx
+	 *            NX：KEY不存在时才设置；XX：KEY存在时才设置
+	 * @param expx
+	 *            EX：过期时间的单位为秒；PX：单位为毫秒
+	 * @param time
+	 *            过期时间
+	 * @return 设置成功返回 OK ，因NX或XX条件未设置返回 nil 。
+	 */
+	String set(byte[] key, byte[] value, byte[] nxxx, byte[] expx, long time);
+
 	/**
 	 * Redis Get 命令用于获取指定 key 的值。如果 key 不存在，返回 nil 。如果key 储存的值不是字符串类型，返回一个错误
 	 * 
@@ -202,8 +221,30 @@ public interface IStringCommand {
 	 */
 	Long append(byte[] key, byte[] value);
 
+	/**
+	 * Redis Mget 命令返回所有(一个或多个)给定 key 的值。 如果给定的 key 里面，有某个 key 不存在，那么这个 key 返回特殊值
+	 * nil 。<br/>
+	 * 集群模式下按slot分组执行后合并结果。
+	 * 
+	 * @param keys
+	 *            KEY
+	 * @return 一个包含所有给定 key 的值的列表（与keys顺序一致）。
+	 */
+	List<byte[]> mget(byte[]... keys);
+
+	/**
+	 * 使用管道批量执行 SET/SETEX（非原子），集群模式下按slot分组执行。
+	 * 
+	 * @param keys
+	 *            KEY
+	 * @param values
+	 *            VALUE（与keys一一对应）
+	 * @param seconds
+	 *            过期时间（单位：秒，与keys一一对应，小于等于0表示不过期）
+	 */
+	void msetex(byte[][] keys, byte[][] values, int[] seconds);
+
 	// 不支持的命令：
-	// Redis Mget 命令 获取所有(一个或多个)给定 key 的值。
 	// Redis Mset 命令 同时设置一个或多个 key-value 对。
 	// Redis Msetnx 命令 同时设置一个或多个 key-value 对，当且仅当所有给定 key 都不存在。
 	// Redis Psetex 命令 这个命令和 SETEX 命令相似，但它以毫秒为单位设置 key 的生存时间，而不是像 SETEX
@@ -0,0 +1,171 @@
+package com.hjc.component.cache.redis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.bus.InvalidationListener;
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * 两级缓存：进程内一级缓存（反序列化后的对象）+ redis二级缓存<br/>
+ * 一级缓存有容量和存活时间限制，配置项（redis配置文件）：<br/>
+ * near-cache.max-size 最大条数，默认10000<br/>
+ * near-cache.expire-seconds 存活时间，单位：秒，默认60<br/>
+ * 多节点部署时需启用失效通知（invalidation.enabled=true），见InvalidationBusFactory<br/>
+ * 注意：一级缓存返回的是同一个对象实例，调用方不能修改
+ *
+ * @author hjc
+ *
+ */
+public class NearRedisCache extends RedisCache {
+    private final Cache<String, CacheWrapper> local;
+
+    public NearRedisCache(String redisCfg) {
+        this(redisCfg, BinaryJedisFactory.getProperties(redisCfg));
+    }
+
+    protected NearRedisCache(String redisCfg, Properties props) {
+        super(redisCfg, props);
+        long maxSize = NumberUtils.toLong(props.getProperty("near-cache.max-size"), 10000);
+        int expireSeconds = NumberUtils.toInt(props.getProperty("near-cache.expire-seconds"), 60);
+        this.local = CacheBuilder.newBuilder().maximumSize(maxSize)
+            .expireAfterWrite(expireSeconds, TimeUnit.SECONDS).recordStats().build();
+        if (invalidationBus != null) {
+            // 其它节点修改或删除后，删除本地的一级缓存
+            invalidationBus.addListener(new InvalidationListener() {
+                @Override
+                public void onInvalidate(List<String> fullKeys) {
+                    local.invalidateAll(fullKeys);
+                }
+
+                @Override
+                public void onFlush() {
+                    local.invalidateAll();
+                }
+            });
+        }
+    }
+
+    @Override
+    public CacheWrapper get(CacheKey key) {
+        return get(key, false);
+    }
+
+    @Override
+    public CacheWrapper getHedged(CacheKey key) {
+        return get(key, true);
+    }
+
+    private CacheWrapper get(CacheKey key, boolean hedged) {
+        String fullKey = key.getFullKey();
+        CacheWrapper wrapper = local.getIfPresent(fullKey);
+        if (wrapper != null) {
+            if (!wrapper.isExpired()) {
+                return wrapper;
+            }
+            local.invalidate(fullKey);
+        }
+
+        wrapper = hedged ? super.getHedged(key) : super.get(key);
+        if (wrapper != null) {
+            local.put(fullKey, wrapper);
+        }
+        return wrapper;
+    }
+
+    @Override
+    public void put(CacheKey key, CacheWrapper wrapper) {
+        super.put(key, wrapper);
+        if (wrapper != null) {
+            local.put(key.getFullKey(), wrapper);
+        }
+    }
+
+    @Override
+    public Map<CacheKey, CacheWrapper> getAll(Collection<CacheKey> keys) {
+        Map<CacheKey, CacheWrapper> ret = new HashMap<CacheKey, CacheWrapper>();
+        List<CacheKey> misses = new ArrayList<CacheKey>();
+        for (CacheKey key : keys) {
+            String fullKey = key.getFullKey();
+            CacheWrapper wrapper = local.getIfPresent(fullKey);
+            if (wrapper != null && !wrapper.isExpired()) {
+                ret.put(key, wrapper);
+            } else {
+                if (wrapper != null) {
+                    local.invalidate(fullKey);
+                }
+                misses.add(key);
+            }
+        }
+        
+        if (!misses.isEmpty()) {
+            Map<CacheKey, CacheWrapper> loaded = super.getAll(misses);
+            for (Map.Entry<CacheKey, CacheWrapper> e : loaded.entrySet()) {
+                local.put(e.getKey().getFullKey(), e.getValue());
+            }
+            ret.putAll(loaded);
+        }
+        return ret;
+    }
+
+    @Override
+    public void putAll(Map<CacheKey, CacheWrapper> wrappers) {
+        super.putAll(wrappers);
+        for (Map.Entry<CacheKey, CacheWrapper> e : wrappers.entrySet()) {
+            if (e.getValue() != null) {
+                local.put(e.getKey().getFullKey(), e.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void del(CacheKey key) {
+        local.invalidate(key.getFullKey());
+        super.del(key);
+    }
+
+    /**
+     * 只删除一级缓存
+     *
+     * @param key
+     *            缓存KEY
+     */
+    public void invalidateLocal(CacheKey key) {
+        local.invalidate(key.getFullKey());
+    }
+
+    /**
+     * 清空一级缓存
+     */
+    public void invalidateAllLocal() {
+        local.invalidateAll();
+    }
+
+    /**
+     * 一级缓存当前条数
+     *
+     * @return 条数
+     */
+    public long getLocalSize() {
+        return local.size();
+    }
+
+    /**
+     * 一级缓存的命中统计
+     *
+     * @return 命中、未命中、淘汰等统计
+     */
+    public CacheStats getLocalStats() {
+        return local.stats();
+    }
+}
@@ -0,0 +1,242 @@
+package com.hjc.component.cache.redis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.hjc.component.cache.AsyncCache;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.util.StringHelper;
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * redis的异步缓存接口<br/>
+ * redis连接支持异步命令（jedis-class=nio）时，get/getAll/put/del直接使用非阻塞传输，反序列化在线程池中执行；
+ * 否则在独立的有界线程池中访问redis，调用线程（如NIO事件循环线程）不等待连接和网络读写。
+ * 队列满时直接返回异常结果，配置项（redis配置文件）：<br/>
+ * async.threads 线程数，默认8<br/>
+ * async.queue-size 等待队列长度，默认10000
+ *
+ * @author hjc
+ *
+ */
+public class RedisAsyncCache implements AsyncCache {
+    private final RedisCache         cache;
+    private final IAsyncCommand      async;   //非阻塞传输（不支持时为null）
+    private final ThreadPoolExecutor executor;
+
+    public RedisAsyncCache(String redisCfg, RedisCache cache) {
+        this(cache, BinaryJedisFactory.getProperties(redisCfg));
+    }
+
+    protected RedisAsyncCache(RedisCache cache, Properties props) {
+        this.cache = cache;
+        // 一级缓存需要经过NearRedisCache，不直接使用传输
+        this.async = cache.jedis instanceof IAsyncCommand && !(cache instanceof NearRedisCache)
+            ? (IAsyncCommand) cache.jedis : null;
+        int threads = Math.max(1, NumberUtils.toInt(props.getProperty("async.threads"), 8));
+        int queueSize = Math.max(1, NumberUtils.toInt(props.getProperty("async.queue-size"), 10000));
+        final AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "redis-async-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 异步执行的操作
+     */
+    private interface Call<T> {
+        T call();
+    }
+
+    private <T> CompletableFuture<T> submit(final Call<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(call.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<CacheWrapper> getAsync(final CacheKey key) {
+        if (async != null) {
+            final byte[] keyBytes = key.getCacheKeyBytes();
+            if (StringHelper.isEmpty(key.getHfield())) {
+                return async.getAsync(keyBytes).thenApplyAsync(new Function<byte[], CacheWrapper>() {
+                    @Override
+                    public CacheWrapper apply(byte[] data) {
+                        return cache.bytesToWrapper(data);
+                    }
+                }, executor);
+            }
+            
+            final byte[] hfieldBytes = key.getHfieldBytes();
+            return async.hgetAsync(keyBytes, hfieldBytes)
+                .thenApplyAsync(new Function<byte[], CacheWrapper>() {
+                    @Override
+                    public CacheWrapper apply(byte[] data) {
+                        if (RedisCache.isExpiredBytes(data)) {
+                            // 删除过期的（只读取头部，不反序列化）
+                            async.hdelAsync(keyBytes, hfieldBytes);
+                            return null;
+                        }
+                        CacheWrapper wrapper = cache.bytesToWrapper(data);
+                        if (wrapper != null && wrapper.isExpired()) {
+                            // 删除过期的
+                            async.hdelAsync(keyBytes, hfieldBytes);
+                            return null;
+                        }
+                        return wrapper;
+                    }
+                }, executor);
+        }
+        return submit(new Call<CacheWrapper>() {
+            @Override
+            public CacheWrapper call() {
+                return cache.get(key);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<CacheKey, CacheWrapper>> getAllAsync(final Collection<CacheKey> keys) {
+        if (async != null) {
+            if (keys == null || keys.isEmpty()) {
+                return CompletableFuture.completedFuture(new HashMap<CacheKey, CacheWrapper>());
+            }
+            
+            // 与RedisCache.getAll相同：普通KEY一次MGET，hash的field按KEY分组，每组一次HMGET
+            final List<CacheKey> plainKeys = new ArrayList<CacheKey>();
+            final Map<String, List<CacheKey>> hashKeys = RedisCache.groupKeys(keys, plainKeys);
+            final CompletableFuture<List<byte[]>> plainValues = plainKeys.isEmpty() ? null
+                : async.mgetAsync(RedisCache.toKeysBytes(plainKeys));
+            final List<CompletableFuture<List<byte[]>>> hashValues = new ArrayList<CompletableFuture<List<byte[]>>>();
+            List<CompletableFuture<?>> all = new ArrayList<CompletableFuture<?>>();
+            if (plainValues != null) {
+                all.add(plainValues);
+            }
+            for (Map.Entry<String, List<CacheKey>> e : hashKeys.entrySet()) {
+                CompletableFuture<List<byte[]>> values = async.hmgetAsync(
+                    RedisCache.stringToBytes(e.getKey()), RedisCache.toFieldsBytes(e.getValue()));
+                hashValues.add(values);
+                all.add(values);
+            }
+            
+            return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[all.size()]))
+                .thenApplyAsync(new Function<Void, Map<CacheKey, CacheWrapper>>() {
+                    @Override
+                    public Map<CacheKey, CacheWrapper> apply(Void ignore) {
+                        Map<CacheKey, CacheWrapper> ret = new HashMap<CacheKey, CacheWrapper>();
+                        if (plainValues != null) {
+                            cache.readValues(plainKeys, plainValues.join(), ret);
+                        }
+                        int i = 0;
+                        for (Map.Entry<String, List<CacheKey>> e : hashKeys.entrySet()) {
+                            byte[][] expiredFields = cache.readHashValues(e.getValue(),
+                                hashValues.get(i++).join(), ret);
+                            if (expiredFields.length > 0) {
+                                // 删除过期的
+                                async.hdelAsync(RedisCache.stringToBytes(e.getKey()), expiredFields);
+                            }
+                        }
+                        return ret;
+                    }
+                }, executor);
+        }
+        return submit(new Call<Map<CacheKey, CacheWrapper>>() {
+            @Override
+            public Map<CacheKey, CacheWrapper> call() {
+                return cache.getAll(keys);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(final CacheKey key, final CacheWrapper wrapper) {
+        if (async != null) {
+            CompletableFuture<?> future;
+            byte[] keyBytes = key.getCacheKeyBytes();
+            byte[] wrapperBytes = cache.wrapperToBytes(wrapper);
+            if (StringHelper.isNotEmpty(key.getHfield())) {
+                // 不支持设置缓存时间
+                future = async.hsetAsync(keyBytes, key.getHfieldBytes(),
+                    wrapperBytes);
+            } else if (wrapper.getExpire() > 0) {
+                future = async.setexAsync(keyBytes, wrapper.getStoreExpire(), wrapperBytes);
+            } else {
+                future = async.setAsync(keyBytes, wrapperBytes);
+            }
+            return future.thenRun(new Runnable() {
+                @Override
+                public void run() {
+                    cache.publishInvalidation(key);
+                }
+            });
+        }
+        return submit(new Call<Void>() {
+            @Override
+            public Void call() {
+                cache.put(key, wrapper);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delAsync(final CacheKey key) {
+        if (async != null) {
+            byte[] keyBytes = key.getCacheKeyBytes();
+            CompletableFuture<Long> future = StringHelper.isNotEmpty(key.getHfield())
+                ? async.hdelAsync(keyBytes, key.getHfieldBytes()) : async.delAsync(keyBytes);
+            // 从区域删除需要读写redis（同步命令），不在传输的IO线程中执行
+            return future.thenRunAsync(new Runnable() {
+                @Override
+                public void run() {
+                    cache.publishInvalidation(key);
+                    cache.removeFromRegion(key);
+                }
+            }, executor);
+        }
+        return submit(new Call<Void>() {
+            @Override
+            public Void call() {
+                cache.del(key);
+                return null;
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -4,34 +4,101 @@ import com.hjc.component.cache.CacheKey;
 import com.hjc.component.cache.CacheWrapper;
 import com.hjc.component.cache.ICache;
 import com.hjc.component.cache.RegionInfo;
+import com.hjc.component.cache.codec.CacheCodec;
+import com.hjc.component.cache.codec.CacheEnvelope;
+import com.hjc.component.cache.codec.CodecFactory;
+import com.hjc.component.cache.codec.FstCodec;
+import com.hjc.component.cache.codec.JsonCodec;
+import com.hjc.component.cache.compress.Compressor;
+import com.hjc.component.cache.compress.CompressorFactory;
+import com.hjc.component.cache.compress.DeflateCompressor;
+import com.hjc.component.cache.compress.ZstdCompressor;
+import com.hjc.component.cache.compress.ZstdDictCompressor;
+import com.hjc.component.cache.redis.bus.InvalidationBus;
+import com.hjc.component.cache.redis.bus.InvalidationBusFactory;
 import com.hjc.component.cache.util.CacheUtil;
 import com.hjc.component.cache.util.ReflectUtils;
 import com.hjc.component.cache.util.Serialize;
 import com.hjc.component.cache.util.StringHelper;
 import lombok.extern.slf4j.Slf4j;
-import org.nustaq.serialization.FSTObjectInput;
+import org.apache.commons.lang.math.NumberUtils;
 import redis.clients.util.SafeEncoder;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class RedisCache implements ICache {
-    public static final String   DEFAULT_REDIS   = "redis.props";
-    private static final String  REGIONS_KEY     = "REGIONS";
-    private static final byte[]  REGIONS_BYTES   = stringToBytes(REGIONS_KEY);
-    private static final int     COMPRESS_LENGTH = 1024;                      //1K
-    protected final IBinaryJedis jedis;
+    public static final String         DEFAULT_REDIS   = "redis.props";
+    private static final String        REGIONS_KEY     = "REGIONS";
+    private static final byte[]        REGIONS_BYTES   = stringToBytes(REGIONS_KEY);
+    private static final int           COMPRESS_LENGTH = 1024;                         //默认的压缩阈值：1K
+    private static final String        KEY_ARGS_TAG    = "$KEY";
+    private static final String        LEASE_TAG       = "$LEASE";
+    private static final String        LEASE_OWNER     = UUID.randomUUID().toString(); //租约令牌前缀（区分节点）
+    private static final AtomicLong    LEASE_SEQ       = new AtomicLong();
+    private static final byte[]        NX              = stringToBytes("NX");
+    private static final byte[]        EX              = stringToBytes("EX");
+    private static final byte[]        LEASE_RELEASE   = stringToBytes(
+        "if redis.call('get',KEYS[1])==ARGV[1] then return redis.call('del',KEYS[1]) end"); //释放租约：比较并删除
+    private static final String        DICT            = "compress-dict.";             //字典压缩配置项前缀
+    protected final IBinaryJedis       jedis;
+    protected final ISlotCommand       slotJedis;                                      //支持指定slot的客户端（集群），否则为null
+    protected final InvalidationBus    invalidationBus;                                //失效通知（未启用为null）
+    protected final CacheCodec         codec;                                          //默认编解码（配置项codec，默认fst）
+    protected final Compressor         compressor;                                     //压缩（配置项compress，默认deflate，none为不压缩）
+    protected final int                compressThreshold;                              //超过该长度才压缩（配置项compress-threshold）
+    protected final ZstdDictCompressor dictCompressor;                                 //字典压缩（解压总是可用）
+    protected final int                dictMinSize;                                    //字典压缩的最小长度，未启用为-1
     
     public RedisCache() {
-        jedis = BinaryJedisFactory.jedis(DEFAULT_REDIS);
+        this(DEFAULT_REDIS);
     }
     
     public RedisCache(String redisCfg) {
-        jedis = BinaryJedisFactory.jedis(redisCfg);
+        this(redisCfg, BinaryJedisFactory.getProperties(redisCfg));
+    }
+    
+    protected RedisCache(String redisCfg, Properties props) {
+        jedis = BinaryJedisFactory.jedis(redisCfg, props);
+        slotJedis = jedis instanceof ISlotCommand ? (ISlotCommand) jedis : null;
+        invalidationBus = InvalidationBusFactory.getBus(redisCfg, props, jedis);
+        codec = CodecFactory.getCodec(props.getProperty("codec"), CodecFactory.getCodec(FstCodec.ID));
+        String jsonPackages = props.getProperty("json-packages");// JSON解码允许的包，逗号分隔
+        if (StringHelper.isNotBlank(jsonPackages)) {
+            JsonCodec.allowPackages(jsonPackages.split(","));
+        }
+        compressor = createCompressor(props);
+        compressThreshold = NumberUtils.toInt(props.getProperty("compress-threshold"), COMPRESS_LENGTH);
+        dictCompressor = new ZstdDictCompressor(
+            new RedisDictionaryStore(jedis, props.getProperty(DICT + "key", "CACHE:$DICT").trim()),
+            NumberUtils.toInt(props.getProperty(DICT + "level"), ZstdCompressor.DEFAULT_LEVEL),
+            NumberUtils.toInt(props.getProperty(DICT + "size"), 16 * 1024),
+            NumberUtils.toInt(props.getProperty(DICT + "samples"), 1000),
+            !"false".equalsIgnoreCase(props.getProperty(DICT + "train", "true").trim()),
+            NumberUtils.toInt(props.getProperty(DICT + "verify-interval"), ZstdDictCompressor.VERIFY_INTERVAL));
+        dictMinSize = "true".equalsIgnoreCase(props.getProperty(DICT + "enabled", "false").trim())
+            ? NumberUtils.toInt(props.getProperty(DICT + "min-size"), 64) : -1;
+    }
+    
+    private static Compressor createCompressor(Properties props) {
+        Compressor c = CompressorFactory.getCompressor(props.getProperty("compress"),
+            CompressorFactory.getCompressor(DeflateCompressor.ID));
+        String level = props.getProperty("compress-level");
+        if (c instanceof ZstdCompressor && StringHelper.isNotEmpty(level)) {
+            c = new ZstdCompressor(Integer.parseInt(level.trim()));
+        }
+        return c;
     }
     
     protected static byte[] stringToBytes(String str) {
@@ -42,40 +109,27 @@ public class RedisCache implements ICache {
         return SafeEncoder.encode(data);
     }
     
+    /**
+     * 缓存数据：信封格式（见CacheEnvelope），数据只包含缓存对象<br/>
+     * 旧格式：1个字节的标记 + 编码后的CacheWrapper，标记的高4位为编解码ID，低4位为压缩ID
+     */
     protected CacheWrapper bytesToWrapper(byte[] data) {
         if (data == null || data.length <= 1) {
             return null;
         }
         
         try {
-            byte flag = data[0];
-            if (flag == 1) {//先解压，后反序列化
-                byte[] uncompressBytes = CacheUtil.uncompress(data, 1, data.length - 1);
-                return Serialize.fstdeserialize(uncompressBytes);
-            } else {//没有压缩
-                InputStream is = null;
-                FSTObjectInput in = null;
-                try {
-                    is = new ByteArrayInputStream(data, 1, data.length);
-                    in = new FSTObjectInput(is);
-                    return (CacheWrapper) in.readObject();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                } finally {
-                    if (in != null) {
-                        try {
-                            in.close();
-                        } catch (IOException e) {
-                        }
-                    }
-                    if (is != null) {
-                        try {
-                            is.close();
-                        } catch (IOException e) {
-                        }
-                    }
-                }
+            if (CacheEnvelope.isEnvelope(data)) {
+                CacheWrapper wrapper = CacheEnvelope.readHeader(data);
+                int codecId = CacheEnvelope.getCodecId(data);
+                int compressId = CacheEnvelope.getCompressId(data);
+                int length = CacheEnvelope.getPayloadLength(data);
+                int offset = CacheEnvelope.HEADER_LENGTH;
+                wrapper.setCacheObject(decode(codecId, compressId, data, offset, length));
+                return wrapper;
             }
+            int flag = data[0] & 0xFF;
+            return (CacheWrapper) decodeLegacy(flag >> 4, flag & 0x0F, data, 1, data.length - 1);
         } catch (Throwable ignore) {
             //很可能缓存对象版本变化导致反序列化失败
             //返回null，使重新装载
@@ -83,39 +137,84 @@ public class RedisCache implements ICache {
         }
     }
     
-    protected byte[] wrapperToBytes(CacheWrapper wrapper) {
-    	if(wrapper == null || wrapper.getCacheObject() == null){
-    		//Logger.getRootLogger().error(key.getCacheKey());
-    	}
-        byte[] wraperBytes = Serialize.fstserialize(wrapper);
-        if (wraperBytes == null || wraperBytes.length <= 0) {
-        	log.error("redis wraperBytes is null: "+wrapper.toString());
-            return wraperBytes;
+    /**
+     * 直接从数据（或线程复用的解压缓冲区）解码，不复制
+     */
+    private Object decode(int codecId, int compressId, byte[] data, int offset, int length) {
+        CacheCodec dataCodec = CodecFactory.getCodec(codecId);
+        if (compressId == 0) {//没有压缩
+            return dataCodec.decode(data, offset, length);
+        }
+        //解压到复用的缓冲区，前面预留与头部相同的长度（FST的流位置包含头部）
+        ByteBuffer buf = getCompressor(compressId).uncompress(data, offset, length, offset);
+        return dataCodec.decode(buf.array(), buf.position(), buf.remaining());
+    }
+    
+    /**
+     * 旧格式（标记字节 + 整个CacheWrapper）解码，FST的流位置从数据开始计算
+     */
+    private Object decodeLegacy(int codecId, int compressId, byte[] data, int offset, int length) {
+        if (compressId != 0) {//先解压，后反序列化
+            data = getCompressor(compressId).uncompress(data, offset, length);
+            offset = 0;
+            length = data.length;
+        }
+        if (codecId == FstCodec.ID) {
+            return Serialize.fstdeserialize(data, offset, length);
         }
+        return CodecFactory.getCodec(codecId).decode(data, offset, length);
+    }
+    
+    private Compressor getCompressor(int compressId) {
+        return compressId == ZstdDictCompressor.ID ? dictCompressor
+            : CompressorFactory.getCompressor(compressId);
+    }
+    
+    /**
+     * 只读取头部判断是否已经过期，旧格式返回false（需要反序列化后判断）
+     * 
+     * @param data
+     *            缓存数据
+     * @return boolean
+     */
+    protected static boolean isExpiredBytes(byte[] data) {
+        return CacheEnvelope.isEnvelope(data) && CacheEnvelope.isExpired(data);
+    }
+    
+    protected byte[] wrapperToBytes(CacheWrapper wrapper) {
+        // 使用指定的编解码，没有指定时使用配置的编解码
+        CacheCodec dataCodec = CodecFactory.getCodec(wrapper.getCodec(), codec);
         
-        ByteArrayOutputStream out = null;
-        try {
-            byte flag = 0;
-            byte[] data = wraperBytes;
-            if (wraperBytes.length > COMPRESS_LENGTH) {//大于COMPRESS_LENGTH,则进行压缩
-                flag = (byte) 1;
-                data = CacheUtil.compress(wraperBytes);
+        // 预留头部
+        byte[] data = dataCodec.encode(wrapper.getCacheObject(), CacheEnvelope.HEADER_LENGTH);
+        int length = data.length - CacheEnvelope.HEADER_LENGTH;
+        Compressor dataCompressor = null;
+        if (compressor != null && length > compressThreshold) {
+            dataCompressor = compressor;
+        } else if (dictMinSize >= 0 && length >= dictMinSize) {
+            // 小数据使用字典压缩，没有字典时收集样本
+            if (dictCompressor.isReady()) {
+                dataCompressor = dictCompressor;
+            } else {
+                dictCompressor.sample(data, CacheEnvelope.HEADER_LENGTH, length);
             }
-            //组包
-            out = new ByteArrayOutputStream();
-            out.write(flag);
-            out.write(data);
-            return out.toByteArray();
-        } catch (Throwable ignore) {
-            return null;
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException ignore) {
+        }
+        
+        if (dataCompressor != null) {
+            try {
+                byte[] compressed = dataCompressor.compress(data, CacheEnvelope.HEADER_LENGTH, length);
+                if (compressed.length < length) {
+                    byte[] out = new byte[CacheEnvelope.HEADER_LENGTH + compressed.length];
+                    System.arraycopy(compressed, 0, out, CacheEnvelope.HEADER_LENGTH, compressed.length);
+                    CacheEnvelope.writeHeader(out, wrapper, dataCodec.getId(), dataCompressor.getId());
+                    return out;
                 }
+            } catch (Throwable t) {
+                log.error("缓存数据压缩异常, compressor:" + dataCompressor.getName(), t);
             }
         }
+        CacheEnvelope.writeHeader(data, wrapper, dataCodec.getId(), 0);
+        return data;
     }
     
     protected byte[] regionsKeyToBytes(String namespace) {
@@ -149,70 +248,301 @@ public class RedisCache implements ICache {
     
     @Override
     public CacheWrapper get(CacheKey key) {
-        return _get(key, true);
+        return _get(key, true, false);
+    }
+    
+    /**
+     * 对冲读：集群客户端在读节点超过延迟预算未返回时，向另一个读节点再发一次，先返回的结果生效；非集群时同get
+     * 
+     * @param key
+     *            缓存Key
+     * @return 缓存
+     */
+    public CacheWrapper getHedged(CacheKey key) {
+        return _get(key, true, true);
     }
     
     protected CacheWrapper _get(CacheKey key, boolean delExpired) {
-        byte[] keyBytes = stringToBytes(key.getCacheKey());
+        return _get(key, delExpired, false);
+    }
+    
+    protected CacheWrapper _get(CacheKey key, boolean delExpired, boolean hedged) {
+        byte[] keyBytes = key.getCacheKeyBytes();
         byte[] wrapperBytes = null;
-        byte[] hfeildBytes = null;
-        boolean ishash = false;
+        byte[] hfeildBytes = key.getHfieldBytes();
+        boolean ishash = hfeildBytes != null;
         
-        if (StringHelper.isNotEmpty(key.getHfield())) {
-            ishash = true;
-            hfeildBytes = stringToBytes(key.getHfield());
-            wrapperBytes = jedis.hget(keyBytes, hfeildBytes);
+        if (slotJedis != null) {
+            int slot = key.getSlot();
+            if (ishash) {
+                wrapperBytes = hedged ? slotJedis.hgetHedged(slot, keyBytes, hfeildBytes)
+                    : slotJedis.hget(slot, keyBytes, hfeildBytes);
+            } else {
+                wrapperBytes = hedged ? slotJedis.getHedged(slot, keyBytes)
+                    : slotJedis.get(slot, keyBytes);
+            }
         } else {
-            wrapperBytes = jedis.get(keyBytes);
+            wrapperBytes = ishash ? jedis.hget(keyBytes, hfeildBytes) : jedis.get(keyBytes);
+        }
+        
+        if (delExpired && ishash && isExpiredBytes(wrapperBytes)) {
+            // 删除过期的（只读取头部，不反序列化）
+            hdel(key, keyBytes, hfeildBytes);
+            return null;
         }
         
         CacheWrapper wrapper = bytesToWrapper(wrapperBytes);
-        if (delExpired && ishash && wrapper != null && wrapper.isExpired() && hfeildBytes != null) {
+        if (delExpired && ishash && wrapper != null && wrapper.isExpired()) {
             // 删除过期的
-            jedis.hdel(keyBytes, hfeildBytes);
+            hdel(key, keyBytes, hfeildBytes);
             wrapper = null;
         }
         
         return wrapper;
     }
     
+    private void hdel(CacheKey key, byte[] keyBytes, byte[] hfieldBytes) {
+        if (slotJedis != null) {
+            slotJedis.hdel(key.getSlot(), keyBytes, hfieldBytes);
+        } else {
+            jedis.hdel(keyBytes, hfieldBytes);
+        }
+    }
+    
     @Override
     public void put(CacheKey key, CacheWrapper wrapper) {
     	if(wrapper == null || wrapper.getCacheObject() == null){
     		log.error("redis wrapper is null ,this key is " + key.getCacheKey() + ", wrapper is "+wrapper.toString());
     	}
-        byte[] keyBytes = stringToBytes(key.getCacheKey());
+        byte[] keyBytes = key.getCacheKeyBytes();
         byte[] wrapperBytes = wrapperToBytes(wrapper);
         
-        if (StringHelper.isNotEmpty(key.getHfield())) {
+        byte[] hfieldBytes = key.getHfieldBytes();
+        if (hfieldBytes != null) {
             // 不支持设置缓存时间
-            jedis.hset(keyBytes, stringToBytes(key.getHfield()), wrapperBytes);
+            if (slotJedis != null) {
+                slotJedis.hset(key.getSlot(), keyBytes, hfieldBytes, wrapperBytes);
+            } else {
+                jedis.hset(keyBytes, hfieldBytes, wrapperBytes);
+            }
+        } else if (wrapper.getExpire() > 0) {
+            if (slotJedis != null) {
+                slotJedis.setex(key.getSlot(), keyBytes, wrapper.getStoreExpire(), wrapperBytes);
+            } else {
+                jedis.setex(keyBytes, wrapper.getStoreExpire(), wrapperBytes);
+            }
         } else {
-            if (wrapper.getExpire() > 0) {
-                jedis.setex(keyBytes, wrapper.getExpire(), wrapperBytes);
+            if (slotJedis != null) {
+                slotJedis.set(key.getSlot(), keyBytes, wrapperBytes);
             } else {
                 jedis.set(keyBytes, wrapperBytes);
             }
         }
+        publishInvalidation(key);
+    }
+    
+    @Override
+    public Map<CacheKey, CacheWrapper> getAll(Collection<CacheKey> keys) {
+        Map<CacheKey, CacheWrapper> ret = new HashMap<CacheKey, CacheWrapper>();
+        if (keys == null || keys.isEmpty()) {
+            return ret;
+        }
+        
+        // 普通KEY一次MGET，hash的field按KEY分组，每组一次HMGET
+        List<CacheKey> plainKeys = new ArrayList<CacheKey>();
+        Map<String, List<CacheKey>> hashKeys = groupKeys(keys, plainKeys);
+        
+        if (!plainKeys.isEmpty()) {
+            List<byte[]> values = jedis.mget(toKeysBytes(plainKeys));
+            readValues(plainKeys, values, ret);
+        }
+        
+        for (Map.Entry<String, List<CacheKey>> e : hashKeys.entrySet()) {
+            byte[] keyBytes = stringToBytes(e.getKey());
+            List<CacheKey> fields = e.getValue();
+            List<byte[]> values = jedis.hmget(keyBytes, toFieldsBytes(fields));
+            byte[][] expiredFields = readHashValues(fields, values, ret);
+            if (expiredFields.length > 0) {
+                // 删除过期的
+                jedis.hdel(keyBytes, expiredFields);
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * 批量读取时对KEY分组：普通KEY放入plainKeys，hash的field按KEY分组
+     * 
+     * @param keys
+     *            缓存KEY
+     * @param plainKeys
+     *            普通KEY（输出）
+     * @return hash KEY与其field的缓存KEY
+     */
+    protected static Map<String, List<CacheKey>> groupKeys(Collection<CacheKey> keys,
+        List<CacheKey> plainKeys) {
+        Map<String, List<CacheKey>> hashKeys = new LinkedHashMap<String, List<CacheKey>>();
+        for (CacheKey key : keys) {
+            if (StringHelper.isNotEmpty(key.getHfield())) {
+                List<CacheKey> fields = hashKeys.get(key.getCacheKey());
+                if (fields == null) {
+                    fields = new ArrayList<CacheKey>();
+                    hashKeys.put(key.getCacheKey(), fields);
+                }
+                fields.add(key);
+            } else {
+                plainKeys.add(key);
+            }
+        }
+        return hashKeys;
+    }
+    
+    protected static byte[][] toKeysBytes(List<CacheKey> keys) {
+        byte[][] keysBytes = new byte[keys.size()][];
+        for (int i = 0; i < keysBytes.length; ++i) {
+            keysBytes[i] = keys.get(i).getCacheKeyBytes();
+        }
+        return keysBytes;
+    }
+    
+    protected static byte[][] toFieldsBytes(List<CacheKey> fields) {
+        byte[][] fieldsBytes = new byte[fields.size()][];
+        for (int i = 0; i < fieldsBytes.length; ++i) {
+            fieldsBytes[i] = fields.get(i).getHfieldBytes();
+        }
+        return fieldsBytes;
+    }
+    
+    /**
+     * 解码MGET的结果，命中的放入ret
+     */
+    protected void readValues(List<CacheKey> keys, List<byte[]> values,
+        Map<CacheKey, CacheWrapper> ret) {
+        for (int i = 0; i < keys.size(); ++i) {
+            CacheWrapper wrapper = bytesToWrapper(values.get(i));
+            if (wrapper != null) {
+                ret.put(keys.get(i), wrapper);
+            }
+        }
+    }
+    
+    /**
+     * 解码HMGET的结果，命中且未过期的放入ret
+     * 
+     * @return 已过期的field（由调用方删除）
+     */
+    protected byte[][] readHashValues(List<CacheKey> fields, List<byte[]> values,
+        Map<CacheKey, CacheWrapper> ret) {
+        List<byte[]> expiredFields = new ArrayList<byte[]>();
+        for (int i = 0; i < fields.size(); ++i) {
+            if (isExpiredBytes(values.get(i))) {
+                expiredFields.add(fields.get(i).getHfieldBytes());
+                continue;
+            }
+            CacheWrapper wrapper = bytesToWrapper(values.get(i));
+            if (wrapper == null) {
+                continue;
+            }
+            if (wrapper.isExpired()) {
+                expiredFields.add(fields.get(i).getHfieldBytes());
+            } else {
+                ret.put(fields.get(i), wrapper);
+            }
+        }
+        return expiredFields.toArray(new byte[expiredFields.size()][]);
+    }
+    
+    @Override
+    public void putAll(Map<CacheKey, CacheWrapper> wrappers) {
+        if (wrappers == null || wrappers.isEmpty()) {
+            return;
+        }
+        
+        List<byte[]> keysBytes = new ArrayList<byte[]>();
+        List<byte[]> valuesBytes = new ArrayList<byte[]>();
+        List<Integer> expires = new ArrayList<Integer>();
+        Map<String, Map<byte[], byte[]>> hashes = new LinkedHashMap<String, Map<byte[], byte[]>>();
+        for (Map.Entry<CacheKey, CacheWrapper> e : wrappers.entrySet()) {
+            CacheKey key = e.getKey();
+            CacheWrapper wrapper = e.getValue();
+            byte[] wrapperBytes = wrapperToBytes(wrapper);
+            if (wrapperBytes == null) {
+                log.error("redis wrapperBytes is null, this key is " + key.getCacheKey());
+                continue;
+            }
+            
+            if (StringHelper.isNotEmpty(key.getHfield())) {
+                // 不支持设置缓存时间
+                Map<byte[], byte[]> hash = hashes.get(key.getCacheKey());
+                if (hash == null) {
+                    hash = new LinkedHashMap<byte[], byte[]>();
+                    hashes.put(key.getCacheKey(), hash);
+                }
+                hash.put(key.getHfieldBytes(), wrapperBytes);
+            } else {
+                keysBytes.add(key.getCacheKeyBytes());
+                valuesBytes.add(wrapperBytes);
+                expires.add(wrapper.getExpire() > 0 ? wrapper.getStoreExpire() : 0);
+            }
+        }
+        
+        if (!keysBytes.isEmpty()) {
+            int[] seconds = new int[expires.size()];
+            for (int i = 0; i < seconds.length; ++i) {
+                seconds[i] = expires.get(i);
+            }
+            jedis.msetex(keysBytes.toArray(new byte[keysBytes.size()][]),
+                valuesBytes.toArray(new byte[valuesBytes.size()][]), seconds);
+        }
+        for (Map.Entry<String, Map<byte[], byte[]>> e : hashes.entrySet()) {
+            jedis.hmset(stringToBytes(e.getKey()), e.getValue());
+        }
+        for (CacheKey key : wrappers.keySet()) {
+            publishInvalidation(key);
+        }
+    }
+    
+    /**
+     * 通知其它节点删除进程内缓存
+     * 
+     * @param key
+     *            缓存KEY
+     */
+    protected void publishInvalidation(CacheKey key) {
+        if (invalidationBus != null) {
+            invalidationBus.publish(key.getFullKey());
+        }
     }
     
     @Override
     public void del(CacheKey key) {
-        byte[] keyBytes = stringToBytes(key.getCacheKey());
-        if (StringHelper.isNotEmpty(key.getHfield())) {
-            jedis.hdel(keyBytes, stringToBytes(key.getHfield()));
+        byte[] keyBytes = key.getCacheKeyBytes();
+        byte[] hfieldBytes = key.getHfieldBytes();
+        if (hfieldBytes != null) {
+            hdel(key, keyBytes, hfieldBytes);
+        } else if (slotJedis != null) {
+            slotJedis.del(key.getSlot(), keyBytes);
         } else {
             jedis.del(keyBytes);
         }
+        publishInvalidation(key);
         removeFromRegion(key);
     }
     
     protected byte[] toKeyArgsBytes(CacheKey cacheKey) {
+        return toTagKeyBytes(cacheKey, KEY_ARGS_TAG);
+    }
+    
+    protected byte[] toLeaseKeyBytes(CacheKey cacheKey) {
+        return toTagKeyBytes(cacheKey, LEASE_TAG);
+    }
+    
+    private byte[] toTagKeyBytes(CacheKey cacheKey, String tag) {
         StringBuilder b = new StringBuilder();
         if (StringHelper.isNotEmpty(cacheKey.getNamespace())) {
             b.append(cacheKey.getNamespace()).append(":");
         }
-        b.append("$KEY").append(":");
+        b.append(tag).append(":");
         b.append(cacheKey.getKey());
         if (StringHelper.isNotEmpty(cacheKey.getHfield())) {
             b.append(":").append(cacheKey.getHfield());
@@ -220,6 +550,34 @@ public class RedisCache implements ICache {
         return stringToBytes(b.toString());
     }
     
+    /**
+     * 尝试获取加载租约（跨节点互斥，SET NX EX 原子设置租约和过期时间）
+     * 
+     * @param cacheKey
+     *            缓存KEY
+     * @param leaseTtl
+     *            租约时长，单位：秒
+     * @return 获取成功返回租约令牌，否则返回null
+     */
+    public byte[] tryLease(CacheKey cacheKey, int leaseTtl) {
+        byte[] token = stringToBytes(LEASE_OWNER + ":" + LEASE_SEQ.incrementAndGet());
+        String ret = jedis.set(toLeaseKeyBytes(cacheKey), token, NX, EX, Math.max(1, leaseTtl));
+        return "OK".equals(ret) ? token : null;
+    }
+    
+    /**
+     * 释放加载租约（只释放自己持有的租约，比较和删除在脚本中原子执行，租约已过期并被其它节点获取时不删除）
+     * 
+     * @param cacheKey
+     *            缓存KEY
+     * @param token
+     *            获取租约时返回的令牌
+     */
+    public void releaseLease(CacheKey cacheKey, byte[] token) {
+        jedis.eval(LEASE_RELEASE, Collections.singletonList(toLeaseKeyBytes(cacheKey)),
+            Collections.singletonList(token));
+    }
+    
     protected void readRegionKey(byte[] regionKeyBytes, RegionInfo ri) {
         String regionKey = bytesToString(regionKeyBytes);
         String namespace = ri.getNamespace();
@@ -262,8 +620,8 @@ public class RedisCache implements ICache {
         // 删除KEY关联的类、方法和请求参数
         jedis.del(keyArgsBytes);
         
-        // 从区域删除KEY
-        jedis.zrem(regionKeyBytes, cacheKey.getFullKeyBytes());
+        // 从区域删除KEY（同时删除迁移前的旧格式成员）
+        jedis.zrem(regionKeyBytes, cacheKey.getFullKeyBytes(), cacheKey.getLegacyFullKeyBytes());
         
     }
     
@@ -274,8 +632,54 @@ public class RedisCache implements ICache {
         }
         
         String methodDesc = ReflectUtils.getDesc(method);
-        String namespace = cacheKey.getNamespace();
-        byte[] regionKeyBytes = joinToBytes(namespace, className, methodDesc);
+        byte[] regionKeyBytes = getRegionKeyBytes(cacheKey.getNamespace(), className, methodDesc);
+        addToRegion(className, methodDesc, regionKeyBytes, arguments, expire, refresh,
+            refreshBeanName, cacheKey, ct);
+    }
+    
+    /**
+     * 区域KEY（命名空间:类名:方法描述）
+     * 
+     * @param namespace
+     *            命名空间
+     * @param className
+     *            类名
+     * @param methodDesc
+     *            方法描述（ReflectUtils.getDesc）
+     * @return 区域KEY
+     */
+    public byte[] getRegionKeyBytes(String namespace, String className, String methodDesc) {
+        return joinToBytes(namespace, className, methodDesc);
+    }
+    
+    /**
+     * 保存KEY到区域（方法描述和区域KEY由调用方预先生成）
+     * 
+     * @param className
+     *            类名
+     * @param methodDesc
+     *            方法描述（ReflectUtils.getDesc）
+     * @param regionKeyBytes
+     *            区域KEY（getRegionKeyBytes）
+     * @param arguments
+     *            参数
+     * @param expire
+     *            缓存时间，单位：秒
+     * @param refresh
+     *            是否自动刷新
+     * @param refreshBeanName
+     *            刷新使用的bean名称
+     * @param cacheKey
+     *            缓存KEY
+     * @param ct
+     *            加载时间
+     */
+    public void addToRegion(String className, String methodDesc, byte[] regionKeyBytes,
+        Object[] arguments, int expire, boolean refresh, String refreshBeanName,
+        CacheKey cacheKey, long ct) {
+        if (expire <= 0) {
+            return;
+        }
         
         // 保存KEY关联的类、方法和请求参数
         byte[] keyArgsBytes = toKeyArgsBytes(cacheKey);
@@ -301,10 +705,68 @@ public class RedisCache implements ICache {
         CacheUtil.intToBytes(regionValueBytes, 1, expire);
         jedis.hset(regionSetKeyBytes, regionKeyBytes, regionValueBytes);
     }
+    
+    /**
+     * 批量保存KEY到区域（同一方法、同一加载时间的多个KEY，每类命令一次）
+     * 
+     * @param className
+     *            类名
+     * @param methodDesc
+     *            方法描述（ReflectUtils.getDesc）
+     * @param regionKeyBytes
+     *            区域KEY（getRegionKeyBytes）
+     * @param keyArguments
+     *            缓存KEY和对应的请求参数
+     * @param expire
+     *            缓存时间，单位：秒
+     * @param refresh
+     *            是否自动刷新
+     * @param refreshBeanName
+     *            刷新使用的bean名称
+     * @param ct
+     *            加载时间
+     */
+    public void addAllToRegion(String className, String methodDesc, byte[] regionKeyBytes,
+        Map<CacheKey, Object[]> keyArguments, int expire, boolean refresh,
+        String refreshBeanName, long ct) {
+        if (expire <= 0 || keyArguments == null || keyArguments.isEmpty()) {
+            return;
+        }
+        
+        // 保存KEY关联的类、方法和请求参数
+        int size = keyArguments.size();
+        byte[][] keysArgsBytes = new byte[size][];
+        byte[][] valuesBytes = new byte[size][];
+        int[] seconds = new int[size];
+        Map<byte[], Double> scoreMembers = new LinkedHashMap<byte[], Double>();
+        double score = ct + expire * 1000L;// 失效时间作为score
+        String namespace = null;
+        int i = 0;
+        for (Map.Entry<CacheKey, Object[]> e : keyArguments.entrySet()) {
+            CacheKey cacheKey = e.getKey();
+            keysArgsBytes[i] = toKeyArgsBytes(cacheKey);
+            valuesBytes[i] = Serialize.fstserialize(new Object[] {expire, refresh,
+                    refreshBeanName, className, methodDesc, e.getValue() });
+            seconds[i] = expire + 120;//expire+两分钟
+            scoreMembers.put(cacheKey.getFullKeyBytes(), score);
+            namespace = cacheKey.getNamespace();
+            ++i;
+        }
+        jedis.msetex(keysArgsBytes, valuesBytes, seconds);
+        
+        // 保存KEY到区域
+        jedis.zadd(regionKeyBytes, scoreMembers);
+        
+        // 检查region是否在指定容器里,不在就保存
+        byte[] regionValueBytes = new byte[5];
+        regionValueBytes[0] = (refresh ? (byte) 1 : 0);
+        CacheUtil.intToBytes(regionValueBytes, 1, expire);
+        jedis.hset(regionsKeyToBytes(namespace), regionKeyBytes, regionValueBytes);
+    }
 	
     @Override
     public Long incr(CacheKey key) {
-        byte[] keyBytes = stringToBytes(key.getCacheKey());
+        byte[] keyBytes = key.getCacheKeyBytes();
 
         Long ret = jedis.incr(keyBytes);
         return ret;
@@ -313,13 +775,13 @@ public class RedisCache implements ICache {
     
     @Override
     public Long expire(CacheKey key, int expire) {
-        byte[] keyBytes = stringToBytes(key.getCacheKey());
+        byte[] keyBytes = key.getCacheKeyBytes();
         return jedis.expire(keyBytes, expire);
     }
 
 	@Override
 	public Long decr(CacheKey key) {
-        byte[] keyBytes = stringToBytes(key.getCacheKey());
+        byte[] keyBytes = key.getCacheKeyBytes();
 
         Long ret = jedis.decr(keyBytes);
         return ret;
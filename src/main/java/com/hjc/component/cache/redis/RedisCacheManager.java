@@ -267,11 +267,17 @@ public class RedisCacheManager extends RedisCache {
 		}
 
 		System.out.println(cacheKey.getFullKey() + " refreshed!!!");
+		long loadStart = System.currentTimeMillis();
 		Object cacheObject = refreshInvoker.invoke(cacheKey, arguments);
 		CacheWrapper cacheWrapper = new CacheWrapper(cacheObject, expire);
+		cacheWrapper.setLoadTime(System.currentTimeMillis() - loadStart);
 
 		Method method = refreshInvoker.getMethod();
 		String methodName = method.getName();
+		Cache cacheable = method.getAnnotation(Cache.class);
+		if (cacheable != null) {
+			cacheWrapper.setCodec(cacheable.codec());
+		}
 		try {
 			// 保存到缓存
 			put(cacheKey, cacheWrapper);
@@ -0,0 +1,78 @@
+package com.hjc.component.cache.redis;
+
+import com.hjc.component.cache.compress.DictionaryStore;
+import org.apache.commons.lang.math.NumberUtils;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 保存在redis中的压缩字典<br/>
+ * KEY：前缀:SEQ（ID序列）、前缀:CURRENT（当前字典ID）、前缀:字典ID（字典内容，不过期）、
+ * 前缀:NEXT:字典ID（该字典之后发布的字典ID，SETNX保证每个当前字典只有一个后继）<br/>
+ * 这些KEY都不过期，redis使用volatile-*或noeviction淘汰策略时不会被淘汰；
+ * allkeys-*策略下字典可能被淘汰，此时各节点停止用它压缩并重新训练
+ * 
+ * @author hjc
+ *
+ */
+public class RedisDictionaryStore implements DictionaryStore {
+    private final IBinaryJedis jedis;
+    private final String       prefix;
+    private final byte[]       seqKey;
+    private final byte[]       currentKey;
+
+    /**
+     * @param jedis
+     *            redis客户端
+     * @param prefix
+     *            KEY前缀
+     */
+    public RedisDictionaryStore(IBinaryJedis jedis, String prefix) {
+        this.jedis = jedis;
+        this.prefix = prefix;
+        this.seqKey = SafeEncoder.encode(prefix + ":SEQ");
+        this.currentKey = SafeEncoder.encode(prefix + ":CURRENT");
+    }
+
+    @Override
+    public int save(byte[] dict, int expectedId) {
+        int id = jedis.incr(seqKey).intValue();
+        byte[] idBytes = SafeEncoder.encode(String.valueOf(id));
+        jedis.set(dictKey(id), dict);// 先保存内容，发布后其它节点立即可以读取
+        byte[] nextKey = SafeEncoder.encode(prefix + ":NEXT:" + expectedId);
+        if (jedis.setnx(nextKey, idBytes).longValue() == 1) {
+            jedis.set(currentKey, idBytes);
+            return id;
+        }
+
+        byte[] next = jedis.get(nextKey);
+        int nextId = next == null ? 0 : NumberUtils.toInt(SafeEncoder.encode(next));
+        if (nextId > 0 && exists(nextId)) {
+            jedis.del(dictKey(id));// 其它节点已发布，本次的字典未被使用
+            return Math.max(nextId, getCurrentId());
+        }
+        // 其它节点发布的字典已被淘汰，改为发布本次的字典
+        jedis.set(nextKey, idBytes);
+        jedis.set(currentKey, idBytes);
+        return id;
+    }
+
+    @Override
+    public byte[] load(int id) {
+        return jedis.get(dictKey(id));
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return Boolean.TRUE.equals(jedis.exists(dictKey(id)));
+    }
+
+    @Override
+    public int getCurrentId() {
+        byte[] id = jedis.get(currentKey);
+        return id == null ? 0 : NumberUtils.toInt(SafeEncoder.encode(id));
+    }
+
+    private byte[] dictKey(int id) {
+        return SafeEncoder.encode(prefix + ":" + id);
+    }
+}
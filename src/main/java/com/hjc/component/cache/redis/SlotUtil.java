@@ -0,0 +1,54 @@
+package com.hjc.component.cache.redis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.util.JedisClusterCRC16;
+
+/**
+ * redis集群slot工具类
+ * 
+ * @author hjc
+ *
+ */
+public class SlotUtil {
+    /**
+     * 按slot对KEY分组
+     * 
+     * @param keys
+     *            KEY
+     * @return slot -> KEY在keys中的下标
+     */
+    public static Map<Integer, List<Integer>> groupBySlot(byte[][] keys) {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<Integer, List<Integer>>();
+        for (int i = 0; i < keys.length; ++i) {
+            Integer slot = JedisClusterCRC16.getSlot(keys[i]);
+            List<Integer> indexes = groups.get(slot);
+            if (indexes == null) {
+                indexes = new ArrayList<Integer>();
+                groups.put(slot, indexes);
+            }
+            indexes.add(i);
+        }
+        return groups;
+    }
+    
+    /**
+     * 按下标取出子数组
+     * 
+     * @param array
+     *            数组
+     * @param indexes
+     *            下标
+     * @return 子数组
+     */
+    public static byte[][] select(byte[][] array, List<Integer> indexes) {
+        byte[][] out = new byte[indexes.size()][];
+        for (int i = 0; i < out.length; ++i) {
+            out[i] = array[indexes.get(i)];
+        }
+        return out;
+    }
+}
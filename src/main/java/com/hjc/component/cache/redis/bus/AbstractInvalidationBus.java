@@ -0,0 +1,169 @@
+package com.hjc.component.cache.redis.bus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 失效通知总线的基类：发布的KEY先入队，由后台线程按批合并后发送
+ * 
+ * @author hjc
+ *
+ */
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+    protected static final Logger                    logger    = LoggerFactory
+        .getLogger(AbstractInvalidationBus.class);
+    private static final int                         MAX_BATCH = 0xFFFF;
+    protected final String                           nodeId    = UUID.randomUUID().toString();
+    private final ConcurrentLinkedQueue<String>      pending   = new ConcurrentLinkedQueue<String>();
+    private final List<InvalidationListener>         listeners = new CopyOnWriteArrayList<InvalidationListener>();
+    private final ScheduledExecutorService           flusher;
+    private final int                                batchSize;
+    /**
+     * 发送的消息数
+     */
+    private final AtomicLong                         sent      = new AtomicLong();
+    /**
+     * 收到的（其它节点的）消息数
+     */
+    private final AtomicLong                         received  = new AtomicLong();
+    /**
+     * 全部清空的次数
+     */
+    private final AtomicLong                         flushes   = new AtomicLong();
+
+    /**
+     * @param name
+     *            名称（用于线程名）
+     * @param batchSize
+     *            每条消息最多包含的KEY数
+     * @param batchInterval
+     *            发送间隔，单位：毫秒
+     */
+    protected AbstractInvalidationBus(final String name, int batchSize, long batchInterval) {
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "cache-invalidation-" + name);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, batchInterval, Math.max(1, batchInterval), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 发送消息
+     * 
+     * @param message
+     *            消息
+     */
+    protected abstract void send(byte[] message);
+
+    @Override
+    public void publish(String fullKey) {
+        pending.offer(fullKey);
+    }
+
+    @Override
+    public void addListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 发送所有待发送的KEY
+     */
+    public void flush() {
+        while (!pending.isEmpty()) {
+            List<String> batch = new ArrayList<String>(Math.min(batchSize, pending.size()));
+            String fullKey;
+            while (batch.size() < batchSize && (fullKey = pending.poll()) != null) {
+                batch.add(fullKey);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                send(new InvalidationMessage(nodeId, batch).encode());
+                sent.incrementAndGet();
+            } catch (Throwable t) {
+                logger.error("发送缓存失效通知异常, keys:" + batch.size(), t);
+            }
+        }
+    }
+
+    /**
+     * 收到消息
+     * 
+     * @param message
+     *            消息
+     */
+    protected void deliver(byte[] message) {
+        InvalidationMessage msg = InvalidationMessage.decode(message);
+        if (msg == null || nodeId.equals(msg.getNodeId())) {
+            return;// 格式不对或本节点发布
+        }
+
+        received.incrementAndGet();
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidate(msg.getFullKeys());
+            } catch (Throwable t) {
+                logger.error("处理缓存失效通知异常", t);
+            }
+        }
+    }
+
+    /**
+     * 通知全部清空
+     */
+    protected void deliverFlush() {
+        flushes.incrementAndGet();
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onFlush();
+            } catch (Throwable t) {
+                logger.error("处理缓存清空通知异常", t);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        flusher.shutdown();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+}
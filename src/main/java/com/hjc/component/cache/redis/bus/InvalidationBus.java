@@ -0,0 +1,30 @@
+package com.hjc.component.cache.redis.bus;
+
+/**
+ * 缓存失效通知总线，用于多节点间同步删除进程内缓存
+ * 
+ * @author hjc
+ *
+ */
+public interface InvalidationBus {
+    /**
+     * 发布KEY失效通知（异步批量发送）
+     * 
+     * @param fullKey
+     *            缓存KEY（CacheKey.getFullKey()）
+     */
+    void publish(String fullKey);
+
+    /**
+     * 注册失效通知的处理（不会收到本节点发布的通知）
+     * 
+     * @param listener
+     *            通知处理
+     */
+    void addListener(InvalidationListener listener);
+
+    /**
+     * 关闭
+     */
+    void close();
+}
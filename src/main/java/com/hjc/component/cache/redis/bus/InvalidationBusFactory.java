@@ -0,0 +1,90 @@
+package com.hjc.component.cache.redis.bus;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hjc.component.cache.redis.IBinaryJedis;
+import org.apache.commons.lang.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 失效通知总线工厂，每个redis配置共用一个总线<br/>
+ * 配置项（redis配置文件）：<br/>
+ * invalidation.enabled 是否启用，默认false<br/>
+ * invalidation.type redis（默认）或local（进程内，用于测试）<br/>
+ * invalidation.channel 频道，默认CACHE:INVALIDATION<br/>
+ * invalidation.batch-size 每条消息最多包含的KEY数，默认100<br/>
+ * invalidation.batch-interval 发送间隔，单位：毫秒，默认10<br/>
+ * invalidation.reconnect-interval 重新订阅间隔，单位：毫秒，默认1000
+ * 
+ * @author hjc
+ *
+ */
+public class InvalidationBusFactory {
+    private static final Logger                       logger = LoggerFactory
+        .getLogger(InvalidationBusFactory.class);
+    private static final Map<String, InvalidationBus> buses  = new ConcurrentHashMap<String, InvalidationBus>();
+    private static final String                       PREFIX = "invalidation.";
+
+    /**
+     * 获取失效通知总线
+     * 
+     * @param redisCfg
+     *            redis配置文件
+     * @param props
+     *            redis配置
+     * @param jedis
+     *            redis客户端
+     * @return 未启用返回null
+     */
+    public static InvalidationBus getBus(String redisCfg, Properties props, IBinaryJedis jedis) {
+        if (!"true".equalsIgnoreCase(props.getProperty(PREFIX + "enabled", "false").trim())) {
+            return null;
+        }
+
+        InvalidationBus bus = buses.get(redisCfg);
+        if (bus != null) {
+            return bus;
+        }
+
+        synchronized (buses) {
+            bus = buses.get(redisCfg);
+            if (bus != null) {
+                return bus;
+            }
+
+            String type = props.getProperty(PREFIX + "type", "redis").trim();
+            String channel = props.getProperty(PREFIX + "channel", "CACHE:INVALIDATION").trim();
+            int batchSize = NumberUtils.toInt(props.getProperty(PREFIX + "batch-size"), 100);
+            int batchInterval = NumberUtils.toInt(props.getProperty(PREFIX + "batch-interval"), 10);
+            if ("local".equals(type)) {
+                bus = new LocalInvalidationBus(channel, batchSize, batchInterval);
+            } else {
+                int reconnectInterval = NumberUtils
+                    .toInt(props.getProperty(PREFIX + "reconnect-interval"), 1000);
+                bus = new RedisInvalidationBus(jedis, channel, batchSize, batchInterval,
+                    reconnectInterval);
+            }
+            buses.put(redisCfg, bus);
+        }
+        return bus;
+    }
+
+    /**
+     * 关闭所有总线
+     */
+    public static void closeAll() {
+        synchronized (buses) {
+            for (InvalidationBus bus : buses.values()) {
+                try {
+                    bus.close();
+                } catch (Throwable t) {
+                    logger.error("关闭缓存失效通知总线失败", t);
+                }
+            }
+            buses.clear();
+        }
+    }
+}
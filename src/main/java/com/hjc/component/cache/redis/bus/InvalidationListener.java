@@ -0,0 +1,24 @@
+package com.hjc.component.cache.redis.bus;
+
+import java.util.List;
+
+/**
+ * 缓存失效通知的处理
+ * 
+ * @author hjc
+ *
+ */
+public interface InvalidationListener {
+    /**
+     * 收到其它节点的KEY失效通知
+     * 
+     * @param fullKeys
+     *            失效的缓存KEY（CacheKey.getFullKey()）
+     */
+    void onInvalidate(List<String> fullKeys);
+
+    /**
+     * 订阅中断后重新订阅成功，中断期间的通知可能丢失，需要清空本地缓存
+     */
+    void onFlush();
+}
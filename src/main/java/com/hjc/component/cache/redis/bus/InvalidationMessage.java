@@ -0,0 +1,99 @@
+package com.hjc.component.cache.redis.bus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 失效通知消息的编解码<br/>
+ * 格式：版本(2) + 发布节点ID + KEY个数(2) + KEY...，字符串为长度(4) + UTF-8字节<br/>
+ * 版本1的字符串使用writeUTF（不能超过64K），只用于解码旧节点发布的消息
+ * 
+ * @author hjc
+ *
+ */
+public class InvalidationMessage {
+    private static final byte    VERSION_UTF = 1;
+    private static final byte    VERSION     = 2;
+    private static final Charset UTF8        = Charset.forName("UTF-8");
+    private final String         nodeId;
+    private final List<String>   fullKeys;
+
+    public InvalidationMessage(String nodeId, List<String> fullKeys) {
+        this.nodeId = nodeId;
+        this.fullKeys = fullKeys;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getFullKeys() {
+        return fullKeys;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 + fullKeys.size() * 32);
+        DataOutputStream out = new DataOutputStream(bos);
+        try {
+            out.writeByte(VERSION);
+            writeString(out, nodeId);
+            out.writeShort(fullKeys.size());
+            for (String fullKey : fullKeys) {
+                writeString(out, fullKey);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * 解码
+     * 
+     * @param data
+     *            消息
+     * @return 消息，格式不对返回null
+     */
+    public static InvalidationMessage decode(byte[] data) {
+        if (data == null || data.length < 1 || (data[0] != VERSION && data[0] != VERSION_UTF)) {
+            return null;
+        }
+
+        boolean utf = data[0] == VERSION_UTF;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+        try {
+            String nodeId = utf ? in.readUTF() : readString(in, data.length);
+            int count = in.readUnsignedShort();
+            List<String> fullKeys = new ArrayList<String>(count);
+            for (int i = 0; i < count; ++i) {
+                fullKeys.add(utf ? in.readUTF() : readString(in, data.length));
+            }
+            return new InvalidationMessage(nodeId, fullKeys);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("字符串长度错误：" + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+}
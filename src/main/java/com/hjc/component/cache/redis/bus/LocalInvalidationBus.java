@@ -0,0 +1,64 @@
+package com.hjc.component.cache.redis.bus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的失效通知总线（不依赖redis，用于测试）<br/>
+ * 同一频道的多个实例相当于多个节点，消息在内存中直接投递
+ * 
+ * @author hjc
+ *
+ */
+public class LocalInvalidationBus extends AbstractInvalidationBus {
+    private static final Map<String, List<LocalInvalidationBus>> channels = new ConcurrentHashMap<String, List<LocalInvalidationBus>>();
+    private final String                                         channel;
+
+    public LocalInvalidationBus(String channel) {
+        this(channel, 100, 10);
+    }
+
+    public LocalInvalidationBus(String channel, int batchSize, long batchInterval) {
+        super(channel, batchSize, batchInterval);
+        this.channel = channel;
+        List<LocalInvalidationBus> members = channels.get(channel);
+        if (members == null) {
+            synchronized (channels) {
+                members = channels.get(channel);
+                if (members == null) {
+                    members = new CopyOnWriteArrayList<LocalInvalidationBus>();
+                    channels.put(channel, members);
+                }
+            }
+        }
+        members.add(this);
+    }
+
+    @Override
+    protected void send(byte[] message) {
+        List<LocalInvalidationBus> members = channels.get(channel);
+        if (members != null) {
+            for (LocalInvalidationBus bus : members) {
+                bus.deliver(message);
+            }
+        }
+    }
+
+    /**
+     * 模拟订阅中断后重新订阅
+     */
+    public void simulateReconnect() {
+        deliverFlush();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        List<LocalInvalidationBus> members = channels.get(channel);
+        if (members != null) {
+            members.remove(this);
+        }
+    }
+}
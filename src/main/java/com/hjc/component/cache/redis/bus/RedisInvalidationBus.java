@@ -0,0 +1,107 @@
+package com.hjc.component.cache.redis.bus;
+
+import com.hjc.component.cache.redis.IBinaryJedis;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 基于redis发布订阅的失效通知总线<br/>
+ * 订阅在独立线程上执行，连接中断后自动重新订阅，重新订阅成功后通知全部清空
+ * 
+ * @author hjc
+ *
+ */
+public class RedisInvalidationBus extends AbstractInvalidationBus {
+    private final IBinaryJedis         jedis;
+    private final byte[]               channel;
+    private final int                  reconnectInterval;
+    private final Thread               subscriber;
+    private volatile boolean           closed;
+    private volatile boolean           subscribed;
+    private volatile BinaryJedisPubSub pubSub;
+
+    /**
+     * @param jedis
+     *            redis客户端
+     * @param channel
+     *            频道
+     * @param batchSize
+     *            每条消息最多包含的KEY数
+     * @param batchInterval
+     *            发送间隔，单位：毫秒
+     * @param reconnectInterval
+     *            重新订阅间隔，单位：毫秒
+     */
+    public RedisInvalidationBus(IBinaryJedis jedis, String channel, int batchSize,
+        long batchInterval, int reconnectInterval) {
+        super(channel, batchSize, batchInterval);
+        this.jedis = jedis;
+        this.channel = SafeEncoder.encode(channel);
+        this.reconnectInterval = Math.max(10, reconnectInterval);
+        this.subscriber = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                subscribeLoop();
+            }
+        }, "cache-invalidation-sub-" + channel);
+        this.subscriber.setDaemon(true);
+        this.subscriber.start();
+    }
+
+    @Override
+    protected void send(byte[] message) {
+        jedis.publish(channel, message);
+    }
+
+    private void subscribeLoop() {
+        while (!closed) {
+            BinaryJedisPubSub ps = new BinaryJedisPubSub() {
+                @Override
+                public void onMessage(byte[] channel, byte[] message) {
+                    deliver(message);
+                }
+
+                @Override
+                public void onSubscribe(byte[] channel, int subscribedChannels) {
+                    if (subscribed) {
+                        // 重新订阅：中断期间的通知可能丢失
+                        logger.warn("缓存失效通知重新订阅成功，清空本地缓存");
+                        deliverFlush();
+                    }
+                    subscribed = true;
+                }
+            };
+            pubSub = ps;
+            try {
+                jedis.subscribe(ps, channel);
+            } catch (Throwable t) {
+                if (!closed) {
+                    logger.error("缓存失效通知订阅中断", t);
+                }
+            }
+
+            if (!closed) {
+                try {
+                    Thread.sleep(reconnectInterval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        BinaryJedisPubSub ps = pubSub;
+        if (ps != null && ps.isSubscribed()) {
+            try {
+                ps.unsubscribe();
+            } catch (Throwable ignore) {
+            }
+        }
+        subscriber.interrupt();
+        super.close();
+    }
+}
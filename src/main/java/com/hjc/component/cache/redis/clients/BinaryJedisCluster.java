@@ -1,27 +1,41 @@
 package com.hjc.component.cache.redis.clients;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.hjc.component.cache.redis.BaseBinaryJedis;
+import com.hjc.component.cache.redis.ISlotCommand;
+import com.hjc.component.cache.redis.SlotUtil;
 import redis.clients.jedis.BinaryClient.LIST_POSITION;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
 
-public class BinaryJedisCluster extends BaseBinaryJedis {
+public class BinaryJedisCluster extends BaseBinaryJedis implements ISlotCommand {
+    private static final Logger             logger                   = LoggerFactory
+        .getLogger(BinaryJedisCluster.class);
     protected static final short            HASHSLOTS                = 16384;
     protected static final int              DEFAULT_TIMEOUT          = 2000;
     protected static final int              DEFAULT_MAX_REDIRECTIONS = 5;
     protected int                           maxAttempts;
     protected JedisClusterConnectionHandler connectionHandler;
+    protected HedgedReader                  hedgedReader;
     
     public BinaryJedisCluster(Properties props) {
         JedisPoolConfig jpc = getConfig(props);
@@ -42,14 +56,48 @@ public class BinaryJedisCluster extends BaseBinaryJedis {
         String password = getProperty(props, "password", null);
         int slowtime = getProperty(props, "slowtime", 500);
         boolean quietly = getProperty(props, "quietly", true);
+        int refreshInterval = getProperty(props, "refresh-interval",
+            JedisClusterConnectionHandler.DEFAULT_REFRESH_INTERVAL);
+        int refreshPeriod = getProperty(props, "refresh-period",
+            JedisClusterConnectionHandler.DEFAULT_REFRESH_PERIOD);
+        ReadStrategy readStrategy = ReadStrategy.of(getProperty(props, "read-strategy", "p2c"));
+        
+        NodeCircuitBreaker breaker = new NodeCircuitBreaker(
+            getProperty(props, "breaker-error-percent", NodeCircuitBreaker.DEFAULT_ERROR_PERCENT),
+            getProperty(props, "breaker-min-requests", NodeCircuitBreaker.DEFAULT_MIN_REQUESTS),
+            getProperty(props, "breaker-consecutive", NodeCircuitBreaker.DEFAULT_CONSECUTIVE),
+            getProperty(props, "breaker-window", NodeCircuitBreaker.DEFAULT_WINDOW),
+            getProperty(props, "breaker-probe-interval", NodeCircuitBreaker.DEFAULT_PROBE_INTERVAL));
         
         this.connectionHandler = new JedisSlotBasedConnectionHandler(nodes, jpc, connectionTimeout,
-            soTimeout, password, slowtime, quietly);
+            soTimeout, password, slowtime, quietly, refreshInterval, refreshPeriod, readStrategy,
+            breaker);
         this.maxAttempts = maxRedirections;
+        
+        int hedgePercentile = getProperty(props, "hedge-percentile",
+            HedgedReader.DEFAULT_PERCENTILE);
+        int hedgeMinBudget = getProperty(props, "hedge-min-budget",
+            HedgedReader.DEFAULT_MIN_BUDGET);
+        int hedgeMaxPercent = getProperty(props, "hedge-max-percent",
+            HedgedReader.DEFAULT_MAX_PERCENT);
+        int hedgeThreads = getProperty(props, "hedge-threads", HedgedReader.DEFAULT_THREADS);
+        this.hedgedReader = new HedgedReader(hedgePercentile, hedgeMinBudget, hedgeMaxPercent,
+            hedgeThreads, connectionTimeout + soTimeout);
+    }
+    
+    public HedgedReader getHedgedReader() {
+        return hedgedReader;
+    }
+    
+    public NodeCircuitBreaker getBreaker() {
+        return connectionHandler.getBreaker();
     }
     
     @Override
     public void close() throws IOException {
+        if (hedgedReader != null) {
+            hedgedReader.close();
+        }
         if (connectionHandler != null) {
             connectionHandler.close();
         }
@@ -215,6 +263,17 @@ public class BinaryJedisCluster extends BaseBinaryJedis {
         }.runBinary(false, key);
     }
     
+    @Override
+    public String set(final byte[] key, final byte[] value, final byte[] nxxx,
+        final byte[] expx, final long time) {
+        return new JedisClusterCommand<String>(connectionHandler, maxAttempts) {
+            @Override
+            public String execute(Jedis connection) {
+                return connection.set(key, value, nxxx, expx, time);
+            }
+        }.runBinary(false, key);
+    }
+    
     @Override
     public Long setnx(final byte[] key, final byte[] value) {
         return new JedisClusterCommand<Long>(connectionHandler, maxAttempts) {
@@ -827,4 +886,281 @@ public class BinaryJedisCluster extends BaseBinaryJedis {
         }.runBinary(true, key);
     }
     
+    @Override
+    public List<byte[]> mget(final byte[]... keys) {
+        // 按节点分组，每个节点一个连接，用管道执行各slot的MGET；出错（如MOVED/ASK）的slot再单独执行
+        byte[][] values = new byte[keys.length][];
+        for (Map.Entry<JedisPool, Map<Integer, List<Integer>>> node : groupByNode(keys, true)
+            .entrySet()) {
+            final Map<Integer, List<Integer>> slots = node.getValue();
+            List<Object> replies = null;
+            if (node.getKey() != null) {
+                try {
+                    replies = new JedisClusterCommand<List<Object>>(connectionHandler,
+                        maxAttempts) {
+                        @Override
+                        public List<Object> execute(Jedis connection) {
+                            Pipeline pipeline = connection.pipelined();
+                            for (List<Integer> indexes : slots.values()) {
+                                pipeline.mget(SlotUtil.select(keys, indexes));
+                            }
+                            return pipeline.syncAndReturnAll();
+                        }
+                    }.runOnNode(node.getKey(), keys[firstIndex(slots)]);
+                } catch (JedisException e) {
+                    logger.warn("mget pipeline failed, retry by slot:" + e.getMessage());
+                }
+            }
+            
+            int pos = 0;
+            for (Map.Entry<Integer, List<Integer>> e : slots.entrySet()) {
+                List<Integer> indexes = e.getValue();
+                Object reply = replies != null ? replies.get(pos++) : null;
+                List<byte[]> list = reply instanceof List ? castList(reply)
+                    : mget(e.getKey(), SlotUtil.select(keys, indexes));
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < indexes.size(); ++i) {
+                    values[indexes.get(i)] = list.get(i);
+                }
+            }
+        }
+        return Arrays.asList(values);
+    }
+    
+    /**
+     * 单个slot的MGET（处理重定向和重试）
+     */
+    private List<byte[]> mget(int slot, final byte[][] slotKeys) {
+        return new JedisClusterCommand<List<byte[]>>(connectionHandler, maxAttempts) {
+            @Override
+            public List<byte[]> execute(Jedis connection) {
+                return connection.mget(slotKeys);
+            }
+        }.runBinary(slot, true, slotKeys[0]);
+    }
+    
+    @Override
+    public void msetex(final byte[][] keys, final byte[][] values, final int[] seconds) {
+        // 按节点分组，每个节点一个连接，用管道执行；出错（如MOVED/ASK）的slot再单独执行
+        for (Map.Entry<JedisPool, Map<Integer, List<Integer>>> node : groupByNode(keys, false)
+            .entrySet()) {
+            final Map<Integer, List<Integer>> slots = node.getValue();
+            List<Object> replies = null;
+            if (node.getKey() != null) {
+                try {
+                    replies = new JedisClusterCommand<List<Object>>(connectionHandler,
+                        maxAttempts) {
+                        @Override
+                        public List<Object> execute(Jedis connection) {
+                            Pipeline pipeline = connection.pipelined();
+                            for (List<Integer> indexes : slots.values()) {
+                                set(pipeline, keys, values, seconds, indexes);
+                            }
+                            return pipeline.syncAndReturnAll();
+                        }
+                    }.runOnNode(node.getKey(), keys[firstIndex(slots)]);
+                } catch (JedisException e) {
+                    logger.warn("msetex pipeline failed, retry by slot:" + e.getMessage());
+                }
+            }
+            
+            int pos = 0;
+            for (Map.Entry<Integer, List<Integer>> e : slots.entrySet()) {
+                final List<Integer> indexes = e.getValue();
+                boolean ok = replies != null;
+                for (int i = 0; i < indexes.size(); ++i) {
+                    if (replies != null && replies.get(pos++) instanceof Exception) {
+                        ok = false;
+                    }
+                }
+                if (ok) {
+                    continue;
+                }
+                
+                new JedisClusterCommand<Integer>(connectionHandler, maxAttempts) {
+                    @Override
+                    public Integer execute(Jedis connection) {
+                        Pipeline pipeline = connection.pipelined();
+                        set(pipeline, keys, values, seconds, indexes);
+                        pipeline.sync();
+                        return indexes.size();
+                    }
+                }.runBinary(e.getKey(), false, keys[indexes.get(0)]);
+            }
+        }
+    }
+    
+    private static void set(Pipeline pipeline, byte[][] keys, byte[][] values, int[] seconds,
+        List<Integer> indexes) {
+        for (int i : indexes) {
+            if (seconds[i] > 0) {
+                pipeline.setex(keys[i], seconds[i], values[i]);
+            } else {
+                pipeline.set(keys[i], values[i]);
+            }
+        }
+    }
+    
+    /**
+     * 按节点对KEY分组：读命令取slot的读节点，写命令取主节点；路由信息未包含的slot归入null
+     * 
+     * @param keys
+     *            KEY
+     * @param readonly
+     *            是否只读
+     * @return 节点 -> (slot -> KEY在keys中的下标)
+     */
+    private Map<JedisPool, Map<Integer, List<Integer>>> groupByNode(byte[][] keys,
+        boolean readonly) {
+        Map<JedisPool, Map<Integer, List<Integer>>> nodes = new LinkedHashMap<JedisPool, Map<Integer, List<Integer>>>();
+        for (Map.Entry<Integer, List<Integer>> e : SlotUtil.groupBySlot(keys).entrySet()) {
+            JedisSlotInfo slotInfo = connectionHandler.getSlotInfo(e.getKey());
+            JedisPool pool = null;
+            if (slotInfo != null) {
+                pool = readonly ? slotInfo.getReadPool() : slotInfo.getMasterPool();
+            }
+            Map<Integer, List<Integer>> slots = nodes.get(pool);
+            if (slots == null) {
+                slots = new LinkedHashMap<Integer, List<Integer>>();
+                nodes.put(pool, slots);
+            }
+            slots.put(e.getKey(), e.getValue());
+        }
+        return nodes;
+    }
+    
+    private static int firstIndex(Map<Integer, List<Integer>> slots) {
+        return slots.values().iterator().next().get(0);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<byte[]> castList(Object reply) {
+        return (List<byte[]>) reply;
+    }
+    
+    @Override
+    public Object eval(final byte[] script, final List<byte[]> keys, final List<byte[]> args) {
+        return new JedisClusterCommand<Object>(connectionHandler, maxAttempts) {
+            @Override
+            public Object execute(Jedis connection) {
+                return connection.eval(script, keys, args);
+            }
+        }.runBinary(false, keys.get(0));
+    }
+    
+    @Override
+    public Long publish(final byte[] channel, final byte[] message) {
+        return new JedisClusterCommand<Long>(connectionHandler, maxAttempts) {
+            @Override
+            public Long execute(Jedis connection) {
+                return connection.publish(channel, message);
+            }
+        }.runWithAnyNode();
+    }
+    
+    @Override
+    public void subscribe(final BinaryJedisPubSub jedisPubSub, final byte[]... channels) {
+        new JedisClusterCommand<Integer>(connectionHandler, maxAttempts) {
+            @Override
+            public Integer execute(Jedis connection) {
+                connection.subscribe(jedisPubSub, channels);
+                return 0;
+            }
+        }.runWithAnyNode();
+    }
+    
+    // 指定slot的命令
+    
+    @Override
+    public byte[] get(int slot, final byte[] key) {
+        return new JedisClusterCommand<byte[]>(connectionHandler, maxAttempts) {
+            @Override
+            public byte[] execute(Jedis connection) {
+                return connection.get(key);
+            }
+        }.runBinary(slot, true, key);
+    }
+    
+    @Override
+    public byte[] getHedged(int slot, final byte[] key) {
+        return new JedisClusterCommand<byte[]>(connectionHandler, maxAttempts) {
+            @Override
+            public byte[] execute(Jedis connection) {
+                return connection.get(key);
+            }
+        }.runHedged(slot, key, hedgedReader);
+    }
+    
+    @Override
+    public String set(int slot, final byte[] key, final byte[] value) {
+        return new JedisClusterCommand<String>(connectionHandler, maxAttempts) {
+            @Override
+            public String execute(Jedis connection) {
+                return connection.set(key, value);
+            }
+        }.runBinary(slot, false, key);
+    }
+    
+    @Override
+    public String setex(int slot, final byte[] key, final int seconds, final byte[] value) {
+        return new JedisClusterCommand<String>(connectionHandler, maxAttempts) {
+            @Override
+            public String execute(Jedis connection) {
+                return connection.setex(key, seconds, value);
+            }
+        }.runBinary(slot, false, key);
+    }
+    
+    @Override
+    public Long del(int slot, final byte[] key) {
+        return new JedisClusterCommand<Long>(connectionHandler, maxAttempts) {
+            @Override
+            public Long execute(Jedis connection) {
+                return connection.del(key);
+            }
+        }.runBinary(slot, false, key);
+    }
+    
+    @Override
+    public byte[] hget(int slot, final byte[] key, final byte[] field) {
+        return new JedisClusterCommand<byte[]>(connectionHandler, maxAttempts) {
+            @Override
+            public byte[] execute(Jedis connection) {
+                return connection.hget(key, field);
+            }
+        }.runBinary(slot, true, key);
+    }
+    
+    @Override
+    public byte[] hgetHedged(int slot, final byte[] key, final byte[] field) {
+        return new JedisClusterCommand<byte[]>(connectionHandler, maxAttempts) {
+            @Override
+            public byte[] execute(Jedis connection) {
+                return connection.hget(key, field);
+            }
+        }.runHedged(slot, key, hedgedReader);
+    }
+    
+    @Override
+    public Long hset(int slot, final byte[] key, final byte[] field, final byte[] value) {
+        return new JedisClusterCommand<Long>(connectionHandler, maxAttempts) {
+            @Override
+            public Long execute(Jedis connection) {
+                return connection.hset(key, field, value);
+            }
+        }.runBinary(slot, false, key);
+    }
+    
+    @Override
+    public Long hdel(int slot, final byte[] key, final byte[]... field) {
+        return new JedisClusterCommand<Long>(connectionHandler, maxAttempts) {
+            @Override
+            public Long execute(Jedis connection) {
+                return connection.hdel(key, field);
+            }
+        }.runBinary(slot, false, key);
+    }
+    
 }
@@ -0,0 +1,39 @@
+package com.hjc.component.cache.redis.clients;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocketFactory;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 集群节点的连接，关联所属节点的延迟统计
+ *
+ * @author hjc
+ *
+ */
+public class ClusterJedis extends Jedis {
+    private final NodeLatency latency;
+
+    public ClusterJedis(final String host, final int port, final int connectionTimeout,
+        final int soTimeout, final boolean ssl, final SSLSocketFactory sslSocketFactory,
+        final SSLParameters sslParameters, final HostnameVerifier hostnameVerifier,
+        final NodeLatency latency) {
+        super(host, port, connectionTimeout, soTimeout, ssl, sslSocketFactory, sslParameters,
+            hostnameVerifier);
+        this.latency = latency;
+    }
+
+    public NodeLatency getLatency() {
+        return latency;
+    }
+
+    /**
+     * 所属的连接池（节点）
+     *
+     * @return 不是从JedisClusterPool获取的连接时返回null
+     */
+    public JedisClusterPool getPool() {
+        return dataSource instanceof JedisClusterPool ? (JedisClusterPool) dataSource : null;
+    }
+}
@@ -0,0 +1,132 @@
+package com.hjc.component.cache.redis.clients;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.HostAndPort;
+
+/**
+ * 集群拓扑的后台刷新<br/>
+ * 1、MOVED时立即更新单个slot，再提交一次全量刷新<br/>
+ * 2、全量刷新（CLUSTER SLOTS）在专用线程执行，多次请求合并为一次，两次刷新的间隔不小于minInterval<br/>
+ * 3、按period周期刷新<br/>
+ * 请求线程不等待拓扑的网络IO
+ *
+ * @author hjc
+ *
+ */
+public class ClusterTopologyRefresher {
+    private static final Logger            logger     = LoggerFactory
+        .getLogger(ClusterTopologyRefresher.class);
+    private final JedisClusterInfoCache    cache;
+    private final long                     minInterval;                    // 两次全量刷新的最小间隔,单位：毫秒
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean            pending    = new AtomicBoolean();
+    private volatile long                  lastRefresh;
+    /**
+     * 执行的全量刷新次数
+     */
+    private final AtomicLong               refreshes  = new AtomicLong();
+    /**
+     * MOVED更新的slot次数
+     */
+    private final AtomicLong               movedSlots = new AtomicLong();
+
+    /**
+     * 构造
+     *
+     * @param cache
+     *            集群路由信息
+     * @param minInterval
+     *            两次全量刷新的最小间隔,单位：毫秒
+     * @param period
+     *            周期刷新的间隔,单位：秒，小于等于0时不周期刷新
+     */
+    public ClusterTopologyRefresher(JedisClusterInfoCache cache, long minInterval, int period) {
+        this.cache = cache;
+        this.minInterval = Math.max(0, minInterval);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "redis-cluster-refresh");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        if (period > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    requestRefresh();
+                }
+            }, period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 请求全量刷新（已有等待中的刷新时忽略，距上次刷新不足minInterval时延迟执行）
+     */
+    public void requestRefresh() {
+        if (!pending.compareAndSet(false, true)) {
+            return;// 合并到等待中的刷新
+        }
+
+        long delay = lastRefresh + minInterval - System.currentTimeMillis();
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    refresh();
+                }
+            }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            pending.set(false);// 已关闭
+        }
+    }
+
+    private void refresh() {
+        pending.set(false);// 刷新期间的新请求再排一次
+        try {
+            cache.renewClusterSlots(null);
+            refreshes.incrementAndGet();
+        } catch (Throwable t) {
+            logger.error("刷新集群拓扑异常", t);
+        } finally {
+            lastRefresh = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * MOVED：立即更新slot的主节点，并请求全量刷新
+     *
+     * @param slot
+     *            slot
+     * @param node
+     *            新的主节点
+     */
+    public void moved(int slot, HostAndPort node) {
+        if (cache.assignSlot(slot, node)) {
+            movedSlots.incrementAndGet();
+        }
+        requestRefresh();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getMovedSlots() {
+        return movedSlots.get();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+}
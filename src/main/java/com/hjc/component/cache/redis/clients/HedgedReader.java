@@ -0,0 +1,364 @@
+package com.hjc.component.cache.redis.clients;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 集群读命令的对冲（hedged read）<br/>
+ * 1、先在一个读节点上执行，超过延迟预算（最近读延迟的百分位）未返回时，在同slot的另一个读节点上再执行一次，先返回的结果生效<br/>
+ * 2、对冲请求数不超过读请求数的maxPercent%（令牌桶），执行线程池满时不对冲<br/>
+ * 3、样本不足（还没有预算）或线程池满时，直接在调用线程上走普通的读路径（不切换线程，只执行一次）<br/>
+ * 4、对冲执行失败时，在调用线程上走普通的读路径（含重试）
+ *
+ * @author hjc
+ *
+ */
+public class HedgedReader {
+    private static final Logger      logger              = LoggerFactory.getLogger(HedgedReader.class);
+    public static final int          DEFAULT_PERCENTILE  = 95;
+    public static final int          DEFAULT_MIN_BUDGET  = 500;            // 延迟预算的下限,单位：微秒
+    public static final int          DEFAULT_MAX_PERCENT = 10;
+    public static final int          DEFAULT_THREADS     = 32;
+    private static final int         BUCKETS             = 128;            // 每个2的幂再分4档，最大约2^32微秒
+    private static final int         SAMPLES             = 512;            // 每SAMPLES个样本重新计算一次预算
+    private static final long        TOKEN               = 1000;           // 一次对冲消耗的令牌
+    private static final long        MAX_TOKENS          = 10 * TOKEN;     // 最多累积10次对冲
+    private final int                percentile;
+    private final long               minBudget;
+    private final long               credit;                               // 每次读请求增加的令牌
+    private final long               maxWait;                              // 等待结果的最长时间,单位：毫秒
+    private final ThreadPoolExecutor executor;
+    private final AtomicLongArray    histogram           = new AtomicLongArray(BUCKETS);
+    private final AtomicInteger      samples             = new AtomicInteger();
+    private final AtomicBoolean      computing           = new AtomicBoolean();
+    private final AtomicLong         tokens              = new AtomicLong();
+    private volatile long            budget              = -1;             // 延迟预算,单位：微秒，样本不足时为-1（不对冲）
+    /**
+     * 经过对冲路径的读请求数
+     */
+    private final AtomicLong         reads               = new AtomicLong();
+    /**
+     * 发出的对冲请求数
+     */
+    private final AtomicLong         hedges              = new AtomicLong();
+    /**
+     * 对冲请求先返回的次数
+     */
+    private final AtomicLong         wins                = new AtomicLong();
+    /**
+     * 超过预算但因额外负载上限（或线程池满）未对冲的次数
+     */
+    private final AtomicLong         skipped             = new AtomicLong();
+    /**
+     * 线程池满，直接在调用线程上执行的次数
+     */
+    private final AtomicLong         rejected            = new AtomicLong();
+
+    /**
+     * 读命令
+     *
+     * @param <T>
+     *            返回值类型
+     */
+    public interface Read<T> {
+        /**
+         * 在指定节点上执行
+         *
+         * @param pool
+         *            节点
+         * @return 执行结果
+         */
+        T read(JedisPool pool);
+
+        /**
+         * 在调用线程上走普通的读路径（选择读节点、重定向和重试）
+         *
+         * @return 执行结果
+         */
+        T read();
+    }
+
+    /**
+     * 构造
+     *
+     * @param percentile
+     *            延迟预算取最近读延迟的百分位（1-99）
+     * @param minBudget
+     *            延迟预算的下限,单位：微秒
+     * @param maxPercent
+     *            对冲请求数占读请求数的上限（百分比）
+     * @param threads
+     *            执行线程数
+     * @param maxWait
+     *            等待结果的最长时间,单位：毫秒
+     */
+    public HedgedReader(int percentile, int minBudget, int maxPercent, int threads, long maxWait) {
+        this.percentile = Math.min(99, Math.max(1, percentile));
+        this.minBudget = Math.max(0, minBudget);
+        this.credit = TOKEN * Math.min(100, Math.max(0, maxPercent)) / 100;
+        this.maxWait = Math.max(1, maxWait);
+        this.executor = new ThreadPoolExecutor(1, Math.max(2, threads), 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger seq = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "redis-hedged-read-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+
+    /**
+     * 对冲执行读命令
+     *
+     * @param slotInfo
+     *            slot的节点（至少两个读节点）
+     * @param read
+     *            读命令
+     * @return 先返回的结果
+     */
+    public <T> T read(JedisSlotInfo slotInfo, Read<T> read) {
+        reads.incrementAndGet();
+        addToken();
+
+        long wait = budget;
+        if (wait < 0) {
+            return direct(read);// 样本不足，不对冲
+        }
+
+        JedisPool primary = slotInfo.getReadPool();
+        ExecutorCompletionService<T> ecs = new ExecutorCompletionService<T>(executor);
+        Future<T> first;
+        try {
+            first = ecs.submit(task(primary, read));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return direct(read);
+        }
+
+        JedisException error = null;
+        try {
+            Future<T> done = ecs.poll(wait, TimeUnit.MICROSECONDS);
+            if (done != null) {
+                return result(done);
+            }
+
+            int outstanding = 1;
+            JedisPool other = slotInfo.getReadPool(primary);
+            if (other != null) {
+                if (takeToken()) {
+                    try {
+                        ecs.submit(task(other, read));
+                        outstanding++;
+                        hedges.incrementAndGet();
+                    } catch (RejectedExecutionException e) {
+                        tokens.addAndGet(TOKEN);
+                        skipped.incrementAndGet();
+                    }
+                } else {
+                    skipped.incrementAndGet();
+                }
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWait);
+            while (outstanding > 0) {
+                done = ecs.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+                outstanding--;
+                try {
+                    T out = result(done);
+                    if (done != first) {
+                        wins.incrementAndGet();
+                    }
+                    return out;
+                } catch (JedisException e) {
+                    error = e;// 等待另一个
+                }
+            }
+            if (error == null) {
+                error = new JedisConnectionException("hedged read timeout");
+            }
+        } catch (JedisException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException(e);
+        }
+
+        logger.warn("hedged read failed, retry:" + error.getMessage());
+        return read.read();
+    }
+
+    /**
+     * 在调用线程上执行，并记录延迟（样本不足时积累样本）
+     */
+    private <T> T direct(Read<T> read) {
+        long st = System.nanoTime();
+        try {
+            return read.read();
+        } finally {
+            record((System.nanoTime() - st) / 1000);
+        }
+    }
+
+    private <T> Callable<T> task(final JedisPool pool, final Read<T> read) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                long st = System.nanoTime();
+                try {
+                    return read.read(pool);
+                } finally {
+                    record((System.nanoTime() - st) / 1000);
+                }
+            }
+        };
+    }
+
+    private static <T> T result(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JedisException) {
+                throw (JedisException) cause;
+            }
+            throw new JedisException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException(e);
+        }
+    }
+
+    private void addToken() {
+        long current = tokens.get();
+        if (current < MAX_TOKENS) {
+            tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + credit));// 竞争失败时少加一次，无影响
+        }
+    }
+
+    private boolean takeToken() {
+        for (;;) {
+            long current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 记录一次读延迟，每SAMPLES个样本重新计算预算，并将直方图减半（逐渐淡化旧样本）
+     */
+    private void record(long micros) {
+        histogram.incrementAndGet(bucket(micros));
+        if (samples.incrementAndGet() < SAMPLES || !computing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            samples.set(0);
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            long rank = total * percentile / 100;
+            long seen = 0;
+            int i = 0;
+            for (; i < BUCKETS - 1; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    break;
+                }
+            }
+            budget = Math.max(minBudget, upper(i));
+            for (int j = 0; j < BUCKETS; j++) {
+                histogram.addAndGet(j, -(counts[j] >> 1));
+            }
+        } finally {
+            computing.set(false);
+        }
+    }
+
+    /**
+     * 延迟所在的档：小于4微秒每微秒一档，之后每个2的幂分4档
+     */
+    static int bucket(long micros) {
+        if (micros < 4) {
+            return (int) Math.max(0, micros);
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exp - 2)) & 3;
+        return Math.min(BUCKETS - 1, exp * 4 + sub - 4);
+    }
+
+    /**
+     * 档的上界（不含）,单位：微秒
+     */
+    static long upper(int bucket) {
+        if (bucket < 4) {
+            return bucket + 1;
+        }
+        int exp = bucket / 4 + 1;
+        int sub = bucket % 4;
+        return (long) (5 + sub) << (exp - 2);
+    }
+
+    /**
+     * 当前的延迟预算
+     *
+     * @return 单位：微秒，样本不足时为-1
+     */
+    public long getBudgetMicros() {
+        return budget;
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    public long getWins() {
+        return wins.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.exceptions.JedisAskDataException;
 import redis.clients.jedis.exceptions.JedisClusterException;
 import redis.clients.jedis.exceptions.JedisClusterMaxRedirectionsException;
@@ -29,12 +30,27 @@ public abstract class JedisClusterCommand<T> {
     public abstract T execute(Jedis connection);
     
     private T doExecute(Jedis connection, byte[] key, boolean readonly) {
-        long st = System.currentTimeMillis();
+        NodeLatency latency = connection instanceof ClusterJedis
+            ? ((ClusterJedis) connection).getLatency() : null;
+        if (latency != null) {
+            latency.begin();
+        }
+        long st = System.nanoTime();
         T out = null;
+        boolean ok = false;
         try {
             out = execute(connection);
+            ok = true;
+        } catch (RuntimeException e) {
+            ok = !(e instanceof JedisConnectionException);// 返回了错误信息（如MOVED）时节点可用
+            throw e;
         } finally {
-            long cst = System.currentTimeMillis() - st;
+            long nanos = System.nanoTime() - st;
+            if (latency != null) {
+                latency.end(nanos);// 失败（如超时）也计入延迟
+            }
+            connectionHandler.recordResult(connection, ok);
+            long cst = nanos / 1000000;
             if (cst > connectionHandler.getSlowtime()) {
                 StringBuilder msg = new StringBuilder(JedisClusterInfoCache.getNodeKey(connection))
                         .append(" -> ").append(cst).append(" ms,key: " + SafeEncoder.encode(key));
@@ -57,7 +73,71 @@ public abstract class JedisClusterCommand<T> {
             }
             throw new JedisClusterException(msg);
         }
-        return runWithRetries(key, this.maxAttempts, false, null, readonly);
+        return runWithRetries(JedisClusterCRC16.getSlot(key), key, this.maxAttempts, false, null,
+            readonly);
+    }
+    
+    /**
+     * 使用预先计算的slot执行
+     * 
+     * @param slot
+     *            KEY的slot
+     * @param readonly
+     *            是否只读
+     * @param key
+     *            KEY
+     * @return 执行结果
+     */
+    public T runBinary(int slot, boolean readonly, byte[] key) {
+        return runWithRetries(slot, key, this.maxAttempts, false, null, readonly);
+    }
+    
+    /**
+     * 对冲执行只读命令：slot有多个读节点时由hedger在两个读节点上执行，不对冲或失败时走普通的重试路径
+     * 
+     * @param slot
+     *            KEY的slot
+     * @param key
+     *            KEY
+     * @param hedger
+     *            对冲读
+     * @return 执行结果
+     */
+    public T runHedged(final int slot, final byte[] key, HedgedReader hedger) {
+        JedisSlotInfo slotInfo = connectionHandler.getSlotInfo(slot);
+        if (slotInfo == null || slotInfo.getReadCount() < 2) {
+            return runBinary(slot, true, key);
+        }
+        
+        return hedger.read(slotInfo, new HedgedReader.Read<T>() {
+            @Override
+            public T read(JedisPool pool) {
+                return runOnNode(pool, key);
+            }
+            
+            @Override
+            public T read() {
+                return runBinary(slot, true, key);
+            }
+        });
+    }
+    
+    /**
+     * 在指定节点上执行一次（不处理重定向和重试，用于按节点分组的管道和对冲读）
+     * 
+     * @param pool
+     *            节点
+     * @param key
+     *            KEY（用于慢日志）
+     * @return 执行结果
+     */
+    public T runOnNode(JedisPool pool, byte[] key) {
+        Jedis jedis = connectionHandler.getResource(pool);
+        try {
+            return doExecute(jedis, key, true);
+        } finally {
+            releaseConnection(jedis);
+        }
     }
     
     public T runBinary(boolean readonly, int keyCount, byte[]... keys) {
@@ -72,8 +152,8 @@ public abstract class JedisClusterCommand<T> {
         
         // For multiple keys, only execute if they all share the
         // same connection slot.
+        int slot = JedisClusterCRC16.getSlot(keys[0]);
         if (keys.length > 1) {
-            int slot = JedisClusterCRC16.getSlot(keys[0]);
             for (int i = 1; i < keyCount; i++) {
                 int nextSlot = JedisClusterCRC16.getSlot(keys[i]);
                 if (slot != nextSlot) {
@@ -84,11 +164,32 @@ public abstract class JedisClusterCommand<T> {
             }
         }
         
-        return runWithRetries(keys[0], this.maxAttempts, false, null, readonly);
+        return runWithRetries(slot, keys[0], this.maxAttempts, false, null, readonly);
+    }
+    
+    /**
+     * 在任意一个可用节点上执行（用于与KEY无关的命令，如发布订阅）
+     * 
+     * @return 执行结果
+     */
+    public T runWithAnyNode() {
+        Jedis connection = null;
+        try {
+            connection = connectionHandler.getJedis();
+            return execute(connection);
+        } catch (JedisConnectionException jce) {
+            if (connectionHandler.isQuietly()) {
+                logger.error("runWithAnyNode->" + jce.getMessage());
+                return null;
+            }
+            throw jce;
+        } finally {
+            releaseConnection(connection);
+        }
     }
     
-    private T runWithRetries(byte[] key, int attempts, boolean tryRandomNode, Jedis askJedis,
-        boolean readonly) {
+    private T runWithRetries(int slot, byte[] key, int attempts, boolean tryRandomNode,
+        Jedis askJedis, boolean readonly) {
         if (attempts <= 0) {
             String msg = "Too many Cluster redirections?";
             if (connectionHandler.isQuietly()) {
@@ -107,7 +208,6 @@ public abstract class JedisClusterCommand<T> {
                 if (tryRandomNode) {//随机
                     jedis = connectionHandler.getJedis();
                 } else {
-                    int slot = JedisClusterCRC16.getSlot(key);
                     if (readonly) {//只读
                         jedis = connectionHandler.getReadJedisFromSlot(slot);
                     } else {//读写
@@ -117,6 +217,12 @@ public abstract class JedisClusterCommand<T> {
             }
             
             return doExecute(jedis, key, readonly);
+        } catch (JedisNodeUnavailableException jnue) {
+            // 节点已熔断，直接失败，不重试
+            if (connectionHandler.isQuietly()) {
+                return null;
+            }
+            throw jnue;
         } catch (JedisNoReachableClusterNodeException jnrcne) {
             if (connectionHandler.isQuietly()) {
                 logger.error(jnrcne.getMessage(), jnrcne);
@@ -148,14 +254,14 @@ public abstract class JedisClusterCommand<T> {
                 logger.warn("JedisConnectionException->readonly set false", jce);
             }
             
-            return runWithRetries(key, attempts - 1, tryRandomNode, null, readonly);
+            return runWithRetries(slot, key, attempts - 1, tryRandomNode, null, readonly);
         } catch (JedisRedirectionException jre) {
             // if MOVED redirection occurred,
             if (jre instanceof JedisMovedDataException) {
-                // it rebuilds cluster's slot cache
+                // update the slot now and rebuild cluster's slot cache in background
                 // recommended by Redis cluster specification
-                this.connectionHandler.renewSlotCache(jedis);
-                logger.warn("JedisMovedDataException->renewSlotCache:" + jre.getMessage());
+                this.connectionHandler.movedSlot(jre.getSlot(), jre.getTargetNode());
+                logger.warn("JedisMovedDataException->movedSlot:" + jre.getMessage());
             }
             
             // release current connection before recursion or renewing
@@ -182,7 +288,7 @@ public abstract class JedisClusterCommand<T> {
                 logger.warn("JedisRedirectionException->readonly set false", jre);
             }
             
-            return runWithRetries(key, attempts - 1, false, askJedis, readonly);
+            return runWithRetries(slot, key, attempts - 1, false, askJedis, readonly);
         } finally {
             releaseConnection(jedis);
         }
@@ -12,17 +12,40 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 
 public abstract class JedisClusterConnectionHandler implements Closeable {
-    protected final JedisClusterInfoCache cache;
-    private final int                     slowtime;
-    private final boolean                 quietly;
+    public static final int                  DEFAULT_REFRESH_INTERVAL = 1000; // 两次拓扑刷新的最小间隔,单位：毫秒
+    public static final int                  DEFAULT_REFRESH_PERIOD   = 60;   // 拓扑周期刷新的间隔,单位：秒
+    protected final JedisClusterInfoCache    cache;
+    protected final ClusterTopologyRefresher refresher;
+    protected final NodeCircuitBreaker       breaker;
+    private final int                        slowtime;
+    private final boolean                    quietly;
     
     public JedisClusterConnectionHandler(Set<HostAndPort> nodes,
         final GenericObjectPoolConfig poolConfig, int connectionTimeout, int soTimeout,
         String password, int slowtime, boolean quietly) {
-        this.cache = new JedisClusterInfoCache(poolConfig, connectionTimeout, soTimeout, password);
+        this(nodes, poolConfig, connectionTimeout, soTimeout, password, slowtime, quietly,
+            DEFAULT_REFRESH_INTERVAL, DEFAULT_REFRESH_PERIOD, ReadStrategy.P2C);
+    }
+    
+    public JedisClusterConnectionHandler(Set<HostAndPort> nodes,
+        final GenericObjectPoolConfig poolConfig, int connectionTimeout, int soTimeout,
+        String password, int slowtime, boolean quietly, int refreshInterval, int refreshPeriod,
+        ReadStrategy readStrategy) {
+        this(nodes, poolConfig, connectionTimeout, soTimeout, password, slowtime, quietly,
+            refreshInterval, refreshPeriod, readStrategy, new NodeCircuitBreaker());
+    }
+    
+    public JedisClusterConnectionHandler(Set<HostAndPort> nodes,
+        final GenericObjectPoolConfig poolConfig, int connectionTimeout, int soTimeout,
+        String password, int slowtime, boolean quietly, int refreshInterval, int refreshPeriod,
+        ReadStrategy readStrategy, NodeCircuitBreaker breaker) {
+        this.cache = new JedisClusterInfoCache(poolConfig, connectionTimeout, soTimeout, password,
+            readStrategy);
         this.slowtime = slowtime;
         this.quietly = quietly;
+        this.breaker = breaker;
         initializeSlotsCache(nodes, poolConfig, password);
+        this.refresher = new ClusterTopologyRefresher(cache, refreshInterval, refreshPeriod);
     }
     
     public int getSlowtime() {
@@ -39,6 +62,56 @@ public abstract class JedisClusterConnectionHandler implements Closeable {
     
     abstract Jedis getReadJedisFromSlot(int slot);
     
+    /**
+     * slot的节点（对冲读时选择读节点）
+     * 
+     * @param slot
+     *            slot
+     * @return 路由信息未包含该slot时返回null
+     */
+    JedisSlotInfo getSlotInfo(int slot) {
+        return cache.getSlotPool(slot);
+    }
+    
+    /**
+     * 从节点获取连接：已熔断的节点直接失败，获取连接失败计入节点的失败
+     * 
+     * @param pool
+     *            节点
+     * @return 连接
+     * @throws JedisNodeUnavailableException
+     *             节点已熔断
+     */
+    Jedis getResource(JedisPool pool) {
+        if (NodeCircuitBreaker.isOpen(pool)) {
+            breaker.rejected();
+            throw new JedisNodeUnavailableException(
+                "Node is unavailable: " + ((JedisClusterPool) pool).getNodeKey());
+        }
+        try {
+            return pool.getResource();
+        } catch (JedisConnectionException e) {
+            if (breaker.failure(pool)) {
+                refresher.requestRefresh();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 记录命令结果，节点熔断时请求后台刷新拓扑（可能已故障转移）
+     * 
+     * @param connection
+     *            执行命令的连接
+     * @param ok
+     *            成功（包括返回错误信息）为true，连接异常、超时为false
+     */
+    public void recordResult(Jedis connection, boolean ok) {
+        if (breaker.record(connection, ok)) {
+            refresher.requestRefresh();
+        }
+    }
+    
     public Jedis getJedisFromNode(HostAndPort node) {
         return cache.setupNodeIfNotExist(node, true).getResource();
     }
@@ -67,16 +140,47 @@ public abstract class JedisClusterConnectionHandler implements Closeable {
         }
     }
     
+    /**
+     * 请求后台刷新slot路由（不等待刷新完成）
+     */
     public void renewSlotCache() {
-        cache.renewClusterSlots(null);
+        refresher.requestRefresh();
     }
     
+    /**
+     * 同步刷新slot路由
+     * 
+     * @param jedis
+     *            优先使用的连接
+     */
     public void renewSlotCache(Jedis jedis) {
         cache.renewClusterSlots(jedis);
     }
     
+    /**
+     * MOVED：立即更新slot的主节点，后台全量刷新
+     * 
+     * @param slot
+     *            slot
+     * @param node
+     *            新的主节点
+     */
+    public void movedSlot(int slot, HostAndPort node) {
+        refresher.moved(slot, node);
+    }
+    
+    public ClusterTopologyRefresher getRefresher() {
+        return refresher;
+    }
+    
+    public NodeCircuitBreaker getBreaker() {
+        return breaker;
+    }
+    
     @Override
     public void close() {
+        refresher.close();
+        breaker.close();
         cache.reset();
     }
 }
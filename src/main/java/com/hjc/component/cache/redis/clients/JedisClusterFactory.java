@@ -35,6 +35,7 @@ public class JedisClusterFactory implements PooledObjectFactory<Jedis> {
     private SSLParameters                      sslParameters;
     private HostnameVerifier                   hostnameVerifier;
     private boolean                            readonly;
+    private final NodeLatency                  latency     = new NodeLatency();
     
     JedisClusterFactory(final String host, final int port, final int connectionTimeout,
         final int soTimeout, final String password, final int database, final String clientName,
@@ -80,6 +81,15 @@ public class JedisClusterFactory implements PooledObjectFactory<Jedis> {
         return readonly;
     }
     
+    /**
+     * 节点的延迟统计
+     * 
+     * @return NodeLatency
+     */
+    public NodeLatency getLatency() {
+        return latency;
+    }
+    
     public void setReadonly(boolean readonly) {
         this.readonly = readonly;
     }
@@ -114,8 +124,9 @@ public class JedisClusterFactory implements PooledObjectFactory<Jedis> {
     @Override
     public PooledObject<Jedis> makeObject() throws Exception {
         final HostAndPort hostAndPort = this.hostAndPort.get();
-        final Jedis jedis = new Jedis(hostAndPort.getHost(), hostAndPort.getPort(),
-            connectionTimeout, soTimeout, ssl, sslSocketFactory, sslParameters, hostnameVerifier);
+        final Jedis jedis = new ClusterJedis(hostAndPort.getHost(), hostAndPort.getPort(),
+            connectionTimeout, soTimeout, ssl, sslSocketFactory, sslParameters, hostnameVerifier,
+            latency);
         
         try {
             jedis.connect();
@@ -1,12 +1,14 @@
 package com.hjc.component.cache.redis.clients;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
@@ -14,24 +16,35 @@ import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import redis.clients.jedis.Client;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisException;
 import redis.clients.util.SafeEncoder;
 
+/**
+ * 集群节点和slot的路由信息<br/>
+ * slot路由表是不可变的数组快照，刷新时整体替换（volatile发布），读路径无锁、不分配对象；
+ * MOVED时复制路由表后替换单个slot
+ * 
+ * @author hjc
+ *
+ */
 public class JedisClusterInfoCache {
+    private static final int              SLOT_COUNT        = JedisCluster.HASHSLOTS;
     private Map<String, JedisClusterPool> nodes             = new ConcurrentHashMap<String, JedisClusterPool>();
-    private Map<Integer, JedisSlotInfo>   slots             = new ConcurrentHashMap<Integer, JedisSlotInfo>();
+    private volatile JedisSlotInfo[]      slots             = new JedisSlotInfo[SLOT_COUNT]; //slot路由表快照，发布后不再修改
     
     private final ReentrantReadWriteLock  rwl               = new ReentrantReadWriteLock();
     private final Lock                    r                 = rwl.readLock();
     private final Lock                    w                 = rwl.writeLock();
-    private volatile boolean              rediscovering;
+    private final ReentrantLock           renewing          = new ReentrantLock();    //正在刷新时不再重复刷新
     private final GenericObjectPoolConfig poolConfig;
     
     private int                           connectionTimeout;
     private int                           soTimeout;
     private String                        password;
+    private final ReadStrategy            readStrategy;
     private static final int              MASTER_NODE_INDEX = 2;
     
     public JedisClusterInfoCache(final GenericObjectPoolConfig poolConfig, int timeout) {
@@ -40,7 +53,14 @@ public class JedisClusterInfoCache {
     
     public JedisClusterInfoCache(final GenericObjectPoolConfig poolConfig,
         final int connectionTimeout, final int soTimeout, final String password) {
+        this(poolConfig, connectionTimeout, soTimeout, password, ReadStrategy.P2C);
+    }
+    
+    public JedisClusterInfoCache(final GenericObjectPoolConfig poolConfig,
+        final int connectionTimeout, final int soTimeout, final String password,
+        final ReadStrategy readStrategy) {
         this.poolConfig = poolConfig;
+        this.readStrategy = readStrategy;
         this.connectionTimeout = connectionTimeout;
         this.soTimeout = soTimeout;
         this.password = password;
@@ -50,66 +70,98 @@ public class JedisClusterInfoCache {
         w.lock();
         try {
             _reset();
-            this.slots = discoverClusterSlots(jedis);
+            this.slots = buildSlots(jedis.clusterSlots());
         } finally {
             w.unlock();
         }
     }
     
+    /**
+     * 重新获取slot路由（CLUSTER SLOTS在锁外执行，只在替换路由表时加写锁）
+     * 
+     * @param jedis
+     *            优先使用的连接，为null或失败时依次尝试其它节点
+     */
     public void renewClusterSlots(Jedis jedis) {
         //If rediscovering is already in process - no need to start one more same rediscovering, just return
-        if (!rediscovering) {
-            try {
-                w.lock();
-                rediscovering = true;
-                
-                if (jedis != null) {
-                    try {
-                        Map<Integer, JedisSlotInfo> mapSlots = this.slots;
-                        this.slots = discoverClusterSlots(jedis);
-                        mapSlots.clear();
-                        mapSlots = null;
-                        return;
-                    } catch (JedisException e) {
-                        //try nodes from all pools
-                    }
+        if (!renewing.tryLock()) {
+            return;
+        }
+        try {
+            if (jedis != null) {
+                try {
+                    applySlots(jedis.clusterSlots());
+                    return;
+                } catch (JedisException e) {
+                    //try nodes from all pools
                 }
-                
-                for (JedisPool jp : getShuffledNodesPool()) {
-                    try {
-                        jedis = jp.getResource();
-                        Map<Integer, JedisSlotInfo> mapSlots = this.slots;
-                        this.slots = discoverClusterSlots(jedis);
-                        mapSlots.clear();
-                        mapSlots = null;
-                        return;
-                    } catch (JedisConnectionException e) {
-                        // try next nodes
-                    } finally {
-                        if (jedis != null) {
-                            jedis.close();
-                        }
+            }
+            
+            for (JedisPool jp : getShuffledNodesPool()) {
+                Jedis node = null;
+                try {
+                    node = jp.getResource();
+                    applySlots(node.clusterSlots());
+                    return;
+                } catch (JedisConnectionException e) {
+                    // try next nodes
+                } finally {
+                    if (node != null) {
+                        node.close();
                     }
                 }
-            } finally {
-                rediscovering = false;
-                w.unlock();
             }
+        } finally {
+            renewing.unlock();
+        }
+    }
+    
+    private void applySlots(List<Object> clusterSlots) {
+        w.lock();
+        try {
+            this.slots = buildSlots(clusterSlots);
+        } finally {
+            w.unlock();
+        }
+    }
+    
+    /**
+     * 更新单个slot的主节点（MOVED），复制路由表后替换
+     * 
+     * @param slot
+     *            slot
+     * @param node
+     *            新的主节点
+     * @return 是否有变化
+     */
+    public boolean assignSlot(int slot, HostAndPort node) {
+        JedisSlotInfo current = slots[slot];
+        if (current != null && current.getMasterPool() == nodes.get(getNodeKey(node))) {
+            return false;// 已更新（其它线程或全量刷新）
+        }
+        
+        w.lock();
+        try {
+            JedisPool master = setupNodeIfNotExist(node, true);
+            JedisSlotInfo[] newSlots = slots.clone();
+            newSlots[slot] = new JedisSlotInfo(master, Collections.<JedisPool> emptyList(),
+                readStrategy);
+            this.slots = newSlots;
+            return true;
+        } finally {
+            w.unlock();
         }
     }
     
     @SuppressWarnings("unchecked")
-    private Map<Integer, JedisSlotInfo> discoverClusterSlots(Jedis jedis) {
-        Map<Integer, JedisSlotInfo> mapSlots = new HashMap<Integer, JedisSlotInfo>();
-        List<Object> slots = jedis.clusterSlots();
-        for (Object slotInfoObj : slots) {
+    private JedisSlotInfo[] buildSlots(List<Object> clusterSlots) {
+        JedisSlotInfo[] newSlots = new JedisSlotInfo[SLOT_COUNT];
+        for (Object slotInfoObj : clusterSlots) {
             List<Object> slotInfo = (List<Object>) slotInfoObj;
             if (slotInfo.size() <= MASTER_NODE_INDEX) {
                 continue;
             }
             
-            List<Integer> slotNums = getAssignedSlotArray(slotInfo);
-            
             //master
             List<Object> masterHostInfos = (List<Object>) slotInfo.get(MASTER_NODE_INDEX);
             HostAndPort masterNode = generateHostAndPort(masterHostInfos);
@@ -130,12 +182,12 @@ public class JedisClusterInfoCache {
             }
             
             //cache slotInfo
-            JedisSlotInfo jedisSlotInfo = new JedisSlotInfo(master, slaves);
-            for (Integer slot : slotNums) {
-                mapSlots.put(slot, jedisSlotInfo);
-            }
+            JedisSlotInfo jedisSlotInfo = new JedisSlotInfo(master, slaves, readStrategy);
+            int start = ((Long) slotInfo.get(0)).intValue();
+            int end = ((Long) slotInfo.get(1)).intValue();
+            Arrays.fill(newSlots, start, end + 1, jedisSlotInfo);
         }
-        return mapSlots;
+        return newSlots;
     }
     
     private HostAndPort generateHostAndPort(List<Object> hostInfos) {
@@ -180,12 +232,7 @@ public class JedisClusterInfoCache {
     }
     
     public JedisSlotInfo getSlotPool(int slot) {
-        r.lock();
-        try {
-            return slots.get(slot);
-        } finally {
-            r.unlock();
-        }
+        return slots[slot];
     }
     
     public Map<String, JedisPool> getNodes() {
@@ -221,7 +268,7 @@ public class JedisClusterInfoCache {
      * Clear discovered nodes collections and gently release allocated resources
      */
     private void _reset() {
-        slots.clear();
+        slots = new JedisSlotInfo[SLOT_COUNT];
         for (JedisPool pool : nodes.values()) {
             if (pool != null) {
                 try {
@@ -244,13 +291,4 @@ public class JedisClusterInfoCache {
     public static String getNodeKey(Jedis jedis) {
         return getNodeKey(jedis.getClient());
     }
-    
-    private List<Integer> getAssignedSlotArray(List<Object> slotInfo) {
-        List<Integer> slotNums = new ArrayList<Integer>();
-        for (int slot = ((Long) slotInfo.get(0)).intValue(); slot <= ((Long) slotInfo.get(1))
-            .intValue(); slot++) {
-            slotNums.add(slot);
-        }
-        return slotNums;
-    }
 }
@@ -10,6 +10,8 @@ import redis.clients.jedis.JedisPool;
 
 public class JedisClusterPool extends JedisPool {
     private final JedisClusterFactory factory;
+    private final NodeHealth          health = new NodeHealth();
+    private final String              nodeKey;
     
     public JedisClusterPool(final GenericObjectPoolConfig poolConfig, final String host, int port,
         final int connectionTimeout, final int soTimeout, final String password, final int database,
@@ -18,6 +20,7 @@ public class JedisClusterPool extends JedisPool {
         final boolean isMaster) {
         this.factory = new JedisClusterFactory(host, port, connectionTimeout, soTimeout, password,
             database, clientName, ssl, sslSocketFactory, sslParameters, hostnameVerifier, isMaster);
+        this.nodeKey = host + ":" + port;
         this.initPool(poolConfig, factory);
     }
     
@@ -29,4 +32,16 @@ public class JedisClusterPool extends JedisPool {
         return this.factory.isReadonly();
     }
     
+    public NodeLatency getLatency() {
+        return this.factory.getLatency();
+    }
+    
+    public NodeHealth getHealth() {
+        return this.health;
+    }
+    
+    public String getNodeKey() {
+        return this.nodeKey;
+    }
+    
 }
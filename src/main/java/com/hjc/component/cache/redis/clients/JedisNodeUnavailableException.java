@@ -0,0 +1,17 @@
+package com.hjc.component.cache.redis.clients;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 节点已熔断，请求直接失败（不重试）
+ *
+ * @author hjc
+ *
+ */
+public class JedisNodeUnavailableException extends JedisConnectionException {
+    private static final long serialVersionUID = 1L;
+
+    public JedisNodeUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -24,6 +24,22 @@ public class JedisSlotBasedConnectionHandler extends JedisClusterConnectionHandl
         super(nodes, poolConfig, connectionTimeout, soTimeout, password, slowtime, quietly);
     }
     
+    public JedisSlotBasedConnectionHandler(Set<HostAndPort> nodes,
+        GenericObjectPoolConfig poolConfig, int connectionTimeout, int soTimeout, String password,
+        int slowtime, boolean quietly, int refreshInterval, int refreshPeriod,
+        ReadStrategy readStrategy) {
+        super(nodes, poolConfig, connectionTimeout, soTimeout, password, slowtime, quietly,
+            refreshInterval, refreshPeriod, readStrategy);
+    }
+    
+    public JedisSlotBasedConnectionHandler(Set<HostAndPort> nodes,
+        GenericObjectPoolConfig poolConfig, int connectionTimeout, int soTimeout, String password,
+        int slowtime, boolean quietly, int refreshInterval, int refreshPeriod,
+        ReadStrategy readStrategy, NodeCircuitBreaker breaker) {
+        super(nodes, poolConfig, connectionTimeout, soTimeout, password, slowtime, quietly,
+            refreshInterval, refreshPeriod, readStrategy, breaker);
+    }
+    
     @Override
     Jedis getJedis() {
         // In antirez's redis-rb-cluster implementation,
@@ -32,6 +48,9 @@ public class JedisSlotBasedConnectionHandler extends JedisClusterConnectionHandl
         // or exception if all connections are invalid
         List<JedisPool> pools = cache.getShuffledNodesPool();
         for (JedisPool pool : pools) {
+            if (NodeCircuitBreaker.isOpen(pool)) {
+                continue;
+            }
             Jedis jedis = null;
             try {
                 jedis = pool.getResource();
@@ -62,25 +81,21 @@ public class JedisSlotBasedConnectionHandler extends JedisClusterConnectionHandl
             // assignment
             return getMasterJedis(jedisSlotInfo);
         } else {
-            renewSlotCache(); //It's abnormal situation for cluster mode, that we have just nothing for slot, try to rediscover state
-            jedisSlotInfo = cache.getSlotPool(slot);
-            if (jedisSlotInfo != null) {
-                return getMasterJedis(jedisSlotInfo);
-            } else {
-                //no choice, fallback to new connection to random node
-                return getJedis();
-            }
+            //It's abnormal situation for cluster mode, that we have just nothing for slot, rediscover state in background
+            renewSlotCache();
+            //no choice, fallback to new connection to random node
+            return getJedis();
         }
     }
     
     private Jedis getMasterJedis(JedisSlotInfo jedisSlotInfo) {
         JedisPool master = jedisSlotInfo.getMasterPool();
-        return master.getResource();
+        return getResource(master);// 主节点熔断时写请求直接失败
     }
     
     private Jedis getSlaveJedis(JedisSlotInfo jedisSlotInfo) {
-        JedisPool slave = jedisSlotInfo.getReadPool();
-        return slave.getResource();
+        JedisPool slave = jedisSlotInfo.getReadPool();// 跳过熔断的节点
+        return getResource(slave);
     }
     
     @Override
@@ -91,14 +106,10 @@ public class JedisSlotBasedConnectionHandler extends JedisClusterConnectionHandl
             // assignment
             return getSlaveJedis(jedisSlotInfo);
         } else {
-            renewSlotCache(); //It's abnormal situation for cluster mode, that we have just nothing for slot, try to rediscover state
-            jedisSlotInfo = cache.getSlotPool(slot);
-            if (jedisSlotInfo != null) {
-                return getSlaveJedis(jedisSlotInfo);
-            } else {
-                //no choice, fallback to new connection to random node
-                return getJedis();
-            }
+            //It's abnormal situation for cluster mode, that we have just nothing for slot, rediscover state in background
+            renewSlotCache();
+            //no choice, fallback to new connection to random node
+            return getJedis();
         }
     }
     
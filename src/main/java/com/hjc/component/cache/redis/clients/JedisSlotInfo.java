@@ -1,38 +1,136 @@
 package com.hjc.component.cache.redis.clients;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 import com.hjc.component.cache.util.AtomicIntSeq;
 import redis.clients.jedis.JedisPool;
 
 public class JedisSlotInfo {
-    private AtomicIntSeq seq;
-    private JedisPool    masterPool;
-    private JedisPool[]  readPool;
+    private final AtomicIntSeq  seq;
+    private final JedisPool     masterPool;
+    private final JedisPool[]   readPool;
+    private final NodeLatency[] latencies;   // 与readPool对应，P2C时使用
+    private final ReadStrategy  readStrategy;
     
     public JedisSlotInfo(JedisPool masterPool, List<JedisPool> slaves) {
+        this(masterPool, slaves, ReadStrategy.ROUND_ROBIN);
+    }
+    
+    public JedisSlotInfo(JedisPool masterPool, List<JedisPool> slaves, ReadStrategy readStrategy) {
         this.masterPool = masterPool;
         
         int slaveNum = 0;
         if (slaves != null) {
             slaveNum = slaves.size();
         }
-        this.readPool = new JedisPool[slaveNum + 1];
-        this.readPool = slaves.toArray(this.readPool);
-        this.readPool[slaveNum] = masterPool;//主可读
+        JedisPool[] pools = new JedisPool[slaveNum + 1];
+        for (int i = 0; i < slaveNum; i++) {
+            pools[i] = slaves.get(i);
+        }
+        pools[slaveNum] = masterPool;//主可读
+        this.readPool = pools;
         this.seq = new AtomicIntSeq(this.readPool.length);
+        
+        NodeLatency[] nodeLatencies = new NodeLatency[pools.length];
+        for (int i = 0; i < pools.length; i++) {
+            if (!(pools[i] instanceof JedisClusterPool)) {
+                readStrategy = ReadStrategy.ROUND_ROBIN;// 没有延迟统计
+                break;
+            }
+            nodeLatencies[i] = ((JedisClusterPool) pools[i]).getLatency();
+        }
+        this.latencies = nodeLatencies;
+        this.readStrategy = readStrategy;
     }
     
     public JedisPool getMasterPool() {
         return this.masterPool;
     }
     
+    /**
+     * 读节点，选中的节点已熔断时改用其它未熔断的节点
+     * 
+     * @return 全部熔断时返回选中的节点（获取连接时直接失败）
+     */
     public JedisPool getReadPool() {
-        int pos = seq.getSeq();
-        if (pos >= 0 && pos < readPool.length) {
-            return this.readPool[pos];
+        JedisPool pool;
+        if (readStrategy == ReadStrategy.P2C && readPool.length > 1) {
+            pool = getP2CPool();
+        } else {
+            int pos = seq.getSeq();
+            pool = pos >= 0 && pos < readPool.length ? this.readPool[pos] : this.masterPool;
         }
-        return this.masterPool;
+        if (NodeCircuitBreaker.isOpen(pool)) {
+            for (JedisPool other : readPool) {
+                if (!NodeCircuitBreaker.isOpen(other)) {
+                    return other;
+                }
+            }
+        }
+        return pool;
+    }
+    
+    /**
+     * 另一个读节点（对冲读），P2C时选择其余节点中代价最小的，否则随机
+     * 
+     * @param exclude
+     *            已使用的节点
+     * @return 只有一个读节点或其它节点已熔断时返回null
+     */
+    public JedisPool getReadPool(JedisPool exclude) {
+        int n = readPool.length;
+        if (n < 2) {
+            return null;
+        }
+        if (readStrategy == ReadStrategy.P2C) {
+            long now = System.nanoTime();
+            JedisPool best = null;
+            double bestCost = Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (readPool[i] == exclude || NodeCircuitBreaker.isOpen(readPool[i])) {
+                    continue;
+                }
+                double cost = latencies[i].cost(now);
+                if (best == null || cost < bestCost) {
+                    best = readPool[i];
+                    bestCost = cost;
+                }
+            }
+            return best;
+        }
+        int skip = n - 1;
+        for (int i = 0; i < n; i++) {
+            if (readPool[i] == exclude) {
+                skip = i;
+                break;
+            }
+        }
+        int i = ThreadLocalRandom.current().nextInt(n - 1);
+        JedisPool pool = readPool[i >= skip ? i + 1 : i];
+        return NodeCircuitBreaker.isOpen(pool) ? null : pool;
+    }
+    
+    /**
+     * 读节点数（从节点数 + 主节点）
+     */
+    public int getReadCount() {
+        return readPool.length;
+    }
+    
+    /**
+     * 随机取两个节点，选择代价（延迟估计值 * 正在执行的命令数）小的
+     */
+    private JedisPool getP2CPool() {
+        int n = readPool.length;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(n);
+        int b = random.nextInt(n - 1);
+        if (b >= a) {
+            b++;
+        }
+        long now = System.nanoTime();
+        return latencies[a].cost(now) <= latencies[b].cost(now) ? readPool[a] : readPool[b];
     }
 }
@@ -0,0 +1,212 @@
+package com.hjc.component.cache.redis.clients;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 集群节点的熔断<br/>
+ * 1、窗口内失败率（连接异常、超时）达到errorPercent%且请求数不少于minRequests，或连续失败consecutive次时熔断<br/>
+ * 2、熔断的节点：读请求路由到同slot的其它节点，写请求（或没有可用的读节点）直接失败，不等待超时<br/>
+ * 3、熔断后在专用线程每probeInterval毫秒PING一次，成功后恢复
+ *
+ * @author hjc
+ *
+ */
+public class NodeCircuitBreaker {
+    private static final Logger            logger                 = LoggerFactory
+        .getLogger(NodeCircuitBreaker.class);
+    public static final int                DEFAULT_ERROR_PERCENT  = 50;
+    public static final int                DEFAULT_MIN_REQUESTS   = 20;
+    public static final int                DEFAULT_CONSECUTIVE    = 5;
+    public static final int                DEFAULT_WINDOW         = 10000; // 统计窗口,单位：毫秒
+    public static final int                DEFAULT_PROBE_INTERVAL = 1000;  // 探测间隔,单位：毫秒
+    private final int                      errorPercent;
+    private final int                      minRequests;
+    private final int                      consecutive;
+    private final long                     windowNanos;
+    private final long                     probeInterval;
+    private final ScheduledExecutorService executor;
+    /**
+     * 熔断次数
+     */
+    private final AtomicLong               trips                  = new AtomicLong();
+    /**
+     * 恢复次数
+     */
+    private final AtomicLong               recoveries             = new AtomicLong();
+    /**
+     * 因熔断直接失败的请求数
+     */
+    private final AtomicLong               rejected               = new AtomicLong();
+
+    public NodeCircuitBreaker() {
+        this(DEFAULT_ERROR_PERCENT, DEFAULT_MIN_REQUESTS, DEFAULT_CONSECUTIVE, DEFAULT_WINDOW,
+            DEFAULT_PROBE_INTERVAL);
+    }
+
+    /**
+     * 构造
+     *
+     * @param errorPercent
+     *            熔断的失败率（百分比），小于等于0时只按连续失败熔断
+     * @param minRequests
+     *            按失败率熔断时窗口内的最少请求数
+     * @param consecutive
+     *            熔断的连续失败数，小于等于0时只按失败率熔断
+     * @param window
+     *            统计窗口,单位：毫秒
+     * @param probeInterval
+     *            探测间隔,单位：毫秒
+     */
+    public NodeCircuitBreaker(int errorPercent, int minRequests, int consecutive, int window,
+        int probeInterval) {
+        this.errorPercent = errorPercent;
+        this.minRequests = Math.max(1, minRequests);
+        this.consecutive = consecutive;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, window));
+        this.probeInterval = Math.max(1, probeInterval);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "redis-cluster-probe");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * 节点是否已熔断
+     *
+     * @param pool
+     *            节点
+     * @return 已熔断返回true
+     */
+    public static boolean isOpen(JedisPool pool) {
+        return pool instanceof JedisClusterPool && ((JedisClusterPool) pool).getHealth().isOpen();
+    }
+
+    /**
+     * 记录命令结果
+     *
+     * @param connection
+     *            执行命令的连接
+     * @param ok
+     *            成功（包括返回错误信息）为true，连接异常、超时为false
+     * @return 是否由本次失败熔断
+     */
+    public boolean record(Jedis connection, boolean ok) {
+        JedisClusterPool pool = connection instanceof ClusterJedis
+            ? ((ClusterJedis) connection).getPool() : null;
+        if (pool == null) {
+            return false;
+        }
+        if (ok) {
+            pool.getHealth().success(System.nanoTime(), windowNanos);
+            return false;
+        }
+        return failure(pool);
+    }
+
+    /**
+     * 记录节点失败（包括获取连接失败）
+     *
+     * @param pool
+     *            节点
+     * @return 是否由本次失败熔断
+     */
+    public boolean failure(JedisPool pool) {
+        if (!(pool instanceof JedisClusterPool)) {
+            return false;
+        }
+        JedisClusterPool clusterPool = (JedisClusterPool) pool;
+        NodeHealth health = clusterPool.getHealth();
+        int failed = health.failure(System.nanoTime(), windowNanos);
+        boolean exceeded = consecutive > 0 && failed >= consecutive;
+        if (!exceeded && errorPercent > 0) {
+            int requests = health.getRequests();
+            exceeded = requests >= minRequests
+                && health.getFailures() * 100L >= (long) requests * errorPercent;
+        }
+        if (!exceeded || !health.trip()) {
+            return false;
+        }
+
+        trips.incrementAndGet();
+        logger.error("redis节点熔断, node:" + clusterPool.getNodeKey() + ", requests:"
+            + health.getRequests() + ", failures:" + health.getFailures());
+        probe(clusterPool);
+        return true;
+    }
+
+    /**
+     * 因熔断直接失败
+     */
+    public void rejected() {
+        rejected.incrementAndGet();
+    }
+
+    private void probe(final JedisClusterPool pool) {
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (pool.isClosed()) {
+                        return;// 节点已移除
+                    }
+                    if (ping(pool)) {
+                        pool.getHealth().reset();
+                        recoveries.incrementAndGet();
+                        logger.warn("redis节点恢复, node:" + pool.getNodeKey());
+                    } else {
+                        probe(pool);
+                    }
+                }
+            }, probeInterval, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // 已关闭
+        }
+    }
+
+    private static boolean ping(JedisPool pool) {
+        Jedis jedis = null;
+        try {
+            jedis = pool.getResource();
+            return "PONG".equalsIgnoreCase(jedis.ping());
+        } catch (Throwable t) {
+            return false;
+        } finally {
+            if (jedis != null) {
+                try {
+                    jedis.close();
+                } catch (Throwable ignore) {
+                }
+            }
+        }
+    }
+
+    public long getTrips() {
+        return trips.get();
+    }
+
+    public long getRecoveries() {
+        return recoveries.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+package com.hjc.component.cache.redis.clients;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 节点的健康状态：时间窗口内的请求数、失败数（连接异常、超时）和连续失败数<br/>
+ * 熔断（open）后不再路由请求，由NodeCircuitBreaker在后台探测恢复
+ *
+ * @author hjc
+ *
+ */
+public class NodeHealth {
+    private final AtomicLong    windowStart = new AtomicLong(System.nanoTime());
+    private final LongAdder     requests    = new LongAdder(); // 成功路径高并发，避免争用
+    private final AtomicInteger failures    = new AtomicInteger();
+    private final AtomicInteger consecutive = new AtomicInteger();
+    private final AtomicBoolean open        = new AtomicBoolean();
+
+    /**
+     * 超过窗口时长时开始新窗口
+     */
+    private void roll(long now, long windowNanos) {
+        long start = windowStart.get();
+        if (now - start > windowNanos && windowStart.compareAndSet(start, now)) {
+            requests.reset();
+            failures.set(0);
+        }
+    }
+
+    /**
+     * 命令成功（包括返回错误信息，节点可用）
+     *
+     * @param now
+     *            当前时间（System.nanoTime）
+     * @param windowNanos
+     *            窗口时长,单位：纳秒
+     */
+    void success(long now, long windowNanos) {
+        roll(now, windowNanos);
+        requests.increment();
+        if (consecutive.get() != 0) {
+            consecutive.set(0);
+        }
+    }
+
+    /**
+     * 命令失败（连接异常、超时）
+     *
+     * @param now
+     *            当前时间（System.nanoTime）
+     * @param windowNanos
+     *            窗口时长,单位：纳秒
+     * @return 连续失败数
+     */
+    int failure(long now, long windowNanos) {
+        roll(now, windowNanos);
+        requests.increment();
+        failures.incrementAndGet();
+        return consecutive.incrementAndGet();
+    }
+
+    /**
+     * 熔断
+     *
+     * @return 是否由本次调用熔断（已熔断时返回false）
+     */
+    boolean trip() {
+        return open.compareAndSet(false, true);
+    }
+
+    /**
+     * 恢复，清空统计
+     */
+    void reset() {
+        windowStart.set(System.nanoTime());
+        requests.reset();
+        failures.set(0);
+        consecutive.set(0);
+        open.set(false);
+    }
+
+    public boolean isOpen() {
+        return open.get();
+    }
+
+    public int getRequests() {
+        return requests.intValue();
+    }
+
+    public int getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,73 @@
+package com.hjc.component.cache.redis.clients;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 节点的延迟统计（peak EWMA）和正在执行的命令数<br/>
+ * 延迟高于当前值时直接取新值，低于时按时间衰减；一段时间没有命令时，估计值逐渐衰减，慢节点会重新得到尝试的机会
+ *
+ * @author hjc
+ *
+ */
+public class NodeLatency {
+    private static final double TAU_NANOS  = 10 * 1000000000d; // 衰减时间常数：10秒
+    private static final long   IDLE_NANOS = 100 * 1000000L;   // 超过100毫秒没有命令才按空闲时间衰减
+    private final AtomicInteger inflight   = new AtomicInteger();
+    private volatile double     ewma;                          // 延迟估计值,单位：纳秒
+    private volatile long       stamp      = System.nanoTime();
+
+    /**
+     * 命令开始
+     */
+    public void begin() {
+        inflight.incrementAndGet();
+    }
+
+    /**
+     * 命令结束（成功或失败）
+     *
+     * @param nanos
+     *            耗时,单位：纳秒
+     */
+    public void end(long nanos) {
+        inflight.decrementAndGet();
+        long now = System.nanoTime();
+        double current = ewma;
+        if (nanos > current) {
+            ewma = nanos;// peak：变慢立即生效
+        } else {
+            double w = Math.exp(-(now - stamp) / TAU_NANOS);
+            ewma = current * w + nanos * (1 - w);
+        }
+        stamp = now;
+    }
+
+    /**
+     * 选择节点的代价：延迟估计值 * (正在执行的命令数 + 1)
+     *
+     * @param now
+     *            当前时间（System.nanoTime）
+     * @return 代价，越小越好
+     */
+    public double cost(long now) {
+        double latency = ewma;
+        long idle = now - stamp;
+        if (idle > IDLE_NANOS) {
+            latency = latency * Math.exp(-idle / TAU_NANOS);
+        }
+        return latency * (inflight.get() + 1);
+    }
+
+    /**
+     * 延迟估计值
+     *
+     * @return 单位：微秒
+     */
+    public long getLatencyMicros() {
+        return (long) (ewma / 1000);
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,32 @@
+package com.hjc.component.cache.redis.clients;
+
+/**
+ * 集群读命令选择节点（从节点和主节点）的策略
+ *
+ * @author hjc
+ *
+ */
+public enum ReadStrategy {
+    /**
+     * 轮询
+     */
+    ROUND_ROBIN,
+    /**
+     * 随机取两个节点，选择代价（延迟估计值 * 正在执行的命令数）小的
+     */
+    P2C;
+
+    /**
+     * 根据配置获取策略
+     *
+     * @param name
+     *            round-robin或p2c，为空或不支持时使用P2C
+     * @return ReadStrategy
+     */
+    public static ReadStrategy of(String name) {
+        if ("round-robin".equalsIgnoreCase(name) || "ROUND_ROBIN".equalsIgnoreCase(name)) {
+            return ROUND_ROBIN;
+        }
+        return P2C;
+    }
+}
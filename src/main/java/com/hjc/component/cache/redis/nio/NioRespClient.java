@@ -0,0 +1,208 @@
+package com.hjc.component.cache.redis.nio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 多路复用的redis客户端<br/>
+ * 少量连接由一个事件循环线程处理，多个线程的命令在同一个连接上管道发送
+ *
+ * @author hjc
+ *
+ */
+public class NioRespClient {
+    private static final Logger        logger = LoggerFactory.getLogger(NioRespClient.class);
+    private static final AtomicInteger SEQ    = new AtomicInteger();
+    private final String               host;
+    private final int                  port;
+    private final String               password;
+    private final int                  database;
+    private final int                  connectTimeout;
+    private final int                  timeout;
+    private final RespEventLoop        loop;
+    private final RespConnection[]     connections;
+    private final AtomicInteger        next   = new AtomicInteger();
+
+    /**
+     * @param host
+     *            地址
+     * @param port
+     *            端口
+     * @param password
+     *            密码（可为null）
+     * @param database
+     *            数据库
+     * @param connections
+     *            连接数
+     * @param connectTimeout
+     *            连接超时，单位：毫秒
+     * @param timeout
+     *            同步调用等待应答的超时，单位：毫秒
+     */
+    public NioRespClient(String host, int port, String password, int database, int connections,
+        int connectTimeout, int timeout) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.database = database;
+        this.connectTimeout = connectTimeout;
+        this.timeout = timeout;
+        this.loop = new RespEventLoop("redis-nio-" + SEQ.incrementAndGet());
+        this.connections = new RespConnection[Math.max(1, connections)];
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * 获取可用连接（轮询，已断开的重新连接）
+     *
+     * @return 连接
+     */
+    private RespConnection connection() {
+        int index = (next.getAndIncrement() & Integer.MAX_VALUE) % connections.length;
+        RespConnection conn = connections[index];
+        if (conn != null && !conn.isClosed()) {
+            return conn;
+        }
+
+        synchronized (connections) {
+            conn = connections[index];
+            if (conn == null || conn.isClosed()) {
+                conn = connect();
+                connections[index] = conn;
+            }
+            return conn;
+        }
+    }
+
+    /**
+     * 建立连接，认证或选择数据库失败时关闭连接并抛出异常（不使用未初始化的连接）
+     *
+     * @return 连接
+     */
+    private RespConnection connect() {
+        RespConnection conn = new RespConnection(loop, host, port, connectTimeout, timeout);
+        // 认证和选择数据库，在其它命令之前发送
+        if (password != null && password.length() > 0) {
+            checkInit(conn, conn.send(RespEncoder.encode(Protocol.Command.AUTH.raw,
+                SafeEncoder.encode(password))), "AUTH");
+        }
+        if (database != Protocol.DEFAULT_DATABASE) {
+            checkInit(conn, conn.send(RespEncoder.encode(Protocol.Command.SELECT.raw,
+                Protocol.toByteArray(database))), "SELECT");
+        }
+        return conn;
+    }
+
+    private void checkInit(RespConnection conn, RespRequest request, String command) {
+        try {
+            request.future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("redis连接初始化失败, " + command + " " + host + ":" + port, cause);
+            JedisConnectionException error = new JedisConnectionException(
+                "redis连接初始化失败, " + command + " " + host + ":" + port, cause);
+            conn.close();// 由事件循环关闭，未完成的命令返回异常
+            throw error;
+        }
+    }
+
+    /**
+     * 异步发送命令
+     *
+     * @param args
+     *            命令及参数
+     * @return 应答
+     */
+    public CompletableFuture<Object> send(byte[]... args) {
+        byte[] data = RespEncoder.encode(args);
+        try {
+            return connection().send(data).future;
+        } catch (RuntimeException e) {
+            CompletableFuture<Object> future = new CompletableFuture<Object>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 同步执行命令
+     *
+     * @param args
+     *            命令及参数
+     * @return 应答
+     */
+    public Object execute(byte[]... args) {
+        return await(send(args));
+    }
+
+    /**
+     * 等待应答
+     *
+     * @param future
+     *            应答
+     * @return 应答
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new JedisConnectionException("redis应答超时: " + host + ":" + port, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisConnectionException("等待redis应答被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JedisConnectionException(cause);
+        }
+    }
+
+    /**
+     * 已发送未应答的命令数
+     *
+     * @return 命令数
+     */
+    public int getInflight() {
+        int inflight = 0;
+        for (RespConnection conn : connections) {
+            if (conn != null) {
+                inflight += conn.getInflight();
+            }
+        }
+        return inflight;
+    }
+
+    public void close() {
+        synchronized (connections) {
+            for (int i = 0; i < connections.length; ++i) {
+                if (connections[i] != null) {
+                    connections[i].close();
+                    connections[i] = null;
+                }
+            }
+        }
+        loop.shutdown();
+    }
+}
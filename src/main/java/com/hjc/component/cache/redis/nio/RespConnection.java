@@ -0,0 +1,354 @@
+package com.hjc.component.cache.redis.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 多路复用的redis连接<br/>
+ * 多个线程的命令放入发送队列，由事件循环线程合并写出（管道），应答按发送顺序匹配；
+ * 命令超时未应答时关闭连接（之后的应答无法再按顺序匹配），所有未完成的命令返回异常
+ *
+ * @author hjc
+ *
+ */
+public class RespConnection {
+    private static final int         BUFFER_SIZE = 64 * 1024;
+    private static final int         DIRECT_BULK = 16 * 1024;                                  //超过该长度的批量应答直接读入结果数组
+    private final SocketChannel      channel;
+    private final RespEventLoop      loop;
+    private final String             address;
+    private final long               timeoutNanos;                                              //应答超时，0表示不超时
+    private final Queue<RespRequest> outbox      = new ConcurrentLinkedQueue<RespRequest>(); //等待发送
+    private final Queue<RespRequest> pending     = new ArrayDeque<RespRequest>();            //等待应答（只在事件循环线程访问）
+    final AtomicBoolean              scheduled   = new AtomicBoolean();
+    private final AtomicInteger      inflight    = new AtomicInteger();                     //已发送未应答的命令数
+    private final ByteBuffer         writeBuf    = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer               readBuf     = ByteBuffer.allocate(BUFFER_SIZE);
+    private RespRequest              writing;                                               //正在写的命令
+    private int                      writeOffset;
+    private byte[]                   bulk;                                                  //正在直接读取的批量应答
+    private int                      bulkRead;                                              //已读取的长度
+    private int                      skipBytes;                                             //需要跳过的批量应答结尾（\r\n）
+    private SelectionKey             key;
+    private volatile boolean         closed;
+
+    /**
+     * 建立连接（阻塞直到连接成功或超时）
+     *
+     * @param loop
+     *            事件循环
+     * @param host
+     *            地址
+     * @param port
+     *            端口
+     * @param connectTimeout
+     *            连接超时，单位：毫秒
+     * @param timeout
+     *            应答超时，单位：毫秒，小于等于0时不超时
+     */
+    public RespConnection(RespEventLoop loop, String host, int port, int connectTimeout,
+        int timeout) {
+        this.loop = loop;
+        this.address = host + ":" + port;
+        this.timeoutNanos = timeout > 0 ? TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        try {
+            channel = SocketChannel.open();
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true);
+            channel.socket().connect(new InetSocketAddress(host, port), connectTimeout);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            throw new JedisConnectionException("连接redis失败: " + host + ":" + port, e);
+        }
+        loop.register(this);
+    }
+
+    /**
+     * 发送命令
+     *
+     * @param data
+     *            编码后的命令
+     * @return 应答
+     */
+    public RespRequest send(byte[] data) {
+        RespRequest request = new RespRequest(data,
+            timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0);
+        if (closed) {
+            request.future.completeExceptionally(new JedisConnectionException("redis连接已关闭"));
+            return request;
+        }
+        inflight.incrementAndGet();
+        outbox.add(request);
+        if (closed) {
+            // 关闭过程中加入的命令，由事件循环再次清理（pending只在事件循环线程访问）
+            loop.close(this);
+        } else if (scheduled.compareAndSet(false, true)) {
+            loop.schedule(this);
+        }
+        return request;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 等待应答的命令数
+     *
+     * @return 命令数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * 写出发送队列中的命令（事件循环线程调用）
+     */
+    void flush() {
+        if (key == null || closed) {
+            return;
+        }
+
+        try {
+            while (true) {
+                // 合并多个命令到写缓冲区
+                while (writeBuf.hasRemaining()) {
+                    if (writing == null) {
+                        writing = outbox.poll();
+                        if (writing == null) {
+                            break;
+                        }
+                        writeOffset = 0;
+                        pending.add(writing);
+                    }
+                    int len = Math.min(writeBuf.remaining(), writing.data.length - writeOffset);
+                    writeBuf.put(writing.data, writeOffset, len);
+                    writeOffset += len;
+                    if (writeOffset >= writing.data.length) {
+                        writing = null;
+                    }
+                }
+
+                writeBuf.flip();
+                if (!writeBuf.hasRemaining()) {
+                    writeBuf.clear();
+                    key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                channel.write(writeBuf);
+                boolean full = writeBuf.hasRemaining();
+                writeBuf.compact();
+                if (full) {
+                    // 内核缓冲区满，等待可写
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            close(new JedisConnectionException("redis连接写异常", e));
+        }
+    }
+
+    /**
+     * 读取应答（事件循环线程调用）
+     */
+    void read() {
+        try {
+            if (bulk != null && !readBulk()) {
+                return;
+            }
+
+            int n = channel.read(readBuf);
+            if (n < 0) {
+                close(new JedisConnectionException("redis连接已断开"));
+                return;
+            }
+
+            readBuf.flip();
+            if (skipBytes > 0) {
+                int skip = Math.min(skipBytes, readBuf.remaining());
+                readBuf.position(readBuf.position() + skip);
+                skipBytes -= skip;
+            }
+            while (true) {
+                if (startBulk()) {
+                    break;
+                }
+                int mark = readBuf.position();
+                Object reply = RespDecoder.decode(readBuf);
+                if (reply == RespDecoder.INCOMPLETE) {
+                    readBuf.position(mark);
+                    break;
+                }
+                complete(reply);
+            }
+            readBuf.compact();
+            if (!readBuf.hasRemaining()) {
+                // 应答超过缓冲区，扩容
+                ByteBuffer bigger = ByteBuffer.allocate(readBuf.capacity() * 2);
+                readBuf.flip();
+                bigger.put(readBuf);
+                readBuf = bigger;
+            }
+        } catch (IOException e) {
+            close(new JedisConnectionException("redis连接读异常", e));
+        } catch (RuntimeException e) {
+            close(e);
+        }
+    }
+
+    /**
+     * 检查最早的命令是否超时（事件循环线程调用），超时时关闭连接
+     *
+     * @param now
+     *            当前时间（System.nanoTime）
+     */
+    void expire(long now) {
+        if (closed) {
+            return;
+        }
+        // 同一连接的命令超时时长相同，队列头部最早到期
+        RespRequest request = pending.peek();
+        if (request == null) {
+            request = outbox.peek();
+        }
+        if (request != null && request.deadline != 0 && now - request.deadline > 0) {
+            close(new JedisConnectionException("redis应答超时: " + address));
+        }
+    }
+
+    private void complete(Object reply) {
+        RespRequest request = pending.poll();
+        if (request == null) {
+            throw new JedisConnectionException("收到多余的redis应答");
+        }
+        inflight.decrementAndGet();
+        if (reply instanceof JedisDataException) {
+            request.future.completeExceptionally((JedisDataException) reply);
+        } else {
+            request.future.complete(reply);
+        }
+    }
+
+    /**
+     * 缓冲区中是未读完的大批量应答时，分配结果数组，后续数据直接读入（不经过读缓冲区）
+     *
+     * @return 是否进入直接读取
+     */
+    private boolean startBulk() {
+        int start = readBuf.position();
+        int limit = readBuf.limit();
+        if (limit - start < 4 || readBuf.get(start) != '$' || readBuf.get(start + 1) == '-') {
+            return false;
+        }
+        int lineEnd = -1;
+        long len = 0;
+        for (int i = start + 1; i < limit - 1; ++i) {
+            byte b = readBuf.get(i);
+            if (b == '\r') {
+                lineEnd = i;
+                break;
+            }
+            len = len * 10 + (b - '0');
+        }
+        if (lineEnd < 0 || len < DIRECT_BULK || len > Integer.MAX_VALUE - 2) {
+            return false;
+        }
+        int available = limit - lineEnd - 2;
+        if (available >= len + 2) {
+            return false;// 已经完整，正常解析
+        }
+        bulk = new byte[(int) len];
+        readBuf.position(lineEnd + 2);
+        int copy = (int) Math.min(available, len);
+        readBuf.get(bulk, 0, copy);
+        readBuf.position(limit);
+        bulkRead = copy;
+        skipBytes = 2 - (available - copy);// 结尾的\r\n在读完数据后跳过
+        return true;
+    }
+
+    /**
+     * 直接读取批量应答
+     *
+     * @return 是否读取完成
+     */
+    private boolean readBulk() throws IOException {
+        while (bulkRead < bulk.length) {
+            int n = channel.read(ByteBuffer.wrap(bulk, bulkRead, bulk.length - bulkRead));
+            if (n < 0) {
+                close(new JedisConnectionException("redis连接已断开"));
+                return false;
+            }
+            if (n == 0) {
+                return false;
+            }
+            bulkRead += n;
+        }
+        byte[] reply = bulk;
+        bulk = null;
+        complete(reply);
+        return true;
+    }
+
+    /**
+     * 关闭连接，未完成的命令返回异常
+     *
+     * @param cause
+     *            原因
+     */
+    void close(RuntimeException cause) {
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+        failAll(cause);
+    }
+
+    private void failAll(RuntimeException cause) {
+        writing = null;// 正在写的命令已在等待应答队列中
+        RespRequest request;
+        while ((request = pending.poll()) != null) {
+            fail(request, cause);
+        }
+        while ((request = outbox.poll()) != null) {
+            fail(request, cause);
+        }
+    }
+
+    private void fail(RespRequest request, RuntimeException cause) {
+        inflight.decrementAndGet();
+        request.future.completeExceptionally(cause);
+    }
+
+    /**
+     * 关闭连接
+     */
+    public void close() {
+        loop.close(this);
+    }
+}
@@ -0,0 +1,118 @@
+package com.hjc.component.cache.redis.nio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * RESP应答解析（增量解析，数据不完整时返回INCOMPLETE，调用方等待更多数据后从头重新解析）<br/>
+ * 应答类型：状态 String，整数 Long，批量 byte[]，多批量 List&lt;Object&gt;，错误 JedisDataException
+ *
+ * @author hjc
+ *
+ */
+public class RespDecoder {
+    /**
+     * 数据不完整
+     */
+    public static final Object INCOMPLETE = new Object();
+
+    /**
+     * 从缓冲区解析一个应答，数据不完整时返回INCOMPLETE（缓冲区位置不确定，调用方需要还原）
+     *
+     * @param buf
+     *            读缓冲区
+     * @return 应答
+     */
+    public static Object decode(ByteBuffer buf) {
+        if (!buf.hasRemaining()) {
+            return INCOMPLETE;
+        }
+
+        byte type = buf.get();
+        switch (type) {
+            case '+': {
+                byte[] line = readLine(buf);
+                return line == null ? INCOMPLETE : SafeEncoder.encode(line);
+            }
+            case '-': {
+                byte[] line = readLine(buf);
+                return line == null ? INCOMPLETE : new JedisDataException(SafeEncoder.encode(line));
+            }
+            case ':': {
+                byte[] line = readLine(buf);
+                return line == null ? INCOMPLETE : Long.valueOf(parseLong(line));
+            }
+            case '$': {
+                byte[] line = readLine(buf);
+                if (line == null) {
+                    return INCOMPLETE;
+                }
+                int len = (int) parseLong(line);
+                if (len < 0) {
+                    return null;
+                }
+                if (buf.remaining() < len + 2) {
+                    return INCOMPLETE;
+                }
+                byte[] data = new byte[len];
+                buf.get(data);
+                buf.position(buf.position() + 2);// \r\n
+                return data;
+            }
+            case '*': {
+                byte[] line = readLine(buf);
+                if (line == null) {
+                    return INCOMPLETE;
+                }
+                int size = (int) parseLong(line);
+                if (size < 0) {
+                    return null;
+                }
+                List<Object> list = new ArrayList<Object>(size);
+                for (int i = 0; i < size; ++i) {
+                    Object item = decode(buf);
+                    if (item == INCOMPLETE) {
+                        return INCOMPLETE;
+                    }
+                    list.add(item);
+                }
+                return list;
+            }
+            default:
+                throw new JedisConnectionException("未知的应答类型: " + (char) type);
+        }
+    }
+
+    private static byte[] readLine(ByteBuffer buf) {
+        int start = buf.position();
+        int limit = buf.limit();
+        for (int i = start; i < limit - 1; ++i) {
+            if (buf.get(i) == '\r' && buf.get(i + 1) == '\n') {
+                byte[] line = new byte[i - start];
+                buf.get(line);
+                buf.position(i + 2);
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private static long parseLong(byte[] line) {
+        long value = 0;
+        boolean negative = false;
+        for (int i = 0; i < line.length; ++i) {
+            byte b = line[i];
+            if (i == 0 && b == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (b - '0');
+            }
+        }
+        return negative ? -value : value;
+    }
+}
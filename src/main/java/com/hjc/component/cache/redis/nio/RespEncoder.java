@@ -0,0 +1,60 @@
+package com.hjc.component.cache.redis.nio;
+
+/**
+ * RESP命令编码（多批量格式）
+ *
+ * @author hjc
+ *
+ */
+public class RespEncoder {
+    private static final byte[] CRLF = new byte[] {'\r', '\n' };
+
+    /**
+     * 编码命令
+     *
+     * @param args
+     *            命令及参数
+     * @return 编码后的数据
+     */
+    public static byte[] encode(byte[]... args) {
+        int size = 1 + lengthOf(args.length) + 2;
+        for (byte[] arg : args) {
+            size += 1 + lengthOf(arg.length) + 2 + arg.length + 2;
+        }
+
+        byte[] out = new byte[size];
+        int pos = 0;
+        out[pos++] = '*';
+        pos = writeInt(out, pos, args.length);
+        for (byte[] arg : args) {
+            out[pos++] = '$';
+            pos = writeInt(out, pos, arg.length);
+            System.arraycopy(arg, 0, out, pos, arg.length);
+            pos += arg.length;
+            out[pos++] = CRLF[0];
+            out[pos++] = CRLF[1];
+        }
+        return out;
+    }
+
+    private static int lengthOf(int value) {
+        int len = 1;
+        while (value >= 10) {
+            value /= 10;
+            ++len;
+        }
+        return len;
+    }
+
+    private static int writeInt(byte[] out, int pos, int value) {
+        int len = lengthOf(value);
+        for (int i = len - 1; i >= 0; --i) {
+            out[pos + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += len;
+        out[pos++] = CRLF[0];
+        out[pos++] = CRLF[1];
+        return pos;
+    }
+}
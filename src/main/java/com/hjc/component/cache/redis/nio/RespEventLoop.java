@@ -0,0 +1,151 @@
+package com.hjc.component.cache.redis.nio;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * NIO事件循环，一个线程处理多个redis连接的读写，并定期检查命令应答超时
+ *
+ * @author hjc
+ *
+ */
+public class RespEventLoop implements Runnable {
+    private static final Logger         logger    = LoggerFactory.getLogger(RespEventLoop.class);
+    private static final long           SWEEP     = 50;                                          //检查超时的间隔,单位：毫秒
+    private final Selector              selector;
+    private final Thread                thread;
+    private final Queue<RespConnection> registers = new ConcurrentLinkedQueue<RespConnection>(); //等待注册
+    private final Queue<RespConnection> flushes   = new ConcurrentLinkedQueue<RespConnection>(); //等待写出
+    private final Queue<RespConnection> closes    = new ConcurrentLinkedQueue<RespConnection>(); //等待关闭
+    private volatile boolean            running   = true;
+    private long                        lastSweep = System.nanoTime();
+
+    public RespEventLoop(String name) {
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new JedisConnectionException("创建Selector失败", e);
+        }
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void register(RespConnection conn) {
+        registers.add(conn);
+        selector.wakeup();
+    }
+
+    void schedule(RespConnection conn) {
+        flushes.add(conn);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    void close(RespConnection conn) {
+        closes.add(conn);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(SWEEP);
+                processRegisters();
+                processKeys();
+                processFlushes();
+                processCloses();
+                processTimeouts();
+            } catch (Throwable t) {
+                logger.error("redis事件循环异常", t);
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            ((RespConnection) key.attachment()).close(new JedisConnectionException("redis客户端已关闭"));
+        }
+        try {
+            selector.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private void processRegisters() {
+        RespConnection conn;
+        while ((conn = registers.poll()) != null) {
+            try {
+                SelectionKey key = conn.channel().register(selector, SelectionKey.OP_READ, conn);
+                conn.attach(key);
+                conn.scheduled.set(false);
+                conn.flush();// 注册前加入的命令
+            } catch (ClosedChannelException e) {
+                conn.close(new JedisConnectionException("redis连接已关闭", e));
+            }
+        }
+    }
+
+    private void processKeys() {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            RespConnection conn = (RespConnection) key.attachment();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isReadable()) {
+                conn.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                conn.flush();
+            }
+        }
+    }
+
+    private void processFlushes() {
+        RespConnection conn;
+        while ((conn = flushes.poll()) != null) {
+            // 先清除标记，之后加入的命令会重新调度
+            conn.scheduled.set(false);
+            conn.flush();
+        }
+    }
+
+    private void processCloses() {
+        RespConnection conn;
+        while ((conn = closes.poll()) != null) {
+            conn.close(new JedisConnectionException("redis连接已关闭"));
+        }
+    }
+
+    private void processTimeouts() {
+        long now = System.nanoTime();
+        if (now - lastSweep < TimeUnit.MILLISECONDS.toNanos(SWEEP)) {
+            return;
+        }
+        lastSweep = now;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                ((RespConnection) key.attachment()).expire(now);
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,21 @@
+package com.hjc.component.cache.redis.nio;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 等待发送或等待应答的命令（超过deadline未应答时由事件循环返回超时异常）
+ *
+ * @author hjc
+ *
+ */
+public class RespRequest {
+    final byte[]                    data;
+    final CompletableFuture<Object> future;
+    final long                      deadline; //应答的最后期限（System.nanoTime），0表示不超时
+
+    RespRequest(byte[] data, long deadline) {
+        this.data = data;
+        this.future = new CompletableFuture<Object>();
+        this.deadline = deadline;
+    }
+}
@@ -1,22 +1,16 @@
 package com.hjc.component.cache.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 import com.hjc.component.cache.annotation.Cache;
+import com.hjc.component.cache.annotation.CacheBatch;
 import com.hjc.component.cache.annotation.CacheDelete;
-import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
+import com.hjc.component.cache.compress.CompressorFactory;
+import com.hjc.component.cache.compress.DeflateCompressor;
 
 
 /**
@@ -26,29 +20,7 @@ import org.springframework.expression.spel.support.StandardEvaluationContext;
  *
  */
 public class CacheUtil {
-    private static final String                  SPLIT_STR    = "_";
-    private static final String                  ARGS         = "args";
-    private static final String                  RET_VAL      = "retVal";
-    private static final ExpressionParser        parser       = new SpelExpressionParser();
-    private static final Map<String, Expression> expCache     = new ConcurrentHashMap<String, Expression>(
-        64);
-    private static final Map<String, Method>     funcs        = new ConcurrentHashMap<String, Method>(
-        64);
-    private static final String                  HASH_FUNC    = "hash";
-    private static final String                  EMPTH_FUNC   = "empty";
-    private static Method                        HASH_METHOD  = null;
-    private static Method                        EMPTY_METHOD = null;
-    
-    static {
-        try {
-            HASH_METHOD = CacheUtil.class.getDeclaredMethod("getUniqueHashStr",
-                new Class[] {Object.class });
-            EMPTY_METHOD = CacheUtil.class.getDeclaredMethod("isEmpty",
-                new Class[] {Object.class });
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
+    private static final String SPLIT_STR = "_";
     
     /**
      * 是否可以缓存
@@ -67,6 +39,23 @@ public class CacheUtil {
         return true;
     }
     
+    /**
+     * 是否可以批量缓存
+     * 
+     * @param cacheBatch
+     *            CacheBatch
+     * @param arguments
+     *            参数
+     * @return cacheAble 是否可以进行缓存
+     */
+    public static boolean isCacheable(CacheBatch cacheBatch, Object[] arguments) {
+        if (null != cacheBatch.condition() && cacheBatch.condition().length() > 0) {
+            // 根据条件配置进行判断
+            return getElValue(cacheBatch.condition(), arguments, Boolean.class);
+        }
+        return true;
+    }
+    
     /**
      * 注册SpEl方法
      * 
@@ -76,7 +65,7 @@ public class CacheUtil {
      *            方法
      */
     public static void addFunction(String name, Method method) {
-        funcs.put(name, method);
+        KeyGeneratorCompiler.addFunction(name, method);
     }
     
     /**
@@ -115,33 +104,47 @@ public class CacheUtil {
      */
     public static <T> T getElValue(String keySpEL, Object[] arguments, Object retVal,
         boolean hasRetVal, Class<T> valueType) {
-        StandardEvaluationContext context = new StandardEvaluationContext();
-        
-        // 注册方法
-        if (HASH_METHOD != null) {
-            context.registerFunction(HASH_FUNC, HASH_METHOD);
-        }
-        if (EMPTY_METHOD != null) {
-            context.registerFunction(EMPTH_FUNC, EMPTY_METHOD);
-        }
-        Iterator<Map.Entry<String, Method>> it = funcs.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, Method> entry = it.next();
-            context.registerFunction(entry.getKey(), entry.getValue());
-        }
-        
-        context.setVariable(ARGS, arguments);
-        if (hasRetVal) {
-            context.setVariable(RET_VAL, retVal);
-        }
-        
-        Expression expression = expCache.get(keySpEL);
-        if (null == expression) {
-            expression = parser.parseExpression(keySpEL);
-            expCache.put(keySpEL, expression);
+        return KeyGeneratorCompiler.getGenerator(keySpEL).getValue(arguments,
+            hasRetVal ? retVal : null, null, valueType);
+    }
+    
+    /**
+     * 将Spring EL 表达式转换期望的值（批量缓存，#item为集合中的元素）
+     * 
+     * @param keySpEL
+     *            Spring el表达式
+     * @param arguments
+     *            参数
+     * @param item
+     *            集合中的元素
+     * @param valueType
+     *            值类型
+     * @return T value 返回值
+     * @param <T>
+     *            泛型
+     */
+    public static <T> T getItemElValue(String keySpEL, Object[] arguments, Object item,
+        Class<T> valueType) {
+        return KeyGeneratorCompiler.getGenerator(keySpEL).getValue(arguments, null, item,
+            valueType);
+    }
+    
+    /**
+     * 根据请求参数和集合中的元素，构造缓存Key
+     * 
+     * @param keySpEL
+     *            生成缓存Key的Spring el表达式
+     * @param arguments
+     *            参数
+     * @param item
+     *            集合中的元素
+     * @return CacheKey 缓存Key
+     */
+    public static String getItemCacheKey(String keySpEL, Object[] arguments, Object item) {
+        if (keySpEL.indexOf("#") == -1 && keySpEL.indexOf("'") == -1) {
+            return keySpEL;
         }
-        
-        return expression.getValue(context, valueType);
+        return getItemElValue(keySpEL, arguments, item, String.class);
     }
     
     /**
@@ -355,27 +358,7 @@ public class CacheUtil {
     * @throws IOException
     */
     public static byte[] uncompress(byte[] inputByte, int offset, int length) throws IOException {
-        int len = 0;
-        Inflater infl = new Inflater();
-        infl.setInput(inputByte, offset, length);
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] outByte = new byte[1024];
-        try {
-            while (!infl.finished()) {
-                // 解压缩并将解压缩后的内容输出到字节输出流bos中
-                len = infl.inflate(outByte);
-                if (len == 0) {
-                    break;
-                }
-                bos.write(outByte, 0, len);
-            }
-            infl.end();
-        } catch (Exception e) {
-            //
-        } finally {
-            bos.close();
-        }
-        return bos.toByteArray();
+        return CompressorFactory.getCompressor(DeflateCompressor.ID).uncompress(inputByte, offset, length);
     }
     
     /**
@@ -387,23 +370,7 @@ public class CacheUtil {
      * @throws IOException
      */
     public static byte[] compress(byte[] inputByte) throws IOException {
-        int len = 0;
-        Deflater defl = new Deflater();
-        defl.setInput(inputByte);
-        defl.finish();
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] outputByte = new byte[1024];
-        try {
-            while (!defl.finished()) {
-                // 压缩并将压缩后的内容输出到字节输出流bos中
-                len = defl.deflate(outputByte);
-                bos.write(outputByte, 0, len);
-            }
-            defl.end();
-        } finally {
-            bos.close();
-        }
-        return bos.toByteArray();
+        return CompressorFactory.getCompressor(DeflateCompressor.ID).compress(inputByte, 0, inputByte.length);
     }
     
 }
@@ -0,0 +1,27 @@
+package com.hjc.component.cache.util;
+
+/**
+ * 缓存KEY（或条件）生成器，由KeyGeneratorCompiler根据Spring EL表达式生成
+ *
+ * @author hjc
+ *
+ */
+public interface KeyGenerator {
+
+    /**
+     * 计算表达式的值
+     *
+     * @param arguments
+     *            参数（#args）
+     * @param retVal
+     *            结果值（#retVal），没有时为null
+     * @param item
+     *            集合中的元素（#item），没有时为null
+     * @param valueType
+     *            值类型
+     * @return T value 返回值
+     * @param <T>
+     *            泛型
+     */
+    <T> T getValue(Object[] arguments, Object retVal, Object item, Class<T> valueType);
+}
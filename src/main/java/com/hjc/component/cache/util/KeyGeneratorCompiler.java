@@ -0,0 +1,387 @@
+package com.hjc.component.cache.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.expression.spel.support.StandardTypeConverter;
+
+/**
+ * 将Spring EL表达式编译为KeyGenerator<br/>
+ * 1、字符串拼接模板（如：'OSINFO@{infoId='+#args[0]+'}'，只含字符串常量和#args[N]、#retVal、#item）直接拼接字符串，不经过SpEL<br/>
+ * 2、其它表达式使用SpEL编译模式（SpelCompilerMode.IMMEDIATE），编译后的代码执行失败（如参数类型变化）时退回解释模式<br/>
+ * 每个线程复用一个EvaluationContext，注册的方法变化后重建；内置方法#hash、#empty在类加载时注册
+ *
+ * @author hjc
+ *
+ */
+public class KeyGeneratorCompiler {
+    private static final Logger                     logger         = LoggerFactory
+        .getLogger(KeyGeneratorCompiler.class);
+    private static final String                     ARGS           = "args";
+    private static final String                     RET_VAL        = "retVal";
+    private static final String                     ITEM           = "item";
+    private static final int                        RET_VAL_INDEX  = -1;
+    private static final int                        ITEM_INDEX     = -2;
+    private static final SpelExpressionParser       parser         = new SpelExpressionParser();
+    private static final SpelExpressionParser       compiledParser = new SpelExpressionParser(
+        new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE,
+            KeyGeneratorCompiler.class.getClassLoader()));
+    private static final StandardTypeConverter      typeConverter  = new StandardTypeConverter();
+    private static final TypeDescriptor             STRING_TYPE    = TypeDescriptor.valueOf(String.class);
+    private static final Map<String, Method>        funcs          = new ConcurrentHashMap<String, Method>(
+        64);
+    private static final AtomicInteger              funcsVersion   = new AtomicInteger();
+    private static final Map<String, KeyGenerator>  generators     = new ConcurrentHashMap<String, KeyGenerator>(
+        64);
+    private static final ThreadLocal<ContextHolder> contexts       = new ThreadLocal<ContextHolder>() {
+        @Override
+        protected ContextHolder initialValue() {
+            return new ContextHolder();
+        }
+    };
+
+    static {
+        // 内置方法：#hash、#empty（不依赖CacheUtil是否已加载）
+        try {
+            addFunction("hash", CacheUtil.class.getDeclaredMethod("getUniqueHashStr", Object.class));
+            addFunction("empty", CacheUtil.class.getDeclaredMethod("isEmpty", Object.class));
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 注册SpEl方法
+     *
+     * @param name
+     *            方法名
+     * @param method
+     *            方法
+     */
+    public static void addFunction(String name, Method method) {
+        funcs.put(name, method);
+        funcsVersion.incrementAndGet();
+    }
+
+    /**
+     * 取得表达式的KeyGenerator（第一次使用时编译）
+     *
+     * @param spel
+     *            Spring el表达式
+     * @return KeyGenerator
+     */
+    public static KeyGenerator getGenerator(String spel) {
+        KeyGenerator generator = generators.get(spel);
+        if (null == generator) {
+            generator = compile(spel);
+            generators.put(spel, generator);
+        }
+        return generator;
+    }
+
+    /**
+     * 编译表达式
+     *
+     * @param spel
+     *            Spring el表达式
+     * @return KeyGenerator
+     */
+    public static KeyGenerator compile(String spel) {
+        SpelKeyGenerator spelGenerator = new SpelKeyGenerator(spel);
+        List<Object> parts = parseTemplate(spel);
+        if (parts != null) {
+            return new TemplateKeyGenerator(parts, spelGenerator);
+        }
+        return spelGenerator;
+    }
+
+    /**
+     * 解析字符串拼接模板，第一项必须是字符串常量（保证SpEL中的+都是字符串拼接）
+     *
+     * @param spel
+     *            Spring el表达式
+     * @return 各项：String为常量，Integer为参数下标（RET_VAL_INDEX、ITEM_INDEX）；不是模板时返回null
+     */
+    static List<Object> parseTemplate(String spel) {
+        List<Object> parts = new ArrayList<Object>();
+        StringBuilder literal = null;
+        int len = spel.length();
+        int pos = skipSpace(spel, 0);
+        boolean expectOperand = true;
+        while (pos < len) {
+            char c = spel.charAt(pos);
+            if (!expectOperand) {
+                if (c != '+') {
+                    return null;
+                }
+                pos = skipSpace(spel, pos + 1);
+                expectOperand = true;
+                continue;
+            }
+
+            if (c == '\'') {
+                // 字符串常量，''为转义的单引号
+                StringBuilder sb = new StringBuilder();
+                int i = pos + 1;
+                while (true) {
+                    if (i >= len) {
+                        return null;
+                    }
+                    char ch = spel.charAt(i++);
+                    if (ch == '\'') {
+                        if (i < len && spel.charAt(i) == '\'') {
+                            sb.append('\'');
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    sb.append(ch);
+                }
+                if (literal == null) {
+                    literal = sb;
+                } else {
+                    literal.append(sb);
+                }
+                pos = i;
+            } else if (c == '#' && (literal != null || !parts.isEmpty())) {
+                int index;
+                int i;
+                if (spel.startsWith(ARGS, pos + 1)) {
+                    i = skipSpace(spel, pos + 1 + ARGS.length());
+                    if (i >= len || spel.charAt(i) != '[') {
+                        return null;
+                    }
+                    i = skipSpace(spel, i + 1);
+                    int start = i;
+                    while (i < len && Character.isDigit(spel.charAt(i))) {
+                        i++;
+                    }
+                    if (i == start || i - start > 4) {
+                        return null;
+                    }
+                    index = Integer.parseInt(spel.substring(start, i));
+                    i = skipSpace(spel, i);
+                    if (i >= len || spel.charAt(i) != ']') {
+                        return null;
+                    }
+                    i++;
+                } else if (spel.startsWith(RET_VAL, pos + 1)) {
+                    index = RET_VAL_INDEX;
+                    i = pos + 1 + RET_VAL.length();
+                } else if (spel.startsWith(ITEM, pos + 1)) {
+                    index = ITEM_INDEX;
+                    i = pos + 1 + ITEM.length();
+                } else {
+                    return null;
+                }
+                if (i < len && (Character.isJavaIdentifierPart(spel.charAt(i)) || spel.charAt(i) == '.'
+                    || spel.charAt(i) == '[' || spel.charAt(i) == '(')) {
+                    return null;// 属性、方法等，不是简单变量
+                }
+                if (literal != null) {
+                    parts.add(literal.toString());
+                    literal = null;
+                }
+                parts.add(Integer.valueOf(index));
+                pos = i;
+            } else {
+                return null;
+            }
+            pos = skipSpace(spel, pos);
+            expectOperand = false;
+        }
+
+        if (expectOperand) {
+            return null;// 空表达式或以+结尾
+        }
+        if (literal != null) {
+            parts.add(literal.toString());
+        }
+        return parts;
+    }
+
+    private static int skipSpace(String str, int pos) {
+        while (pos < str.length() && Character.isWhitespace(str.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 转换为字符串（与SpEL的字符串拼接一致）
+     */
+    private static String toString(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return value.toString();// ConversionService同样使用toString
+        }
+        // 与OpPlus一致：没有转换器时（如Map）使用toString
+        TypeDescriptor type = TypeDescriptor.forObject(value);
+        if (typeConverter.canConvert(type, STRING_TYPE)) {
+            return String.valueOf(typeConverter.convertValue(value, type, STRING_TYPE));
+        }
+        return value.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T convert(Object value, Class<T> valueType) {
+        if (value == null || valueType == null || valueType.isInstance(value)) {
+            return (T) value;
+        }
+        return (T) typeConverter.convertValue(value, TypeDescriptor.forObject(value),
+            TypeDescriptor.valueOf(valueType));
+    }
+
+    private static ContextHolder acquireContext() {
+        ContextHolder holder = contexts.get();
+        if (holder.inUse) {
+            // 表达式中的方法再次触发了缓存（重入），使用新的上下文
+            holder = new ContextHolder();
+        }
+        if (holder.context == null || holder.version != funcsVersion.get()) {
+            holder.version = funcsVersion.get();
+            holder.context = createContext();
+        }
+        holder.inUse = true;
+        return holder;
+    }
+
+    private static StandardEvaluationContext createContext() {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        Iterator<Map.Entry<String, Method>> it = funcs.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Method> entry = it.next();
+            context.registerFunction(entry.getKey(), entry.getValue());
+        }
+        return context;
+    }
+
+    /**
+     * 线程复用的EvaluationContext
+     */
+    private static class ContextHolder {
+        private StandardEvaluationContext context;
+        private int                       version;
+        private boolean                   inUse;
+
+        private void release() {
+            // 不持有参数、结果的引用
+            context.setVariable(ARGS, null);
+            context.setVariable(RET_VAL, null);
+            context.setVariable(ITEM, null);
+            inUse = false;
+        }
+    }
+
+    /**
+     * 字符串拼接模板
+     */
+    private static class TemplateKeyGenerator implements KeyGenerator {
+        private final Object[]         parts;
+        private final SpelKeyGenerator spelGenerator;
+        private final int              literalLength;
+
+        private TemplateKeyGenerator(List<Object> parts, SpelKeyGenerator spelGenerator) {
+            this.parts = parts.toArray();
+            this.spelGenerator = spelGenerator;
+            int length = 0;
+            for (Object part : parts) {
+                if (part instanceof String) {
+                    length += ((String) part).length();
+                }
+            }
+            this.literalLength = length;
+        }
+
+        @Override
+        public <T> T getValue(Object[] arguments, Object retVal, Object item, Class<T> valueType) {
+            StringBuilder sb = new StringBuilder(literalLength + 16 * parts.length);
+            for (Object part : parts) {
+                if (part instanceof String) {
+                    sb.append((String) part);
+                    continue;
+                }
+
+                int index = ((Integer) part).intValue();
+                if (index == RET_VAL_INDEX) {
+                    sb.append(KeyGeneratorCompiler.toString(retVal));
+                } else if (index == ITEM_INDEX) {
+                    sb.append(KeyGeneratorCompiler.toString(item));
+                } else if (arguments == null || index >= arguments.length) {
+                    // 由SpEL抛出相同的异常
+                    return spelGenerator.getValue(arguments, retVal, item, valueType);
+                } else {
+                    sb.append(KeyGeneratorCompiler.toString(arguments[index]));
+                }
+            }
+            return convert(sb.toString(), valueType);
+        }
+    }
+
+    /**
+     * SpEL表达式（编译模式，失败时退回解释模式）
+     */
+    private static class SpelKeyGenerator implements KeyGenerator {
+        private final String        spel;
+        private volatile Expression expression;
+        private volatile boolean    compiled = true;
+
+        private SpelKeyGenerator(String spel) {
+            this.spel = spel;
+        }
+
+        private Expression getExpression() {
+            Expression exp = expression;
+            if (exp == null) {
+                exp = compiledParser.parseExpression(spel);
+                expression = exp;
+            }
+            return exp;
+        }
+
+        @Override
+        public <T> T getValue(Object[] arguments, Object retVal, Object item, Class<T> valueType) {
+            ContextHolder holder = acquireContext();
+            try {
+                StandardEvaluationContext context = holder.context;
+                context.setVariable(ARGS, arguments);
+                context.setVariable(RET_VAL, retVal);
+                context.setVariable(ITEM, item);
+                try {
+                    return getExpression().getValue(context, valueType);
+                } catch (SpelEvaluationException e) {
+                    if (!compiled || e.getMessageCode() != SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION) {
+                        throw e;
+                    }
+                    logger.warn("SpEL编译后执行失败，改为解释模式, spel:" + spel, e);
+                    compiled = false;
+                    expression = parser.parseExpression(spel);
+                    return expression.getValue(context, valueType);
+                }
+            } finally {
+                holder.release();
+            }
+        }
+    }
+}
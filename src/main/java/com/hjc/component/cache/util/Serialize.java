@@ -6,11 +6,56 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheResult;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.RegionInfo;
+import com.hjc.component.cache.compress.DecompressBuffer;
+import org.nustaq.serialization.FSTConfiguration;
 import org.nustaq.serialization.FSTObjectInput;
 import org.nustaq.serialization.FSTObjectOutput;
 
+/**
+ * 序列化工具类<br/>
+ * FST使用共享的FSTConfiguration（预注册缓存组件的类），对象流和缓冲区按线程复用，
+ * 序列化时只分配返回的字节数组；超过DecompressBuffer.MAX_RETAIN的缓冲区用完即释放，
+ * 反序列化后不持有数据
+ * 
+ * @author hjc
+ *
+ */
 public class Serialize {
-    private final static int DEF_BUF_LEN = 1024 * 16;
+    private static final byte[]           EMPTY       = new byte[0];
+    private static final int              INIT_BUFFER = 4096;
+    private static final FSTConfiguration conf        = createConfiguration();
+    
+    private static FSTConfiguration createConfiguration() {
+        FSTConfiguration c = FSTConfiguration.createDefaultConfiguration();
+        // 注册的类用短ID代替类名，注册顺序决定ID，只能在末尾追加
+        // 注意：不注册String[]、Object[]，区域成员（zset）按序列化后的字节匹配，必须与旧数据一致
+        c.registerClass(CacheWrapper.class, CacheKey.class, RegionInfo.class, CacheResult.class);
+        return c;
+    }
+    
+    /**
+     * 获取共享的FST配置
+     * 
+     * @return FSTConfiguration
+     */
+    public static FSTConfiguration getConfiguration() {
+        return conf;
+    }
+    
+    /**
+     * 注册需要序列化的类（如常用的DTO），减小序列化结果并加快类的解析<br/>
+     * 必须在应用启动时、序列化之前调用，所有节点注册的类和顺序必须一致
+     * 
+     * @param classes
+     *            类
+     */
+    public static void registerClass(Class<?>... classes) {
+        conf.registerClass(classes);
+    }
     
     public static byte[] serialize(Object obj) {
         return fstserialize(obj);
@@ -21,24 +66,37 @@ public class Serialize {
     }
     
     public static byte[] fstserialize(Object obj) {
-        ByteArrayOutputStream out = null;
-        FSTObjectOutput fout = null;
         try {
-            out = new ByteArrayOutputStream(DEF_BUF_LEN);
-            fout = new FSTObjectOutput(out);
-            fout.writeObject(obj);
-            fout.flush();
-            return out.toByteArray();
+            FSTObjectOutput out = conf.getObjectOutput();
+            out.writeObject(obj);
+            byte[] bytes = out.getCopyOfWrittenBuffer();
+            release(out);
+            return bytes;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * 序列化，结果前预留指定长度（用于写入标记等头部信息）<br/>
+     * 预留的头部计入FST的流位置，必须使用fstdeserializeAt反序列化
+     * 
+     * @param obj
+     *            对象
+     * @param headLength
+     *            预留的头部长度
+     * @return 序列化结果（前headLength个字节内容不确定，由调用方写入）
+     */
+    public static byte[] fstserialize(Object obj, int headLength) {
+        try {
+            FSTObjectOutput out = conf.getObjectOutput();
+            out.getCodec().skip(headLength);
+            out.writeObject(obj);
+            byte[] bytes = out.getCopyOfWrittenBuffer();
+            release(out);
+            return bytes;
         } catch (IOException e) {
             throw new RuntimeException(e);
-        } finally {
-            if (fout != null) {
-                try {
-                    fout.close();
-                } catch (IOException e) {
-                    // ignore close exception
-                }
-            }
         }
     }
     
@@ -47,20 +105,74 @@ public class Serialize {
         if (bytes == null) {
             return null;
         }
+        return fstdeserialize(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * 反序列化数组的一部分（FST的流位置从offset开始计算，offset不为0时复制数据）
+     * 
+     * @param bytes
+     *            数据
+     * @param offset
+     *            起始位置
+     * @param length
+     *            长度
+     * @return 对象
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T fstdeserialize(byte[] bytes, int offset, int length) {
+        if (bytes == null) {
+            return null;
+        }
         
-        FSTObjectInput in = null;
         try {
-            in = new FSTObjectInput(new ByteArrayInputStream(bytes));
-            return (T) in.readObject();
+            FSTObjectInput in = offset == 0 ? conf.getObjectInput(bytes, length)
+                : conf.getObjectInputCopyFrom(bytes, offset, length);
+            T obj = (T) in.readObject();
+            // 直接读取的数组属于调用方；复制时只释放过大的缓冲区
+            if (offset == 0 || length > DecompressBuffer.MAX_RETAIN) {
+                in.resetForReuseUseArray(EMPTY);
+            }
+            return obj;
         } catch (Exception e) {
             throw new RuntimeException(e);
-        } finally {
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                }
-            }
+        }
+    }
+    
+    /**
+     * 反序列化fstserialize(obj, offset)的结果，直接读取原数组，不复制
+     * 
+     * @param bytes
+     *            数据
+     * @param offset
+     *            起始位置（序列化时预留的头部长度）
+     * @param length
+     *            长度
+     * @return 对象
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T fstdeserializeAt(byte[] bytes, int offset, int length) {
+        if (bytes == null) {
+            return null;
+        }
+        
+        try {
+            FSTObjectInput in = conf.getObjectInput(bytes, offset + length);
+            in.getCodec().skip(offset);
+            T obj = (T) in.readObject();
+            in.resetForReuseUseArray(EMPTY);// 不持有数据
+            return obj;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * 释放过大的输出缓冲区，避免每个线程一直持有序列化过的最大对象的大小
+     */
+    private static void release(FSTObjectOutput out) {
+        if (out.getBuffer().length > DecompressBuffer.MAX_RETAIN) {
+            out.resetForReUse(new byte[INIT_BUFFER]);
         }
     }
     
@@ -0,0 +1,108 @@
+package com.hjc.component.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.hjc.component.cache.util.Serialize;
+
+import redis.clients.util.JedisClusterCRC16;
+
+/**
+ * CacheKey：区域成员的紧凑编码，旧的FST格式成员的解析，equals/hashCode和集群slot
+ *
+ * @author hjc
+ *
+ */
+public class CacheKeyTest {
+
+    private static void assertKey(CacheKey expected, CacheKey actual) {
+        assertEquals(expected.getNamespace(), actual.getNamespace());
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getHfield(), actual.getHfield());
+    }
+
+    @Test
+    public void testCompactEncoding() {
+        CacheKey key = new CacheKey("ns", "user_1", "f");
+        byte[] bytes = key.getFullKeyBytes();
+        assertArrayEquals(new byte[] {(byte) 0xCB, 3, 'n', 's', 7, 'u', 's', 'e', 'r', '_', '1', 2,
+                'f' }, bytes);
+        assertSame("编码结果缓存", bytes, key.getFullKeyBytes());
+        assertKey(key, CacheKey.from(bytes));
+    }
+
+    @Test
+    public void testNullAndEmpty() {
+        CacheKey key = new CacheKey(null, "k", "");
+        byte[] bytes = key.getFullKeyBytes();
+        assertArrayEquals(new byte[] {(byte) 0xCB, 0, 2, 'k', 1 }, bytes);
+        CacheKey out = CacheKey.from(bytes);
+        assertNull("null与空字符串区分", out.getNamespace());
+        assertEquals("", out.getHfield());
+    }
+
+    @Test
+    public void testLongAndMultiByte() {
+        char[] chars = new char[200];
+        Arrays.fill(chars, '键');
+        CacheKey key = new CacheKey("命名空间", new String(chars), null);
+        byte[] bytes = key.getFullKeyBytes();
+        // 600个UTF-8字节：长度601需要2个字节
+        assertEquals(1 + 1 + 12 + 2 + 600 + 1, bytes.length);
+        assertKey(key, CacheKey.from(bytes));
+    }
+
+    @Test
+    public void testLegacyMember() {
+        CacheKey key = new CacheKey("ns", "user_1", "f");
+        byte[] legacy = key.getLegacyFullKeyBytes();
+        assertArrayEquals(Serialize.fstserialize(new String[] {"ns", "user_1", "f" }), legacy);
+        assertEquals("FST格式的第一个字节", (byte) 0xFB, legacy[0]);
+        assertKey(key, CacheKey.from(legacy));
+
+        CacheKey nulls = new CacheKey("", "k", null);
+        assertKey(nulls, CacheKey.from(nulls.getLegacyFullKeyBytes()));
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        CacheKey key = new CacheKey("ns", "user_1", "f");
+        CacheKey same = new CacheKey("ns", "user_1", "f");
+        assertEquals(key, same);
+        assertEquals(key.hashCode(), same.hashCode());
+        assertNotEquals(key, new CacheKey("ns", "user_1", "g"));
+        assertNotEquals(key, new CacheKey("ns", "user_1", null));
+        assertNotEquals(key, new CacheKey("ns2", "user_1", "f"));
+        assertFalse(key.equals(null));
+        assertFalse(key.equals("ns:user_1:f"));
+
+        CacheKey nulls = new CacheKey(null, null, null);
+        assertEquals(nulls, new CacheKey(null, null, null));
+        assertEquals(nulls.hashCode(), new CacheKey(null, null, null).hashCode());
+        assertNotEquals("null与空字符串区分", nulls, new CacheKey("", null, null));
+    }
+
+    @Test
+    public void testHashtagSlot() {
+        CacheKey key1 = new CacheKey("", "{user}:1", null);
+        CacheKey key2 = new CacheKey("", "{user}:2", "f");
+        assertEquals(JedisClusterCRC16.getSlot("user"), key1.getSlot());
+        assertEquals("{hashtag}相同的KEY在同一个slot", key1.getSlot(), key2.getSlot());
+        assertEquals("slot计算后缓存", key1.getSlot(), key1.getSlot());
+        assertEquals("有{hashtag}时namespace不影响slot", key1.getSlot(),
+            new CacheKey("ns", "{user}:3", null).getSlot());
+
+        CacheKey plain = new CacheKey("ns", "user_1", "f");
+        assertEquals("hfield不影响slot", JedisClusterCRC16.getSlot("ns:user_1"), plain.getSlot());
+        assertNotEquals("没有{hashtag}时namespace影响slot", plain.getSlot(),
+            new CacheKey("ns2", "user_1", "f").getSlot());
+    }
+}
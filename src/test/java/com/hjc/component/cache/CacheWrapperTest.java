@@ -0,0 +1,80 @@
+package com.hjc.component.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * CacheWrapper：软过期、过期和概率提前过期（XFetch）
+ *
+ * @author hjc
+ *
+ */
+public class CacheWrapperTest {
+    private static final int TRIALS = 10000;
+
+    /**
+     * 距软过期还有remaining毫秒的缓存
+     */
+    private static CacheWrapper wrapper(int expire, long remaining, long loadTime) {
+        CacheWrapper wrapper = new CacheWrapper("v", expire);
+        wrapper.setLastLoadTime(System.currentTimeMillis() - expire * 1000L + remaining);
+        wrapper.setLoadTime(loadTime);
+        return wrapper;
+    }
+
+    private static double earlyRate(CacheWrapper wrapper, double beta) {
+        int early = 0;
+        for (int i = 0; i < TRIALS; ++i) {
+            if (wrapper.isEarlyExpired(beta)) {
+                early++;
+            }
+        }
+        return early / (double) TRIALS;
+    }
+
+    @Test
+    public void testStaleAndExpired() {
+        CacheWrapper wrapper = new CacheWrapper("v", 10, 60);
+        assertEquals(70, wrapper.getStoreExpire());
+        wrapper.setLastLoadTime(System.currentTimeMillis() - 20000);
+        assertTrue(wrapper.isStale());
+        assertFalse("staleTime内旧值可用", wrapper.isExpired());
+        wrapper.setLastLoadTime(System.currentTimeMillis() - 80000);
+        assertTrue(wrapper.isExpired());
+
+        CacheWrapper forever = new CacheWrapper("v", 0);
+        forever.setLastLoadTime(0);
+        assertFalse(forever.isStale());
+        assertFalse(forever.isExpired());
+    }
+
+    @Test
+    public void testEarlyExpiredDisabled() {
+        assertFalse("永久缓存", wrapper(0, -1000, 1000).isEarlyExpired(1));
+        assertFalse("没有加载耗时", wrapper(10, -1000, 0).isEarlyExpired(1));
+        assertFalse("beta为0", wrapper(10, -1000, 1000).isEarlyExpired(0));
+    }
+
+    @Test
+    public void testEarlyExpiredBounds() {
+        assertEquals("已软过期", 1.0, earlyRate(wrapper(10, -1, 1), 1), 0);
+        assertEquals("刚加载、加载很快", 0.0, earlyRate(wrapper(60, 60000, 1), 1), 0);
+    }
+
+    @Test
+    public void testEarlyExpiredProbability() {
+        // 提前量服从均值为loadTime * beta的指数分布：P = exp(-remaining / (loadTime * beta))
+        CacheWrapper wrapper = wrapper(10, 1000, 1000);
+        double rate = earlyRate(wrapper, 1);
+        assertEquals(Math.exp(-1), rate, 0.05);
+
+        double higher = earlyRate(wrapper, 2);
+        assertEquals(Math.exp(-0.5), higher, 0.05);
+        assertTrue("beta越大越倾向提前刷新", higher > rate);
+
+        assertTrue("越接近过期概率越大", earlyRate(wrapper(10, 100, 1000), 1) > 0.85);
+    }
+}
@@ -0,0 +1,103 @@
+package com.hjc.component.cache.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheFactory;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheType;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.ICache;
+import com.hjc.component.cache.annotation.Cache;
+
+/**
+ * 异步方法（返回CompletableFuture）的缓存：命中、未命中、合并加载和软过期刷新
+ *
+ * @author hjc
+ *
+ */
+public class AsyncCacheInterceptorTest {
+    private final AspectjAopInterceptor interceptor = new AspectjAopInterceptor();
+
+    public static class UserService {
+        private final AtomicInteger                 calls   = new AtomicInteger();
+        private volatile CompletableFuture<String> pending;
+
+        @Cache(type = CacheType.JCS, key = "'async_find_'+#args[0]", expire = 60)
+        public CompletableFuture<String> find(String id) {
+            return CompletableFuture.completedFuture(id + "-" + calls.incrementAndGet());
+        }
+
+        @Cache(type = CacheType.JCS, key = "'async_slow_'+#args[0]", expire = 60, singleFlight = true)
+        public CompletableFuture<String> findSlow(String id) {
+            calls.incrementAndGet();
+            return pending;
+        }
+
+        @Cache(type = CacheType.JCS, key = "'async_stale_'+#args[0]", expire = 1, staleTime = 60)
+        public CompletableFuture<String> findStale(String id) {
+            return CompletableFuture.completedFuture(id + "-" + calls.incrementAndGet());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<String> call(UserService service, String methodName, String id)
+        throws Throwable {
+        return (CompletableFuture<String>) interceptor
+            .checkAndCache(new MethodJoinPoint(service, methodName, id));
+    }
+
+    @Test
+    public void testMissThenHit() throws Throwable {
+        UserService service = new UserService();
+        assertEquals("a-1", call(service, "find", "a").get(1, TimeUnit.SECONDS));
+        assertEquals(1, service.calls.get());
+
+        assertEquals("a-1", call(service, "find", "a").get(1, TimeUnit.SECONDS));
+        assertEquals("命中时不调用原方法", 1, service.calls.get());
+    }
+
+    @Test
+    public void testSingleFlight() throws Throwable {
+        UserService service = new UserService();
+        service.pending = new CompletableFuture<String>();
+        CompletableFuture<String> first = call(service, "findSlow", "b");
+        CompletableFuture<String> second = call(service, "findSlow", "b");
+        assertEquals("同一KEY的并发加载只调用一次原方法", 1, service.calls.get());
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        service.pending.complete("b-loaded");
+        assertEquals("b-loaded", first.get(1, TimeUnit.SECONDS));
+        assertEquals("b-loaded", second.get(1, TimeUnit.SECONDS));
+        assertEquals(0, interceptor.getSingleFlight().getInflight());
+    }
+
+    @Test
+    public void testStaleValueRefreshedInBackground() throws Throwable {
+        ICache cache = CacheFactory.getCache(CacheType.JCS, null);
+        CacheKey cacheKey = new CacheKey("", "async_stale_c", "");
+        CacheWrapper stale = new CacheWrapper("c-old", 1, 60);
+        stale.setLastLoadTime(System.currentTimeMillis() - 5000);
+        cache.put(cacheKey, stale);
+
+        UserService service = new UserService();
+        assertEquals("软过期时返回旧值", "c-old", call(service, "findStale", "c").get(1, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline
+            && !"c-1".equals(cache.get(cacheKey).getCacheObject())) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, service.calls.get());
+        assertEquals("c-1", cache.get(cacheKey).getCacheObject());
+        assertTrue(interceptor.getRefresher().getSubmitted() >= 1);
+    }
+}
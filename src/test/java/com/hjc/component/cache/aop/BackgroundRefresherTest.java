@@ -0,0 +1,147 @@
+package com.hjc.component.cache.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheFactory;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheType;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.ICache;
+import com.hjc.component.cache.annotation.Cache;
+
+/**
+ * 后台刷新：同一KEY只刷新一次、队列满时丢弃，以及软过期时刷新期间返回旧值
+ *
+ * @author hjc
+ *
+ */
+public class BackgroundRefresherTest {
+    private final BackgroundRefresher refresher = new BackgroundRefresher();
+    private final CountDownLatch      release   = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        refresher.shutdown();
+    }
+
+    /**
+     * 等待release后返回
+     */
+    private class BlockingLoader implements SingleFlight.Loader {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger  loads   = new AtomicInteger();
+
+        @Override
+        public Object load() throws Throwable {
+            loads.incrementAndGet();
+            started.countDown();
+            release.await();
+            return null;
+        }
+    }
+
+    @Test
+    public void testDedupPerKey() throws Exception {
+        BlockingLoader loader = new BlockingLoader();
+        assertTrue(refresher.submit("k1", loader));
+        assertTrue(loader.started.await(2, TimeUnit.SECONDS));
+        assertFalse("同一KEY正在刷新时忽略", refresher.submit("k1", loader));
+        assertTrue("其它KEY可以提交", refresher.submit("k2", new BlockingLoader()));
+        assertEquals(2, refresher.getSubmitted());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!refresher.submit("k1", new BlockingLoader())
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("刷新完成后可以再次提交", 3, refresher.getSubmitted());
+        assertEquals(1, loader.loads.get());
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        refresher.setThreads(1);
+        refresher.setQueueSize(1);
+        BlockingLoader running = new BlockingLoader();
+        assertTrue(refresher.submit("k1", running));
+        assertTrue(running.started.await(2, TimeUnit.SECONDS));
+        assertTrue("进入队列", refresher.submit("k2", new BlockingLoader()));
+
+        assertFalse("队列满时丢弃", refresher.submit("k3", new BlockingLoader()));
+        assertEquals(1, refresher.getRejected());
+        assertEquals(2, refresher.getSubmitted());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!refresher.submit("k3", new BlockingLoader())
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("丢弃后KEY不会一直处于刷新中", 3, refresher.getSubmitted());
+    }
+
+    @Test
+    public void testFailureCounted() throws Exception {
+        assertTrue(refresher.submit("k1", new SingleFlight.Loader() {
+            @Override
+            public Object load() throws Throwable {
+                throw new IllegalStateException("load failed");
+            }
+        }));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (refresher.getFailed() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, refresher.getFailed());
+    }
+
+    public static class UserService {
+        private final AtomicInteger     calls   = new AtomicInteger();
+        private volatile CountDownLatch release = new CountDownLatch(0);
+
+        @Cache(type = CacheType.JCS, key = "'refresher_stale_'+#args[0]", expire = 1, staleTime = 60)
+        public String find(String id) throws InterruptedException {
+            release.await();
+            return id + "-" + calls.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testServeStaleDuringRefresh() throws Throwable {
+        ICache cache = CacheFactory.getCache(CacheType.JCS, null);
+        CacheKey cacheKey = new CacheKey("", "refresher_stale_a", "");
+        CacheWrapper stale = new CacheWrapper("a-old", 1, 60);
+        stale.setLastLoadTime(System.currentTimeMillis() - 5000);
+        cache.put(cacheKey, stale);
+
+        AspectjAopInterceptor interceptor = new AspectjAopInterceptor();
+        UserService service = new UserService();
+        service.release = release;
+        for (int i = 0; i < 3; ++i) {
+            assertEquals("刷新期间返回旧值", "a-old",
+                interceptor.checkAndCache(new MethodJoinPoint(service, "find", "a")));
+        }
+        assertEquals("同一KEY只提交一次刷新", 1, interceptor.getRefresher().getSubmitted());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!"a-1".equals(cache.get(cacheKey).getCacheObject())
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("a-1", interceptor.checkAndCache(new MethodJoinPoint(service, "find", "a")));
+        assertEquals(1, service.calls.get());
+        interceptor.getRefresher().shutdown();
+    }
+}
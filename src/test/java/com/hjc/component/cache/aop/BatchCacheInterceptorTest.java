@@ -0,0 +1,121 @@
+package com.hjc.component.cache.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheFactory;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheType;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.ICache;
+import com.hjc.component.cache.annotation.CacheBatch;
+
+/**
+ * 批量缓存：部分命中、结果乱序（resultItem）以及结果与参数数量不一致
+ *
+ * @author hjc
+ *
+ */
+public class BatchCacheInterceptorTest {
+    private final AspectjAopInterceptor interceptor = new AspectjAopInterceptor();
+    private final ICache                cache       = CacheFactory.getCache(CacheType.JCS, null);
+
+    public static class Item {
+        private final String id;
+
+        public Item(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return "item-" + id;
+        }
+    }
+
+    public static class ItemService {
+        private final List<List<String>> calls = new ArrayList<List<String>>();
+
+        @CacheBatch(type = CacheType.JCS, key = "'batch_names_'+#item", expire = 60)
+        public List<String> names(List<String> ids) {
+            calls.add(new ArrayList<String>(ids));
+            List<String> ret = new ArrayList<String>();
+            for (String id : ids) {
+                ret.add("name-" + id);
+            }
+            return ret;
+        }
+
+        @CacheBatch(type = CacheType.JCS, key = "'batch_items_'+#item", expire = 60, resultItem = "#item.id")
+        public List<Item> items(List<String> ids) {
+            calls.add(new ArrayList<String>(ids));
+            List<Item> ret = new ArrayList<Item>();
+            for (String id : ids) {
+                ret.add(new Item(id));
+            }
+            Collections.reverse(ret);// 返回顺序与参数不同
+            return ret;
+        }
+
+        @CacheBatch(type = CacheType.JCS, key = "'batch_short_'+#item", expire = 60)
+        public List<String> shortNames(List<String> ids) {
+            calls.add(new ArrayList<String>(ids));
+            return Collections.singletonList("name-" + ids.get(ids.size() - 1));// 缺少元素
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> call(ItemService service, String methodName, String... ids)
+        throws Throwable {
+        return (List<T>) interceptor.checkAndCacheBatch(
+            new MethodJoinPoint(service, methodName, Arrays.asList(ids)));
+    }
+
+    private static CacheKey key(String key) {
+        return new CacheKey("", key, "");
+    }
+
+    @Test
+    public void testPartialHit() throws Throwable {
+        cache.put(key("batch_names_2"), new CacheWrapper("cached-2", 60));
+        ItemService service = new ItemService();
+        List<String> names = call(service, "names", "1", "2", "3");
+        assertEquals(Arrays.asList("name-1", "cached-2", "name-3"), names);
+        assertEquals("只用未命中的元素调用原方法", Arrays.asList("1", "3"), service.calls.get(0));
+
+        assertEquals(Arrays.asList("name-3", "cached-2", "name-1"),
+            call(service, "names", "3", "2", "1"));
+        assertEquals("全部命中时不调用原方法", 1, service.calls.size());
+    }
+
+    @Test
+    public void testResultItemReordered() throws Throwable {
+        ItemService service = new ItemService();
+        List<Item> items = call(service, "items", "a", "b", "c");
+        assertEquals("[item-a, item-b, item-c]", items.toString());
+        assertEquals("b", ((Item) cache.get(key("batch_items_b")).getCacheObject()).getId());
+
+        assertEquals("[item-c, item-a]", call(service, "items", "c", "a").toString());
+        assertEquals(1, service.calls.size());
+    }
+
+    @Test
+    public void testSizeMismatchReturnsHitsOnly() throws Throwable {
+        cache.put(key("batch_short_1"), new CacheWrapper("cached-1", 60));
+        ItemService service = new ItemService();
+        List<String> names = call(service, "shortNames", "1", "2", "3");
+        assertEquals("结果无法与参数对应时只返回命中的值", Arrays.asList("cached-1"), names);
+        assertNull("结果无法与参数对应时不写缓存", cache.get(key("batch_short_3")));
+    }
+}
@@ -0,0 +1,66 @@
+package com.hjc.component.cache.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheFactory;
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheType;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.ICache;
+import com.hjc.component.cache.annotation.CacheDelete;
+
+/**
+ * 删除缓存：方法自身的注解和指定的注解
+ *
+ * @author hjc
+ *
+ */
+public class DeleteCacheInterceptorTest {
+    private final AspectjAopInterceptor interceptor = new AspectjAopInterceptor();
+    private final ICache                cache       = CacheFactory.getCache(CacheType.JCS, null);
+
+    public static class UserService {
+        @CacheDelete(type = CacheType.JCS, key = "'delete_user_'+#args[0]")
+        public String update(String id) {
+            return id;
+        }
+
+        @CacheDelete(type = CacheType.JCS, key = "'delete_other_'+#args[0]")
+        public String other(String id) {
+            return id;
+        }
+    }
+
+    private static CacheKey key(String key) {
+        return new CacheKey("", key, "");
+    }
+
+    @Test
+    public void testDeleteByMethodAnnotation() throws Throwable {
+        cache.put(key("delete_user_1"), new CacheWrapper("u1", 60));
+        cache.put(key("delete_user_2"), new CacheWrapper("u2", 60));
+        UserService service = new UserService();
+        for (int i = 0; i < 2; ++i) {
+            MethodJoinPoint jp = new MethodJoinPoint(service, "update", "1");
+            interceptor.checkAndDeleteCache(jp, jp.proceed());
+        }
+        assertNull(cache.get(key("delete_user_1")));
+        assertNotNull(cache.get(key("delete_user_2")));
+    }
+
+    @Test
+    public void testDeleteByGivenAnnotation() throws Throwable {
+        cache.put(key("delete_other_3"), new CacheWrapper("o3", 60));
+        cache.put(key("delete_user_3"), new CacheWrapper("u3", 60));
+        CacheDelete other = UserService.class.getMethod("other", String.class)
+            .getAnnotation(CacheDelete.class);
+        MethodJoinPoint jp = new MethodJoinPoint(new UserService(), "update", "3");
+        interceptor.deleteCache(jp, other, jp.proceed());
+        assertNull("使用指定注解的KEY", cache.get(key("delete_other_3")));
+        assertEquals("u3", cache.get(key("delete_user_3")).getCacheObject());
+    }
+}
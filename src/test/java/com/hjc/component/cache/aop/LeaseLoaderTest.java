@@ -0,0 +1,140 @@
+package com.hjc.component.cache.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.LocalRedisCache;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * LeaseLoader：租约的获取和释放、等待其它节点加载、等待超时后直接加载
+ *
+ * @author hjc
+ *
+ */
+public class LeaseLoaderTest {
+    private LocalRespServer server;
+    private LocalRedisCache cache;
+    private LeaseLoader     leaseLoader;
+    private CacheKey        cacheKey;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        cache = new LocalRedisCache(server);
+        leaseLoader = new LeaseLoader();
+        leaseLoader.setPollInterval(10);
+        cacheKey = new CacheKey("test", "lease", null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        server.close();
+    }
+
+    private static class CountingLoader implements SingleFlight.Loader {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Object        value;
+
+        CountingLoader(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object load() {
+            calls.incrementAndGet();
+            return value;
+        }
+    }
+
+    @Test
+    public void testAcquireAndRelease() {
+        byte[] token = cache.tryLease(cacheKey, 10);
+        assertNotNull(token);
+        assertNull("租约未释放时不能再次获取", cache.tryLease(cacheKey, 10));
+
+        // 令牌不匹配（租约已被其它节点获取）时不删除
+        cache.releaseLease(cacheKey, "other".getBytes());
+        assertNull(cache.tryLease(cacheKey, 10));
+
+        cache.releaseLease(cacheKey, token);
+        byte[] next = cache.tryLease(cacheKey, 10);
+        assertNotNull(next);
+        cache.releaseLease(cacheKey, next);
+    }
+
+    @Test
+    public void testLoadUnderLeaseReleasesLease() throws Throwable {
+        CountingLoader loader = new CountingLoader("loaded");
+        assertEquals("loaded", leaseLoader.execute(cache, cacheKey, 10, 1000, loader));
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, leaseLoader.getLeaseLoads());
+
+        byte[] token = cache.tryLease(cacheKey, 10);
+        assertNotNull("加载后应释放租约", token);
+        cache.releaseLease(cacheKey, token);
+    }
+
+    @Test
+    public void testLeaseHolderReadsCacheOnce() throws Throwable {
+        cache.put(cacheKey, new CacheWrapper("cached", 60));
+        CountingLoader loader = new CountingLoader("loaded");
+        assertEquals("cached", leaseLoader.execute(cache, cacheKey, 10, 1000, loader));
+        assertEquals(0, loader.calls.get());
+        assertEquals(1, leaseLoader.getLeaseHits());
+        assertEquals(0, leaseLoader.getLeaseLoads());
+    }
+
+    @Test
+    public void testWaiterServedFromCache() throws Throwable {
+        final byte[] token = cache.tryLease(cacheKey, 10);// 其它节点正在加载
+        Thread holder = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                cache.put(cacheKey, new CacheWrapper("cached", 60));
+                cache.releaseLease(cacheKey, token);
+            }
+        };
+        holder.start();
+
+        CountingLoader loader = new CountingLoader("loaded");
+        assertEquals("cached", leaseLoader.execute(cache, cacheKey, 10, 2000, loader));
+        holder.join();
+        assertEquals(0, loader.calls.get());
+        assertEquals(1, leaseLoader.getWaitHits());
+        assertEquals(0, leaseLoader.getFallbackLoads());
+    }
+
+    @Test
+    public void testFallbackAfterWaitBudget() throws Throwable {
+        byte[] token = cache.tryLease(cacheKey, 10);// 持有者一直未写入缓存
+        CountingLoader loader = new CountingLoader("loaded");
+        long start = System.currentTimeMillis();
+        assertEquals("loaded", leaseLoader.execute(cache, cacheKey, 10, 100, loader));
+        long elapsed = System.currentTimeMillis() - start;
+        if (elapsed < 100) {
+            fail("应等待到超时才直接加载, elapsed:" + elapsed);
+        }
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, leaseLoader.getFallbackLoads());
+        assertEquals(0, leaseLoader.getWaitHits());
+        cache.releaseLease(cacheKey, token);
+    }
+}
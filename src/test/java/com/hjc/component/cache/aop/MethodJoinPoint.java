@@ -0,0 +1,156 @@
+package com.hjc.component.cache.aop;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+
+/**
+ * 直接反射调用目标方法的切面（测试用，不需要织入）
+ *
+ * @author hjc
+ *
+ */
+public class MethodJoinPoint implements ProceedingJoinPoint {
+    private final Object   target;
+    private final Method   method;
+    private final Object[] args;
+
+    public MethodJoinPoint(Object target, String methodName, Object... args) {
+        this.target = target;
+        this.method = findMethod(target.getClass(), methodName);
+        this.args = args;
+    }
+
+    private static Method findMethod(Class<?> type, String methodName) {
+        for (Method m : type.getMethods()) {
+            if (m.getName().equals(methodName)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException(type.getName() + "." + methodName);
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        return proceed(args);
+    }
+
+    @Override
+    public Object proceed(Object[] arguments) throws Throwable {
+        try {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void set$AroundClosure(AroundClosure arc) {
+    }
+
+    @Override
+    public String toShortString() {
+        return method.getName();
+    }
+
+    @Override
+    public String toLongString() {
+        return method.toString();
+    }
+
+    @Override
+    public Object getThis() {
+        return target;
+    }
+
+    @Override
+    public Object getTarget() {
+        return target;
+    }
+
+    @Override
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public Signature getSignature() {
+        return new MethodSignature() {
+            @Override
+            public Class getReturnType() {
+                return method.getReturnType();
+            }
+
+            @Override
+            public Method getMethod() {
+                return method;
+            }
+
+            @Override
+            public Class[] getParameterTypes() {
+                return method.getParameterTypes();
+            }
+
+            @Override
+            public String[] getParameterNames() {
+                return null;
+            }
+
+            @Override
+            public Class[] getExceptionTypes() {
+                return method.getExceptionTypes();
+            }
+
+            @Override
+            public String toShortString() {
+                return method.getName();
+            }
+
+            @Override
+            public String toLongString() {
+                return method.toString();
+            }
+
+            @Override
+            public String getName() {
+                return method.getName();
+            }
+
+            @Override
+            public int getModifiers() {
+                return method.getModifiers() & Modifier.methodModifiers();
+            }
+
+            @Override
+            public Class getDeclaringType() {
+                return method.getDeclaringClass();
+            }
+
+            @Override
+            public String getDeclaringTypeName() {
+                return method.getDeclaringClass().getName();
+            }
+        };
+    }
+
+    @Override
+    public SourceLocation getSourceLocation() {
+        return null;
+    }
+
+    @Override
+    public String getKind() {
+        return METHOD_EXECUTION;
+    }
+
+    @Override
+    public StaticPart getStaticPart() {
+        return null;
+    }
+}
@@ -0,0 +1,142 @@
+package com.hjc.component.cache.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * SingleFlight：并发加载合并、leader异常的传递以及等待超时后直接加载
+ *
+ * @author hjc
+ *
+ */
+public class SingleFlightTest {
+    private static final int         THREADS      = 8;
+    private final SingleFlight       singleFlight = new SingleFlight();
+    private final ThreadPoolExecutor executor     = (ThreadPoolExecutor) Executors
+        .newFixedThreadPool(THREADS);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * leader等待release后返回，记录加载次数
+     */
+    private static class BlockingLoader implements SingleFlight.Loader {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger  loads   = new AtomicInteger();
+        private final Object         value;
+
+        BlockingLoader(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object load() throws Throwable {
+            if (loads.incrementAndGet() == 1) {
+                started.countDown();
+                release.await();
+            }
+            if (value instanceof Throwable) {
+                throw (Throwable) value;
+            }
+            return value;
+        }
+    }
+
+    private List<Future<Object>> submit(int count, final String key, final long waitMillis,
+                                        final SingleFlight.Loader loader) {
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < count; ++i) {
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    try {
+                        return singleFlight.execute(key, waitMillis, loader);
+                    } catch (Throwable t) {
+                        return t;
+                    }
+                }
+            }));
+        }
+        return futures;
+    }
+
+    private void awaitFollowers(int count) throws InterruptedException {
+        // 等待其它线程进入等待（已提交的任务都已开始执行）
+        long deadline = System.currentTimeMillis() + 2000;
+        while (executor.getActiveCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        BlockingLoader loader = new BlockingLoader("value");
+        List<Future<Object>> futures = submit(THREADS, "k1", 5000, loader);
+        assertTrue(loader.started.await(2, TimeUnit.SECONDS));
+        awaitFollowers(THREADS);
+        assertEquals(1, singleFlight.getInflight());
+
+        loader.release.countDown();
+        for (Future<Object> future : futures) {
+            assertEquals("value", future.get(2, TimeUnit.SECONDS));
+        }
+        assertEquals("只加载一次", 1, loader.loads.get());
+        assertEquals(1, singleFlight.getLeaderLoads());
+        assertEquals(THREADS - 1, singleFlight.getCoalescedLoads());
+        assertEquals(0, singleFlight.getInflight());
+    }
+
+    @Test
+    public void testLeaderException() throws Exception {
+        IllegalStateException error = new IllegalStateException("load failed");
+        BlockingLoader loader = new BlockingLoader(error);
+        List<Future<Object>> futures = submit(3, "k2", 5000, loader);
+        assertTrue(loader.started.await(2, TimeUnit.SECONDS));
+        awaitFollowers(3);
+
+        loader.release.countDown();
+        for (Future<Object> future : futures) {
+            assertSame("等待的线程收到leader的异常", error, future.get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loader.loads.get());
+        assertEquals(0, singleFlight.getInflight());
+    }
+
+    @Test
+    public void testFollowerTimeout() throws Exception {
+        BlockingLoader loader = new BlockingLoader("value");
+        List<Future<Object>> leader = submit(1, "k3", 20, loader);
+        assertTrue(loader.started.await(2, TimeUnit.SECONDS));
+
+        List<Future<Object>> followers = submit(2, "k3", 20, loader);
+        for (Future<Object> future : followers) {
+            assertEquals("超时后直接加载", "value", future.get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(3, loader.loads.get());
+        assertEquals(2, singleFlight.getFallbackLoads());
+        assertEquals(0, singleFlight.getCoalescedLoads());
+
+        loader.release.countDown();
+        assertEquals("value", leader.get(0).get(2, TimeUnit.SECONDS));
+        assertEquals(1, singleFlight.getLeaderLoads());
+    }
+}
@@ -0,0 +1,90 @@
+package com.hjc.component.cache.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.hjc.component.cache.compress.Compressor;
+import com.hjc.component.cache.compress.DecompressBuffer;
+import com.hjc.component.cache.compress.DeflateCompressor;
+import com.hjc.component.cache.compress.Lz4Compressor;
+import com.hjc.component.cache.compress.ZstdCompressor;
+
+/**
+ * 从线程复用的解压缓冲区直接解码：预留与信封头部相同的长度，FST的流位置包含头部
+ *
+ * @author hjc
+ *
+ */
+public class DecompressDecodeTest {
+    private static final CacheCodec[] CODECS      = {new FstCodec(), new KryoCodec() };
+    private static final Compressor[] COMPRESSORS = {new DeflateCompressor(),
+                                                     new Lz4Compressor(), new ZstdCompressor() };
+
+    /**
+     * 包含重复引用的对象（FST、Kryo按流位置记录引用）
+     */
+    private static ArrayList<Object> value(int size) {
+        HashMap<String, Object> shared = new HashMap<String, Object>();
+        shared.put("name", "shared");
+        ArrayList<Object> value = new ArrayList<Object>();
+        for (int i = 0; i < size; ++i) {
+            value.add("item-" + i);
+            value.add(shared);
+        }
+        return value;
+    }
+
+    private static Object decode(CacheCodec codec, Compressor compressor, Object obj) {
+        int head = CacheEnvelope.HEADER_LENGTH;
+        byte[] data = codec.encode(obj, head);
+        byte[] compressed = compressor.compress(data, head, data.length - head);
+        // 与信封相同：数据前为头部
+        byte[] envelope = new byte[head + compressed.length];
+        System.arraycopy(compressed, 0, envelope, head, compressed.length);
+
+        ByteBuffer buf = compressor.uncompress(envelope, head, compressed.length, head);
+        assertEquals(head, buf.position());
+        return codec.decode(buf.array(), buf.position(), buf.remaining());
+    }
+
+    @Test
+    public void testDecodeWithReserve() {
+        for (CacheCodec codec : CODECS) {
+            for (Compressor compressor : COMPRESSORS) {
+                String name = codec.getName() + "/" + compressor.getName();
+                // 先解压大数据，缓冲区中残留旧数据
+                for (int size : new int[] {5000, 10, 1 }) {
+                    ArrayList<Object> value = value(size);
+                    @SuppressWarnings("unchecked")
+                    List<Object> out = (List<Object>) decode(codec, compressor, value);
+                    assertEquals(name, value, out);
+                    assertSame(name + "重复引用", out.get(1), out.get(out.size() - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLargeBufferNotRetained() {
+        Compressor compressor = new Lz4Compressor();
+        byte[] large = new byte[DecompressBuffer.MAX_RETAIN + 1];
+        byte[] compressed = compressor.compress(large, 0, large.length);
+        ByteBuffer buf = compressor.uncompress(compressed, 0, compressed.length,
+            CacheEnvelope.HEADER_LENGTH);
+        assertEquals(large.length, buf.remaining());
+
+        // 超过上限的缓冲区只用于本次解压
+        byte[] small = DecompressBuffer.get(16);
+        assertNotSame(buf.array(), small);
+        assertTrue(small.length <= DecompressBuffer.MAX_RETAIN);
+    }
+}
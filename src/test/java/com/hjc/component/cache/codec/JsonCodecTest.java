@@ -0,0 +1,96 @@
+package com.hjc.component.cache.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * JsonCodec：类型还原，以及只解码允许的包下的类型
+ *
+ * @author hjc
+ *
+ */
+public class JsonCodecTest {
+    private final JsonCodec codec = new JsonCodec();
+
+    static class Item {
+        private long         id;
+        private String[]     tags;
+        private List<Object> values;
+    }
+
+    private Object roundTrip(Object value) {
+        byte[] data = codec.encode(value, 0);
+        return codec.decode(data, 0, data.length);
+    }
+
+    private Object decode(String json) {
+        byte[] data = SafeEncoder.encode(json);
+        return codec.decode(data, 0, data.length);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("long", 1L);
+        map.put("decimal", new BigDecimal("1.50"));
+        Item item = new Item();
+        item.id = 7;
+        item.tags = new String[] {"a", "b" };
+        item.values = new ArrayList<Object>();
+        item.values.add(3L);
+        map.put("item", item);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> out = (Map<String, Object>) roundTrip(map);
+        assertEquals(1L, out.get("long"));
+        assertEquals(new BigDecimal("1.50"), out.get("decimal"));
+        Item outItem = (Item) out.get("item");
+        assertEquals(7, outItem.id);
+        assertArrayEquals(item.tags, outItem.tags);
+        assertEquals(3L, outItem.values.get(0));
+    }
+
+    @Test
+    public void testRejectsTypeOutsideAllowedPackages() {
+        try {
+            decode("{\"@class\":\"java.util.logging.FileHandler\"}");
+            fail("不允许的类型应解码失败");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause().getMessage().contains("json-packages"));
+        }
+        try {
+            decode("[\"java.util.ArrayList\",[{\"@class\":\"org.example.Gadget\"}]]");
+            fail("不允许的类型应解码失败");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause().getMessage().contains("json-packages"));
+        }
+    }
+
+    @Test
+    public void testIsAllowed() {
+        assertTrue(JsonCodec.isAllowed("java.util.HashMap"));
+        assertTrue(JsonCodec.isAllowed("[B"));
+        assertTrue(JsonCodec.isAllowed("[Ljava.lang.String;"));
+        assertTrue(JsonCodec.isAllowed("com.hjc.component.cache.CacheKey"));
+        assertFalse(JsonCodec.isAllowed("java.util.logging.FileHandler"));
+        assertFalse(JsonCodec.isAllowed("[Lorg.example.Gadget;"));
+        assertFalse(JsonCodec.isAllowed("java.util.EnumMap<org.example.Gadget,java.lang.Long>"));
+        assertFalse(JsonCodec.isAllowed("com.hjcx.Gadget"));
+
+        JsonCodec.allowPackages("org.example.allowed");
+        assertTrue(JsonCodec.isAllowed("org.example.allowed.sub.Foo"));
+    }
+}
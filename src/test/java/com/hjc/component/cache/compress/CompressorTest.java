@@ -0,0 +1,96 @@
+package com.hjc.component.cache.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * 压缩：每种压缩方式的往返（包括预留头部的解压），以及损坏数据中声明的原始长度
+ *
+ * @author hjc
+ *
+ */
+public class CompressorTest {
+    private static final Compressor[] COMPRESSORS = {new DeflateCompressor(),
+                                                     new Lz4Compressor(), new ZstdCompressor() };
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            data[i] = (byte) ("compress-" + (i % 97)).charAt(i % 9);
+        }
+        return data;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        for (Compressor compressor : COMPRESSORS) {
+            for (int size : new int[] {0, 1, 100, 300 * 1024 }) {
+                String name = compressor.getName() + "/" + size;
+                byte[] data = data(size);
+                byte[] src = new byte[size + 10];
+                System.arraycopy(data, 0, src, 3, size);
+                byte[] compressed = compressor.compress(src, 3, size);
+
+                byte[] buf = new byte[compressed.length + 5];
+                System.arraycopy(compressed, 0, buf, 5, compressed.length);
+                assertArrayEquals(name, data, compressor.uncompress(buf, 5, compressed.length));
+
+                ByteBuffer out = compressor.uncompress(buf, 5, compressed.length, 7);
+                assertEquals(name, 7, out.position());
+                assertEquals(name, size, out.remaining());
+                byte[] actual = new byte[size];
+                out.get(actual);
+                assertArrayEquals(name, data, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testLz4DeclaredLength() {
+        Lz4Compressor compressor = new Lz4Compressor();
+        byte[] compressed = compressor.compress(data(1000), 0, 1000);
+
+        byte[] oversized = compressed.clone();
+        oversized[0] = (byte) 0x7F;// 声明约2G
+        assertRejected(compressor, oversized);
+
+        byte[] negative = compressed.clone();
+        negative[0] = (byte) 0x80;
+        assertRejected(compressor, negative);
+
+        byte[] larger = compressed.clone();
+        larger[2] = (byte) (larger[2] + 1);// 比实际多256字节
+        assertRejected(compressor, larger);
+
+        assertRejected(compressor, Arrays.copyOf(compressed, compressed.length / 2));
+    }
+
+    @Test
+    public void testZstdDeclaredLength() {
+        ZstdCompressor compressor = new ZstdCompressor();
+        assertRejected(compressor, new byte[] {1, 2, 3, 4, 5, 6, 7, 8 });
+        byte[] compressed = compressor.compress(data(1000), 0, 1000);
+        assertEquals(1000, ZstdCompressor.contentSize(compressed, 0, compressed.length));
+    }
+
+    private static void assertRejected(Compressor compressor, byte[] data) {
+        try {
+            compressor.uncompress(data, 0, data.length);
+            fail(compressor.getName() + "损坏的数据应解压失败");
+        } catch (RuntimeException e) {
+            // 预期
+        }
+        try {
+            compressor.uncompress(data, 0, data.length, 8);
+            fail(compressor.getName() + "损坏的数据应解压失败");
+        } catch (RuntimeException e) {
+            // 预期
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * BinaryJedisNio的常用命令（使用进程内的RESP服务）
+ *
+ * @author hjc
+ *
+ */
+public class BinaryJedisNioTest {
+    private LocalRespServer server;
+    private BinaryJedisNio  jedis;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        Properties props = new Properties();
+        props.setProperty("host", "127.0.0.1");
+        props.setProperty("port", String.valueOf(server.getPort()));
+        props.setProperty("timeout", "2000");
+        jedis = new BinaryJedisNio(props);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        jedis.close();
+        server.close();
+    }
+
+    private static byte[] b(String str) {
+        return SafeEncoder.encode(str);
+    }
+
+    @Test
+    public void testStrings() {
+        assertEquals("OK", jedis.set(b("k1"), b("v1")));
+        assertArrayEquals(b("v1"), jedis.get(b("k1")));
+        assertEquals(Long.valueOf(0), jedis.setnx(b("k1"), b("v2")));
+        assertEquals(Long.valueOf(1), jedis.del(b("k1")));
+        assertNull(jedis.get(b("k1")));
+        assertEquals(Long.valueOf(3), jedis.incrBy(b("n"), 3));
+    }
+
+    @Test
+    public void testMsetexMget() {
+        jedis.msetex(new byte[][] {b("a"), b("b") }, new byte[][] {b("1"), b("2") },
+            new int[] {60, 0 });
+        List<byte[]> values = jedis.mget(b("a"), b("missing"), b("b"));
+        assertEquals(3, values.size());
+        assertArrayEquals(b("1"), values.get(0));
+        assertNull(values.get(1));
+        assertArrayEquals(b("2"), values.get(2));
+        assertTrue(jedis.ttl(b("a")) > 0);
+        assertEquals(Long.valueOf(-1), jedis.ttl(b("b")));
+    }
+
+    @Test
+    public void testHash() {
+        assertEquals(Long.valueOf(1), jedis.hset(b("h"), b("f1"), b("v1")));
+        assertArrayEquals(b("v1"), jedis.hget(b("h"), b("f1")));
+        List<byte[]> values = jedis.hmget(b("h"), b("f1"), b("f2"));
+        assertArrayEquals(b("v1"), values.get(0));
+        assertNull(values.get(1));
+        assertEquals(Long.valueOf(1), jedis.hlen(b("h")));
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        assertEquals("OK", jedis.setAsync(b("k1"), b("v1")).get());
+        assertArrayEquals(b("v1"), jedis.getAsync(b("k1")).get());
+        List<byte[]> values = jedis.mgetAsync(b("k1"), b("k2")).get();
+        assertArrayEquals(b("v1"), values.get(0));
+        assertNull(values.get(1));
+    }
+}
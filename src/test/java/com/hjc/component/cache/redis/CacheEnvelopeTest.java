@@ -0,0 +1,151 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.codec.CacheEnvelope;
+import com.hjc.component.cache.codec.CodecFactory;
+import com.hjc.component.cache.codec.FstCodec;
+import com.hjc.component.cache.codec.JsonCodec;
+import com.hjc.component.cache.codec.KryoCodec;
+import com.hjc.component.cache.compress.Compressor;
+import com.hjc.component.cache.compress.CompressorFactory;
+import com.hjc.component.cache.compress.DeflateCompressor;
+import com.hjc.component.cache.compress.Lz4Compressor;
+import com.hjc.component.cache.compress.ZstdCompressor;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+import com.hjc.component.cache.util.Serialize;
+
+/**
+ * 缓存数据的信封格式：每种编解码和压缩的往返，以及旧格式（标记字节）的解码
+ *
+ * @author hjc
+ *
+ */
+public class CacheEnvelopeTest {
+    private static final String[]       CODECS     = {FstCodec.NAME, KryoCodec.NAME,
+                                                      JsonCodec.NAME };
+    private static final String[]       COMPRESSES = {CompressorFactory.NONE,
+                                                      DeflateCompressor.NAME, Lz4Compressor.NAME,
+                                                      ZstdCompressor.NAME };
+    private final List<LocalRedisCache> caches     = new ArrayList<LocalRedisCache>();
+    private LocalRespServer             server;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (LocalRedisCache cache : caches) {
+            cache.close();
+        }
+        server.close();
+    }
+
+    private LocalRedisCache cache(String codec, String compress) {
+        Properties props = new Properties();
+        props.setProperty("codec", codec);
+        props.setProperty("compress", compress);
+        props.setProperty("compress-threshold", "0");
+        LocalRedisCache cache = new LocalRedisCache(server, props);
+        caches.add(cache);
+        return cache;
+    }
+
+    private static HashMap<String, Object> value() {
+        HashMap<String, Object> value = new HashMap<String, Object>();
+        for (int i = 0; i < 50; ++i) {
+            value.put("key" + i, "value-value-value-" + i);
+        }
+        value.put("long", 12345678901L);
+        return value;
+    }
+
+    private static CacheWrapper wrapper() {
+        CacheWrapper wrapper = new CacheWrapper(value(), 60, 30);
+        wrapper.setLoadTime(15);
+        return wrapper;
+    }
+
+    private static void assertWrapper(CacheWrapper expected, CacheWrapper actual) {
+        assertEquals(expected.getCacheObject(), actual.getCacheObject());
+        assertEquals(expected.getLastLoadTime(), actual.getLastLoadTime());
+        assertEquals(expected.getExpire(), actual.getExpire());
+        assertEquals(expected.getStaleTime(), actual.getStaleTime());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        for (String codec : CODECS) {
+            for (String compress : COMPRESSES) {
+                LocalRedisCache cache = cache(codec, compress);
+                CacheWrapper wrapper = wrapper();
+                byte[] data = cache.wrapperToBytes(wrapper);
+                String name = codec + "/" + compress;
+                assertTrue(name, CacheEnvelope.isEnvelope(data));
+                assertEquals(name, CodecFactory.getCodec(codec, null).getId(),
+                    CacheEnvelope.getCodecId(data));
+                int compressId = CompressorFactory.NONE.equals(compress) ? 0
+                    : CompressorFactory.getCompressor(compress, null).getId();
+                assertEquals(name, compressId, CacheEnvelope.getCompressId(data));
+                assertEquals(name, data.length - CacheEnvelope.HEADER_LENGTH,
+                    CacheEnvelope.getPayloadLength(data));
+
+                CacheWrapper out = cache.bytesToWrapper(data);
+                assertWrapper(wrapper, out);
+                assertEquals(name, 15, out.getLoadTime());
+            }
+        }
+    }
+
+    @Test
+    public void testExpiredFromHeader() {
+        LocalRedisCache cache = cache(FstCodec.NAME, CompressorFactory.NONE);
+        CacheWrapper wrapper = new CacheWrapper("v", 1, 1);
+        wrapper.setLastLoadTime(System.currentTimeMillis() - 5000);
+        assertTrue(RedisCache.isExpiredBytes(cache.wrapperToBytes(wrapper)));
+        assertFalse(RedisCache.isExpiredBytes(cache.wrapperToBytes(wrapper())));
+    }
+
+    @Test
+    public void testLegacyFlagByte() {
+        LocalRedisCache cache = cache(FstCodec.NAME, CompressorFactory.NONE);
+        CacheWrapper wrapper = wrapper();
+
+        // 标记字节：高4位为编解码ID，低4位为压缩ID，之后为整个CacheWrapper
+        byte[] fst = Serialize.fstserialize(wrapper);
+        assertWrapper(wrapper, cache.bytesToWrapper(legacy(FstCodec.ID, 0, fst)));
+
+        for (String compress : new String[] {DeflateCompressor.NAME, Lz4Compressor.NAME,
+                ZstdCompressor.NAME }) {
+            Compressor compressor = CompressorFactory.getCompressor(compress, null);
+            byte[] compressed = compressor.compress(fst, 0, fst.length);
+            assertWrapper(wrapper,
+                cache.bytesToWrapper(legacy(FstCodec.ID, compressor.getId(), compressed)));
+        }
+
+        byte[] kryo = CodecFactory.getCodec(KryoCodec.NAME, null).encode(wrapper, 0);
+        assertWrapper(wrapper, cache.bytesToWrapper(legacy(KryoCodec.ID, 0, kryo)));
+    }
+
+    private static byte[] legacy(int codecId, int compressId, byte[] payload) {
+        byte[] data = new byte[payload.length + 1];
+        data[0] = (byte) (codecId << 4 | compressId);
+        System.arraycopy(payload, 0, data, 1, payload.length);
+        return data;
+    }
+}
@@ -0,0 +1,32 @@
+package com.hjc.component.cache.redis;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * 连接进程内RESP服务的NearRedisCache（测试用），配置名的规则与LocalRedisCache相同<br/>
+ * 失效通知总线按配置名创建，每个实例相当于一个节点
+ *
+ * @author hjc
+ *
+ */
+public class LocalNearRedisCache extends NearRedisCache {
+
+    public LocalNearRedisCache(LocalRespServer server, Properties props) {
+        super("local-redis-" + LocalRedisCache.SEQ.incrementAndGet(),
+            LocalRedisCache.props(server, props));
+    }
+
+    public IBinaryJedis getJedis() {
+        return jedis;
+    }
+
+    public void close() throws IOException {
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
+        jedis.close();
+    }
+}
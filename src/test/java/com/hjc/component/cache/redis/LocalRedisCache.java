@@ -0,0 +1,44 @@
+package com.hjc.component.cache.redis;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * 连接进程内RESP服务的RedisCache（测试用）<br/>
+ * 客户端按配置名缓存，每个实例使用不同的配置名
+ *
+ * @author hjc
+ *
+ */
+public class LocalRedisCache extends RedisCache {
+    static final AtomicInteger SEQ = new AtomicInteger();
+
+    public LocalRedisCache(LocalRespServer server) {
+        this(server, new Properties());
+    }
+
+    public LocalRedisCache(LocalRespServer server, Properties props) {
+        super("local-redis-" + SEQ.incrementAndGet(), props(server, props));
+    }
+
+    static Properties props(LocalRespServer server, Properties props) {
+        Properties p = new Properties();
+        p.putAll(props);
+        p.setProperty("jedis-class", "nio");
+        p.setProperty("jedis-nio.host", "127.0.0.1");
+        p.setProperty("jedis-nio.port", String.valueOf(server.getPort()));
+        p.setProperty("jedis-nio.timeout", "2000");
+        return p;
+    }
+
+    public IBinaryJedis getJedis() {
+        return jedis;
+    }
+
+    public void close() throws IOException {
+        jedis.close();
+    }
+}
@@ -0,0 +1,111 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.bus.InvalidationMessage;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * 失效通知：一个节点修改或删除后，其它节点的一级缓存被删除；超过64K的KEY和旧版本消息的解码
+ *
+ * @author hjc
+ *
+ */
+public class NearRedisCacheInvalidationTest {
+    private LocalRespServer     server;
+    private LocalNearRedisCache node1;
+    private LocalNearRedisCache node2;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        Properties props = new Properties();
+        props.setProperty("invalidation.enabled", "true");
+        props.setProperty("invalidation.type", "local");
+        props.setProperty("invalidation.channel", "test-" + System.nanoTime());
+        props.setProperty("invalidation.batch-interval", "1");
+        node1 = new LocalNearRedisCache(server, props);
+        node2 = new LocalNearRedisCache(server, props);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        node1.close();
+        node2.close();
+        server.close();
+    }
+
+    private static void awaitEvicted(LocalNearRedisCache node) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (node.getLocalSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("其它节点的一级缓存已删除", 0, node.getLocalSize());
+    }
+
+    @Test
+    public void testPutEvictsOtherNode() throws InterruptedException {
+        CacheKey key = new CacheKey("test", "near_user_1", "");
+        node1.put(key, new CacheWrapper("v1", 60));
+        assertEquals("v1", node2.get(key).getCacheObject());
+        assertEquals(1, node2.getLocalSize());
+
+        node1.put(key, new CacheWrapper("v2", 60));
+        awaitEvicted(node2);
+        assertEquals("v2", node2.get(key).getCacheObject());
+
+        node1.del(key);
+        awaitEvicted(node2);
+        assertNull(node2.get(key));
+    }
+
+    @Test
+    public void testLongKey() throws InterruptedException {
+        char[] chars = new char[70 * 1024];
+        Arrays.fill(chars, '键');
+        CacheKey key = new CacheKey("test", new String(chars), "");
+        node1.put(key, new CacheWrapper("v1", 60));
+        assertEquals("v1", node2.get(key).getCacheObject());
+
+        node1.del(key);
+        awaitEvicted(node2);
+
+        InvalidationMessage msg = new InvalidationMessage("node",
+            Arrays.asList(key.getFullKey(), "short"));
+        InvalidationMessage out = InvalidationMessage.decode(msg.encode());
+        assertEquals("node", out.getNodeId());
+        assertEquals(msg.getFullKeys(), out.getFullKeys());
+    }
+
+    @Test
+    public void testDecodeVersion1() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeByte(1);
+        out.writeUTF("old-node");
+        out.writeShort(2);
+        out.writeUTF("k1");
+        out.writeUTF("键2");
+        out.flush();
+        InvalidationMessage msg = InvalidationMessage.decode(bos.toByteArray());
+        assertEquals("old-node", msg.getNodeId());
+        assertEquals(Arrays.asList("k1", "键2"), msg.getFullKeys());
+
+        byte[] data = new InvalidationMessage("node", Arrays.asList("k1")).encode();
+        assertNull("长度不对时返回null",
+            InvalidationMessage.decode(Arrays.copyOf(data, data.length - 1)));
+    }
+}
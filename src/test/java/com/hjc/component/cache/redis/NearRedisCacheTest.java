@@ -0,0 +1,82 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * NearRedisCache：一级缓存命中，一级缓存的存活时间和缓存数据本身的过期
+ *
+ * @author hjc
+ *
+ */
+public class NearRedisCacheTest {
+    private final CacheKey      key = new CacheKey("test", "near_item_1", "");
+    private LocalRespServer     server;
+    private LocalNearRedisCache near;
+    private LocalRedisCache     redis; // 直接修改redis，不经过一级缓存
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        Properties props = new Properties();
+        props.setProperty("near-cache.expire-seconds", "1");
+        near = new LocalNearRedisCache(server, props);
+        redis = new LocalRedisCache(server);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        near.close();
+        redis.close();
+        server.close();
+    }
+
+    @Test
+    public void testLocalHit() {
+        CacheWrapper wrapper = new CacheWrapper("v1", 60);
+        near.put(key, wrapper);
+        redis.put(key, new CacheWrapper("v2", 60));
+
+        assertSame("一级缓存返回同一个对象", wrapper, near.get(key));
+        assertEquals(1, near.getLocalStats().hitCount());
+        assertEquals(1, near.getLocalSize());
+
+        near.invalidateLocal(key);
+        assertEquals("v2", near.get(key).getCacheObject());
+        assertEquals(1, near.getLocalStats().missCount());
+        assertEquals("未命中时从redis读取后放入一级缓存", 1, near.getLocalSize());
+    }
+
+    @Test
+    public void testLocalTtl() throws InterruptedException {
+        near.put(key, new CacheWrapper("v1", 60));
+        redis.put(key, new CacheWrapper("v2", 60));
+        assertEquals("v1", near.get(key).getCacheObject());
+
+        Thread.sleep(1100);// near-cache.expire-seconds
+        assertEquals("一级缓存超过存活时间后读redis", "v2", near.get(key).getCacheObject());
+    }
+
+    @Test
+    public void testWrapperExpired() {
+        CacheWrapper wrapper = new CacheWrapper("v1", 60);
+        near.put(key, wrapper);
+        redis.put(key, new CacheWrapper("v2", 60));
+
+        wrapper.setLastLoadTime(System.currentTimeMillis() - 120000);
+        assertEquals("缓存数据已过期时不使用一级缓存", "v2", near.get(key).getCacheObject());
+        assertEquals("重新读取的值放入一级缓存", "v2", near.get(key).getCacheObject());
+        assertEquals(1, near.getLocalSize());
+    }
+}
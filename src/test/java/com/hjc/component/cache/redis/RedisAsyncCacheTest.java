@@ -0,0 +1,83 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * RedisAsyncCache：使用非阻塞传输的批量读取和删除
+ *
+ * @author hjc
+ *
+ */
+public class RedisAsyncCacheTest {
+    private LocalRespServer server;
+    private LocalRedisCache cache;
+    private RedisAsyncCache asyncCache;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        cache = new LocalRedisCache(server);
+        asyncCache = new RedisAsyncCache(cache, new Properties());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        asyncCache.shutdown();
+        cache.close();
+        server.close();
+    }
+
+    @Test
+    public void testGetAllAsync() throws Exception {
+        CacheKey plain = new CacheKey("test", "plain", null);
+        CacheKey field1 = new CacheKey("test", "hash", "f1");
+        CacheKey field2 = new CacheKey("test", "hash", "f2");
+        CacheKey expired = new CacheKey("test", "hash", "f3");
+        CacheKey missing = new CacheKey("test", "missing", null);
+        cache.put(plain, new CacheWrapper("p", 60));
+        cache.put(field1, new CacheWrapper("v1", 60));
+        cache.put(field2, new CacheWrapper("v2", 60));
+        CacheWrapper old = new CacheWrapper("old", 1);
+        old.setLastLoadTime(System.currentTimeMillis() - 10000);
+        cache.put(expired, old);
+
+        Map<CacheKey, CacheWrapper> ret = asyncCache
+            .getAllAsync(Arrays.asList(plain, field1, missing, field2, expired)).get();
+        assertEquals(3, ret.size());
+        assertEquals("p", ret.get(plain).getCacheObject());
+        assertEquals("v1", ret.get(field1).getCacheObject());
+        assertEquals("v2", ret.get(field2).getCacheObject());
+        assertFalse(ret.containsKey(missing));
+        assertFalse(ret.containsKey(expired));
+        assertTrue(asyncCache.getAllAsync(Arrays.<CacheKey> asList()).get().isEmpty());
+    }
+
+    @Test
+    public void testDelAsync() throws Exception {
+        CacheKey plain = new CacheKey("test", "plain", null);
+        CacheKey field = new CacheKey("test", "hash", "f1");
+        cache.put(plain, new CacheWrapper("p", 60));
+        cache.put(field, new CacheWrapper("v1", 60));
+
+        asyncCache.delAsync(plain).get();
+        asyncCache.delAsync(field).get();
+        assertNull(cache.get(plain));
+        assertNull(cache.get(field));
+    }
+}
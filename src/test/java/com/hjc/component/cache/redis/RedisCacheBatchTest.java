@@ -0,0 +1,109 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * RedisCache批量读写：普通KEY和按hash KEY分组的field，过期的field在读取时删除
+ *
+ * @author hjc
+ *
+ */
+public class RedisCacheBatchTest {
+    private LocalRespServer server;
+    private LocalRedisCache cache;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        cache = new LocalRedisCache(server);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        server.close();
+    }
+
+    private static CacheKey key(String key, String hfield) {
+        return new CacheKey("test", key, hfield);
+    }
+
+    @Test
+    public void testGroupKeys() {
+        List<CacheKey> plainKeys = new ArrayList<CacheKey>();
+        Map<String, List<CacheKey>> hashKeys = RedisCache.groupKeys(
+            Arrays.asList(key("a", null), key("h1", "f1"), key("b", ""), key("h2", "f1"),
+                key("h1", "f2")),
+            plainKeys);
+        assertEquals(Arrays.asList(key("a", null), key("b", "")), plainKeys);
+        assertEquals("按第一次出现的顺序", Arrays.asList("test:h1", "test:h2"),
+            new ArrayList<String>(hashKeys.keySet()));
+        assertEquals(Arrays.asList(key("h1", "f1"), key("h1", "f2")), hashKeys.get("test:h1"));
+        assertEquals(Arrays.asList(key("h2", "f1")), hashKeys.get("test:h2"));
+    }
+
+    @Test
+    public void testPutAllThenGetAll() {
+        Map<CacheKey, CacheWrapper> wrappers = new LinkedHashMap<CacheKey, CacheWrapper>();
+        wrappers.put(key("a", null), new CacheWrapper("va", 60));
+        wrappers.put(key("b", null), new CacheWrapper("vb", 0));
+        wrappers.put(key("h1", "f1"), new CacheWrapper("h1f1", 60));
+        wrappers.put(key("h1", "f2"), new CacheWrapper("h1f2", 60));
+        wrappers.put(key("h2", "f1"), new CacheWrapper("h2f1", 60));
+        cache.putAll(wrappers);
+
+        IBinaryJedis jedis = cache.getJedis();
+        long ttl = jedis.ttl(key("a", null).getCacheKeyBytes());
+        assertTrue(String.valueOf(ttl), ttl > 0 && ttl <= 60);
+        assertEquals("永久缓存", Long.valueOf(-1), jedis.ttl(key("b", null).getCacheKeyBytes()));
+        assertEquals(Long.valueOf(2), jedis.hlen(key("h1", "f1").getCacheKeyBytes()));
+
+        List<CacheKey> keys = new ArrayList<CacheKey>(wrappers.keySet());
+        keys.add(key("missing", null));
+        keys.add(key("h1", "missing"));
+        Map<CacheKey, CacheWrapper> ret = cache.getAll(keys);
+        assertEquals(wrappers.size(), ret.size());
+        for (Map.Entry<CacheKey, CacheWrapper> e : wrappers.entrySet()) {
+            assertEquals(e.getValue().getCacheObject(), ret.get(e.getKey()).getCacheObject());
+        }
+        assertTrue(cache.getAll(new ArrayList<CacheKey>()).isEmpty());
+    }
+
+    @Test
+    public void testExpiredFieldRemoved() {
+        CacheWrapper old = new CacheWrapper("old", 1);
+        old.setLastLoadTime(System.currentTimeMillis() - 10000);
+        cache.put(key("h", "expired"), old);
+        cache.put(key("h", "live"), new CacheWrapper("live", 60));
+
+        Map<CacheKey, CacheWrapper> ret = cache
+            .getAll(Arrays.asList(key("h", "expired"), key("h", "live")));
+        assertEquals(1, ret.size());
+        assertFalse(ret.containsKey(key("h", "expired")));
+        assertEquals("live", ret.get(key("h", "live")).getCacheObject());
+
+        IBinaryJedis jedis = cache.getJedis();
+        CacheKey expired = key("h", "expired");
+        assertNull("过期的field已删除",
+            jedis.hget(expired.getCacheKeyBytes(), expired.getHfieldBytes()));
+        assertEquals(Long.valueOf(1), jedis.hlen(key("h", "live").getCacheKeyBytes()));
+    }
+}
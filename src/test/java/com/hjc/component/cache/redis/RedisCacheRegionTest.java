@@ -0,0 +1,65 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.CacheKey;
+import com.hjc.component.cache.CacheWrapper;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+/**
+ * 区域管理信息：批量保存，删除缓存时从区域移除
+ *
+ * @author hjc
+ *
+ */
+public class RedisCacheRegionTest {
+    private LocalRespServer server;
+    private LocalRedisCache cache;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        cache = new LocalRedisCache(server);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        server.close();
+    }
+
+    @Test
+    public void testAddAllToRegion() {
+        byte[] regionKeyBytes = cache.getRegionKeyBytes("test", "ItemService", "names()");
+        Map<CacheKey, Object[]> keyArguments = new LinkedHashMap<CacheKey, Object[]>();
+        CacheKey key1 = new CacheKey("test", "item_1", "");
+        CacheKey key2 = new CacheKey("test", "item_2", "");
+        keyArguments.put(key1, new Object[] {"1" });
+        keyArguments.put(key2, new Object[] {"2" });
+        cache.put(key1, new CacheWrapper("v1", 60));
+        cache.put(key2, new CacheWrapper("v2", 60));
+
+        cache.addAllToRegion("ItemService", "names()", regionKeyBytes, keyArguments, 60, false,
+            "", System.currentTimeMillis());
+        IBinaryJedis jedis = cache.getJedis();
+        assertEquals(Long.valueOf(2), jedis.zcard(regionKeyBytes));
+        assertNotNull(jedis.hget(cache.regionsKeyToBytes("test"), regionKeyBytes));
+        assertNotNull(jedis.get(cache.toKeyArgsBytes(key1)));
+
+        // 删除时从区域移除
+        cache.del(key1);
+        assertEquals(Long.valueOf(1), jedis.zcard(regionKeyBytes));
+        assertNull(jedis.get(cache.toKeyArgsBytes(key1)));
+        assertNotNull(jedis.get(cache.toKeyArgsBytes(key2)));
+    }
+}
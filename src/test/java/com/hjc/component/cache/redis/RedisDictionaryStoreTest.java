@@ -0,0 +1,102 @@
+package com.hjc.component.cache.redis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.compress.ZstdCompressor;
+import com.hjc.component.cache.compress.ZstdDictCompressor;
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 压缩字典的发布（比较并设置）和淘汰后停止使用
+ *
+ * @author hjc
+ *
+ */
+public class RedisDictionaryStoreTest {
+    private LocalRespServer      server;
+    private BinaryJedisNio       jedis;
+    private RedisDictionaryStore store;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        Properties props = new Properties();
+        props.setProperty("host", "127.0.0.1");
+        props.setProperty("port", String.valueOf(server.getPort()));
+        jedis = new BinaryJedisNio(props);
+        store = new RedisDictionaryStore(jedis, "TEST:$DICT");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        jedis.close();
+        server.close();
+    }
+
+    private static byte[] dict(String text) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 50; ++i) {
+            b.append(text).append(i);
+        }
+        return SafeEncoder.encode(b.toString());
+    }
+
+    @Test
+    public void testOnlyOnePublishPerCurrent() {
+        assertEquals(0, store.getCurrentId());
+        int first = store.save(dict("first"), 0);
+        assertEquals(first, store.getCurrentId());
+
+        // 同时训练的另一个节点：仍以0为当前字典发布，使用先发布的字典
+        int second = store.save(dict("second"), 0);
+        assertEquals(first, second);
+        assertEquals(first, store.getCurrentId());
+        assertArrayEquals(dict("first"), store.load(first));
+        assertNull(store.load(first + 1));
+
+        int next = store.save(dict("next"), first);
+        assertTrue(next > first);
+        assertEquals(next, store.getCurrentId());
+    }
+
+    @Test
+    public void testPublishReplacesEvictedSuccessor() {
+        int first = store.save(dict("first"), 0);
+        jedis.del(SafeEncoder.encode("TEST:$DICT:" + first));// 模拟被淘汰
+        assertFalse(store.exists(first));
+
+        int id = store.save(dict("again"), 0);
+        assertTrue(id > first);
+        assertEquals(id, store.getCurrentId());
+        assertTrue(store.exists(id));
+    }
+
+    @Test
+    public void testStopUsingEvictedDictionary() {
+        int id = store.save(dict("cache-value-"), 0);
+        ZstdDictCompressor compressor = new ZstdDictCompressor(store,
+            ZstdCompressor.DEFAULT_LEVEL, 1024, 10, false, 0);
+        assertTrue(compressor.isReady());
+        byte[] data = dict("cache-value-");
+        byte[] compressed = compressor.compress(data, 0, data.length);
+        assertArrayEquals(data, compressor.uncompress(compressed, 0, compressed.length));
+
+        jedis.del(SafeEncoder.encode("TEST:$DICT:" + id));
+        assertFalse(compressor.isReady());
+        // 已加载的字典仍可解压旧数据
+        assertArrayEquals(data, compressor.uncompress(compressed, 0, compressed.length));
+    }
+}
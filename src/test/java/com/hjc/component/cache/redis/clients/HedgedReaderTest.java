@@ -0,0 +1,133 @@
+package com.hjc.component.cache.redis.clients;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * HedgedReader：样本不足和线程池满时在调用线程上执行，延迟预算和对冲令牌的计数
+ *
+ * @author hjc
+ *
+ */
+public class HedgedReaderTest {
+    private JedisPool     master;
+    private JedisPool     slave;
+    private JedisSlotInfo slotInfo;
+    private HedgedReader  reader;
+
+    @Before
+    public void setUp() {
+        // 不会真正连接
+        master = new JedisPool("127.0.0.1", 1);
+        slave = new JedisPool("127.0.0.1", 2);
+        slotInfo = new JedisSlotInfo(master, Arrays.asList(slave));
+        reader = new HedgedReader(95, 1000, 10, 32, 2000);
+    }
+
+    @After
+    public void tearDown() {
+        reader.close();
+        master.close();
+        slave.close();
+    }
+
+    /**
+     * 在节点上执行时记录线程，第一次（主请求）可指定延迟
+     */
+    private static class TestRead implements HedgedReader.Read<String> {
+        private final long          firstDelay;
+        private final AtomicInteger nodeReads   = new AtomicInteger();
+        private final AtomicInteger directReads = new AtomicInteger();
+        private volatile Thread     thread;
+
+        TestRead(long firstDelay) {
+            this.firstDelay = firstDelay;
+        }
+
+        @Override
+        public String read(JedisPool pool) {
+            if (nodeReads.incrementAndGet() == 1 && firstDelay > 0) {
+                try {
+                    Thread.sleep(firstDelay);
+                } catch (InterruptedException e) {
+                    return "interrupted";
+                }
+                return "primary";
+            }
+            return "hedge";
+        }
+
+        @Override
+        public String read() {
+            directReads.incrementAndGet();
+            thread = Thread.currentThread();
+            return "direct";
+        }
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 512; ++i) {
+            reader.read(slotInfo, new TestRead(0));
+        }
+    }
+
+    @Test
+    public void testDirectReadUntilBudgetKnown() {
+        assertEquals(-1, reader.getBudgetMicros());
+        TestRead read = new TestRead(0);
+        assertEquals("direct", reader.read(slotInfo, read));
+        assertSame("样本不足时在调用线程上执行", Thread.currentThread(), read.thread);
+        assertEquals(1, read.directReads.get());
+        assertEquals("只执行一次", 0, read.nodeReads.get());
+
+        warmUp();
+        assertEquals("直接执行的延迟计入样本", 1000, reader.getBudgetMicros());
+        read = new TestRead(0);
+        assertEquals("hedge", reader.read(slotInfo, read));
+        assertEquals(0, read.directReads.get());
+        assertEquals(1, read.nodeReads.get());
+        assertEquals(0, reader.getHedges());
+    }
+
+    @Test
+    public void testRejectedReadRunsOnCaller() {
+        warmUp();
+        reader.close();// 线程池不再接受任务
+        TestRead read = new TestRead(0);
+        assertEquals("direct", reader.read(slotInfo, read));
+        assertSame(Thread.currentThread(), read.thread);
+        assertEquals(0, read.nodeReads.get());
+        assertEquals(1, reader.getRejected());
+    }
+
+    @Test
+    public void testHedgeTokens() {
+        warmUp();// 令牌已累积到上限（10次对冲）
+        for (int i = 0; i < 12; ++i) {
+            TestRead read = new TestRead(200);
+            String out = reader.read(slotInfo, read);
+            if (i < 11) {
+                assertEquals("超过预算时对冲请求先返回", "hedge", out);
+            } else {
+                assertEquals("令牌不足时等待主请求", "primary", out);
+            }
+            assertEquals(0, read.directReads.get());
+        }
+        // 每次读增加0.1次对冲的令牌：上限10次 + 期间增加的1次
+        assertEquals(11, reader.getHedges());
+        assertEquals(11, reader.getWins());
+        assertEquals(1, reader.getSkipped());
+        assertEquals(512 + 12, reader.getReads());
+        assertTrue(reader.getBudgetMicros() >= 1000);
+    }
+}
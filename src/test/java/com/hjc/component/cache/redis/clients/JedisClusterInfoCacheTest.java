@@ -0,0 +1,112 @@
+package com.hjc.component.cache.redis.clients;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * JedisClusterInfoCache：刷新时整体替换路由表快照，MOVED时只替换单个slot
+ *
+ * @author hjc
+ *
+ */
+public class JedisClusterInfoCacheTest {
+    private static final String         HOST  = "127.0.0.1";
+    private final JedisClusterInfoCache cache = new JedisClusterInfoCache(
+        new GenericObjectPoolConfig(), 1000);
+
+    @After
+    public void tearDown() {
+        cache.reset();
+    }
+
+    /**
+     * 返回指定CLUSTER SLOTS结果的连接（不会真正连接）
+     */
+    private static class SlotsJedis extends Jedis {
+        private final List<Object> slots;
+
+        SlotsJedis(List<Object> slots) {
+            super(HOST, 1);
+            this.slots = slots;
+        }
+
+        @Override
+        public List<Object> clusterSlots() {
+            return slots;
+        }
+    }
+
+    private static List<Object> node(int port) {
+        return Arrays.<Object> asList(SafeEncoder.encode(HOST), Long.valueOf(port));
+    }
+
+    private static List<Object> range(int start, int end, int... ports) {
+        List<Object> range = new ArrayList<Object>();
+        range.add(Long.valueOf(start));
+        range.add(Long.valueOf(end));
+        for (int port : ports) {
+            range.add(node(port));
+        }
+        return range;
+    }
+
+    private JedisPool pool(int port) {
+        return cache.getNode(JedisClusterInfoCache.getNodeKey(new HostAndPort(HOST, port)));
+    }
+
+    @Test
+    public void testSnapshotSwap() {
+        cache.renewClusterSlots(new SlotsJedis(
+            Arrays.<Object> asList(range(0, 8191, 7001, 7002), range(8192, 16383, 7003))));
+        JedisSlotInfo first = cache.getSlotPool(100);
+        assertSame(pool(7001), first.getMasterPool());
+        assertSame("同一范围共用一个JedisSlotInfo", first, cache.getSlotPool(8191));
+        assertSame(pool(7003), cache.getSlotPool(8192).getMasterPool());
+
+        cache.renewClusterSlots(new SlotsJedis(
+            Arrays.<Object> asList(range(0, 100, 7003), range(101, 16383, 7001))));
+        assertSame(pool(7003), cache.getSlotPool(100).getMasterPool());
+        assertSame(pool(7001), cache.getSlotPool(8192).getMasterPool());
+        assertSame("旧的快照不修改", pool(7001), first.getMasterPool());
+        assertSame("节点连接池复用", pool(7001), cache.getSlotPool(101).getMasterPool());
+
+        cache.renewClusterSlots(new SlotsJedis(Arrays.<Object> asList(range(0, 16000, 7001))));
+        assertNull("未分配的slot", cache.getSlotPool(16001));
+    }
+
+    @Test
+    public void testAssignSlot() {
+        cache.renewClusterSlots(new SlotsJedis(
+            Arrays.<Object> asList(range(0, 16383, 7001, 7002))));
+        JedisSlotInfo before = cache.getSlotPool(6);
+
+        HostAndPort moved = new HostAndPort(HOST, 7004);
+        assertTrue(cache.assignSlot(5, moved));
+        assertNotNull("新节点创建连接池", pool(7004));
+        assertSame(pool(7004), cache.getSlotPool(5).getMasterPool());
+        assertEquals("MOVED后的slot没有从节点", 1, cache.getSlotPool(5).getReadCount());
+        assertSame("其它slot不变", before, cache.getSlotPool(6));
+        assertSame(pool(7001), before.getMasterPool());
+
+        assertFalse("已是该节点时不再替换", cache.assignSlot(5, moved));
+        assertTrue(cache.assignSlot(5, new HostAndPort(HOST, 7001)));
+        assertSame(pool(7001), cache.getSlotPool(5).getMasterPool());
+    }
+}
@@ -0,0 +1,123 @@
+package com.hjc.component.cache.redis.clients;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hjc.component.cache.redis.nio.LocalRespServer;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * NodeCircuitBreaker：连续失败和失败率熔断，熔断后读请求改用其它节点，探测成功后恢复
+ *
+ * @author hjc
+ *
+ */
+public class NodeCircuitBreakerTest {
+    private static final long  WINDOW = 10000 * 1000000L;
+    private LocalRespServer    server;
+    private NodeCircuitBreaker breaker;
+    private JedisClusterPool   live;
+    private JedisClusterPool   dead;
+
+    private static JedisClusterPool pool(int port) {
+        return new JedisClusterPool(new GenericObjectPoolConfig(), "127.0.0.1", port, 1000, 1000,
+            null, 0, null, false, null, null, null, false);
+    }
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0);
+        breaker = new NodeCircuitBreaker(50, 10, 5, 10000, 20);
+        live = pool(server.getPort());
+        dead = pool(1);// 不能连接
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        breaker.close();
+        live.destroy();
+        dead.destroy();
+        server.close();
+    }
+
+    private static void awaitClosed(JedisClusterPool pool) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getHealth().isOpen() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testConsecutiveFailuresTrip() {
+        for (int i = 0; i < 4; ++i) {
+            assertFalse(breaker.failure(dead));
+        }
+        assertFalse(NodeCircuitBreaker.isOpen(dead));
+        assertTrue("连续失败5次时熔断", breaker.failure(dead));
+        assertTrue(NodeCircuitBreaker.isOpen(dead));
+        assertFalse("已熔断时不再重复熔断", breaker.failure(dead));
+        assertEquals(1, breaker.getTrips());
+    }
+
+    @Test
+    public void testErrorRateTrip() {
+        NodeCircuitBreaker rateBreaker = new NodeCircuitBreaker(50, 10, 0, 10000, 20);
+        try {
+            NodeHealth health = dead.getHealth();
+            for (int i = 0; i < 6; ++i) {
+                health.success(System.nanoTime(), WINDOW);
+            }
+            for (int i = 0; i < 4; ++i) {
+                assertFalse(rateBreaker.failure(dead));
+            }
+            assertFalse("11个请求中5个失败", rateBreaker.failure(dead));
+            assertTrue("12个请求中6个失败（50%）", rateBreaker.failure(dead));
+            assertTrue(health.isOpen());
+            assertEquals(12, health.getRequests());
+            assertEquals(1, rateBreaker.getTrips());
+        } finally {
+            rateBreaker.close();
+        }
+    }
+
+    @Test
+    public void testReadRoutedAwayFromOpenNode() {
+        JedisSlotInfo slotInfo = new JedisSlotInfo(live, Arrays.<JedisPool> asList(dead),
+            ReadStrategy.ROUND_ROBIN);
+        for (int i = 0; i < 5; ++i) {
+            breaker.failure(dead);
+        }
+        for (int i = 0; i < 10; ++i) {
+            assertSame(live, slotInfo.getReadPool());
+        }
+    }
+
+    @Test
+    public void testRecovery() throws InterruptedException {
+        for (int i = 0; i < 5; ++i) {
+            breaker.failure(live);
+            breaker.failure(dead);
+        }
+        assertTrue(NodeCircuitBreaker.isOpen(live));
+        assertTrue(NodeCircuitBreaker.isOpen(dead));
+
+        awaitClosed(live);
+        assertFalse("PING成功后恢复", NodeCircuitBreaker.isOpen(live));
+        assertEquals(0, live.getHealth().getRequests());
+        assertEquals(1, breaker.getRecoveries());
+
+        Thread.sleep(100);
+        assertTrue("PING失败时继续熔断", NodeCircuitBreaker.isOpen(dead));
+    }
+}
@@ -0,0 +1,123 @@
+package com.hjc.component.cache.redis.clients;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 读节点选择：P2C选择代价小的节点，NodeLatency的peak EWMA和空闲衰减
+ *
+ * @author hjc
+ *
+ */
+public class ReadSelectionTest {
+    private static final long MICROS = 1000L;
+    private static final long MILLIS = 1000 * MICROS;
+    private JedisClusterPool  master;
+    private JedisClusterPool  fast;
+    private JedisClusterPool  slow;
+    private JedisSlotInfo     slotInfo;
+
+    private static JedisClusterPool pool(int port) {
+        // 不会真正连接
+        return new JedisClusterPool(new GenericObjectPoolConfig(), "127.0.0.1", port, 1000, 1000,
+            null, 0, null, false, null, null, null, false);
+    }
+
+    @Before
+    public void setUp() {
+        master = pool(1);
+        fast = pool(2);
+        slow = pool(3);
+        slotInfo = new JedisSlotInfo(master, Arrays.<JedisPool> asList(fast, slow),
+            ReadStrategy.P2C);
+        record(master, 100 * MICROS);
+        record(fast, 100 * MICROS);
+        record(slow, 50 * MILLIS);
+    }
+
+    @After
+    public void tearDown() {
+        master.destroy();
+        fast.destroy();
+        slow.destroy();
+    }
+
+    private static void record(JedisClusterPool pool, long nanos) {
+        pool.getLatency().begin();
+        pool.getLatency().end(nanos);
+    }
+
+    @Test
+    public void testP2CAvoidsSlowNode() {
+        for (int i = 0; i < 1000; ++i) {
+            assertNotSame("两个候选中总有一个更快的节点", slow, slotInfo.getReadPool());
+        }
+    }
+
+    @Test
+    public void testP2CAvoidsBusyNode() {
+        for (int i = 0; i < 1000; ++i) {
+            fast.getLatency().begin();// 正在执行1000个命令：代价100毫秒
+        }
+        int masterReads = 0;
+        for (int i = 0; i < 1000; ++i) {
+            JedisPool pool = slotInfo.getReadPool();
+            assertNotSame(fast, pool);
+            if (pool == master) {
+                masterReads++;
+            }
+        }
+        // master与另外两个节点比较时都被选中：约2/3
+        assertTrue(String.valueOf(masterReads), masterReads > 500);
+    }
+
+    @Test
+    public void testHedgeTargetIsCheapest() {
+        assertSame(fast, slotInfo.getReadPool(master));
+        assertSame(master, slotInfo.getReadPool(fast));
+        assertEquals(3, slotInfo.getReadCount());
+    }
+
+    @Test
+    public void testPeakEwma() {
+        NodeLatency latency = new NodeLatency();
+        latency.begin();
+        latency.end(10 * MILLIS);
+        assertEquals("变慢立即生效", 10 * MILLIS / MICROS, latency.getLatencyMicros());
+
+        latency.begin();
+        latency.end(MILLIS);
+        assertTrue("变快时按时间衰减，紧接着的样本几乎不影响",
+            latency.getLatencyMicros() > 9 * MILLIS / MICROS);
+        assertEquals(0, latency.getInflight());
+    }
+
+    @Test
+    public void testIdleDecay() {
+        NodeLatency latency = new NodeLatency();
+        latency.begin();
+        latency.end(10 * MILLIS);
+        long now = System.nanoTime();
+        double cost = latency.cost(now);
+        assertEquals(10 * MILLIS, cost, 10 * MILLIS * 0.01);
+
+        // 空闲10秒（一个时间常数）后衰减为约1/e
+        assertEquals(cost / Math.E, latency.cost(now + 10000 * MILLIS), cost * 0.01);
+        assertTrue(latency.cost(now + 60000 * MILLIS) < cost / 100);
+
+        latency.begin();
+        latency.begin();
+        assertEquals("代价按正在执行的命令数放大", cost * 3, latency.cost(now), cost * 0.03);
+    }
+}
@@ -0,0 +1,614 @@
+package com.hjc.component.cache.redis.nio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 进程内的RESP服务（redis替身），用于没有redis时的开发和测试<br/>
+ * 只支持缓存组件用到的常用命令（字符串、哈希、有序集合、KEY过期），数据只保存在内存中；
+ * 所有数据库共用同一份数据，AUTH校验密码（未设置密码时返回错误）；EVAL只支持比较并删除的脚本；
+ * 每个连接一个线程，支持管道
+ *
+ * @author hjc
+ *
+ */
+public class LocalRespServer {
+    private static final Logger       logger    = LoggerFactory.getLogger(LocalRespServer.class);
+    private static final byte[]       CRLF      = new byte[] {'\r', '\n' };
+    private static final int          DATABASES = 16;
+    private static final String       CAS_DEL   = "if redis.call('get',KEYS[1])==ARGV[1] then "
+                                                  + "return redis.call('del',KEYS[1]) end";
+    private final ServerSocket        server;
+    private final String              password;
+    private final Map<String, Entry>  data      = new HashMap<String, Entry>();
+    private final AtomicInteger       clients   = new AtomicInteger();
+    private volatile boolean          running   = true;
+
+    /**
+     * 存储的值
+     */
+    private static class Entry {
+        private Object value;     //byte[]、Map<String, byte[]>、Map<String, Double>
+        private long   expireAt;  //过期时间，0表示不过期
+
+        private Entry(Object value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * 错误应答
+     */
+    private static class RespError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private RespError(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 启动服务（端口为0时随机选择）
+     *
+     * @param port
+     *            端口
+     */
+    public LocalRespServer(int port) {
+        this(port, null);
+    }
+
+    /**
+     * 启动服务（端口为0时随机选择）
+     *
+     * @param port
+     *            端口
+     * @param password
+     *            密码（可为null）
+     */
+    public LocalRespServer(int port, String password) {
+        this.password = password;
+        try {
+            server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException("启动本地RESP服务失败, port:" + port, e);
+        }
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "local-resp-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * 当前连接数
+     *
+     * @return 连接数
+     */
+    public int getClients() {
+        return clients.get();
+    }
+
+    public void close() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                final Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "local-resp-client-" + clients.incrementAndGet());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("本地RESP服务接受连接异常", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (running) {
+                List<byte[]> args = readCommand(in);
+                if (args == null) {
+                    break;
+                }
+                Object reply;
+                try {
+                    reply = execute(args);
+                } catch (RespError e) {
+                    reply = e;
+                }
+                writeReply(out, reply);
+                if (in.available() == 0) {
+                    out.flush();// 管道中的命令处理完再写出
+                }
+            }
+        } catch (IOException ignore) {
+        } finally {
+            clients.decrementAndGet();
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    // ------------------------------- 协议 -------------------------------
+
+    private List<byte[]> readCommand(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            return null;
+        }
+        if (b != '*') {
+            throw new IOException("只支持多批量格式的命令");
+        }
+        int size = Integer.parseInt(readLine(in));
+        List<byte[]> args = new ArrayList<byte[]>(size);
+        for (int i = 0; i < size; ++i) {
+            if (in.read() != '$') {
+                throw new IOException("命令参数格式错误");
+            }
+            int len = Integer.parseInt(readLine(in));
+            byte[] arg = new byte[len];
+            int off = 0;
+            while (off < len) {
+                int n = in.read(arg, off, len - off);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                off += n;
+            }
+            in.read();
+            in.read();// \r\n
+            args.add(arg);
+        }
+        return args;
+    }
+
+    private String readLine(InputStream in) throws IOException {
+        StringBuilder b = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) {
+                throw new EOFException();
+            }
+            b.append((char) c);
+        }
+        in.read();// \n
+        return b.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeReply(OutputStream out, Object reply) throws IOException {
+        if (reply == null) {
+            out.write(SafeEncoder.encode("$-1"));
+            out.write(CRLF);
+        } else if (reply instanceof RespError) {
+            out.write(SafeEncoder.encode("-ERR " + ((RespError) reply).getMessage()));
+            out.write(CRLF);
+        } else if (reply instanceof String) {
+            out.write(SafeEncoder.encode("+" + reply));
+            out.write(CRLF);
+        } else if (reply instanceof Long) {
+            out.write(SafeEncoder.encode(":" + reply));
+            out.write(CRLF);
+        } else if (reply instanceof byte[]) {
+            byte[] bytes = (byte[]) reply;
+            out.write(SafeEncoder.encode("$" + bytes.length));
+            out.write(CRLF);
+            out.write(bytes);
+            out.write(CRLF);
+        } else {
+            List<Object> list = (List<Object>) reply;
+            out.write(SafeEncoder.encode("*" + list.size()));
+            out.write(CRLF);
+            for (Object item : list) {
+                writeReply(out, item);
+            }
+        }
+    }
+
+    // ------------------------------- 命令 -------------------------------
+
+    // KEY、field、member按ISO-8859-1与字节一一对应，保证二进制数据不变
+    private static String str(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long num(byte[] bytes) {
+        try {
+            return Long.parseLong(str(bytes));
+        } catch (NumberFormatException e) {
+            throw new RespError("value is not an integer or out of range");
+        }
+    }
+
+    private static double score(byte[] bytes) {
+        String s = str(bytes);
+        if ("+inf".equals(s) || "inf".equals(s) || "Infinity".equals(s)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if ("-inf".equals(s) || "-Infinity".equals(s)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new RespError("value is not a valid float");
+        }
+    }
+
+    private static void checkArgs(List<byte[]> args, int min) {
+        if (args.size() < min) {
+            throw new RespError("wrong number of arguments for '" + str(args.get(0)) + "' command");
+        }
+    }
+
+    private Entry entry(String key) {
+        Entry e = data.get(key);
+        if (e != null && e.expireAt > 0 && e.expireAt <= System.currentTimeMillis()) {
+            data.remove(key);
+            return null;
+        }
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T value(String key, Class<T> type, boolean create) {
+        Entry e = entry(key);
+        if (e == null) {
+            if (!create) {
+                return null;
+            }
+            Object value = type == byte[].class ? new byte[0] : new LinkedHashMap<String, Object>();
+            e = new Entry(value);
+            data.put(key, e);
+        }
+        if (!type.isInstance(e.value)) {
+            throw new RespError("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+        return (T) e.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> hash(String key, boolean create) {
+        return value(key, Map.class, create);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> zset(String key, boolean create) {
+        return value(key, Map.class, create);
+    }
+
+    private void set(String key, byte[] value, long expireAt) {
+        Entry e = new Entry(value);
+        e.expireAt = expireAt;
+        data.put(key, e);
+    }
+
+    private Object execute(List<byte[]> args) {
+        if (args.isEmpty()) {
+            throw new RespError("empty command");
+        }
+        String command = str(args.get(0)).toUpperCase();
+        if ("DEBUG".equals(command) && args.size() == 3
+            && "SLEEP".equalsIgnoreCase(str(args.get(1)))) {
+            // 模拟redis停顿（不持有数据锁，只阻塞当前连接）
+            try {
+                Thread.sleep((long) (score(args.get(2)) * 1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "OK";
+        }
+        synchronized (data) {
+            return execute(command, args);
+        }
+    }
+
+    private Object execute(String command, List<byte[]> args) {
+        long now = System.currentTimeMillis();
+        if ("PING".equals(command)) {
+            return "PONG";
+        } else if ("AUTH".equals(command)) {
+            checkArgs(args, 2);
+            if (password == null || !password.equals(str(args.get(1)))) {
+                throw new RespError("invalid password");
+            }
+            return "OK";
+        } else if ("SELECT".equals(command)) {
+            checkArgs(args, 2);
+            long db = num(args.get(1));
+            if (db < 0 || db >= DATABASES) {
+                throw new RespError("DB index is out of range");
+            }
+            return "OK";
+        } else if ("PUBLISH".equals(command)) {
+            checkArgs(args, 3);
+            return 0L;
+        } else if ("GET".equals(command)) {
+            checkArgs(args, 2);
+            return value(str(args.get(1)), byte[].class, false);
+        } else if ("SET".equals(command)) {
+            checkArgs(args, 3);
+            long expireAt = 0;
+            boolean nx = false;
+            boolean xx = false;
+            for (int i = 3; i < args.size(); ++i) {
+                String option = str(args.get(i)).toUpperCase();
+                if ("NX".equals(option)) {
+                    nx = true;
+                } else if ("XX".equals(option)) {
+                    xx = true;
+                } else if ("EX".equals(option) && i + 1 < args.size()) {
+                    expireAt = now + num(args.get(++i)) * 1000;
+                } else if ("PX".equals(option) && i + 1 < args.size()) {
+                    expireAt = now + num(args.get(++i));
+                } else {
+                    throw new RespError("syntax error");
+                }
+            }
+            boolean exists = entry(str(args.get(1))) != null;
+            if ((nx && exists) || (xx && !exists)) {
+                return null;
+            }
+            set(str(args.get(1)), args.get(2), expireAt);
+            return "OK";
+        } else if ("EVAL".equals(command)) {
+            // 只支持比较并删除（释放租约、锁）的脚本
+            checkArgs(args, 5);
+            if (!CAS_DEL.replaceAll("\\s+", "").equals(str(args.get(1)).replaceAll("\\s+", ""))
+                || num(args.get(2)) != 1) {
+                throw new RespError("unsupported script");
+            }
+            Entry e = entry(str(args.get(3)));
+            if (e != null && e.value instanceof byte[] && Arrays.equals((byte[]) e.value, args.get(4))) {
+                data.remove(str(args.get(3)));
+                return 1L;
+            }
+            return null;
+        } else if ("SETEX".equals(command)) {
+            checkArgs(args, 4);
+            set(str(args.get(1)), args.get(3), now + num(args.get(2)) * 1000);
+            return "OK";
+        } else if ("SETNX".equals(command)) {
+            checkArgs(args, 3);
+            if (entry(str(args.get(1))) != null) {
+                return 0L;
+            }
+            set(str(args.get(1)), args.get(2), 0);
+            return 1L;
+        } else if ("MGET".equals(command)) {
+            checkArgs(args, 2);
+            List<Object> values = new ArrayList<Object>();
+            for (int i = 1; i < args.size(); ++i) {
+                Entry e = entry(str(args.get(i)));
+                values.add(e != null && e.value instanceof byte[] ? e.value : null);
+            }
+            return values;
+        } else if ("INCR".equals(command) || "DECR".equals(command) || "INCRBY".equals(command)
+            || "DECRBY".equals(command)) {
+            checkArgs(args, 2);
+            long delta = command.startsWith("INCR") ? 1 : -1;
+            if (command.endsWith("BY")) {
+                checkArgs(args, 3);
+                delta *= num(args.get(2));
+            }
+            String key = str(args.get(1));
+            Entry e = entry(key);
+            long value = (e == null ? 0 : num(value(key, byte[].class, false))) + delta;
+            if (e == null) {
+                set(key, SafeEncoder.encode(String.valueOf(value)), 0);
+            } else {
+                e.value = SafeEncoder.encode(String.valueOf(value));
+            }
+            return value;
+        } else if ("DEL".equals(command)) {
+            checkArgs(args, 2);
+            long count = 0;
+            for (int i = 1; i < args.size(); ++i) {
+                if (entry(str(args.get(i))) != null) {
+                    data.remove(str(args.get(i)));
+                    ++count;
+                }
+            }
+            return count;
+        } else if ("EXISTS".equals(command)) {
+            checkArgs(args, 2);
+            return entry(str(args.get(1))) != null ? 1L : 0L;
+        } else if ("EXPIRE".equals(command) || "PEXPIRE".equals(command)) {
+            checkArgs(args, 3);
+            Entry e = entry(str(args.get(1)));
+            if (e == null) {
+                return 0L;
+            }
+            long ttl = num(args.get(2));
+            e.expireAt = now + ("EXPIRE".equals(command) ? ttl * 1000 : ttl);
+            return 1L;
+        } else if ("PERSIST".equals(command)) {
+            checkArgs(args, 2);
+            Entry e = entry(str(args.get(1)));
+            if (e == null || e.expireAt == 0) {
+                return 0L;
+            }
+            e.expireAt = 0;
+            return 1L;
+        } else if ("TTL".equals(command)) {
+            checkArgs(args, 2);
+            Entry e = entry(str(args.get(1)));
+            if (e == null) {
+                return -2L;
+            }
+            return e.expireAt == 0 ? -1L : (e.expireAt - now + 999) / 1000;
+        } else if ("HGET".equals(command)) {
+            checkArgs(args, 3);
+            Map<String, byte[]> hash = hash(str(args.get(1)), false);
+            return hash == null ? null : hash.get(str(args.get(2)));
+        } else if ("HMGET".equals(command)) {
+            checkArgs(args, 3);
+            Map<String, byte[]> hash = hash(str(args.get(1)), false);
+            List<Object> values = new ArrayList<Object>();
+            for (int i = 2; i < args.size(); ++i) {
+                values.add(hash == null ? null : hash.get(str(args.get(i))));
+            }
+            return values;
+        } else if ("HSET".equals(command) || "HMSET".equals(command)) {
+            checkArgs(args, 4);
+            Map<String, byte[]> hash = hash(str(args.get(1)), true);
+            long added = 0;
+            for (int i = 2; i + 1 < args.size(); i += 2) {
+                if (hash.put(str(args.get(i)), args.get(i + 1)) == null) {
+                    ++added;
+                }
+            }
+            return "HMSET".equals(command) ? (Object) "OK" : (Object) added;
+        } else if ("HDEL".equals(command)) {
+            checkArgs(args, 3);
+            Map<String, byte[]> hash = hash(str(args.get(1)), false);
+            long count = 0;
+            for (int i = 2; hash != null && i < args.size(); ++i) {
+                if (hash.remove(str(args.get(i))) != null) {
+                    ++count;
+                }
+            }
+            if (hash != null && hash.isEmpty()) {
+                data.remove(str(args.get(1)));
+            }
+            return count;
+        } else if ("HLEN".equals(command)) {
+            checkArgs(args, 2);
+            Map<String, byte[]> hash = hash(str(args.get(1)), false);
+            return hash == null ? 0L : (long) hash.size();
+        } else if ("HGETALL".equals(command)) {
+            checkArgs(args, 2);
+            Map<String, byte[]> hash = hash(str(args.get(1)), false);
+            List<Object> values = new ArrayList<Object>();
+            if (hash != null) {
+                for (Map.Entry<String, byte[]> e : hash.entrySet()) {
+                    values.add(bytes(e.getKey()));
+                    values.add(e.getValue());
+                }
+            }
+            return values;
+        } else if ("ZADD".equals(command)) {
+            checkArgs(args, 4);
+            Map<String, Double> zset = zset(str(args.get(1)), true);
+            long added = 0;
+            for (int i = 2; i + 1 < args.size(); i += 2) {
+                if (zset.put(str(args.get(i + 1)), score(args.get(i))) == null) {
+                    ++added;
+                }
+            }
+            return added;
+        } else if ("ZREM".equals(command)) {
+            checkArgs(args, 3);
+            Map<String, Double> zset = zset(str(args.get(1)), false);
+            long count = 0;
+            for (int i = 2; zset != null && i < args.size(); ++i) {
+                if (zset.remove(str(args.get(i))) != null) {
+                    ++count;
+                }
+            }
+            return count;
+        } else if ("ZCARD".equals(command)) {
+            checkArgs(args, 2);
+            Map<String, Double> zset = zset(str(args.get(1)), false);
+            return zset == null ? 0L : (long) zset.size();
+        } else if ("ZSCORE".equals(command)) {
+            checkArgs(args, 3);
+            Map<String, Double> zset = zset(str(args.get(1)), false);
+            Double score = zset == null ? null : zset.get(str(args.get(2)));
+            return score == null ? null : SafeEncoder.encode(String.valueOf(score));
+        } else if ("ZRANGE".equals(command) || "ZRANGEBYSCORE".equals(command)) {
+            checkArgs(args, 4);
+            return zrange(command, args);
+        }
+        throw new RespError("unknown command '" + command + "'");
+    }
+
+    private Object zrange(String command, List<byte[]> args) {
+        Map<String, Double> zset = zset(str(args.get(1)), false);
+        List<Object> values = new ArrayList<Object>();
+        if (zset == null) {
+            return values;
+        }
+
+        List<Map.Entry<String, Double>> entries = new ArrayList<Map.Entry<String, Double>>(
+            zset.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Double>>() {
+            @Override
+            public int compare(Map.Entry<String, Double> a, Map.Entry<String, Double> b) {
+                int c = Double.compare(a.getValue(), b.getValue());
+                return c != 0 ? c : a.getKey().compareTo(b.getKey());
+            }
+        });
+
+        if ("ZRANGE".equals(command)) {
+            int size = entries.size();
+            long start = num(args.get(2));
+            long stop = num(args.get(3));
+            start = start < 0 ? Math.max(0, size + start) : start;
+            stop = stop < 0 ? size + stop : Math.min(stop, size - 1);
+            for (long i = start; i <= stop; ++i) {
+                values.add(bytes(entries.get((int) i).getKey()));
+            }
+        } else {
+            double min = score(args.get(2));
+            double max = score(args.get(3));
+            for (Map.Entry<String, Double> e : entries) {
+                if (e.getValue() >= min && e.getValue() <= max) {
+                    values.add(bytes(e.getKey()));
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,140 @@
+package com.hjc.component.cache.redis.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * NioRespClient：管道发送、应答匹配，以及认证、选择数据库失败时的连接处理
+ *
+ * @author hjc
+ *
+ */
+public class NioRespClientTest {
+    private LocalRespServer server;
+    private NioRespClient   client;
+
+    @Before
+    public void setUp() {
+        server = new LocalRespServer(0, "secret");
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        server.close();
+    }
+
+    private NioRespClient client(String password, int database) {
+        client = new NioRespClient("127.0.0.1", server.getPort(), password, database, 2, 2000,
+            2000);
+        return client;
+    }
+
+    private static byte[] b(String str) {
+        return SafeEncoder.encode(str);
+    }
+
+    @Test
+    public void testSetGet() {
+        NioRespClient client = client("secret", 1);
+        assertEquals("OK", client.execute(b("SET"), b("k1"), b("v1")));
+        assertArrayEquals(b("v1"), (byte[]) client.execute(b("GET"), b("k1")));
+        assertNull(client.execute(b("GET"), b("missing")));
+    }
+
+    @Test
+    public void testPipelinedRepliesMatchRequests() throws Exception {
+        NioRespClient client = client("secret", 0);
+        List<CompletableFuture<Object>> sets = new ArrayList<CompletableFuture<Object>>();
+        for (int i = 0; i < 500; ++i) {
+            sets.add(client.send(b("SET"), b("key" + i), b("value" + i)));
+        }
+        for (CompletableFuture<Object> set : sets) {
+            assertEquals("OK", client.await(set));
+        }
+
+        List<CompletableFuture<Object>> gets = new ArrayList<CompletableFuture<Object>>();
+        for (int i = 0; i < 500; ++i) {
+            gets.add(client.send(b("GET"), b("key" + i)));
+        }
+        for (int i = 0; i < 500; ++i) {
+            assertArrayEquals(b("value" + i), (byte[]) client.await(gets.get(i)));
+        }
+        assertEquals(0, client.getInflight());
+    }
+
+    @Test
+    public void testAuthFailureFailsConnect() {
+        NioRespClient client = client("wrong", 0);
+        assertInitFailure(client.send(b("GET"), b("k1")), "AUTH");
+        // 连接未保存，下一个命令重新连接并再次失败
+        assertInitFailure(client.send(b("GET"), b("k1")), "AUTH");
+        assertEquals(0, client.getInflight());
+    }
+
+    @Test
+    public void testSelectFailureFailsConnect() {
+        NioRespClient client = client("secret", 99);
+        try {
+            client.execute(b("PING"));
+            fail("SELECT失败时不应使用连接");
+        } catch (JedisConnectionException e) {
+            assertTrue(e.getMessage().contains("SELECT"));
+        }
+    }
+
+    @Test
+    public void testAsyncRequestTimesOut() throws Exception {
+        client = new NioRespClient("127.0.0.1", server.getPort(), "secret", 0, 1, 2000, 200);
+        CompletableFuture<Object> stalled = client.send(b("DEBUG"), b("SLEEP"), b("2"));
+        CompletableFuture<Object> queued = client.send(b("GET"), b("k1"));
+        try {
+            stalled.get(1, TimeUnit.SECONDS);// 事件循环返回超时，不需要调用await
+            fail("redis停顿时命令应超时");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof JedisConnectionException);
+            assertTrue(e.getCause().getMessage().contains("超时"));
+        }
+        // 超时后应答顺序不可靠，同一连接上的命令都返回异常
+        try {
+            queued.get(1, TimeUnit.SECONDS);
+            fail("超时连接上的其它命令应返回异常");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof JedisConnectionException);
+        }
+        assertEquals(0, client.getInflight());
+        // 下一个命令使用新连接
+        assertEquals("OK", client.execute(b("SET"), b("k1"), b("v1")));
+    }
+
+    private static void assertInitFailure(CompletableFuture<Object> future, String command) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("初始化失败时命令应返回异常");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof JedisConnectionException);
+            assertTrue(e.getCause().getMessage().contains(command));
+        } catch (InterruptedException e) {
+            fail();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.hjc.component.cache.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * KeyGeneratorCompiler：内置方法#hash、#empty不依赖CacheUtil是否已加载，字符串拼接模板与SpEL的结果一致
+ *
+ * @author hjc
+ *
+ */
+public class KeyGeneratorCompilerTest {
+
+    /**
+     * 组件的类（com.hjc）由自己加载，其它类委托给父加载器，相当于组件刚加载、CacheUtil还未初始化
+     */
+    private static class FreshClassLoader extends URLClassLoader {
+        FreshClassLoader(URL url, ClassLoader parent) {
+            super(new URL[] {url }, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith("com.hjc.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c == null) {
+                    c = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(c);
+                }
+                return c;
+            }
+        }
+    }
+
+    @Test
+    public void testBuiltinFunctionsOnFreshClassLoader() throws Exception {
+        URL classes = KeyGeneratorCompiler.class.getProtectionDomain().getCodeSource()
+            .getLocation();
+        FreshClassLoader loader = new FreshClassLoader(classes, getClass().getClassLoader());
+        try {
+            Class<?> compiler = loader.loadClass(KeyGeneratorCompiler.class.getName());
+            assertSame(loader, compiler.getClassLoader());
+            Method getGenerator = compiler.getMethod("getGenerator", String.class);
+            Method getValue = loader.loadClass(KeyGenerator.class.getName()).getMethod("getValue",
+                Object[].class, Object.class, Object.class, Class.class);
+
+            Object hash = getGenerator.invoke(null, "'user_'+#hash(#args[0])");
+            Object key = getValue.invoke(hash, new Object[] {"abc" }, null, null, String.class);
+            assertEquals("user_" + CacheUtil.getUniqueHashStr("abc"), key);
+
+            Object empty = getGenerator.invoke(null, "#empty(#args[0])");
+            assertEquals(Boolean.TRUE,
+                getValue.invoke(empty, new Object[] {"" }, null, null, Boolean.class));
+        } finally {
+            loader.close();
+        }
+    }
+
+    @Test
+    public void testBuiltinFunctions() {
+        String key = KeyGeneratorCompiler.getGenerator("'user_'+#hash(#args[0])")
+            .getValue(new Object[] {"abc" }, null, null, String.class);
+        assertEquals("user_" + CacheUtil.getUniqueHashStr("abc"), key);
+    }
+
+    /**
+     * 直接使用SpEL（解释模式）计算，异常作为结果返回
+     */
+    private static Object spel(String spel, Object[] args, Object retVal, Object item) {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setVariable("args", args);
+        context.setVariable("retVal", retVal);
+        context.setVariable("item", item);
+        try {
+            return new SpelExpressionParser().parseExpression(spel).getValue(context, String.class);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static Object compiled(String spel, Object[] args, Object retVal, Object item) {
+        try {
+            return KeyGeneratorCompiler.compile(spel).getValue(args, retVal, item, String.class);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static void assertSameAsSpel(String spel, Object[] args, Object retVal, Object item) {
+        Object expected = spel(spel, args, retVal, item);
+        Object actual = compiled(spel, args, retVal, item);
+        String message = spel + " " + Arrays.deepToString(args) + " " + retVal + " " + item;
+        if (expected instanceof RuntimeException) {
+            assertEquals(message, expected.getClass(), actual.getClass());
+            if (expected instanceof SpelEvaluationException) {
+                assertEquals(message, ((SpelEvaluationException) expected).getMessageCode(),
+                    ((SpelEvaluationException) actual).getMessageCode());
+            }
+        } else {
+            assertEquals(message, expected, actual);
+        }
+    }
+
+    @Test
+    public void testTemplateSameAsSpel() {
+        String spel = "'user_'+#args[0]+'_'+#args[1]";
+        assertNotNull("字符串拼接模板", KeyGeneratorCompiler.parseTemplate(spel));
+        Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+        map.put("a", 1);
+        Object[] values = {null, 1, -12L, 1.5d, 0.1f, (short) 3, true, 'c', "str",
+                Arrays.asList(1, 2, 3), Collections.emptyList(),
+                new HashSet<String>(Arrays.asList("x")), Arrays.asList("a", null),
+                new int[] {1, 2 }, map };
+        for (Object value : values) {
+            assertSameAsSpel(spel, new Object[] {value, "x" }, null, null);
+            assertSameAsSpel(spel, new Object[] {"x", value }, null, null);
+            assertSameAsSpel("'ret_'+#retVal", null, value, null);
+            assertSameAsSpel("'item_'+#item+'_'+#args[0]", new Object[] {1 }, null, value);
+        }
+    }
+
+    @Test
+    public void testTemplateArgsOutOfRange() {
+        String spel = "'user_'+#args[0]+'_'+#args[2]";
+        assertNotNull(KeyGeneratorCompiler.parseTemplate(spel));
+        Object[][] argsList = {new Object[] {"a", "b" }, new Object[0], null };
+        for (Object[] args : argsList) {
+            assertTrue("下标越界时抛出异常", spel(spel, args, null, null) instanceof RuntimeException);
+            assertSameAsSpel(spel, args, null, null);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.hjc.component.cache.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.hjc.component.cache.codec.KryoCodec;
+import com.hjc.component.cache.compress.DecompressBuffer;
+
+/**
+ * 序列化：大对象序列化后按线程复用的缓冲区不超过上限，预留头部的往返
+ *
+ * @author hjc
+ *
+ */
+public class SerializeTest {
+    private static final byte[] LARGE = new byte[DecompressBuffer.MAX_RETAIN * 2];
+
+    static {
+        for (int i = 0; i < LARGE.length; ++i) {
+            LARGE[i] = (byte) i;
+        }
+    }
+
+    @Test
+    public void testFstBufferReleased() {
+        byte[] data = Serialize.fstserialize(LARGE, 3);
+        assertTrue(Serialize.getConfiguration().getObjectOutput().getBuffer()
+            .length <= DecompressBuffer.MAX_RETAIN);
+        byte[] out = Serialize.fstdeserializeAt(data, 3, data.length - 3);
+        assertArrayEquals(LARGE, out);
+
+        data = Serialize.fstserialize(LARGE);
+        assertTrue(Serialize.getConfiguration().getObjectOutput().getBuffer()
+            .length <= DecompressBuffer.MAX_RETAIN);
+        assertArrayEquals(LARGE, (byte[]) Serialize.fstdeserialize(data));
+
+        // 缓冲区释放后仍可继续使用
+        assertEquals("small", Serialize.fstdeserialize(Serialize.fstserialize("small")));
+    }
+
+    @Test
+    public void testFstCopyFrom() {
+        byte[] data = Serialize.fstserialize("value");
+        byte[] buf = new byte[data.length + 5];
+        System.arraycopy(data, 0, buf, 5, data.length);
+        assertEquals("value", Serialize.fstdeserialize(buf, 5, data.length));
+    }
+
+    @Test
+    public void testKryoLargeThenSmall() {
+        KryoCodec codec = new KryoCodec();
+        byte[] data = codec.encode(LARGE, 2);
+        assertArrayEquals(LARGE, (byte[]) codec.decode(data, 2, data.length - 2));
+
+        data = codec.encode("small", 2);
+        assertEquals("small", codec.decode(data, 2, data.length - 2));
+    }
+}